@@ -0,0 +1,417 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Disposable;
+import com.mygdx.game.visibilitygraph.VGHeuristic;
+import com.mygdx.game.visibilitygraph.VisibilityGraph;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers path requests asynchronously on a shared {@link VisibilityGraph},
+ * for simulations which issue many requests from many agents. Each request
+ * returns a {@link CompletableFuture} which is completed with the path when
+ * a search on the executor finishes. Searches use
+ * {@link VisibilityGraph#findPath}, which only reads the graph, so any
+ * number of them can run on one graph in parallel.
+ * <p>
+ * Requests are handled as follows:
+ * <ul>
+ *     <li>Coalescing: a request with the same start and end point as a
+ *     search which is pending or running shares that search, and its
+ *     unmodifiable path list.</li>
+ *     <li>Superseding: a request may name the agent it is for. A new request
+ *     for the same agent cancels the agent's previous future, and a search
+ *     whose requests were all cancelled is skipped if it has not started
+ *     yet.</li>
+ *     <li>Backpressure: at most a fixed number of searches are pending or
+ *     running. Further requests which cannot be coalesced get a future
+ *     which has already failed with a {@link RejectedExecutionException}, so
+ *     the caller can drop or retry them instead of the queue growing without
+ *     bound.</li>
+ * </ul>
+ * By default, searches run on virtual threads if the runtime provides them
+ * (Java 21 and later), and on a fixed pool of daemon threads otherwise. Any
+ * other {@link Executor} can be supplied instead. Virtual threads do not
+ * keep the thread local search tables between searches, so each search
+ * allocates its own; a small pool of platform threads avoids this.
+ * <p>
+ * The graph must not be rebuilt and its endpoints must not be moved while
+ * the service is in use; use a new service for a new map.
+ */
+public class AsyncPathService implements Disposable {
+
+    /** Default maximum number of searches pending or running at once. */
+    public static final int DEFAULT_MAX_PENDING = 1024;
+
+    private final VisibilityGraph graph;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor; // null if supplied
+    private final int maxPending;
+
+    // Guarded by this
+    private final HashMap<Key, Search> searches = new HashMap<>();
+    private final HashMap<Object, CompletableFuture<List<Vector2>>> latestByAgent
+            = new HashMap<>();
+    private boolean disposed;
+    private long coalescedRequests;
+    private long supersededRequests;
+    private long rejectedRequests;
+
+    /**
+     * Construct an Async Path Service running searches on the default
+     * executor, with the default limit of pending searches.
+     *
+     * @param graph the graph to search
+     */
+    public AsyncPathService(VisibilityGraph graph) {
+        this(graph, null, DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * Construct an Async Path Service.
+     *
+     * @param graph the graph to search
+     * @param executor the executor to run searches on (or null for the
+     *                 default executor, which is shut down by
+     *                 {@link #dispose()})
+     * @param maxPending maximum number of searches pending or running at once
+     */
+    public AsyncPathService(
+            VisibilityGraph graph,
+            Executor executor,
+            int maxPending)
+    {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException(
+                    "maxPending must be positive: " + maxPending);
+        }
+
+        this.graph = graph;
+        this.maxPending = maxPending;
+
+        if (executor == null) {
+            ownedExecutor = createDefaultExecutor();
+            this.executor = ownedExecutor;
+        } else {
+            ownedExecutor = null;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Request a path between two points.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     *
+     * @return future completed with an unmodifiable list of destination
+     *         points in the same form as {@link VisibilityGraph#aStar()}
+     *         (empty if there is no path)
+     */
+    public CompletableFuture<List<Vector2>> request(
+            Vector2 startPoint,
+            Vector2 endPoint)
+    {
+        return request(null, startPoint, endPoint);
+    }
+
+    /**
+     * Request a path for an agent, cancelling the agent's previous request
+     * if it is not complete yet. The points are copied, so they can be
+     * modified once this returns.
+     *
+     * @param agent key identifying the agent (compared with
+     *              {@link Object#equals}), or null to not supersede any
+     *              request
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     *
+     * @return future completed with an unmodifiable list of destination
+     *         points in the same form as {@link VisibilityGraph#aStar()}
+     *         (empty if there is no path). The future fails with a
+     *         {@link RejectedExecutionException} if too many searches are
+     *         pending, and is cancelled if a later request for the same
+     *         agent supersedes it.
+     */
+    public CompletableFuture<List<Vector2>> request(
+            Object agent,
+            Vector2 startPoint,
+            Vector2 endPoint)
+    {
+        Key key = new Key(startPoint, endPoint);
+        CompletableFuture<List<Vector2>> future = new CompletableFuture<>();
+        CompletableFuture<List<Vector2>> previous = null;
+        Search search;
+        boolean submit = false;
+
+        synchronized (this) {
+            if (disposed) {
+                future.completeExceptionally(new RejectedExecutionException(
+                        "Path service disposed"));
+                return future;
+            }
+
+            search = searches.get(key);
+            if (search != null) {
+                coalescedRequests++;
+            } else if (searches.size() >= maxPending) {
+                rejectedRequests++;
+                future.completeExceptionally(new RejectedExecutionException(
+                        "Too many pending path searches: " + maxPending));
+                return future;
+            } else {
+                search = new Search(key);
+                searches.put(key, search);
+                submit = true;
+            }
+            search.requests++;
+
+            if (agent != null) {
+                previous = latestByAgent.put(agent, future);
+            }
+        }
+
+        if (previous != null && previous.cancel(false)) {
+            synchronized (this) {
+                supersededRequests++;
+            }
+        }
+
+        // Each request gets its own future forwarding the shared result, so
+        // that cancelling one request does not affect the others
+        final Search shared = search;
+        shared.result.whenComplete((path, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(path);
+            }
+        });
+        future.whenComplete((path, error) -> finish(agent, future, shared));
+
+        if (submit) {
+            try {
+                executor.execute(() -> run(shared));
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    searches.remove(key, shared);
+                    rejectedRequests++;
+                }
+                shared.result.completeExceptionally(e);
+            }
+        }
+
+        return future;
+    }
+
+    /**
+     * Get the number of searches which are pending or running.
+     *
+     * @return the number of searches in flight
+     */
+    public synchronized int getPendingSearches() {
+        return searches.size();
+    }
+
+    /**
+     * Get the number of requests which shared the search of an earlier
+     * request.
+     *
+     * @return the number of coalesced requests
+     */
+    public synchronized long getCoalescedRequests() {
+        return coalescedRequests;
+    }
+
+    /**
+     * Get the number of requests which were cancelled by a later request for
+     * the same agent.
+     *
+     * @return the number of superseded requests
+     */
+    public synchronized long getSupersededRequests() {
+        return supersededRequests;
+    }
+
+    /**
+     * Get the number of requests which were rejected because too many
+     * searches were pending.
+     *
+     * @return the number of rejected requests
+     */
+    public synchronized long getRejectedRequests() {
+        return rejectedRequests;
+    }
+
+    /**
+     * Private helper method run on the executor, searching the graph unless
+     * all requests of the search were cancelled.
+     */
+    private void run(Search search) {
+        synchronized (this) {
+            if (search.requests == 0 || disposed) {
+                searches.remove(search.key, search);
+                search.result.cancel(false);
+                return;
+            }
+        }
+
+        List<Vector2> path = null;
+        RuntimeException error = null;
+        try {
+            path = Collections.unmodifiableList(graph.findPath(
+                    new Vector2(search.key.startX, search.key.startY),
+                    new Vector2(search.key.endX, search.key.endY),
+                    VGHeuristic.EUCLIDEAN,
+                    null
+            ));
+        } catch (RuntimeException e) {
+            System.err.println("Path search failed: " + e);
+            error = e;
+        }
+
+        // Forget the search before completing it, so that it is no longer
+        // counted as pending once its requests see the result
+        synchronized (this) {
+            searches.remove(search.key, search);
+        }
+
+        if (error != null) {
+            search.result.completeExceptionally(error);
+        } else {
+            search.result.complete(path);
+        }
+    }
+
+    /**
+     * Private helper method called when the future of a request completes,
+     * which forgets the request and releases its share of the search if it
+     * was cancelled.
+     */
+    private synchronized void finish(
+            Object agent,
+            CompletableFuture<List<Vector2>> future,
+            Search search)
+    {
+        if (agent != null) {
+            latestByAgent.remove(agent, future);
+        }
+        if (future.isCancelled()) {
+            search.requests--;
+        }
+    }
+
+    /**
+     * Private helper method to create the default executor, using virtual
+     * threads if the runtime provides them.
+     */
+    private static ExecutorService createDefaultExecutor() {
+
+        // Virtual threads need Java 21, while the project targets Java 8
+        try {
+            Method factory = Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Fall back to platform threads
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "path-service-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    /**
+     * Cancel all pending searches and reject further requests. The default
+     * executor is shut down; a supplied executor is left running.
+     */
+    @Override
+    public void dispose() {
+        ArrayList<Search> pending;
+        synchronized (this) {
+            if (disposed) return;
+            disposed = true;
+            pending = new ArrayList<>(searches.values());
+            searches.clear();
+            latestByAgent.clear();
+        }
+
+        for (int i = 0; i < pending.size(); i++) {
+            pending.get(i).result.cancel(false);
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Helper inner class used to identify requests by their exact start and
+     * end point.
+     */
+    private static final class Key {
+
+        final float startX;
+        final float startY;
+        final float endX;
+        final float endY;
+
+        Key(Vector2 startPoint, Vector2 endPoint) {
+            startX = startPoint.x;
+            startY = startPoint.y;
+            endX = endPoint.x;
+            endY = endPoint.y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return Float.floatToIntBits(startX) == Float.floatToIntBits(other.startX)
+                    && Float.floatToIntBits(startY) == Float.floatToIntBits(other.startY)
+                    && Float.floatToIntBits(endX) == Float.floatToIntBits(other.endX)
+                    && Float.floatToIntBits(endY) == Float.floatToIntBits(other.endY);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Float.floatToIntBits(startX);
+            hash = 31 * hash + Float.floatToIntBits(startY);
+            hash = 31 * hash + Float.floatToIntBits(endX);
+            hash = 31 * hash + Float.floatToIntBits(endY);
+            return hash;
+        }
+    }
+
+    /**
+     * Helper inner class used to represent a search shared by coalesced
+     * requests.
+     */
+    private static final class Search {
+
+        final Key key;
+        final CompletableFuture<List<Vector2>> result = new CompletableFuture<>();
+        int requests; // Requests not cancelled, guarded by the service
+
+        Search(Key key) {
+            this.key = key;
+        }
+    }
+}
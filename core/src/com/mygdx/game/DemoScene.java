@@ -0,0 +1,199 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.game.visibilitygraph.Octagon;
+
+import java.util.ArrayList;
+
+/**
+ * The editable scene of the demo: octagonal obstacles, one of which is
+ * selected, and the start and end point of the agent. All changes go
+ * through the edit methods, so a {@link SessionRecorder} attached to the
+ * scene captures them and a {@link SessionPlayer} can apply the same edits
+ * to a scene without a screen.
+ * <p>
+ * Edits within one frame are grouped by {@link #commit()}, which marks the
+ * point where the screen requests a rebuild of the graph.
+ */
+public class DemoScene {
+
+    private static final float MIN_RADIUS = 10;
+
+    private final Vector2 startPoint;
+    private final Vector2 endPoint;
+    private final float agentRadius;
+    private final ArrayList<Octagon> octagons;
+    private final ArrayList<ArrayList<Vector2>> obstacles;
+    private int activeOctagonID = 0;
+    private SessionRecorder recorder;
+
+    /**
+     * Construct the default Demo Scene with three octagons.
+     */
+    public DemoScene() {
+        this(new Vector2(10, 10), new Vector2(630, 470), 0f);
+        addOctagon(100, 300, 50);
+        addOctagon(200, 200, 50);
+        addOctagon(500, 100, 50);
+    }
+
+    /**
+     * Construct an empty Demo Scene.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param agentRadius radius of navigating agent
+     */
+    public DemoScene(Vector2 startPoint, Vector2 endPoint, float agentRadius) {
+        this.startPoint = new Vector2(startPoint);
+        this.endPoint = new Vector2(endPoint);
+        this.agentRadius = agentRadius;
+        octagons = new ArrayList<>();
+        obstacles = new ArrayList<>();
+    }
+
+    /**
+     * Add an octagon to this scene. This is not an edit, so it should only
+     * be used to set up a scene.
+     *
+     * @param x x coordinate of the center
+     * @param y y coordinate of the center
+     * @param radius inner radius
+     */
+    public void addOctagon(float x, float y, float radius) {
+        Octagon octagon = new Octagon(new Vector2(x, y), radius);
+        octagons.add(octagon);
+        obstacles.add(octagon.getVertices());
+    }
+
+    /**
+     * Set the recorder receiving the edits of this scene.
+     *
+     * @param recorder the {@link SessionRecorder} (or null to stop recording)
+     */
+    public void setRecorder(SessionRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Select the next octagon.
+     */
+    public void selectNext() {
+        if (octagons.isEmpty()) return;
+
+        activeOctagonID = (activeOctagonID + 1) % octagons.size();
+        if (recorder != null) recorder.selectNext();
+    }
+
+    /**
+     * Move the selected octagon.
+     *
+     * @param dx offset in x direction
+     * @param dy offset in y direction
+     */
+    public void move(int dx, int dy) {
+        if (octagons.isEmpty()) return;
+
+        Octagon octagon = getActiveOctagon();
+        octagon.position.x = octagon.position.x + dx;
+        octagon.position.y = octagon.position.y + dy;
+        octagon.set();
+        if (recorder != null) recorder.move(dx, dy);
+    }
+
+    /**
+     * Change the radius of the selected octagon. The radius does not shrink
+     * below 10.
+     *
+     * @param dr change of the radius
+     */
+    public void resize(int dr) {
+        if (octagons.isEmpty()) return;
+
+        Octagon octagon = getActiveOctagon();
+        octagon.radius = octagon.radius + dr;
+        if (octagon.radius < MIN_RADIUS) octagon.radius = MIN_RADIUS;
+        octagon.set();
+        if (recorder != null) recorder.resize(dr);
+    }
+
+    /**
+     * Mark the end of the edits of a frame, after which the graph is
+     * rebuilt.
+     */
+    public void commit() {
+        if (recorder != null) recorder.step();
+    }
+
+    /**
+     * Get the index of the selected octagon.
+     *
+     * @return the index in {@link #getOctagons()}
+     */
+    public int getActiveOctagonID() {
+        return activeOctagonID;
+    }
+
+    /**
+     * Select an octagon without recording it, as a {@link SessionPlayer}
+     * does when it sets up the scene of a recording.
+     */
+    void setActiveOctagonID(int activeOctagonID) {
+        this.activeOctagonID = activeOctagonID;
+    }
+
+    /**
+     * Get the selected octagon.
+     *
+     * @return the selected {@link Octagon}
+     */
+    public Octagon getActiveOctagon() {
+        return octagons.get(activeOctagonID);
+    }
+
+    /**
+     * Get the octagons of this scene.
+     *
+     * @return {@link ArrayList} of {@link Octagon} objects
+     */
+    public ArrayList<Octagon> getOctagons() {
+        return octagons;
+    }
+
+    /**
+     * Get the obstacles of this scene. Octagons update their vertex lists in
+     * place, so the list always holds the current shapes.
+     *
+     * @return {@link ArrayList} of vertex arrays
+     */
+    public ArrayList<ArrayList<Vector2>> getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * Get start point of navigating agent.
+     *
+     * @return {@link Vector2} representing the agent start point
+     */
+    public Vector2 getStartPoint() {
+        return startPoint;
+    }
+
+    /**
+     * Get end point of navigating agent.
+     *
+     * @return {@link Vector2} representing the agent end point
+     */
+    public Vector2 getEndPoint() {
+        return endPoint;
+    }
+
+    /**
+     * Get the radius of navigating agent.
+     *
+     * @return the agent radius
+     */
+    public float getAgentRadius() {
+        return agentRadius;
+    }
+}
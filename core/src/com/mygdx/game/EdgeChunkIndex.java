@@ -0,0 +1,300 @@
+package com.mygdx.game;
+
+import com.mygdx.game.visibilitygraph.VGEdge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Spatial index which sorts the edges of a graph into chunks, so that a
+ * renderer can store each chunk as a contiguous range of its vertex buffer
+ * and draw only the chunks overlapping the view.
+ * <p>
+ * Chunks are the cells of a hierarchy of loose grids over the bounds of the
+ * graph: each level has cells twice as large as the one below, up to a
+ * single cell covering everything. An edge is put into the cell of its
+ * midpoint on the finest level whose cells are at least as large as the
+ * edge's bounding box, so the cell grown by half its size on each side
+ * contains the whole edge. Long visibility edges thus end up in a few large
+ * cells instead of being duplicated into every cell they cross.
+ * <p>
+ * Within a chunk, edges are shuffled, so that drawing only the first part of
+ * each chunk draws an even sample of the edges in view.
+ */
+class EdgeChunkIndex {
+
+    private int levels;
+    private float minX;
+    private float minY;
+    private float baseSize;
+    private int[] levelOffsets = new int[1];  // first chunk of each level
+    private int[] chunkStarts = new int[1];   // first edge of each chunk
+    private int[] order = new int[0];         // edge indices in chunk order
+    private int[] edgeChunks = new int[0];
+    private int numEdges;
+
+    private int[] ranges = new int[0];        // start, count pairs
+    private int numRanges;
+
+    /**
+     * Sort edges into chunks.
+     *
+     * @param edges the edges to index
+     * @param minX left of the bounds of all edges
+     * @param minY bottom of the bounds of all edges
+     * @param size width and height of the bounds of all edges
+     * @param edgesPerChunk the number of edges a chunk of the finest level
+     *                      should hold on average
+     */
+    void set(
+            ArrayList<VGEdge> edges,
+            float minX,
+            float minY,
+            float size,
+            int edgesPerChunk)
+    {
+        this.minX = minX;
+        this.minY = minY;
+        numEdges = edges.size();
+
+        // Finest level with about the requested number of edges per cell
+        int cells = (int) Math.ceil(Math.sqrt(numEdges / (double) edgesPerChunk));
+        levels = 1;
+        while ((1 << (levels - 1)) < cells && levels < 8) {
+            levels++;
+        }
+        baseSize = Math.max(size, 1e-3f) / (1 << (levels - 1));
+
+        if (levelOffsets.length < levels + 1) {
+            levelOffsets = new int[levels + 1];
+        }
+        int numChunks = 0;
+        for (int level = 0; level < levels; level++) {
+            levelOffsets[level] = numChunks;
+            int cellsPerSide = 1 << (levels - 1 - level);
+            numChunks += cellsPerSide * cellsPerSide;
+        }
+        levelOffsets[levels] = numChunks;
+
+        if (chunkStarts.length < numChunks + 1) {
+            chunkStarts = new int[numChunks + 1];
+        }
+        if (order.length < numEdges) {
+            order = new int[numEdges];
+            edgeChunks = new int[numEdges];
+        }
+
+        // Counting sort of the edges by chunk
+        Arrays.fill(chunkStarts, 0, numChunks + 1, 0);
+        for (int i = 0; i < numEdges; i++) {
+            int chunk = chunkOf(edges.get(i));
+            edgeChunks[i] = chunk;
+            chunkStarts[chunk + 1]++;
+        }
+        for (int chunk = 0; chunk < numChunks; chunk++) {
+            chunkStarts[chunk + 1] += chunkStarts[chunk];
+        }
+        for (int i = 0; i < numEdges; i++) {
+            int chunk = edgeChunks[i];
+            order[chunkStarts[chunk]++] = i;
+        }
+        for (int chunk = numChunks; chunk > 0; chunk--) {
+            chunkStarts[chunk] = chunkStarts[chunk - 1];
+        }
+        chunkStarts[0] = 0;
+
+        // Shuffle each chunk with a fixed seed, so that a graph is always
+        // sampled the same way
+        int seed = 0x9E3779B9;
+        for (int chunk = 0; chunk < numChunks; chunk++) {
+            int start = chunkStarts[chunk];
+            for (int i = chunkStarts[chunk + 1] - 1; i > start; i--) {
+                seed ^= seed << 13;
+                seed ^= seed >>> 17;
+                seed ^= seed << 5;
+                int j = start + (seed >>> 1) % (i - start + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+        }
+    }
+
+    /**
+     * Get the number of indexed edges.
+     *
+     * @return the number of edges
+     */
+    int getEdgeCount() {
+        return numEdges;
+    }
+
+    /**
+     * Get the index of the edge at a position of the chunk order.
+     *
+     * @param position position in the chunk order
+     *
+     * @return the index of the edge in the indexed list
+     */
+    int edgeAt(int position) {
+        return order[position];
+    }
+
+    /**
+     * Count the edges of the chunks which may overlap a rectangle.
+     *
+     * @return the number of edges in those chunks
+     */
+    int count(float x0, float y0, float x1, float y1) {
+        int count = 0;
+        for (int level = 0; level < levels; level++) {
+            float cellSize = baseSize * (1 << level);
+            int cellsPerSide = 1 << (levels - 1 - level);
+            int column0 = cell(x0 - minX - cellSize / 2, cellSize, cellsPerSide);
+            int column1 = cell(x1 - minX + cellSize / 2, cellSize, cellsPerSide);
+            int row0 = cell(y0 - minY - cellSize / 2, cellSize, cellsPerSide);
+            int row1 = cell(y1 - minY + cellSize / 2, cellSize, cellsPerSide);
+
+            for (int row = row0; row <= row1; row++) {
+                int first = levelOffsets[level] + row * cellsPerSide;
+                count += chunkStarts[first + column1 + 1] - chunkStarts[first + column0];
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Collect the ranges of the chunk order to draw for a rectangle: the
+     * chunks which may overlap it, each cut down to the specified fraction
+     * of its edges. Adjacent ranges are merged. The result can be read with
+     * {@link #getRangeCount()}, {@link #getRangeStart(int)} and
+     * {@link #getRangeLength(int)} until the next call.
+     *
+     * @param fraction the fraction of the edges of each chunk to draw
+     *
+     * @return the number of edges in the ranges
+     */
+    int collect(float x0, float y0, float x1, float y1, float fraction) {
+        numRanges = 0;
+        int total = 0;
+
+        // Carry the rounding error from chunk to chunk, so that small chunks
+        // are sampled as well
+        float carry = 0;
+
+        for (int level = 0; level < levels; level++) {
+            float cellSize = baseSize * (1 << level);
+            int cellsPerSide = 1 << (levels - 1 - level);
+            int column0 = cell(x0 - minX - cellSize / 2, cellSize, cellsPerSide);
+            int column1 = cell(x1 - minX + cellSize / 2, cellSize, cellsPerSide);
+            int row0 = cell(y0 - minY - cellSize / 2, cellSize, cellsPerSide);
+            int row1 = cell(y1 - minY + cellSize / 2, cellSize, cellsPerSide);
+
+            for (int row = row0; row <= row1; row++) {
+                int first = levelOffsets[level] + row * cellsPerSide;
+                if (fraction >= 1) {
+                    int start = chunkStarts[first + column0];
+                    total += addRange(start, chunkStarts[first + column1 + 1] - start);
+                    continue;
+                }
+
+                for (int column = column0; column <= column1; column++) {
+                    int start = chunkStarts[first + column];
+                    float wanted = (chunkStarts[first + column + 1] - start) * fraction + carry;
+                    int length = (int) wanted;
+                    carry = wanted - length;
+                    total += addRange(start, length);
+                }
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Get the number of ranges collected by the last call to
+     * {@link #collect}.
+     *
+     * @return the number of ranges
+     */
+    int getRangeCount() {
+        return numRanges;
+    }
+
+    /**
+     * Get the first position of a range in the chunk order.
+     *
+     * @param range index of the range
+     *
+     * @return the first position of the range
+     */
+    int getRangeStart(int range) {
+        return ranges[2 * range];
+    }
+
+    /**
+     * Get the number of edges of a range.
+     *
+     * @param range index of the range
+     *
+     * @return the number of edges of the range
+     */
+    int getRangeLength(int range) {
+        return ranges[2 * range + 1];
+    }
+
+    /**
+     * Private helper method to add a range, merging it with the last one if
+     * they are adjacent.
+     *
+     * @return the length of the range
+     */
+    private int addRange(int start, int length) {
+        if (length <= 0) return 0;
+
+        if (numRanges > 0) {
+            int last = 2 * (numRanges - 1);
+            if (ranges[last] + ranges[last + 1] == start) {
+                ranges[last + 1] += length;
+                return length;
+            }
+        }
+
+        if (ranges.length < 2 * (numRanges + 1)) {
+            ranges = Arrays.copyOf(ranges, Math.max(16, ranges.length * 2));
+        }
+        ranges[2 * numRanges] = start;
+        ranges[2 * numRanges + 1] = length;
+        numRanges++;
+        return length;
+    }
+
+    /**
+     * Private helper method to get the chunk of an edge.
+     */
+    private int chunkOf(VGEdge edge) {
+        float ax = edge.a.pos.x;
+        float ay = edge.a.pos.y;
+        float bx = edge.b.pos.x;
+        float by = edge.b.pos.y;
+        float extent = Math.max(Math.abs(bx - ax), Math.abs(by - ay));
+
+        int level = 0;
+        while (level < levels - 1 && baseSize * (1 << level) < extent) {
+            level++;
+        }
+
+        float cellSize = baseSize * (1 << level);
+        int cellsPerSide = 1 << (levels - 1 - level);
+        int column = cell((ax + bx) / 2 - minX, cellSize, cellsPerSide);
+        int row = cell((ay + by) / 2 - minY, cellSize, cellsPerSide);
+
+        return levelOffsets[level] + row * cellsPerSide + column;
+    }
+
+    private static int cell(float offset, float cellSize, int cellsPerSide) {
+        int cell = (int) Math.floor(offset / cellSize);
+        return Math.min(Math.max(cell, 0), cellsPerSide - 1);
+    }
+}
@@ -0,0 +1,350 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.mygdx.game.visibilitygraph.VisibilityGraph;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * Collects per-frame timings of the demo and draws them as an overlay: the
+ * frame time split into graph construction, path search, drawing and the
+ * rest, averaged over the last second, together with the size of the
+ * current graph, the number of visibility tests of its construction, the
+ * number of edges drawn and the allocation rate. A history graph of the last frames shows spikes as
+ * they happen, e.g. while dragging obstacles in large scenes.
+ * <p>
+ * Construction and search times are whatever the screen reports for the
+ * frame. With time-sliced rebuilds, that is the time spent on the render
+ * thread. With background rebuilds, it is the time of a finished rebuild,
+ * counted in the frame which picks it up, so spikes show the work of the
+ * worker rather than stalls of the render thread.
+ * <p>
+ * The allocation rate is measured with the per-thread allocation counters
+ * of the HotSpot {@link ThreadMXBean} where they are available, and
+ * otherwise estimated from growth of the used heap (which misses memory
+ * collected in between). The counters are only read a few times per second
+ * and the text is built without formatting, so the overlay adds little to
+ * the rate it shows. This class should only be used from the render thread.
+ */
+public class FrameProfiler {
+
+    private static final int HISTORY = 240;        // frames in the graph
+    private static final int AVERAGED = 60;        // frames in the averages
+    private static final long ALLOCATION_PERIOD = 250_000_000L;
+
+    private static final float GRAPH_HEIGHT = 80;
+    private static final float GRAPH_MAX_MS = 1000f / 30;
+    private static final float TARGET_MS = 1000f / 60;
+    private static final float LINE_HEIGHT = 16;
+
+    private final float[] frameMs = new float[HISTORY];
+    private final float[] buildMs = new float[HISTORY];
+    private final float[] searchMs = new float[HISTORY];
+    private final float[] drawMs = new float[HISTORY];
+    private int current;
+    private int numFrames;
+    private long drawStart;
+
+    private int numVertices;
+    private int numEdges;
+    private long intersectionTests;
+    private int drawnEdges;
+    private int drawCalls;
+
+    private final ThreadMXBean threads;
+    private final Method allocatedBytes; // null if not supported
+    private long lastAllocated = -1;
+    private long lastSampleTime;
+    private float allocationRate;        // bytes per second
+
+    private final StringBuilder text = new StringBuilder();
+    private boolean visible;
+
+    /**
+     * Construct a Frame Profiler. The overlay is hidden initially, but
+     * frames are recorded either way.
+     */
+    public FrameProfiler() {
+        threads = ManagementFactory.getThreadMXBean();
+
+        Method method = null;
+        try {
+            // HotSpot extension, not available on e.g. Android
+            Class<?> extension = Class.forName("com.sun.management.ThreadMXBean");
+            if (extension.isInstance(threads)) {
+                method = extension.getMethod("getThreadAllocatedBytes", long[].class);
+                method.setAccessible(true);
+                method.invoke(threads, (Object) threads.getAllThreadIds());
+            }
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            method = null;
+        }
+        allocatedBytes = method;
+    }
+
+    /**
+     * Show or hide the overlay.
+     */
+    public void toggle() {
+        visible = !visible;
+    }
+
+    /**
+     * Get whether the overlay is shown.
+     *
+     * @return whether {@link #render} draws anything
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Start recording a frame.
+     *
+     * @param delta time since the last frame in seconds
+     */
+    public void beginFrame(float delta) {
+        current = (current + 1) % HISTORY;
+        numFrames = Math.min(numFrames + 1, HISTORY);
+        frameMs[current] = delta * 1000;
+        buildMs[current] = 0;
+        searchMs[current] = 0;
+        drawMs[current] = 0;
+
+        sampleAllocations();
+    }
+
+    /**
+     * Add graph construction and search time to the current frame.
+     *
+     * @param buildNanos construction time in nanoseconds
+     * @param searchNanos search time in nanoseconds
+     */
+    public void addRebuild(long buildNanos, long searchNanos) {
+        buildMs[current] += buildNanos / 1e6f;
+        searchMs[current] += searchNanos / 1e6f;
+    }
+
+    /**
+     * Start timing the drawing of the current frame.
+     */
+    public void beginDraw() {
+        drawStart = System.nanoTime();
+    }
+
+    /**
+     * Stop timing the drawing of the current frame.
+     */
+    public void endDraw() {
+        drawMs[current] += (System.nanoTime() - drawStart) / 1e6f;
+    }
+
+    /**
+     * Record the size of the graph shown in the current frame.
+     *
+     * @param graph the current {@link VisibilityGraph}
+     */
+    public void setGraph(VisibilityGraph graph) {
+        numVertices = graph.getVertices().size();
+        numEdges = graph.getVisibilityEdges().size()
+                + graph.getObstacleEdges().size();
+        intersectionTests = graph.getIntersectionTests();
+    }
+
+    /**
+     * Record how much of the graph was drawn in the current frame.
+     *
+     * @param drawnEdges the number of edges drawn
+     * @param drawCalls the number of draw calls
+     */
+    public void setDrawn(int drawnEdges, int drawCalls) {
+        this.drawnEdges = drawnEdges;
+        this.drawCalls = drawCalls;
+    }
+
+    /**
+     * Draw the overlay in the top left corner of the screen, if it is
+     * shown. Neither renderer may be active.
+     *
+     * @param shapeRenderer renderer for the history graph
+     * @param spriteBatch batch for the text
+     * @param font font for the text
+     * @param screenHeight height of the screen in the renderers' units
+     */
+    public void render(
+            ShapeRenderer shapeRenderer,
+            SpriteBatch spriteBatch,
+            BitmapFont font,
+            float screenHeight)
+    {
+        if (!visible) return;
+
+        float left = 10;
+        float graphTop = screenHeight - 4 * LINE_HEIGHT - 16;
+        float graphBottom = graphTop - GRAPH_HEIGHT;
+        float scale = GRAPH_HEIGHT / GRAPH_MAX_MS;
+
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+        shapeRenderer.setColor(0, 0, 0, 1);
+        shapeRenderer.rect(left, graphBottom, HISTORY, GRAPH_HEIGHT);
+
+        // Oldest frame on the left, stacked build/search/draw/rest
+        for (int i = 0; i < numFrames; i++) {
+            int frame = (current - numFrames + 1 + i + HISTORY) % HISTORY;
+            float x = left + HISTORY - numFrames + i;
+            float y = graphBottom;
+            y = bar(shapeRenderer, Color.ORANGE, x, y, buildMs[frame], scale, graphTop);
+            y = bar(shapeRenderer, Color.MAGENTA, x, y, searchMs[frame], scale, graphTop);
+            y = bar(shapeRenderer, Color.GREEN, x, y, drawMs[frame], scale, graphTop);
+            float rest = frameMs[frame] - buildMs[frame] - searchMs[frame] - drawMs[frame];
+            bar(shapeRenderer, Color.GRAY, x, y, rest, scale, graphTop);
+        }
+
+        shapeRenderer.setColor(Color.WHITE);
+        shapeRenderer.rect(left, graphBottom + TARGET_MS * scale, HISTORY, 1);
+        shapeRenderer.end();
+
+        float frame = average(frameMs);
+        float build = average(buildMs);
+        float search = average(searchMs);
+        float draw = average(drawMs);
+
+        spriteBatch.begin();
+        font.setColor(Color.WHITE);
+        float y = screenHeight - 8;
+
+        text.setLength(0);
+        text.append("frame ");
+        appendTenths(text, frame);
+        text.append(" ms (");
+        text.append(frame > 0 ? Math.round(1000 / frame) : 0);
+        text.append(" fps)  build ");
+        appendTenths(text, build);
+        text.append("  A* ");
+        appendTenths(text, search);
+        text.append("  draw ");
+        appendTenths(text, draw);
+        font.draw(spriteBatch, text, left, y);
+        y -= LINE_HEIGHT;
+
+        text.setLength(0);
+        text.append("vertices ");
+        text.append(numVertices);
+        text.append("  edges ");
+        text.append(numEdges);
+        text.append("  visibility tests ");
+        text.append(intersectionTests);
+        text.append("  drawn ");
+        text.append(drawnEdges);
+        text.append(" in ");
+        text.append(drawCalls);
+        text.append(" calls");
+        font.draw(spriteBatch, text, left, y);
+        y -= LINE_HEIGHT;
+
+        text.setLength(0);
+        text.append("allocation ");
+        appendTenths(text, allocationRate / (1024 * 1024));
+        text.append(allocatedBytes != null ? " MB/s" : " MB/s (heap growth)");
+        font.draw(spriteBatch, text, left, y);
+        y -= LINE_HEIGHT;
+
+        font.setColor(Color.LIGHT_GRAY);
+        font.draw(spriteBatch, "build / A* / draw / other, line at 60 fps (F1 to hide)", left, y);
+        spriteBatch.end();
+    }
+
+    /**
+     * Private helper method to draw one segment of a stacked bar, clipped to
+     * the top of the graph.
+     *
+     * @return the top of the segment
+     */
+    private static float bar(
+            ShapeRenderer shapeRenderer,
+            Color color,
+            float x,
+            float y,
+            float ms,
+            float scale,
+            float top)
+    {
+        float height = Math.min(Math.max(ms, 0) * scale, top - y);
+        if (height <= 0) return y;
+
+        shapeRenderer.setColor(color);
+        shapeRenderer.rect(x, y, 1, height);
+        return y + height;
+    }
+
+    /**
+     * Private helper method to average the most recent frames of a history.
+     */
+    private float average(float[] history) {
+        int count = Math.min(numFrames, AVERAGED);
+        if (count == 0) return 0;
+
+        float sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += history[(current - i + HISTORY) % HISTORY];
+        }
+        return sum / count;
+    }
+
+    /**
+     * Private helper method to update the allocation rate a few times per
+     * second.
+     */
+    private void sampleAllocations() {
+        long now = System.nanoTime();
+        if (lastAllocated >= 0 && now - lastSampleTime < ALLOCATION_PERIOD) {
+            return;
+        }
+
+        long allocated = allocatedBytes();
+        if (lastAllocated >= 0) {
+            // Counters of threads which ended are lost
+            long bytes = Math.max(allocated - lastAllocated, 0);
+            allocationRate = bytes * 1e9f / (now - lastSampleTime);
+        }
+        lastAllocated = allocated;
+        lastSampleTime = now;
+    }
+
+    /**
+     * Private helper method to get the bytes allocated by all live threads,
+     * or the used heap if per-thread counters are not available.
+     */
+    private long allocatedBytes() {
+        if (allocatedBytes != null) {
+            try {
+                long[] counts = (long[]) allocatedBytes.invoke(
+                        threads, (Object) threads.getAllThreadIds());
+                long sum = 0;
+                for (long count : counts) {
+                    if (count > 0) sum += count;
+                }
+                return sum;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Fall back to the heap below
+            }
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Private helper method to append a non-negative value with one decimal,
+     * without the garbage of formatting a float.
+     */
+    private static void appendTenths(StringBuilder builder, float value) {
+        int tenths = Math.round(Math.max(value, 0) * 10);
+        builder.append(tenths / 10).append('.').append(tenths % 10);
+    }
+}
@@ -4,43 +4,74 @@ package com.mygdx.game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.mygdx.game.visibilitygraph.Octagon;
+import com.mygdx.game.visibilitygraph.PathValidator;
 import com.mygdx.game.visibilitygraph.VGEdge;
 import com.mygdx.game.visibilitygraph.VGVertex;
 import com.mygdx.game.visibilitygraph.VisibilityGraph;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
 public class GameScreen implements Screen {
     private final MyGdxGame game;
     private Stage stage;
     private Skin skin;
     private ShapeRenderer shapeRenderer;
+    private GraphMeshRenderer graphRenderer;
+    private FrameProfiler profiler;
+    private long profiledVersion;
+
+    // The scene is drawn through the camera, the overlay in screen units
+    private OrthographicCamera camera;
+    private Matrix4 screenProjection;
 
     private SpriteBatch spriteBatch;
     private BitmapFont bitmapFont;
 
-    private ArrayList<Octagon> octagons;
-    private int activeOctagonID = 0;
-    private Octagon activeOctagon;
+    private DemoScene scene;
+    private SessionRecorder recorder;
 
+    private GraphRebuilder graphRebuilder;
+    private TimeSlicedRebuilder slicedRebuilder;
     private VisibilityGraph visibilityGraph;
 
     private ArrayList<Vector2> destinations;
 
+    // Replan only when an edit may have invalidated the current path
+    private PathValidator pathValidator;
+    private final ArrayList<Vector2> previousShape = new ArrayList<>();
+    private final ArrayList<List<Vector2>> oldShapes = new ArrayList<>();
+    private final ArrayList<List<Vector2>> newShapes = new ArrayList<>();
+    private boolean replanPending;
+
     private final boolean DEBUG_ENABLED = false;
 
+    // Rebuild on the render thread within a per-frame budget instead of on
+    // a background thread
+    private final boolean TIME_SLICED_REBUILDS = false;
+    private final long REBUILD_BUDGET_NANOS = 2_000_000L;
+
+    // Camera speed in screen pixels per second and zoom factor per second
+    private final float PAN_SPEED = 400f;
+    private final float ZOOM_SPEED = 2f;
+    private final float MIN_ZOOM = 0.05f;
+    private final float MAX_ZOOM = 100f;
+
     public GameScreen(MyGdxGame game) {
         this.game = game;
 
@@ -50,35 +81,37 @@ public class GameScreen implements Screen {
 
         shapeRenderer = new ShapeRenderer();
         shapeRenderer.setAutoShapeType(true);
+        graphRenderer = new GraphMeshRenderer();
+        profiler = new FrameProfiler();
+        camera = new OrthographicCamera();
+        camera.setToOrtho(false, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        screenProjection = new Matrix4().setToOrtho2D(
+                0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
         destinations = new ArrayList<>();
-        octagons = new ArrayList<>();
-
-        Set<ArrayList<Vector2>> obstacles = new HashSet<>();
-        Octagon octagon1 = new Octagon(new Vector2(100, 300), 50);
-        octagons.add(octagon1);
-        Octagon octagon2 = new Octagon(new Vector2(200, 200), 50);
-        octagons.add(octagon2);
-        Octagon octagon3 = new Octagon(new Vector2(500, 100), 50);
-        octagons.add(octagon3);
-
-        obstacles.add(octagons.get(0).getVertices());
-        obstacles.add(octagons.get(1).getVertices());
-        obstacles.add(octagons.get(2).getVertices());
-
-        activeOctagon = octagons.get(activeOctagonID);
-
-        Vector2 startPoint = new Vector2(10, 10);
-        Vector2 endPoint = new Vector2(630, 470);
-
-        VisibilityGraph visibilityGraph = new VisibilityGraph(
-                startPoint,
-                endPoint,
-                obstacles,
-                0f
-        );
+        scene = new DemoScene();
+        pathValidator = new PathValidator(scene.getAgentRadius());
+        oldShapes.add(previousShape);
+
+        if (TIME_SLICED_REBUILDS) {
+            slicedRebuilder = new TimeSlicedRebuilder(
+                    scene.getStartPoint(),
+                    scene.getEndPoint(),
+                    scene.getObstacles(),
+                    scene.getAgentRadius()
+            );
+        } else {
+            graphRebuilder = new GraphRebuilder(
+                    scene.getStartPoint(),
+                    scene.getEndPoint(),
+                    scene.getObstacles(),
+                    scene.getAgentRadius()
+            );
+        }
 
-        this.visibilityGraph = visibilityGraph;
-        destinations = visibilityGraph.aStar();
+        GraphRebuilder.Result result = getRebuildResult();
+        visibilityGraph = result.graph;
+        copyPath(result.path);
+        profiledVersion = visibilityGraph.getVersion();
     }
 
     @Override
@@ -96,12 +129,58 @@ public class GameScreen implements Screen {
 
     @Override
     public void render(float delta) {
+        profiler.beginFrame(delta);
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F1)) {
+            profiler.toggle();
+        }
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F5)) {
+            toggleRecording();
+        }
+
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
         stage.act(delta);
         stage.draw();
 
         updateVisGraph();
 
+        if (slicedRebuilder != null) {
+            slicedRebuilder.step(REBUILD_BUDGET_NANOS);
+            profiler.addRebuild(
+                    slicedRebuilder.getStepBuildNanos(),
+                    slicedRebuilder.getStepSearchNanos()
+            );
+        }
+
+        // Pick up the latest finished graph without waiting for rebuilds
+        GraphRebuilder.Result result = getRebuildResult();
+        visibilityGraph = result.graph;
+
+        if (visibilityGraph.getVersion() != profiledVersion) {
+            profiledVersion = visibilityGraph.getVersion();
+
+            // Graphs rebuilt without a search keep the current path
+            if (result.searched) {
+                copyPath(result.path);
+                if (!isRebuilding()) replanPending = false;
+            }
+
+            // Background rebuilds are counted in the frame which picks them up
+            if (slicedRebuilder == null) {
+                profiler.addRebuild(result.buildNanos, result.searchNanos);
+            }
+        }
+        profiler.setGraph(visibilityGraph);
+
+        updateCamera(delta);
+
+        profiler.beginDraw();
+        graphRenderer.render(visibilityGraph, camera);
+        profiler.setDrawn(
+                graphRenderer.getDrawnEdges(),
+                graphRenderer.getDrawCalls()
+        );
+
+        shapeRenderer.setProjectionMatrix(camera.combined);
         shapeRenderer.begin();
 
         shapeRenderer.setColor(Color.BLUE);
@@ -112,25 +191,8 @@ public class GameScreen implements Screen {
         Vector2 ep = visibilityGraph.getEndPoint();
         shapeRenderer.circle(ep.x, ep.y, 5);
 
-        ArrayList<VGEdge> edges = new ArrayList<>();
-        edges.addAll(visibilityGraph.getObstacleEdges());
-        edges.addAll(visibilityGraph.getVisibilityEdges());
-
-        shapeRenderer.setColor(Color.DARK_GRAY);
-        for (VGEdge edge : edges) {
-            if (!edge.isSolid) {
-                shapeRenderer.line(edge.a.pos, edge.b.pos);
-            }
-        }
-
-        shapeRenderer.setColor(Color.RED);
-        for (VGEdge edge : edges) {
-            if (edge.isSolid) {
-                shapeRenderer.line(edge.a.pos, edge.b.pos);
-            }
-        }
-
         shapeRenderer.setColor(Color.YELLOW);
+        Octagon activeOctagon = scene.getActiveOctagon();
         float x = activeOctagon.position.x;
         float y = activeOctagon.position.y;
         shapeRenderer.circle(x, y, (float) (activeOctagon.radius - 10.0));
@@ -147,6 +209,7 @@ public class GameScreen implements Screen {
 
 
         if (DEBUG_ENABLED) {        // DEBUG
+            spriteBatch.setProjectionMatrix(camera.combined);
             spriteBatch.begin();
 
             // Label Vertices
@@ -158,7 +221,7 @@ public class GameScreen implements Screen {
             }
 
             // Label Edges
-            for (VGEdge edge : edges) {
+            for (VGEdge edge : visibilityGraph.getAllEdges()) {
                 Vector2 midpoint = edge.getMidpoint();
                 bitmapFont.setColor(Color.PINK);
                 bitmapFont.draw(spriteBatch, Integer.toString(edge.ID), midpoint.x, midpoint.y);
@@ -167,73 +230,189 @@ public class GameScreen implements Screen {
             spriteBatch.end();
         }
 
+        profiler.endDraw();
+        shapeRenderer.setProjectionMatrix(screenProjection);
+        spriteBatch.setProjectionMatrix(screenProjection);
+        profiler.render(
+                shapeRenderer,
+                spriteBatch,
+                bitmapFont,
+                Gdx.graphics.getHeight()
+        );
     }
 
     /**
-     * Update Visibility Graph based upon user input.
+     * Update Visibility Graph based upon user input. The graph is rebuilt in
+     * the background (or a few milliseconds per frame) and picked up by a
+     * later frame once it is finished.
      */
     public void updateVisGraph() {
 
         if (Gdx.input.isKeyJustPressed(Input.Keys.SPACE)) {
-            activeOctagonID = (activeOctagonID + 1) % octagons.size();
-            activeOctagon = octagons.get(activeOctagonID);
+            scene.selectNext();
+        }
+
+        // Edits change the octagon in place, so keep its shape before them
+        ArrayList<Vector2> shape = scene.getActiveOctagon().getVertices();
+        while (previousShape.size() < shape.size()) {
+            previousShape.add(new Vector2());
+        }
+        for (int i = 0; i < shape.size(); i++) {
+            previousShape.get(i).set(shape.get(i));
         }
 
         boolean updated = false;
 
         if (Gdx.input.isKeyPressed(Input.Keys.UP)) {
-            activeOctagon.position.y = activeOctagon.position.y + 1;
+            scene.move(0, 1);
             updated = true;
         }
         if (Gdx.input.isKeyPressed(Input.Keys.DOWN)) {
-            activeOctagon.position.y = activeOctagon.position.y - 1;
+            scene.move(0, -1);
             updated = true;
         }
         if (Gdx.input.isKeyPressed(Input.Keys.LEFT)) {
-            activeOctagon.position.x = activeOctagon.position.x - 1;
+            scene.move(-1, 0);
             updated = true;
         }
         if (Gdx.input.isKeyPressed(Input.Keys.RIGHT)) {
-            activeOctagon.position.x = activeOctagon.position.x + 1;
+            scene.move(1, 0);
             updated = true;
         }
         if (Gdx.input.isKeyPressed(Input.Keys.Z)) {
-            activeOctagon.radius = activeOctagon.radius - 1;
-            if (activeOctagon.radius < 10) activeOctagon.radius = 10;
+            scene.resize(-1);
             updated = true;
         }
         if (Gdx.input.isKeyPressed(Input.Keys.X)) {
-            activeOctagon.radius = activeOctagon.radius + 1;
+            scene.resize(1);
             updated = true;
         }
 
         if (updated) {
-            activeOctagon.set();
+            // Octagons update their vertex lists in place, so the obstacle
+            // list already holds the new shape
+            scene.commit();
+
+            // Once a replan is needed, every rebuild searches until one
+            // with the latest obstacles has been picked up
+            if (!replanPending) {
+                newShapes.clear();
+                newShapes.add(shape);
+                replanPending = pathValidator.validate(
+                        scene.getStartPoint(),
+                        destinations,
+                        oldShapes,
+                        newShapes
+                ).needsReplanning();
+            }
 
-            Set<ArrayList<Vector2>> obstacles = new HashSet<>();
+            if (slicedRebuilder != null) {
+                slicedRebuilder.request(
+                        scene.getStartPoint(),
+                        scene.getEndPoint(),
+                        scene.getObstacles(),
+                        scene.getAgentRadius(),
+                        replanPending
+                );
+            } else {
+                graphRebuilder.request(
+                        scene.getStartPoint(),
+                        scene.getEndPoint(),
+                        scene.getObstacles(),
+                        scene.getAgentRadius(),
+                        replanPending
+                );
+            }
+        }
+    }
 
-            obstacles.add(octagons.get(0).getVertices());
-            obstacles.add(octagons.get(1).getVertices());
-            obstacles.add(octagons.get(2).getVertices());
+    /**
+     * Private helper method to pan (WASD) and zoom (Q out, E in) the camera.
+     * Panning moves by the same number of pixels at any zoom level.
+     */
+    private void updateCamera(float delta) {
+        float pan = PAN_SPEED * camera.zoom * delta;
+        if (Gdx.input.isKeyPressed(Input.Keys.W)) camera.position.y += pan;
+        if (Gdx.input.isKeyPressed(Input.Keys.S)) camera.position.y -= pan;
+        if (Gdx.input.isKeyPressed(Input.Keys.A)) camera.position.x -= pan;
+        if (Gdx.input.isKeyPressed(Input.Keys.D)) camera.position.x += pan;
+
+        float zoom = (float) Math.pow(ZOOM_SPEED, delta);
+        if (Gdx.input.isKeyPressed(Input.Keys.Q)) camera.zoom *= zoom;
+        if (Gdx.input.isKeyPressed(Input.Keys.E)) camera.zoom /= zoom;
+        camera.zoom = Math.min(Math.max(camera.zoom, MIN_ZOOM), MAX_ZOOM);
+
+        camera.update();
+    }
+
+    /**
+     * Private helper method to start recording the edits of the scene to a
+     * new local file, or to stop a running recording. Recordings can be
+     * replayed with {@link com.mygdx.game.benchmark.SessionReplayer}.
+     */
+    private void toggleRecording() {
+        if (recorder != null) {
+            scene.setRecorder(null);
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                System.err.println("Session recording failed: " + e);
+            }
+            recorder = null;
+            return;
+        }
 
-            Vector2 startPoint = new Vector2(10, 10);
-            Vector2 endPoint = new Vector2(630, 470);
+        FileHandle file = Gdx.files.local(
+                "session-" + System.currentTimeMillis() + ".vgs");
+        try {
+            recorder = new SessionRecorder(file.write(false), scene);
+            scene.setRecorder(recorder);
+        } catch (IOException | GdxRuntimeException e) {
+            System.err.println("Cannot record session to " + file + ": " + e);
+            recorder = null;
+        }
+    }
 
-            VisibilityGraph visibilityGraph = new VisibilityGraph(
-                    startPoint,
-                    endPoint,
-                    obstacles,
-                    0f
-            );
+    /**
+     * Private helper method to get whether the rebuilder in use has a
+     * rebuild pending or in progress.
+     */
+    private boolean isRebuilding() {
+        if (slicedRebuilder != null) return slicedRebuilder.isBusy();
+        return graphRebuilder.isBusy();
+    }
 
-            this.visibilityGraph = visibilityGraph;
-            destinations = visibilityGraph.aStar();
+    /**
+     * Private helper method to copy a searched path, since results are
+     * reused by the rebuilders.
+     */
+    private void copyPath(ArrayList<Vector2> path) {
+        while (destinations.size() > path.size()) {
+            destinations.remove(destinations.size() - 1);
+        }
+        while (destinations.size() < path.size()) {
+            destinations.add(new Vector2());
         }
+        for (int i = 0; i < path.size(); i++) {
+            destinations.get(i).set(path.get(i));
+        }
+    }
+
+    /**
+     * Private helper method to get the latest finished graph and path from
+     * the rebuilder in use.
+     */
+    private GraphRebuilder.Result getRebuildResult() {
+        if (slicedRebuilder != null) return slicedRebuilder.getResult();
+        return graphRebuilder.getResult();
     }
 
     @Override
     public void resize(int width, int height) {
         stage.getViewport().update(width, height, true);
+        camera.viewportWidth = width;
+        camera.viewportHeight = height;
+        screenProjection.setToOrtho2D(0, 0, width, height);
     }
 
     @Override
@@ -250,9 +429,12 @@ public class GameScreen implements Screen {
 
     @Override
     public void dispose() {
+        if (recorder != null) toggleRecording();
         spriteBatch.dispose();
         bitmapFont.dispose();
         shapeRenderer.dispose();
+        graphRenderer.dispose();
+        if (graphRebuilder != null) graphRebuilder.dispose();
         stage.dispose();
         skin.dispose();
     }
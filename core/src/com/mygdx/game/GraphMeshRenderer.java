@@ -0,0 +1,304 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.mygdx.game.visibilitygraph.VGEdge;
+import com.mygdx.game.visibilitygraph.VGVertex;
+import com.mygdx.game.visibilitygraph.VisibilityGraph;
+
+import java.util.ArrayList;
+
+/**
+ * Renders the edges of a {@link VisibilityGraph} from a static vertex buffer.
+ * The buffer is only rebuilt and uploaded when the version of the graph
+ * changes, so drawing an unchanged graph costs a few draw calls regardless
+ * of its number of edges.
+ * <p>
+ * Edges are stored in the chunk order of an {@link EdgeChunkIndex}, so only
+ * the ranges of the chunks overlapping the camera's view are drawn. When
+ * zoomed out so far that more visibility edges are in view than the screen
+ * can usefully show (about one per {@value #PIXELS_PER_EDGE} pixels), only
+ * an even sample of them is drawn, and below a minimum fraction none at
+ * all. Obstacle edges are always drawn in full.
+ */
+public class GraphMeshRenderer implements Disposable {
+
+    private static final int FLOATS_PER_VERTEX = 3; // x, y, packed color
+
+    // Average number of edges per chunk of the finest grid level
+    private static final int EDGES_PER_CHUNK = 256;
+
+    // Screen area per visibility edge drawn before edges are sampled
+    private static final int PIXELS_PER_EDGE = 40;
+
+    // Smallest fraction of the visibility edges in view which is drawn
+    private static final float MIN_SAMPLED_FRACTION = 0.02f;
+
+    private static final String VERTEX_SHADER =
+            "attribute vec2 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "uniform mat4 u_projTrans;\n"
+            + "varying vec4 v_color;\n"
+            + "void main() {\n"
+            + "    v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "    gl_Position = u_projTrans * vec4("
+            + ShaderProgram.POSITION_ATTRIBUTE + ", 0.0, 1.0);\n"
+            + "}\n";
+
+    private static final String FRAGMENT_SHADER =
+            "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "varying vec4 v_color;\n"
+            + "void main() {\n"
+            + "    gl_FragColor = v_color;\n"
+            + "}\n";
+
+    private final ShaderProgram shader;
+    private final float visibilityColor;
+    private final float obstacleColor;
+
+    private Mesh mesh;
+    private float[] vertexData;
+    private int numVertices;
+    private long version = -1;
+
+    private final EdgeChunkIndex visibilityIndex = new EdgeChunkIndex();
+    private final EdgeChunkIndex obstacleIndex = new EdgeChunkIndex();
+    private int drawnEdges;
+    private int drawCalls;
+    private float sampledFraction = 1;
+
+    /**
+     * Construct a Graph Mesh Renderer drawing visibility edges in dark gray
+     * and obstacle edges in red.
+     */
+    public GraphMeshRenderer() {
+        this(Color.DARK_GRAY, Color.RED);
+    }
+
+    /**
+     * Construct a Graph Mesh Renderer.
+     *
+     * @param visibilityColor color of visibility edges
+     * @param obstacleColor color of obstacle edges
+     */
+    public GraphMeshRenderer(Color visibilityColor, Color obstacleColor) {
+        shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        if (!shader.isCompiled()) {
+            throw new GdxRuntimeException(
+                    "Could not compile graph shader: " + shader.getLog()
+            );
+        }
+
+        this.visibilityColor = visibilityColor.toFloatBits();
+        this.obstacleColor = obstacleColor.toFloatBits();
+        vertexData = new float[0];
+    }
+
+    /**
+     * Draw the edges of the graph in view of the camera, uploading new
+     * vertex data first if the graph has changed since the last call.
+     *
+     * @param graph the graph to draw
+     * @param camera the camera to draw with, which must be up to date
+     */
+    public void render(VisibilityGraph graph, OrthographicCamera camera) {
+        if (graph.getVersion() != version) {
+            upload(graph);
+            version = graph.getVersion();
+        }
+
+        drawnEdges = 0;
+        drawCalls = 0;
+        sampledFraction = 1;
+        if (numVertices == 0) return;
+
+        float halfWidth = camera.viewportWidth * camera.zoom / 2;
+        float halfHeight = camera.viewportHeight * camera.zoom / 2;
+        float x0 = camera.position.x - halfWidth;
+        float x1 = camera.position.x + halfWidth;
+        float y0 = camera.position.y - halfHeight;
+        float y1 = camera.position.y + halfHeight;
+
+        // Sample visibility edges when there are more in view than pixels
+        // to show them
+        int inView = visibilityIndex.count(x0, y0, x1, y1);
+        float budget = camera.viewportWidth * camera.viewportHeight / PIXELS_PER_EDGE;
+        if (inView > budget) {
+            sampledFraction = budget / inView;
+            if (sampledFraction < MIN_SAMPLED_FRACTION) sampledFraction = 0;
+        }
+
+        shader.bind();
+        shader.setUniformMatrix("u_projTrans", camera.combined);
+
+        // Visibility edges first, so that obstacle edges are drawn on top
+        if (sampledFraction > 0) {
+            drawRanges(visibilityIndex, 0, x0, y0, x1, y1, sampledFraction);
+        }
+        drawRanges(obstacleIndex, visibilityIndex.getEdgeCount() * 2,
+                x0, y0, x1, y1, 1);
+    }
+
+    /**
+     * Get the number of edges drawn by the last call to {@link #render}.
+     *
+     * @return the number of edges drawn
+     */
+    public int getDrawnEdges() {
+        return drawnEdges;
+    }
+
+    /**
+     * Get the number of draw calls of the last call to {@link #render}.
+     *
+     * @return the number of draw calls
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * Get the fraction of the visibility edges in view drawn by the last
+     * call to {@link #render}.
+     *
+     * @return 1 if all were drawn, 0 if they were hidden
+     */
+    public float getSampledFraction() {
+        return sampledFraction;
+    }
+
+    /**
+     * Private helper method to draw the ranges of the chunks of an index
+     * which overlap the view.
+     *
+     * @param index the index of the edges
+     * @param firstVertex the mesh vertex of the first edge of the index
+     * @param fraction the fraction of each chunk to draw
+     */
+    private void drawRanges(
+            EdgeChunkIndex index,
+            int firstVertex,
+            float x0,
+            float y0,
+            float x1,
+            float y1,
+            float fraction)
+    {
+        drawnEdges += index.collect(x0, y0, x1, y1, fraction);
+        for (int i = 0; i < index.getRangeCount(); i++) {
+            mesh.render(
+                    shader,
+                    GL20.GL_LINES,
+                    firstVertex + index.getRangeStart(i) * 2,
+                    index.getRangeLength(i) * 2
+            );
+            drawCalls++;
+        }
+    }
+
+    /**
+     * Private helper method to index the edges of the graph and fill the
+     * vertex buffer with them in chunk order, visibility edges first.
+     *
+     * @param graph the graph to upload
+     */
+    private void upload(VisibilityGraph graph) {
+        ArrayList<VGEdge> visibilityEdges = graph.getVisibilityEdges();
+        ArrayList<VGEdge> obstacleEdges = graph.getObstacleEdges();
+
+        // Both indices share the bounds of the whole graph
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        ArrayList<VGVertex> vertices = graph.getVertices();
+        for (int i = 0; i < vertices.size(); i++) {
+            Vector2 pos = vertices.get(i).pos;
+            minX = Math.min(minX, pos.x);
+            minY = Math.min(minY, pos.y);
+            maxX = Math.max(maxX, pos.x);
+            maxY = Math.max(maxY, pos.y);
+        }
+        float size = Math.max(maxX - minX, maxY - minY);
+        visibilityIndex.set(visibilityEdges, minX, minY, size, EDGES_PER_CHUNK);
+        obstacleIndex.set(obstacleEdges, minX, minY, size, EDGES_PER_CHUNK);
+
+        numVertices = (visibilityEdges.size() + obstacleEdges.size()) * 2;
+        int numFloats = numVertices * FLOATS_PER_VERTEX;
+
+        // Grow buffers geometrically so a growing graph is not reallocated
+        // on every change
+        if (mesh == null || mesh.getMaxVertices() < numVertices) {
+            int capacity = Math.max(numVertices, vertexData.length
+                    / FLOATS_PER_VERTEX * 2);
+            if (mesh != null) mesh.dispose();
+            mesh = new Mesh(
+                    true,
+                    capacity,
+                    0,
+                    new VertexAttribute(
+                            VertexAttributes.Usage.Position,
+                            2,
+                            ShaderProgram.POSITION_ATTRIBUTE
+                    ),
+                    VertexAttribute.ColorPacked()
+            );
+            vertexData = new float[capacity * FLOATS_PER_VERTEX];
+        }
+
+        int k = 0;
+        k = putEdges(visibilityEdges, visibilityIndex, visibilityColor, k);
+        putEdges(obstacleEdges, obstacleIndex, obstacleColor, k);
+
+        mesh.setVertices(vertexData, 0, numFloats);
+    }
+
+    /**
+     * Private helper method to write edges as line vertices into the vertex
+     * data array, in the chunk order of their index.
+     *
+     * @param edges the edges to write
+     * @param index the index of the edges
+     * @param color the packed color of the edges
+     * @param offset the index in the vertex data array to start at
+     *
+     * @return the index following the last written value
+     */
+    private int putEdges(
+            ArrayList<VGEdge> edges,
+            EdgeChunkIndex index,
+            float color,
+            int offset)
+    {
+        int k = offset;
+        for (int i = 0; i < edges.size(); i++) {
+            VGEdge edge = edges.get(index.edgeAt(i));
+
+            vertexData[k++] = edge.a.pos.x;
+            vertexData[k++] = edge.a.pos.y;
+            vertexData[k++] = color;
+
+            vertexData[k++] = edge.b.pos.x;
+            vertexData[k++] = edge.b.pos.y;
+            vertexData[k++] = color;
+        }
+
+        return k;
+    }
+
+    @Override
+    public void dispose() {
+        if (mesh != null) mesh.dispose();
+        shader.dispose();
+    }
+}
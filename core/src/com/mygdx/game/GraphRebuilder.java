@@ -0,0 +1,294 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Disposable;
+import com.mygdx.game.visibilitygraph.SearchStats;
+import com.mygdx.game.visibilitygraph.VGHeuristic;
+import com.mygdx.game.visibilitygraph.VisibilityGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Rebuilds a {@link VisibilityGraph} and its shortest path on a background
+ * thread so that the render thread never waits for construction.
+ * <p>
+ * Requests are coalesced: if several requests arrive while a build is
+ * running, only the latest one is built afterwards. Finished results are
+ * published with an atomic swap and can be read at any time with
+ * {@link #getResult()}, which always returns the most recent complete graph
+ * and path.
+ * <p>
+ * Requests and results are each kept in three buffers which are swapped
+ * between the render thread and the worker rather than reallocated, and
+ * graphs are rebuilt and searched in place with
+ * {@link VisibilityGraph#rebuild} and
+ * {@link VisibilityGraph#aStar(VGHeuristic, SearchStats, ArrayList)}. This
+ * keeps continuous obstacle editing from producing garbage.
+ */
+public class GraphRebuilder implements Disposable {
+
+    /**
+     * A finished graph together with the shortest path through it. Results
+     * are reused by the rebuilder, so a result must not be used after the
+     * next call to {@link #getResult()}.
+     */
+    public static class Result {
+
+        public VisibilityGraph graph;
+        public final ArrayList<Vector2> path = new ArrayList<>();
+
+        // Time spent constructing and searching the graph
+        public long buildNanos;
+        public long searchNanos;
+
+        // Whether the path was searched (or left empty on request)
+        public boolean searched;
+
+        private volatile boolean fresh;
+    }
+
+    private final AtomicReference<Request> pendingRequest;
+    private final AtomicReference<Result> pendingResult;
+
+    private Request writeRequest; // Owned by the render thread
+    private Result readResult;    // Owned by the render thread
+    private Request readRequest;  // Owned by the worker
+    private Result writeResult;   // Owned by the worker
+
+    private final Thread worker;
+    private volatile boolean running;
+    private volatile boolean building;
+
+    /**
+     * Construct a Graph Rebuilder. The initial graph is built on the calling
+     * thread so that a result is available immediately.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param obstacles a list of obstacles defined as vertex arrays
+     * @param agentRadius radius of navigating agent
+     */
+    public GraphRebuilder(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        writeRequest = new Request();
+        readRequest = new Request();
+        pendingRequest = new AtomicReference<>(new Request());
+
+        readResult = new Result();
+        writeResult = new Result();
+        pendingResult = new AtomicReference<>(new Result());
+
+        writeRequest.set(startPoint, endPoint, obstacles, agentRadius);
+        build(writeRequest, readResult);
+
+        running = true;
+        worker = new Thread(this::work, "graph-rebuilder");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Request a rebuild of the graph. This copies the obstacles and returns
+     * immediately. Any earlier request which has not started building yet is
+     * discarded. This must only be called from the render thread.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param obstacles a list of obstacles defined as vertex arrays
+     * @param agentRadius radius of navigating agent
+     */
+    public void request(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        request(startPoint, endPoint, obstacles, agentRadius, true);
+    }
+
+    /**
+     * Request a rebuild of the graph, optionally without searching it (e.g.
+     * when a {@link com.mygdx.game.visibilitygraph.PathValidator} found the
+     * current path still to be a shortest path). Results of such rebuilds
+     * have an empty path and are not marked as searched. This must only be
+     * called from the render thread.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param obstacles a list of obstacles defined as vertex arrays
+     * @param agentRadius radius of navigating agent
+     * @param search whether to search the rebuilt graph for a path
+     */
+    public void request(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius,
+            boolean search)
+    {
+        writeRequest.set(startPoint, endPoint, obstacles, agentRadius);
+        writeRequest.search = search;
+        writeRequest.fresh = true;
+
+        // The buffer handed back is either a request that was never built
+        // or one the worker has finished with
+        writeRequest = pendingRequest.getAndSet(writeRequest);
+
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * Get the most recently completed graph and path. This must only be
+     * called from the render thread.
+     *
+     * @return the latest {@link Result}
+     */
+    public Result getResult() {
+        if (pendingResult.get().fresh) {
+            readResult.fresh = false;
+            readResult = pendingResult.getAndSet(readResult);
+        }
+
+        return readResult;
+    }
+
+    /**
+     * Get whether a rebuild is pending or in progress.
+     *
+     * @return whether the current result may be outdated
+     */
+    public boolean isBusy() {
+        return building || pendingRequest.get().fresh
+                || pendingResult.get().fresh;
+    }
+
+    /**
+     * Private helper method run on the worker thread, building the latest
+     * request whenever one is published.
+     */
+    private void work() {
+        while (running) {
+            if (!pendingRequest.get().fresh) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            building = true;
+            readRequest.fresh = false;
+            readRequest = pendingRequest.getAndSet(readRequest);
+
+            try {
+                build(readRequest, writeResult);
+                writeResult.fresh = true;
+                writeResult = pendingResult.getAndSet(writeResult);
+            } catch (RuntimeException e) {
+                System.err.println("Graph rebuild failed: " + e);
+            }
+
+            building = false;
+        }
+    }
+
+    /**
+     * Private helper method to build a graph and search it, reusing the
+     * graph of the result if it has one.
+     *
+     * @param request the request to build
+     * @param result the result to store the graph and path in
+     */
+    private static void build(Request request, Result result) {
+        long start = System.nanoTime();
+        if (result.graph == null) {
+            result.graph = new VisibilityGraph(
+                    request.startPoint,
+                    request.endPoint,
+                    request.obstacles,
+                    request.agentRadius
+            );
+        } else {
+            result.graph.rebuild(
+                    request.startPoint,
+                    request.endPoint,
+                    request.obstacles,
+                    request.agentRadius
+            );
+        }
+
+        long built = System.nanoTime();
+        if (request.search) {
+            result.graph.aStar(VGHeuristic.EUCLIDEAN, null, result.path);
+        } else {
+            result.path.clear();
+        }
+
+        result.searched = request.search;
+        result.buildNanos = built - start;
+        result.searchNanos = System.nanoTime() - built;
+    }
+
+    @Override
+    public void dispose() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * Helper inner class used to hold a copy of the input of a rebuild. This
+     * is also used by {@link TimeSlicedRebuilder}.
+     */
+    static class Request {
+
+        final Vector2 startPoint = new Vector2();
+        final Vector2 endPoint = new Vector2();
+        final ArrayList<ArrayList<Vector2>> obstacles = new ArrayList<>();
+        float agentRadius;
+        boolean search = true;
+
+        volatile boolean fresh;
+
+        /**
+         * Copy the input of a rebuild into this request, reusing its vectors
+         * and lists where possible.
+         */
+        public void set(
+                Vector2 startPoint,
+                Vector2 endPoint,
+                List<? extends List<Vector2>> obstacles,
+                float agentRadius)
+        {
+            this.startPoint.set(startPoint);
+            this.endPoint.set(endPoint);
+            this.agentRadius = agentRadius;
+
+            while (this.obstacles.size() > obstacles.size()) {
+                this.obstacles.remove(this.obstacles.size() - 1);
+            }
+            while (this.obstacles.size() < obstacles.size()) {
+                this.obstacles.add(new ArrayList<>());
+            }
+
+            for (int i = 0; i < obstacles.size(); i++) {
+                List<Vector2> source = obstacles.get(i);
+                ArrayList<Vector2> copy = this.obstacles.get(i);
+
+                while (copy.size() > source.size()) {
+                    copy.remove(copy.size() - 1);
+                }
+                while (copy.size() < source.size()) {
+                    copy.add(new Vector2());
+                }
+
+                for (int j = 0; j < source.size(); j++) {
+                    copy.get(j).set(source.get(j));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Replays a session written by a {@link SessionRecorder}. The scene of the
+ * recording is rebuilt from the header, and each call to
+ * {@link #nextStep()} applies the edits of one recorded frame to it, so the
+ * obstacles pass through exactly the same states as during recording. The
+ * player does not render or rebuild graphs itself.
+ */
+public class SessionPlayer implements Closeable {
+
+    private final DataInputStream in;
+    private final DemoScene scene;
+    private int numSteps;
+
+    /**
+     * Construct a Session Player and read the scene of a recording.
+     *
+     * @param in the stream to read from, which is closed with the player
+     *
+     * @throws IOException if the header cannot be read or is not that of a
+     *                     supported recording
+     */
+    public SessionPlayer(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+
+        if (this.in.readInt() != SessionRecorder.MAGIC) {
+            throw new IOException("Not a session recording");
+        }
+        int version = this.in.readUnsignedShort();
+        if (version != SessionRecorder.VERSION) {
+            throw new IOException("Unsupported session version " + version);
+        }
+
+        Vector2 startPoint = new Vector2(this.in.readFloat(), this.in.readFloat());
+        Vector2 endPoint = new Vector2(this.in.readFloat(), this.in.readFloat());
+        scene = new DemoScene(startPoint, endPoint, this.in.readFloat());
+
+        int numOctagons = this.in.readInt();
+        if (numOctagons < 0) {
+            throw new IOException("Invalid number of octagons " + numOctagons);
+        }
+        for (int i = 0; i < numOctagons; i++) {
+            scene.addOctagon(
+                    this.in.readFloat(),
+                    this.in.readFloat(),
+                    this.in.readFloat()
+            );
+        }
+
+        int activeOctagonID = this.in.readInt();
+        if (numOctagons > 0
+                && (activeOctagonID < 0 || activeOctagonID >= numOctagons)) {
+            throw new IOException("Invalid selected octagon " + activeOctagonID);
+        }
+        scene.setActiveOctagonID(activeOctagonID);
+    }
+
+    /**
+     * Get the scene being replayed.
+     *
+     * @return the {@link DemoScene}
+     */
+    public DemoScene getScene() {
+        return scene;
+    }
+
+    /**
+     * Get the number of steps replayed so far.
+     *
+     * @return the number of steps
+     */
+    public int getSteps() {
+        return numSteps;
+    }
+
+    /**
+     * Apply the edits of the next recorded frame which rebuilt the graph.
+     * Edits after the last such frame (e.g. a selection change) are applied
+     * too, but do not count as a step.
+     *
+     * @return whether a step was applied (false at the end of the recording)
+     *
+     * @throws IOException if the recording cannot be read or is corrupt
+     */
+    public boolean nextStep() throws IOException {
+        while (true) {
+            int type = in.read();
+            if (type < 0) return false;
+
+            try {
+                switch (type) {
+                    case SessionRecorder.SELECT_NEXT:
+                        scene.selectNext();
+                        break;
+                    case SessionRecorder.MOVE:
+                        scene.move(in.readByte(), in.readByte());
+                        break;
+                    case SessionRecorder.RESIZE:
+                        scene.resize(in.readByte());
+                        break;
+                    case SessionRecorder.STEP:
+                        numSteps++;
+                        return true;
+                    default:
+                        throw new IOException("Invalid session record " + type);
+                }
+            } catch (EOFException e) {
+                // A recording cut off within a record ends before it
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
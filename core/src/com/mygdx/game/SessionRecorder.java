@@ -0,0 +1,140 @@
+package com.mygdx.game;
+
+import com.mygdx.game.visibilitygraph.Octagon;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+/**
+ * Records the edits of a {@link DemoScene} to a compact binary stream, so
+ * that an interactive session can be replayed deterministically by a
+ * {@link SessionPlayer}.
+ * <p>
+ * The stream starts with a header holding the scene at the start of the
+ * recording: the magic number, the format version, the start and end point,
+ * the agent radius, the octagons (center and radius) and the selected
+ * octagon. It is followed by one record per edit, each a type byte and its
+ * operands: {@link #SELECT_NEXT}, {@link #MOVE} with two signed bytes,
+ * {@link #RESIZE} with one signed byte, and {@link #STEP} marking the end
+ * of a frame which rebuilt the graph. Holding an arrow key costs 4 bytes
+ * per frame.
+ * <p>
+ * Edits arrive from the render loop, so write errors are reported on
+ * standard error and end the recording instead of being thrown.
+ */
+public class SessionRecorder implements Closeable {
+
+    static final int MAGIC = 0x56475345; // "VGSE"
+    static final int VERSION = 1;
+
+    static final byte SELECT_NEXT = 1;
+    static final byte MOVE = 2;
+    static final byte RESIZE = 3;
+    static final byte STEP = 4;
+
+    private final DataOutputStream out;
+    private int numSteps;
+    private boolean failed;
+
+    /**
+     * Construct a Session Recorder and write the header for the current
+     * state of a scene. Attach the recorder with
+     * {@link DemoScene#setRecorder} to record its edits.
+     *
+     * @param out the stream to write to, which is closed with the recorder
+     * @param scene the scene to record
+     *
+     * @throws IOException if the header cannot be written
+     */
+    public SessionRecorder(OutputStream out, DemoScene scene)
+            throws IOException
+    {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+
+        this.out.writeInt(MAGIC);
+        this.out.writeShort(VERSION);
+        this.out.writeFloat(scene.getStartPoint().x);
+        this.out.writeFloat(scene.getStartPoint().y);
+        this.out.writeFloat(scene.getEndPoint().x);
+        this.out.writeFloat(scene.getEndPoint().y);
+        this.out.writeFloat(scene.getAgentRadius());
+
+        ArrayList<Octagon> octagons = scene.getOctagons();
+        this.out.writeInt(octagons.size());
+        for (int i = 0; i < octagons.size(); i++) {
+            Octagon octagon = octagons.get(i);
+            this.out.writeFloat(octagon.position.x);
+            this.out.writeFloat(octagon.position.y);
+            this.out.writeFloat(octagon.radius);
+        }
+        this.out.writeInt(scene.getActiveOctagonID());
+    }
+
+    /**
+     * Get the number of steps recorded so far.
+     *
+     * @return the number of frames which rebuilt the graph
+     */
+    public int getSteps() {
+        return numSteps;
+    }
+
+    /**
+     * Record the selection of the next octagon.
+     */
+    void selectNext() {
+        write(SELECT_NEXT, 0, 0, 0);
+    }
+
+    /**
+     * Record a move of the selected octagon.
+     */
+    void move(int dx, int dy) {
+        write(MOVE, 2, dx, dy);
+    }
+
+    /**
+     * Record a change of the radius of the selected octagon.
+     */
+    void resize(int dr) {
+        write(RESIZE, 1, dr, 0);
+    }
+
+    /**
+     * Record the end of the edits of a frame.
+     */
+    void step() {
+        write(STEP, 0, 0, 0);
+        numSteps++;
+    }
+
+    /**
+     * Private helper method to write a record with up to two byte operands.
+     */
+    private void write(byte type, int numOperands, int a, int b) {
+        if (failed) return;
+
+        if (a != (byte) a || b != (byte) b) {
+            throw new IllegalArgumentException(
+                    "Edit out of range for a session record: " + a + ", " + b);
+        }
+
+        try {
+            out.writeByte(type);
+            if (numOperands > 0) out.writeByte(a);
+            if (numOperands > 1) out.writeByte(b);
+        } catch (IOException e) {
+            System.err.println("Session recording failed: " + e);
+            failed = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
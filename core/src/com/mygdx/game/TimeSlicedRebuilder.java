@@ -0,0 +1,282 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.game.visibilitygraph.IncrementalSearch;
+import com.mygdx.game.visibilitygraph.VGHeuristic;
+import com.mygdx.game.visibilitygraph.VisibilityGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds a {@link VisibilityGraph} and its shortest path on the render
+ * thread, spending at most a fixed time budget per frame. This is the
+ * alternative to {@link GraphRebuilder} for platforms without threads, or
+ * when the build must be interleaved with other per-frame work.
+ * <p>
+ * Call {@link #step(long)} once per frame. A rebuild runs in two phases:
+ * the graph is constructed with {@link VisibilityGraph#stepRebuild} and then
+ * searched with an {@link IncrementalSearch}, each resuming where the
+ * previous frame stopped. Progress and completion are reported to a
+ * {@link Listener}.
+ * <p>
+ * Results are double buffered: {@link #getResult()} keeps returning the
+ * previous complete graph and path until the new ones are ready. Requests
+ * are coalesced like those of {@link GraphRebuilder}: a running rebuild is
+ * finished, and only the latest request received meanwhile is built next.
+ * This class is not thread-safe and should only be used from the render
+ * thread.
+ */
+public class TimeSlicedRebuilder {
+
+    /**
+     * Phase of a rebuild.
+     */
+    public enum Phase {
+        BUILD,
+        SEARCH
+    }
+
+    /**
+     * Receives progress and completion events of rebuilds. Events are sent
+     * from {@link #step(long)}.
+     */
+    public interface Listener {
+
+        /**
+         * Called after each step of a rebuild.
+         *
+         * @param phase the phase worked on
+         * @param progress progress of the phase between 0 and 1
+         */
+        void onProgress(Phase phase, float progress);
+
+        /**
+         * Called when a rebuild is complete and its result is published.
+         *
+         * @param result the new result (the same as {@link #getResult()})
+         */
+        void onComplete(GraphRebuilder.Result result);
+    }
+
+    private GraphRebuilder.Result current;
+    private GraphRebuilder.Result next;
+    private final GraphRebuilder.Request pendingRequest;
+    private final IncrementalSearch search;
+    private Phase phase; // null while idle
+    private Listener listener;
+    private long stepBuildNanos;
+    private long stepSearchNanos;
+    private boolean searching; // whether the rebuild in progress searches
+
+    /**
+     * Construct a Time Sliced Rebuilder. The initial graph is built at once
+     * so that a result is available immediately.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param obstacles a list of obstacles defined as vertex arrays
+     * @param agentRadius radius of navigating agent
+     */
+    public TimeSlicedRebuilder(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        current = new GraphRebuilder.Result();
+        current.graph = new VisibilityGraph(
+                startPoint,
+                endPoint,
+                obstacles,
+                agentRadius
+        );
+        current.graph.aStar(VGHeuristic.EUCLIDEAN, null, current.path);
+        current.searched = true;
+
+        // The second graph starts empty and is rebuilt on the first request
+        next = new GraphRebuilder.Result();
+        next.graph = new VisibilityGraph(
+                startPoint,
+                endPoint,
+                new ArrayList<ArrayList<Vector2>>(),
+                agentRadius
+        );
+
+        pendingRequest = new GraphRebuilder.Request();
+        search = new IncrementalSearch();
+    }
+
+    /**
+     * Set the listener receiving progress and completion events.
+     *
+     * @param listener the {@link Listener} (or null)
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Request a rebuild of the graph. This copies the obstacles and returns
+     * immediately; the work is done by later calls to {@link #step(long)}.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param obstacles a list of obstacles defined as vertex arrays
+     * @param agentRadius radius of navigating agent
+     */
+    public void request(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        request(startPoint, endPoint, obstacles, agentRadius, true);
+    }
+
+    /**
+     * Request a rebuild of the graph, optionally without searching it, like
+     * {@link GraphRebuilder#request(Vector2, Vector2, List, float, boolean)}.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param obstacles a list of obstacles defined as vertex arrays
+     * @param agentRadius radius of navigating agent
+     * @param search whether to search the rebuilt graph for a path
+     */
+    public void request(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius,
+            boolean search)
+    {
+        pendingRequest.set(startPoint, endPoint, obstacles, agentRadius);
+        pendingRequest.search = search;
+        pendingRequest.fresh = true;
+    }
+
+    /**
+     * Continue rebuilding for at most about the specified time. Each call
+     * makes some progress, however small the budget.
+     *
+     * @param budgetNanos time to spend in nanoseconds (e.g. 2000000 for
+     *                    2 ms of each frame)
+     *
+     * @return whether work remains for later frames
+     */
+    public boolean step(long budgetNanos) {
+        long deadline = System.nanoTime()
+                + Math.min(Math.max(budgetNanos, 0), Long.MAX_VALUE / 4);
+        stepBuildNanos = 0;
+        stepSearchNanos = 0;
+
+        do {
+            long start = System.nanoTime();
+            if (phase == null) {
+                if (!pendingRequest.fresh) return false;
+                pendingRequest.fresh = false;
+
+                next.buildNanos = 0;
+                next.searchNanos = 0;
+                searching = pendingRequest.search;
+                next.graph.beginRebuild(
+                        pendingRequest.startPoint,
+                        pendingRequest.endPoint,
+                        pendingRequest.obstacles,
+                        pendingRequest.agentRadius
+                );
+                phase = Phase.BUILD;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (phase == Phase.BUILD) {
+                boolean built = next.graph.stepRebuild(remaining);
+                long spent = System.nanoTime() - start;
+                stepBuildNanos += spent;
+                next.buildNanos += spent;
+                notifyProgress(Phase.BUILD, next.graph.getRebuildProgress());
+                if (!built) return true;
+
+                if (searching) {
+                    search.begin(next.graph, VGHeuristic.EUCLIDEAN);
+                    phase = Phase.SEARCH;
+                    continue;
+                }
+                next.path.clear();
+            } else {
+                boolean searched = search.step(remaining);
+                long spent = System.nanoTime() - start;
+                stepSearchNanos += spent;
+                next.searchNanos += spent;
+                notifyProgress(Phase.SEARCH, search.getProgress());
+                if (!searched) return true;
+
+                search.getPath(next.path);
+                search.cancel();
+            }
+            next.searched = searching;
+            phase = null;
+
+            // Publish the new result; the old one is rebuilt next time
+            GraphRebuilder.Result finished = next;
+            next = current;
+            current = finished;
+            if (listener != null) listener.onComplete(current);
+        } while (deadline - System.nanoTime() > 0);
+
+        return phase != null || pendingRequest.fresh;
+    }
+
+    /**
+     * Get the most recently completed graph and path. The result stays valid
+     * until the next rebuild is complete.
+     *
+     * @return the latest {@link GraphRebuilder.Result}
+     */
+    public GraphRebuilder.Result getResult() {
+        return current;
+    }
+
+    /**
+     * Get whether a rebuild is pending or in progress.
+     *
+     * @return whether the current result may be outdated
+     */
+    public boolean isBusy() {
+        return phase != null || pendingRequest.fresh;
+    }
+
+    /**
+     * Get the phase of the rebuild in progress.
+     *
+     * @return the {@link Phase}, or null if no rebuild is in progress
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Get the time the last call to {@link #step(long)} spent constructing
+     * graphs.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getStepBuildNanos() {
+        return stepBuildNanos;
+    }
+
+    /**
+     * Get the time the last call to {@link #step(long)} spent searching
+     * graphs.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getStepSearchNanos() {
+        return stepSearchNanos;
+    }
+
+    private void notifyProgress(Phase phase, float progress) {
+        if (listener != null) listener.onProgress(phase, progress);
+    }
+}
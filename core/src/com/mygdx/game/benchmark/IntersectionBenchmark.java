@@ -0,0 +1,126 @@
+package com.mygdx.game.benchmark;
+
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.game.visibilitygraph.VGEdge;
+import com.mygdx.game.visibilitygraph.VGEdgeBatch;
+import com.mygdx.game.visibilitygraph.VGVertex;
+import com.mygdx.game.visibilitygraph.VisibilityGraph;
+
+import java.util.ArrayList;
+
+/**
+ * Benchmark comparing the packed {@link VGEdgeBatch} segment test with
+ * testing one {@link VGEdge} object at a time, as visibility graph
+ * construction did before. Every pair of vertices of a random obstacle field
+ * is tested against all obstacle edges, and both variants must agree.
+ * <p>
+ * Usage: IntersectionBenchmark [numObstacles] [rounds]
+ */
+public class IntersectionBenchmark {
+
+    public static void main(String[] args) {
+        int numObstacles = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        VisibilityGraph graph = new VisibilityGraph(
+                new Vector2(5, 5),
+                new Vector2(635, 475),
+                SearchBenchmark.createObstacles(0, numObstacles),
+                0f
+        );
+        ArrayList<VGVertex> vertices = graph.getVertices();
+        ArrayList<VGEdge> obstacleEdges = graph.getObstacleEdges();
+
+        VGEdgeBatch batch = new VGEdgeBatch();
+        batch.set(obstacleEdges);
+
+        int numPairs = vertices.size() * (vertices.size() - 1) / 2;
+        System.out.printf(
+                "%d vertices, %d obstacle edges, %d segments per round%n",
+                vertices.size(),
+                obstacleEdges.size(),
+                numPairs
+        );
+
+        // Warm up before measuring, checking that both variants agree
+        int mismatches = 0;
+        for (int i = 0; i < 3; i++) {
+            mismatches += Math.abs(runObjects(vertices, obstacleEdges)
+                    - runBatch(vertices, batch));
+        }
+        if (mismatches != 0) {
+            System.err.println("Results differ for " + mismatches + " segments");
+        }
+
+        long objectTime = 0;
+        long batchTime = 0;
+        int blocked = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            blocked = runObjects(vertices, obstacleEdges);
+            objectTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            blocked = runBatch(vertices, batch);
+            batchTime += System.nanoTime() - start;
+        }
+
+        double segments = (double) numPairs * rounds;
+        System.out.printf("%d of %d segments blocked%n", blocked, numPairs);
+        System.out.printf("%-10s %12s%n", "variant", "ns/segment");
+        System.out.printf("%-10s %12.1f%n", "objects", objectTime / segments);
+        System.out.printf("%-10s %12.1f%n", "batch", batchTime / segments);
+        System.out.printf("speedup %.2fx%n", objectTime / (double) batchTime);
+    }
+
+    /**
+     * Private helper method to test all vertex pairs one edge object at a
+     * time.
+     *
+     * @return the number of blocked segments
+     */
+    private static int runObjects(
+            ArrayList<VGVertex> vertices,
+            ArrayList<VGEdge> obstacleEdges)
+    {
+        int blocked = 0;
+        for (int i = 0; i < vertices.size(); i++) {
+            for (int j = i + 1; j < vertices.size(); j++) {
+                VGVertex a = vertices.get(i);
+                VGVertex b = vertices.get(j);
+                VGEdge candidate = new VGEdge(a, b, false);
+
+                for (VGEdge edge : obstacleEdges) {
+                    if (edge.a == a || edge.b == a || edge.a == b || edge.b == b) {
+                        continue;
+                    }
+                    if (candidate.intersects(edge)) {
+                        blocked++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return blocked;
+    }
+
+    /**
+     * Private helper method to test all vertex pairs against the packed
+     * batch.
+     *
+     * @return the number of blocked segments
+     */
+    private static int runBatch(ArrayList<VGVertex> vertices, VGEdgeBatch batch) {
+        int blocked = 0;
+        for (int i = 0; i < vertices.size(); i++) {
+            for (int j = i + 1; j < vertices.size(); j++) {
+                if (batch.intersectsAny(vertices.get(i), vertices.get(j))) {
+                    blocked++;
+                }
+            }
+        }
+
+        return blocked;
+    }
+}
@@ -0,0 +1,140 @@
+package com.mygdx.game.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies in nanoseconds with log-linear buckets, in the
+ * style of HdrHistogram. Values are grouped by their highest set bit, and
+ * each power of two range is split into 64 linear sub-buckets, so every
+ * recorded value is kept to within 1/64 (about 1.6%) of its true value over
+ * the whole range of a long. Recording is constant time and allocation
+ * free.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 64
+
+    // Values below 2 * SUB_BUCKETS are counted exactly
+    private static final int NUM_BUCKETS
+            = 2 * SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[NUM_BUCKETS];
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos the latency in nanoseconds (negative values count as 0)
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Get the number of recorded latencies.
+     *
+     * @return the number of latencies
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the mean of the recorded latencies.
+     *
+     * @return the mean latency in nanoseconds (0 if empty)
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : sum / (double) totalCount;
+    }
+
+    /**
+     * Get the smallest recorded latency.
+     *
+     * @return the minimum latency in nanoseconds (0 if empty)
+     */
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * Get the largest recorded latency.
+     *
+     * @return the maximum latency in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the latency at the specified percentile. This is the highest value
+     * equivalent to the bucket containing the percentile, capped at the
+     * maximum recorded value.
+     *
+     * @param percentile the percentile (0 to 100)
+     *
+     * @return the latency in nanoseconds (0 if empty)
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+
+        long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+        rank = Math.max(1, Math.min(totalCount, rank));
+
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestValueOf(i));
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Remove all recorded latencies.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Private helper method to get the bucket index of a value.
+     */
+    private static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) return (int) value;
+
+        // Shift the value so that its top bits fall into [64, 128)
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+
+        return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Private helper method to get the highest value which falls into the
+     * bucket with the specified index.
+     */
+    private static long highestValueOf(int index) {
+        if (index < 2 * SUB_BUCKETS) return index;
+
+        int shift = (index - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+        long subBucket = (index - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,511 @@
+package com.mygdx.game.benchmark;
+
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.game.visibilitygraph.LandmarkHeuristic;
+import com.mygdx.game.visibilitygraph.Octagon;
+import com.mygdx.game.visibilitygraph.VGHeuristic;
+import com.mygdx.game.visibilitygraph.VGVertex;
+import com.mygdx.game.visibilitygraph.VisibilityGraph;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end load suite for {@link VisibilityGraph}. For each size tier a
+ * deterministic seeded obstacle field is built, and a mixed workload of short
+ * and long routes is replayed with unidirectional, bidirectional and ALT
+ * searches. Build times, peak heap and query latency percentiles are written
+ * to a JSON report.
+ * <p>
+ * If a baseline report exists, every gated metric (build time, latency
+ * percentiles and peak heap) is compared with it and the suite exits with
+ * status 1 if any metric regressed by more than the tolerance, or is in the
+ * baseline but missing from the current run (e.g. a skipped tier). A
+ * missing baseline file is an error (status 2); with --record-baseline, the
+ * current report is stored as the baseline instead of being compared.
+ * Timings only compare on the same host, which the report records.
+ * <p>
+ * Construction is O(n^3), so tiers with more vertices than
+ * --max-build-vertices are reported as skipped rather than run for hours.
+ * <p>
+ * Usage: LoadSuite [--sizes 100,1000,10000,100000] [--queries 2000]
+ * [--max-build-vertices 2000] [--seed 1] [--report file] [--baseline file]
+ * [--tolerance 0.25] [--record-baseline]
+ */
+public class LoadSuite {
+
+    static final float CELL_SIZE = 60;
+    private static final int NUM_LANDMARKS = 8;
+    private static final float SHORT_ROUTE_RANGE = 150;
+    private static final double SHORT_ROUTE_SHARE = 0.7;
+
+    // Suffixes of the metrics compared against the baseline, with the
+    // smallest absolute increase counted as a regression (to ignore noise)
+    private static final String[] GATED_SUFFIXES = {
+            "build_p50_ms", "alt_build_ms", "peak_heap_mb",
+            "_p50_us", "_p90_us", "_p99_us"
+    };
+    private static final double[] NOISE_FLOORS = {
+            1.0, 1.0, 8.0,
+            2.0, 2.0, 2.0
+    };
+
+    private static final Pattern METRIC
+            = Pattern.compile("\"([\\w.]+)\"\\s*:\\s*(-?[0-9.]+(?:[eE][-+]?[0-9]+)?)");
+
+    private static final String[] MODES = {"astar", "bidirectional", "alt"};
+
+    public static void main(String[] args) throws IOException {
+        String sizes = "100,1000,10000,100000";
+        int numQueries = 2000;
+        int maxBuildVertices = 2000;
+        long seed = 1;
+        Path reportPath = Paths.get("load-report.json");
+        Path baselinePath = null;
+        double tolerance = 0.25;
+        boolean recordBaseline = false;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--record-baseline")) {
+                recordBaseline = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                System.err.println("Missing value for option " + args[i]);
+                System.exit(2);
+            }
+
+            String value = args[++i];
+            switch (args[i - 1]) {
+                case "--sizes": sizes = value; break;
+                case "--queries": numQueries = Integer.parseInt(value); break;
+                case "--max-build-vertices":
+                    maxBuildVertices = Integer.parseInt(value);
+                    break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--report": reportPath = Paths.get(value); break;
+                case "--baseline": baselinePath = Paths.get(value); break;
+                case "--tolerance": tolerance = Double.parseDouble(value); break;
+                default:
+                    System.err.println("Unknown option " + args[i - 1]);
+                    System.exit(2);
+            }
+        }
+
+        LinkedHashMap<String, Double> metrics = new LinkedHashMap<>();
+        ArrayList<String> skipped = new ArrayList<>();
+
+        for (String size : sizes.split(",")) {
+            int targetVertices = Integer.parseInt(size.trim());
+            String tier = "v" + targetVertices;
+
+            if (targetVertices > maxBuildVertices) {
+                System.out.printf(
+                        "%s: skipped (above --max-build-vertices %d)%n",
+                        tier,
+                        maxBuildVertices
+                );
+                skipped.add(tier);
+                continue;
+            }
+
+            runTier(tier, targetVertices, numQueries, seed, metrics);
+        }
+
+        String report = toJson(metrics, skipped);
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        Files.write(reportPath, report.getBytes(StandardCharsets.UTF_8));
+        System.out.println("Report written to " + reportPath);
+
+        if (baselinePath == null) {
+            if (recordBaseline) {
+                System.err.println("--record-baseline requires --baseline");
+                System.exit(2);
+            }
+            return;
+        }
+
+        if (recordBaseline) {
+            if (baselinePath.getParent() != null) {
+                Files.createDirectories(baselinePath.getParent());
+            }
+            Files.write(baselinePath, report.getBytes(StandardCharsets.UTF_8));
+            System.out.println("Stored report as baseline " + baselinePath);
+            return;
+        }
+
+        if (!Files.exists(baselinePath)) {
+            System.err.println("No baseline found at " + baselinePath
+                    + " (record one with --record-baseline)");
+            System.exit(2);
+        }
+
+        Map<String, Double> baseline = readMetrics(new String(
+                Files.readAllBytes(baselinePath), StandardCharsets.UTF_8
+        ));
+        if (!compare(metrics, baseline, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Private helper method to build and query one size tier, adding its
+     * results to the metrics.
+     */
+    private static void runTier(
+            String tier,
+            int targetVertices,
+            int numQueries,
+            long seed,
+            LinkedHashMap<String, Double> metrics)
+    {
+        int numObstacles = Math.max(1, Math.round((targetVertices - 2) / 8f));
+        ArrayList<ArrayList<Vector2>> obstacles
+                = createField(seed, numObstacles);
+        int columns = columnsFor(numObstacles);
+        int rows = (numObstacles + columns - 1) / columns;
+        Vector2 startPoint = new Vector2(-10, -10);
+        Vector2 endPoint = new Vector2(
+                columns * CELL_SIZE + 10,
+                rows * CELL_SIZE + 10
+        );
+
+        resetPeakHeap();
+
+        // Build repeatedly (at least once, for up to about a second) so that
+        // small tiers get a stable median
+        LatencyHistogram buildTimes = new LatencyHistogram();
+        VisibilityGraph graph = null;
+        long buildStart = System.nanoTime();
+        while (graph == null || (buildTimes.getTotalCount() < 50
+                && System.nanoTime() - buildStart < 1_000_000_000L)) {
+            long start = System.nanoTime();
+            graph = new VisibilityGraph(startPoint, endPoint, obstacles, 0f);
+            buildTimes.record(System.nanoTime() - start);
+        }
+
+        long altStart = System.nanoTime();
+        LandmarkHeuristic landmarks
+                = new LandmarkHeuristic(graph, NUM_LANDMARKS);
+        long altTime = System.nanoTime() - altStart;
+
+        // Generate the workload up front so it does not affect timings
+        ArrayList<VGVertex> vertices = graph.getVertices();
+        Random random = new Random(seed * 31 + targetVertices);
+        int warmup = Math.min(200, numQueries);
+        int[][] queries = new int[warmup + numQueries][];
+        for (int q = 0; q < queries.length; q++) {
+            queries[q] = createQuery(vertices, random);
+        }
+
+        LatencyHistogram[] latencies = new LatencyHistogram[MODES.length];
+        for (int m = 0; m < MODES.length; m++) {
+            latencies[m] = new LatencyHistogram();
+        }
+
+        for (int q = 0; q < queries.length; q++) {
+            int mode = q % MODES.length;
+            VGVertex from = vertices.get(queries[q][0]);
+            VGVertex to = vertices.get(queries[q][1]);
+
+            long start = System.nanoTime();
+            if (mode == 0) {
+                graph.aStar(from, to, VGHeuristic.EUCLIDEAN, null);
+            } else if (mode == 1) {
+                graph.bidirectionalAStar(from, to, VGHeuristic.EUCLIDEAN, null);
+            } else {
+                graph.aStar(from, to, landmarks, null);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            if (q >= warmup) latencies[mode].record(elapsed);
+        }
+
+        double peakHeap = peakHeapBytes() / (1024.0 * 1024.0);
+
+        metrics.put(tier + ".vertices", (double) vertices.size());
+        metrics.put(tier + ".visibility_edges",
+                (double) graph.getVisibilityEdges().size());
+        metrics.put(tier + ".build_runs", (double) buildTimes.getTotalCount());
+        metrics.put(tier + ".build_p50_ms",
+                buildTimes.getValueAtPercentile(50) / 1e6);
+        metrics.put(tier + ".build_max_ms", buildTimes.getMax() / 1e6);
+        metrics.put(tier + ".alt_build_ms", altTime / 1e6);
+        metrics.put(tier + ".peak_heap_mb", peakHeap);
+
+        System.out.printf(
+                "%s: %d vertices, %d edges, build %.2f ms, ALT %.2f ms, "
+                        + "peak heap %.1f MB%n",
+                tier,
+                vertices.size(),
+                graph.getVisibilityEdges().size(),
+                buildTimes.getValueAtPercentile(50) / 1e6,
+                altTime / 1e6,
+                peakHeap
+        );
+
+        for (int m = 0; m < MODES.length; m++) {
+            LatencyHistogram h = latencies[m];
+            String prefix = tier + "." + MODES[m];
+            metrics.put(prefix + "_queries", (double) h.getTotalCount());
+            metrics.put(prefix + "_mean_us", h.getMean() / 1e3);
+            metrics.put(prefix + "_p50_us", h.getValueAtPercentile(50) / 1e3);
+            metrics.put(prefix + "_p90_us", h.getValueAtPercentile(90) / 1e3);
+            metrics.put(prefix + "_p99_us", h.getValueAtPercentile(99) / 1e3);
+            metrics.put(prefix + "_p999_us",
+                    h.getValueAtPercentile(99.9) / 1e3);
+            metrics.put(prefix + "_max_us", h.getMax() / 1e3);
+
+            System.out.printf(
+                    "  %-14s p50 %8.1f us  p90 %8.1f us  p99 %8.1f us  "
+                            + "max %8.1f us%n",
+                    MODES[m],
+                    h.getValueAtPercentile(50) / 1e3,
+                    h.getValueAtPercentile(90) / 1e3,
+                    h.getValueAtPercentile(99) / 1e3,
+                    h.getMax() / 1e3
+            );
+        }
+    }
+
+    /**
+     * Create a deterministic field of octagonal obstacles, one per cell of
+     * a jittered grid. The grid keeps obstacles apart without overlap tests,
+     * so fields of any size can be generated quickly.
+     *
+     * @param seed the random seed
+     * @param numObstacles the number of obstacles
+     *
+     * @return {@link ArrayList} of obstacle vertex arrays
+     */
+    static ArrayList<ArrayList<Vector2>> createField(long seed, int numObstacles) {
+        Random random = new Random(seed);
+        int columns = columnsFor(numObstacles);
+        ArrayList<ArrayList<Vector2>> obstacles = new ArrayList<>();
+
+        for (int i = 0; i < numObstacles; i++) {
+            float radius = 8 + random.nextFloat() * 12;
+
+            // Octagon vertices lie within 1.1 times the inner radius, which
+            // leaves at least 6 units of jitter inside each cell
+            float jitter = CELL_SIZE / 2 - 22 - 2;
+            Vector2 position = new Vector2(
+                    (i % columns + 0.5f) * CELL_SIZE
+                            + (random.nextFloat() * 2 - 1) * jitter,
+                    (i / columns + 0.5f) * CELL_SIZE
+                            + (random.nextFloat() * 2 - 1) * jitter
+            );
+
+            obstacles.add(new Octagon(position, radius).getVertices());
+        }
+
+        return obstacles;
+    }
+
+    /**
+     * Get the number of grid columns for a field created with
+     * {@link #createField}, giving it a 4:3 aspect ratio.
+     */
+    static int columnsFor(int numObstacles) {
+        return Math.max(1, (int) Math.ceil(Math.sqrt(numObstacles * 4 / 3.0)));
+    }
+
+    /**
+     * Private helper method to pick the vertex indices of a query. Most
+     * queries are short routes between nearby vertices, the rest are routes
+     * between arbitrary vertices.
+     */
+    private static int[] createQuery(ArrayList<VGVertex> vertices, Random random) {
+        int from = random.nextInt(vertices.size());
+        int to = random.nextInt(vertices.size());
+
+        if (random.nextDouble() < SHORT_ROUTE_SHARE) {
+            Vector2 pos = vertices.get(from).pos;
+            for (int attempt = 0; attempt < 100; attempt++) {
+                int candidate = random.nextInt(vertices.size());
+                if (candidate != from && vertices.get(candidate).pos.dst(pos)
+                        < SHORT_ROUTE_RANGE) {
+                    to = candidate;
+                    break;
+                }
+            }
+        }
+
+        return new int[] {from, to};
+    }
+
+    /**
+     * Private helper method to collect garbage and reset the peak usage of
+     * all heap memory pools.
+     */
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    /**
+     * Private helper method to get the peak heap usage since the last reset.
+     * The pool peaks are summed, which is an upper bound since the pools
+     * may peak at different times.
+     */
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        return peak;
+    }
+
+    /**
+     * Private helper method to compare metrics with a baseline, printing
+     * every regression. A gated metric of the baseline which the current run
+     * did not produce counts as a regression, since it was not checked.
+     *
+     * @return whether no gated metric regressed
+     */
+    private static boolean compare(
+            Map<String, Double> metrics,
+            Map<String, Double> baseline,
+            double tolerance)
+    {
+        int regressions = 0;
+        for (Map.Entry<String, Double> entry : metrics.entrySet()) {
+            String key = entry.getKey();
+            Double previous = baseline.get(key);
+            int gate = gateOf(key);
+            if (previous == null || gate < 0) continue;
+
+            double current = entry.getValue();
+            if (current > previous * (1 + tolerance)
+                    && current - previous > NOISE_FLOORS[gate]) {
+                System.err.printf(
+                        "REGRESSION %s: %.2f -> %.2f (+%.0f%%)%n",
+                        key,
+                        previous,
+                        current,
+                        (current / previous - 1) * 100
+                );
+                regressions++;
+            }
+        }
+
+        for (Map.Entry<String, Double> entry : baseline.entrySet()) {
+            String key = entry.getKey();
+            if (metrics.containsKey(key) || gateOf(key) < 0) continue;
+
+            System.err.printf(
+                    "REGRESSION %s: %.2f -> missing%n",
+                    key,
+                    entry.getValue()
+            );
+            regressions++;
+        }
+
+        if (regressions == 0) {
+            System.out.printf(
+                    "No regressions beyond %.0f%% of the baseline%n",
+                    tolerance * 100
+            );
+        }
+
+        return regressions == 0;
+    }
+
+    /**
+     * Private helper method to get the index of the gated suffix of a
+     * metric, or -1 if the metric is not gated.
+     */
+    private static int gateOf(String key) {
+        for (int i = 0; i < GATED_SUFFIXES.length; i++) {
+            if (key.endsWith(GATED_SUFFIXES[i])) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Read the metrics of a report written by this suite.
+     *
+     * @param json the report
+     *
+     * @return map of metric names to values
+     */
+    static Map<String, Double> readMetrics(String json) {
+        LinkedHashMap<String, Double> metrics = new LinkedHashMap<>();
+        int start = json.indexOf("\"metrics\"");
+        if (start < 0) return metrics;
+
+        Matcher matcher = METRIC.matcher(json.substring(start));
+        while (matcher.find()) {
+            metrics.put(matcher.group(1), Double.parseDouble(matcher.group(2)));
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Private helper method to write the report as JSON.
+     */
+    private static String toJson(
+            LinkedHashMap<String, Double> metrics,
+            ArrayList<String> skipped)
+    {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"suite\": \"visibility-graph-load\",\n");
+        json.append("  \"java_version\": \"")
+                .append(System.getProperty("java.version")).append("\",\n");
+        json.append("  \"os_name\": \"")
+                .append(System.getProperty("os.name")).append(' ')
+                .append(System.getProperty("os.version")).append("\",\n");
+        json.append("  \"os_arch\": \"")
+                .append(System.getProperty("os.arch")).append("\",\n");
+        json.append("  \"processors\": ")
+                .append(Runtime.getRuntime().availableProcessors())
+                .append(",\n");
+
+        json.append("  \"skipped\": [");
+        for (int i = 0; i < skipped.size(); i++) {
+            if (i > 0) json.append(", ");
+            json.append('"').append(skipped.get(i)).append('"');
+        }
+        json.append("],\n");
+
+        // Metrics come last so that the baseline reader only sees metrics
+        json.append("  \"metrics\": {\n");
+        int i = 0;
+        for (Map.Entry<String, Double> entry : metrics.entrySet()) {
+            json.append(String.format(
+                    Locale.ROOT,
+                    "    \"%s\": %.4f%s\n",
+                    entry.getKey(),
+                    entry.getValue(),
+                    ++i < metrics.size() ? "," : ""
+            ));
+        }
+        json.append("  }\n");
+        json.append("}\n");
+
+        return json.toString();
+    }
+}
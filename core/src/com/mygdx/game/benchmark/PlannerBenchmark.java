@@ -0,0 +1,284 @@
+package com.mygdx.game.benchmark;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.game.navmesh.NavMeshPlanner;
+import com.mygdx.game.visibilitygraph.AllPairsPlanner;
+import com.mygdx.game.visibilitygraph.LazyVisibilityGraph;
+import com.mygdx.game.visibilitygraph.OffHeapGraph;
+import com.mygdx.game.visibilitygraph.PathPlanner;
+import com.mygdx.game.visibilitygraph.QueryScopedPlanner;
+import com.mygdx.game.visibilitygraph.VisibilityGraphPlanner;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Benchmark comparing the {@link VisibilityGraphPlanner} with the
+ * {@link NavMeshPlanner}, the {@link LazyVisibilityGraph}, the
+ * {@link OffHeapGraph}, the {@link QueryScopedPlanner} and the
+ * {@link AllPairsPlanner} on the obstacle fields of the {@link LoadSuite}. For
+ * each size, all planners are built for the same field and answer the same
+ * queries between random grid cell corners (which always lie in free
+ * space). Build time, retained heap, query time and the length of paths
+ * relative to the optimal visibility graph paths (mean/worst ratio) are
+ * reported. Queries are run once before they are timed, so the lazy graph's
+ * cache is warm. The direct buffers of the off-heap graph are not part of
+ * its heap figure.
+ * <p>
+ * Visibility graphs with a maximum edge length can be added to the
+ * comparison with a list of ranges. Queries which a range-limited graph
+ * cannot answer are counted separately.
+ * <p>
+ * Usage: PlannerBenchmark [sizes, e.g. 25,100,200] [queries] [seed]
+ * [ranges, e.g. 120,240]
+ */
+public class PlannerBenchmark {
+
+    private static final float CELL_SIZE = LoadSuite.CELL_SIZE;
+
+    // Only reference to a planner while its heap is measured, since a local
+    // variable may be kept alive or considered dead after its last use
+    private static PathPlanner measured;
+
+    private interface PlannerFactory {
+        PathPlanner create();
+    }
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "25,100,200";
+        int numQueries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        String ranges = args.length > 3 ? args[3] : "";
+
+        System.out.printf(
+                "%-6s %-8s %10s %10s %10s %10s%n",
+                "size", "planner", "build ms", "heap KB", "query us", "length"
+        );
+
+        for (String size : sizes.split(",")) {
+            runSize(Integer.parseInt(size.trim()), numQueries, seed, ranges);
+        }
+    }
+
+    /**
+     * Private helper method to compare both planners on one field.
+     */
+    private static void runSize(
+            int numObstacles,
+            int numQueries,
+            long seed,
+            String ranges)
+    {
+        final ArrayList<ArrayList<Vector2>> obstacles
+                = LoadSuite.createField(seed, numObstacles);
+        int columns = LoadSuite.columnsFor(numObstacles);
+        int rows = (numObstacles + columns - 1) / columns;
+
+        // One cell of margin around the field
+        final Rectangle bounds = new Rectangle(
+                -CELL_SIZE,
+                -CELL_SIZE,
+                (columns + 2) * CELL_SIZE,
+                (rows + 2) * CELL_SIZE
+        );
+
+        Random random = new Random(seed * 31 + numObstacles);
+        Vector2[][] queries = new Vector2[numQueries][];
+        for (int q = 0; q < numQueries; q++) {
+            queries[q] = new Vector2[] {
+                    new Vector2(
+                            random.nextInt(columns + 1) * CELL_SIZE,
+                            random.nextInt(rows + 1) * CELL_SIZE
+                    ),
+                    new Vector2(
+                            random.nextInt(columns + 1) * CELL_SIZE,
+                            random.nextInt(rows + 1) * CELL_SIZE
+                    )
+            };
+        }
+
+        float[] optimal = run(
+                "vg",
+                numObstacles,
+                () -> new VisibilityGraphPlanner(obstacles, 0f),
+                queries,
+                null
+        );
+        run(
+                "navmesh",
+                numObstacles,
+                () -> new NavMeshPlanner(obstacles, 0f, bounds),
+                queries,
+                optimal
+        );
+        run(
+                "lazy",
+                numObstacles,
+                () -> new LazyVisibilityGraph(obstacles, 0f),
+                queries,
+                optimal
+        );
+        run(
+                "offheap",
+                numObstacles,
+                () -> new OffHeapGraph(obstacles, 0f),
+                queries,
+                optimal
+        );
+        run(
+                "scoped",
+                numObstacles,
+                () -> new QueryScopedPlanner(obstacles, 0f),
+                queries,
+                optimal
+        );
+        run(
+                "apsp",
+                numObstacles,
+                () -> new AllPairsPlanner(obstacles, 0f),
+                queries,
+                optimal
+        );
+
+        for (String range : ranges.split(",")) {
+            if (range.trim().isEmpty()) continue;
+            final float maxEdgeLength = Float.parseFloat(range.trim());
+            run(
+                    "vg r" + range.trim(),
+                    numObstacles,
+                    () -> new VisibilityGraphPlanner(obstacles, 0f, maxEdgeLength),
+                    queries,
+                    optimal
+            );
+        }
+    }
+
+    /**
+     * Private helper method to build a planner and run all queries with it.
+     *
+     * @param optimal lengths of optimal paths to compare with (or null)
+     *
+     * @return the path lengths
+     */
+    private static float[] run(
+            String name,
+            int numObstacles,
+            PlannerFactory factory,
+            Vector2[][] queries,
+            float[] optimal)
+    {
+        // Build once to warm up, then measure a build
+        factory.create();
+        long start = System.nanoTime();
+        PathPlanner planner = factory.create();
+        long buildTime = System.nanoTime() - start;
+
+        for (Vector2[] query : queries) {
+            planner.findPath(query[0], query[1]);
+        }
+
+        float[] lengths = new float[queries.length];
+        start = System.nanoTime();
+        for (int q = 0; q < queries.length; q++) {
+            lengths[q] = length(
+                    planner.findPath(queries[q][0], queries[q][1]),
+                    queries[q][0]
+            );
+        }
+        long queryTime = System.nanoTime() - start;
+
+        // The planner retains what is freed when it is dropped
+        measured = planner;
+        planner = null;
+        long heapWith = usedHeap();
+        measured = null;
+        long retained = heapWith - usedHeap();
+
+        String ratio = "1.000";
+        if (optimal != null) {
+            ratio = describeRatio(lengths, optimal);
+        }
+
+        System.out.printf(
+                "%-6d %-8s %10.1f %10d %10.1f %10s%n",
+                numObstacles,
+                name,
+                buildTime / 1e6,
+                retained / 1024,
+                queryTime / 1e3 / queries.length,
+                ratio
+        );
+
+        return lengths;
+    }
+
+    /**
+     * Private helper method to get the length of a path, or NaN if there is
+     * no path.
+     */
+    private static float length(ArrayList<Vector2> path, Vector2 startPoint) {
+        if (path.isEmpty()) return Float.NaN;
+
+        float length = 0;
+        Vector2 previous = startPoint;
+        for (Vector2 point : path) {
+            length += previous.dst(point);
+            previous = point;
+        }
+
+        return length;
+    }
+
+    /**
+     * Private helper method to describe the mean and worst ratio of path
+     * lengths to optimal lengths, and the number of queries where only one
+     * of the planners found a path.
+     */
+    private static String describeRatio(float[] lengths, float[] optimal) {
+        double sum = 0;
+        double worst = 1;
+        int count = 0;
+        int mismatches = 0;
+        for (int q = 0; q < lengths.length; q++) {
+            if (Float.isNaN(lengths[q]) != Float.isNaN(optimal[q])) {
+                mismatches++;
+                continue;
+            }
+            if (Float.isNaN(lengths[q]) || optimal[q] == 0) continue;
+
+            double ratio = lengths[q] / optimal[q];
+            sum += ratio;
+            worst = Math.max(worst, ratio);
+            count++;
+        }
+
+        String description = String.format(
+                "%.3f/%.3f",
+                count == 0 ? 1 : sum / count,
+                worst
+        );
+        if (mismatches > 0) {
+            description += " (" + mismatches + " unmatched)";
+        }
+
+        return description;
+    }
+
+    /**
+     * Private helper method to get the used heap after collecting garbage
+     * until the value stops decreasing.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) break;
+            used = current;
+        }
+
+        return used;
+    }
+}
@@ -0,0 +1,173 @@
+package com.mygdx.game.benchmark;
+
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.game.visibilitygraph.LandmarkHeuristic;
+import com.mygdx.game.visibilitygraph.Octagon;
+import com.mygdx.game.visibilitygraph.SearchStats;
+import com.mygdx.game.visibilitygraph.VGHeuristic;
+import com.mygdx.game.visibilitygraph.VisibilityGraph;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmark comparing unidirectional, bidirectional and taut (successor
+ * pruning) A* search on cross-map routes through random obstacle fields.
+ * Reports the average number of expanded vertices and relaxed edges and the
+ * average wall time per query.
+ * <p>
+ * Usage: SearchBenchmark [numObstacles] [numMaps] [queriesPerMap]
+ */
+public class SearchBenchmark {
+
+    private static final float MAP_WIDTH = 640;
+    private static final float MAP_HEIGHT = 480;
+
+    private enum Search { UNIDIRECTIONAL, BIDIRECTIONAL, TAUT }
+
+    public static void main(String[] args) {
+        int numObstacles = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int numMaps = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int queriesPerMap = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        ArrayList<VisibilityGraph> graphs = new ArrayList<>();
+        for (int seed = 0; seed < numMaps; seed++) {
+            graphs.add(new VisibilityGraph(
+                    new Vector2(5, 5),
+                    new Vector2(MAP_WIDTH - 5, MAP_HEIGHT - 5),
+                    createObstacles(seed, numObstacles),
+                    0f
+            ));
+        }
+
+        System.out.printf(
+                "%d maps, %d obstacles, %d vertices per map%n",
+                numMaps,
+                numObstacles,
+                graphs.get(0).getVertices().size()
+        );
+        System.out.printf(
+                "%-28s %12s %12s %12s%n",
+                "search", "expansions", "relaxations", "us/query"
+        );
+
+        for (int landmarks : new int[] {0, 8}) {
+            String suffix = landmarks == 0 ? "" : " (ALT k=" + landmarks + ")";
+
+            ArrayList<VGHeuristic> heuristics = new ArrayList<>();
+            for (VisibilityGraph graph : graphs) {
+                heuristics.add(landmarks == 0
+                        ? VGHeuristic.EUCLIDEAN
+                        : new LandmarkHeuristic(graph, landmarks));
+            }
+
+            // Warm up before measuring
+            for (Search search : Search.values()) {
+                run(graphs, heuristics, queriesPerMap, search, null);
+            }
+
+            report("unidirectional" + suffix,
+                    graphs, heuristics, queriesPerMap, Search.UNIDIRECTIONAL);
+            report("bidirectional" + suffix,
+                    graphs, heuristics, queriesPerMap, Search.BIDIRECTIONAL);
+            report("taut" + suffix,
+                    graphs, heuristics, queriesPerMap, Search.TAUT);
+        }
+    }
+
+    /**
+     * Create a field of non-overlapping octagonal obstacles.
+     *
+     * @param seed the random seed
+     * @param numObstacles the number of obstacles
+     *
+     * @return {@link Set} of obstacle vertex arrays
+     */
+    static Set<ArrayList<Vector2>> createObstacles(long seed, int numObstacles) {
+        Random random = new Random(seed);
+        ArrayList<Octagon> octagons = new ArrayList<>();
+        Set<ArrayList<Vector2>> obstacles = new HashSet<>();
+
+        int attempts = 0;
+        while (octagons.size() < numObstacles && attempts++ < numObstacles * 100) {
+            float radius = 8 + random.nextFloat() * 20;
+            Vector2 position = new Vector2(
+                    radius * 2 + random.nextFloat() * (MAP_WIDTH - radius * 4),
+                    radius * 2 + random.nextFloat() * (MAP_HEIGHT - radius * 4)
+            );
+
+            // Octagon vertices lie within 1.1 times the inner radius
+            boolean overlaps = false;
+            for (Octagon octagon : octagons) {
+                float minDst = (octagon.radius + radius) * 1.1f + 2f;
+                if (octagon.position.dst(position) < minDst) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            if (overlaps) continue;
+
+            Octagon octagon = new Octagon(position, radius);
+            octagons.add(octagon);
+            obstacles.add(octagon.getVertices());
+        }
+
+        return obstacles;
+    }
+
+    /**
+     * Private helper method to run and print one benchmark configuration.
+     */
+    private static void report(
+            String name,
+            ArrayList<VisibilityGraph> graphs,
+            ArrayList<VGHeuristic> heuristics,
+            int queriesPerMap,
+            Search search)
+    {
+        SearchStats stats = new SearchStats();
+        long start = System.nanoTime();
+        run(graphs, heuristics, queriesPerMap, search, stats);
+        long elapsed = System.nanoTime() - start;
+
+        int queries = graphs.size() * queriesPerMap;
+        System.out.printf(
+                "%-28s %12.1f %12.1f %12.1f%n",
+                name,
+                stats.getExpansions() / (double) queries,
+                stats.getRelaxations() / (double) queries,
+                elapsed / 1000.0 / queries
+        );
+    }
+
+    /**
+     * Private helper method to run queries on every graph.
+     */
+    private static void run(
+            ArrayList<VisibilityGraph> graphs,
+            ArrayList<VGHeuristic> heuristics,
+            int queriesPerMap,
+            Search search,
+            SearchStats stats)
+    {
+        for (int i = 0; i < graphs.size(); i++) {
+            VisibilityGraph graph = graphs.get(i);
+            VGHeuristic heuristic = heuristics.get(i);
+            for (int q = 0; q < queriesPerMap; q++) {
+                switch (search) {
+                    case UNIDIRECTIONAL:
+                        graph.aStar(heuristic, stats);
+                        break;
+                    case BIDIRECTIONAL:
+                        graph.bidirectionalAStar(heuristic, stats);
+                        break;
+                    case TAUT:
+                        graph.tautAStar(heuristic, stats);
+                        break;
+                }
+            }
+        }
+    }
+}
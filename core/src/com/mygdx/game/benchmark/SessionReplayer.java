@@ -0,0 +1,203 @@
+package com.mygdx.game.benchmark;
+
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.game.DemoScene;
+import com.mygdx.game.SessionPlayer;
+import com.mygdx.game.SessionRecorder;
+import com.mygdx.game.visibilitygraph.SearchStats;
+import com.mygdx.game.visibilitygraph.VGHeuristic;
+import com.mygdx.game.visibilitygraph.VisibilityGraph;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+/**
+ * Headless replay of a session recorded by a {@link SessionRecorder}, as a
+ * repeatable benchmark of the rebuilds an interactive session caused. Each
+ * recorded step applies the same obstacle edits as the demo did, then
+ * rebuilds the graph in place and searches it for the agent's path, just
+ * like the demo's {@link com.mygdx.game.GraphRebuilder}, but timed on the
+ * calling thread.
+ * <p>
+ * The session is replayed a number of times first to warm up. Then the
+ * rebuild and query latencies of all steps are reported as percentiles,
+ * along with the slowest steps and, with --steps, a line per step (build
+ * and query time, vertices, edges, visibility tests, path length).
+ * <p>
+ * Usage: SessionReplayer file [--warmup 2] [--steps]
+ */
+public class SessionReplayer {
+
+    private static final int SLOWEST = 5;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SessionReplayer file [--warmup 2] [--steps]");
+            System.exit(2);
+        }
+
+        Path path = Paths.get(args[0]);
+        int warmup = 2;
+        boolean printSteps = false;
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--steps": printSteps = true; break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        for (int i = 0; i < warmup; i++) {
+            replay(path, null, null, null, false);
+        }
+
+        LatencyHistogram buildLatency = new LatencyHistogram();
+        LatencyHistogram queryLatency = new LatencyHistogram();
+        ArrayList<long[]> slowest = new ArrayList<>();
+        int numSteps = replay(path, buildLatency, queryLatency, slowest, printSteps);
+
+        System.out.printf("%s: %d steps%n", path, numSteps);
+        if (numSteps == 0) return;
+
+        report("rebuild", buildLatency);
+        report("query", queryLatency);
+
+        System.out.println("slowest steps (rebuild + query):");
+        for (long[] step : slowest) {
+            System.out.printf(
+                    "  step %d: %.3f ms%n",
+                    step[0],
+                    step[1] / 1e6
+            );
+        }
+    }
+
+    /**
+     * Private helper method to replay a session once.
+     *
+     * @param buildLatency histogram of rebuild times (or null)
+     * @param queryLatency histogram of query times (or null)
+     * @param slowest list to collect the slowest steps in as {step, nanos}
+     *                pairs, slowest first (or null)
+     *
+     * @return the number of steps
+     */
+    private static int replay(
+            Path path,
+            LatencyHistogram buildLatency,
+            LatencyHistogram queryLatency,
+            ArrayList<long[]> slowest,
+            boolean printSteps)
+            throws IOException
+    {
+        try (InputStream in = Files.newInputStream(path);
+             SessionPlayer player = new SessionPlayer(in))
+        {
+            DemoScene scene = player.getScene();
+            VisibilityGraph graph = new VisibilityGraph(
+                    scene.getStartPoint(),
+                    scene.getEndPoint(),
+                    scene.getObstacles(),
+                    scene.getAgentRadius()
+            );
+            SearchStats stats = new SearchStats();
+            ArrayList<Vector2> destPoints = new ArrayList<>();
+
+            if (printSteps) {
+                System.out.printf(
+                        "%6s %10s %10s %8s %8s %10s %10s%n",
+                        "step", "build ms", "query ms", "vertices",
+                        "edges", "tests", "length"
+                );
+            }
+
+            while (player.nextStep()) {
+                long start = System.nanoTime();
+                graph.rebuild(
+                        scene.getStartPoint(),
+                        scene.getEndPoint(),
+                        scene.getObstacles(),
+                        scene.getAgentRadius()
+                );
+                long built = System.nanoTime();
+                stats.reset();
+                graph.aStar(VGHeuristic.EUCLIDEAN, stats, destPoints);
+                long end = System.nanoTime();
+
+                int step = player.getSteps();
+                if (buildLatency != null) buildLatency.record(built - start);
+                if (queryLatency != null) queryLatency.record(end - built);
+                if (slowest != null) addSlowest(slowest, step, end - start);
+
+                if (printSteps) {
+                    System.out.printf(
+                            "%6d %10.3f %10.3f %8d %8d %10d %10.1f%n",
+                            step,
+                            (built - start) / 1e6,
+                            (end - built) / 1e6,
+                            graph.getVertexCount(),
+                            graph.getAllEdges().size(),
+                            graph.getIntersectionTests(),
+                            length(scene.getStartPoint(), destPoints)
+                    );
+                }
+            }
+
+            return player.getSteps();
+        }
+    }
+
+    /**
+     * Private helper method to keep the slowest steps, slowest first.
+     */
+    private static void addSlowest(ArrayList<long[]> slowest, int step, long nanos) {
+        int index = slowest.size();
+        while (index > 0 && slowest.get(index - 1)[1] < nanos) {
+            index--;
+        }
+        if (index >= SLOWEST) return;
+
+        slowest.add(index, new long[] {step, nanos});
+        if (slowest.size() > SLOWEST) {
+            slowest.remove(slowest.size() - 1);
+        }
+    }
+
+    private static void report(String name, LatencyHistogram histogram) {
+        System.out.printf(
+                "%-8s mean %8.3f ms  p50 %8.3f  p90 %8.3f  p99 %8.3f  max %8.3f%n",
+                name,
+                histogram.getMean() / 1e6,
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(90) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getMax() / 1e6
+        );
+    }
+
+    /**
+     * Private helper method to get the length of a path, or NaN if there is
+     * no path.
+     */
+    private static float length(Vector2 startPoint, ArrayList<Vector2> path) {
+        if (path.isEmpty()) return Float.NaN;
+
+        float length = 0;
+        Vector2 previous = startPoint;
+        for (Vector2 point : path) {
+            length += previous.dst(point);
+            previous = point;
+        }
+
+        return length;
+    }
+}
@@ -0,0 +1,1027 @@
+package com.mygdx.game.navmesh;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.game.visibilitygraph.VGObstacle;
+import com.mygdx.game.visibilitygraph.VGVertex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Navigation mesh built as a constrained Delaunay triangulation of a
+ * rectangular map and the (grown) obstacles in it. Every obstacle edge and
+ * the map border are edges of the triangulation, so each triangle lies
+ * either completely inside an obstacle or completely in free space.
+ * <p>
+ * The triangulation is built in three steps:
+ * <ol>
+ *     <li>Bowyer-Watson: all points are inserted into a triangle enclosing
+ *     the map. The triangles whose circumcircle contains a new point form a
+ *     cavity which is replaced by a fan around the point. Triangles store
+ *     their neighbors, so the cavity is found by walking from the previous
+ *     triangle instead of scanning all triangles.</li>
+ *     <li>Constraint recovery: every obstacle edge which is not yet an edge
+ *     of the triangulation is recovered by flipping the edges crossing it
+ *     (Sloan's method).</li>
+ *     <li>Lawson flips restore the Delaunay property for all unconstrained
+ *     edges.</li>
+ * </ol>
+ * Triangles are then marked walkable if their centroid lies inside the map
+ * and outside every obstacle. The mesh has O(n) triangles for n obstacle
+ * vertices, compared to the O(n^2) edges of a visibility graph.
+ * <p>
+ * Obstacles should not cross each other. Obstacle edges crossing an already
+ * recovered edge are skipped with a warning, and the triangles around them
+ * are classified by their centroid only.
+ * <p>
+ * Triangles are stored in flat arrays. The vertices of a triangle are in
+ * counter-clockwise order, and neighbor i of a triangle is the triangle
+ * across the edge opposite its vertex i (or -1).
+ */
+public class NavMesh {
+
+    // Points closer than this are merged
+    private static final double MERGE_DISTANCE = 1e-4;
+
+    private static final int NO_TRIANGLE = -1;
+
+    // The first three points form a triangle enclosing the whole map
+    private static final int NUM_SUPER_POINTS = 3;
+
+    private final Rectangle bounds;
+    private final ArrayList<double[]> polygons; // x0, y0, x1, y1, ...
+
+    private int numPoints;
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private int[] pointTriangles = new int[16]; // a triangle at each point
+
+    private int numTriangles;
+    private int[] triVertices = new int[48];
+    private int[] triNeighbors = new int[48];
+    private boolean[] constrained = new boolean[48];
+    private boolean[] walkable;
+
+    // Scratch data of the triangulation
+    private int[] freeTriangles = new int[16];
+    private int numFree;
+    private boolean[] dead = new boolean[16];
+    private int[] visited = new int[16];
+    private int visitStamp;
+
+    /**
+     * Construct a Navigation Mesh with bounds enclosing all obstacles and a
+     * margin around them.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     */
+    public NavMesh(List<? extends List<Vector2>> obstacles, float agentRadius) {
+        this(obstacles, agentRadius, boundsOf(obstacles, agentRadius));
+    }
+
+    /**
+     * Construct a Navigation Mesh.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     * @param bounds the walkable area of the map
+     */
+    public NavMesh(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius,
+            Rectangle bounds)
+    {
+        this.bounds = new Rectangle(bounds);
+
+        // Grow obstacles exactly as the visibility graph does
+        polygons = new ArrayList<>();
+        for (int i = 0; i < obstacles.size(); i++) {
+            ArrayList<VGVertex> vertices
+                    = new VGObstacle(i, obstacles.get(i), agentRadius).getVertices();
+            double[] polygon = new double[vertices.size() * 2];
+            for (int j = 0; j < vertices.size(); j++) {
+                polygon[2 * j] = vertices.get(j).pos.x;
+                polygon[2 * j + 1] = vertices.get(j).pos.y;
+            }
+            polygons.add(polygon);
+        }
+
+        triangulate();
+        compact();
+        classify();
+    }
+
+    /**
+     * Get the walkable area of this mesh.
+     *
+     * @return {@link Rectangle} of the map bounds
+     */
+    public Rectangle getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Get the number of points of this mesh (including three points of an
+     * enclosing triangle outside the map).
+     *
+     * @return the number of points
+     */
+    public int getNumPoints() {
+        return numPoints;
+    }
+
+    /**
+     * Get the number of triangles of this mesh (including unwalkable ones).
+     *
+     * @return the number of triangles
+     */
+    public int getNumTriangles() {
+        return numTriangles;
+    }
+
+    /**
+     * Get the X coordinate of a point.
+     *
+     * @param point index of the point
+     *
+     * @return the X coordinate
+     */
+    public float getX(int point) {
+        return (float) xs[point];
+    }
+
+    /**
+     * Get the Y coordinate of a point.
+     *
+     * @param point index of the point
+     *
+     * @return the Y coordinate
+     */
+    public float getY(int point) {
+        return (float) ys[point];
+    }
+
+    /**
+     * Get a vertex of a triangle. Vertices are in counter-clockwise order.
+     *
+     * @param triangle index of the triangle
+     * @param i index of the vertex in the triangle (0 to 2)
+     *
+     * @return index of the point
+     */
+    public int getVertex(int triangle, int i) {
+        return triVertices[3 * triangle + i];
+    }
+
+    /**
+     * Get the neighbor of a triangle across the edge opposite one of its
+     * vertices.
+     *
+     * @param triangle index of the triangle
+     * @param i index of the vertex opposite the edge (0 to 2)
+     *
+     * @return index of the neighboring triangle (or -1)
+     */
+    public int getNeighbor(int triangle, int i) {
+        return triNeighbors[3 * triangle + i];
+    }
+
+    /**
+     * Get whether the edge of a triangle opposite one of its vertices is an
+     * obstacle or map border edge.
+     *
+     * @param triangle index of the triangle
+     * @param i index of the vertex opposite the edge (0 to 2)
+     *
+     * @return whether the edge is constrained
+     */
+    public boolean isConstrained(int triangle, int i) {
+        return constrained[3 * triangle + i];
+    }
+
+    /**
+     * Get whether a triangle lies in free space.
+     *
+     * @param triangle index of the triangle
+     *
+     * @return whether the triangle is walkable
+     */
+    public boolean isWalkable(int triangle) {
+        return walkable[triangle];
+    }
+
+    /**
+     * Find the triangle containing a point by walking from a hint triangle
+     * towards the point.
+     *
+     * @param x X coordinate of the point
+     * @param y Y coordinate of the point
+     * @param hint index of the triangle to start from (e.g. the result of
+     *             the previous search, or 0)
+     *
+     * @return index of the triangle (or -1 if the point lies outside the
+     *         mesh)
+     */
+    public int locate(float x, float y, int hint) {
+        if (hint < 0 || hint >= numTriangles) hint = 0;
+        return walk(x, y, hint);
+    }
+
+    /**
+     * Estimate the memory used by the arrays of this mesh.
+     *
+     * @return the size in bytes
+     */
+    public long estimateBytes() {
+        long points = (long) xs.length * 8 * 2 + pointTriangles.length * 4L;
+        long triangles = (long) triVertices.length * 4 * 2
+                + constrained.length + walkable.length;
+        return points + triangles;
+    }
+
+    /**
+     * Private helper method to get bounds enclosing all obstacles with a
+     * margin around them.
+     */
+    private static Rectangle boundsOf(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (List<Vector2> obstacle : obstacles) {
+            for (Vector2 v : obstacle) {
+                minX = Math.min(minX, v.x);
+                minY = Math.min(minY, v.y);
+                maxX = Math.max(maxX, v.x);
+                maxY = Math.max(maxY, v.y);
+            }
+        }
+        if (minX > maxX) return new Rectangle(0, 0, 1, 1);
+
+        float margin = agentRadius * 2
+                + 0.1f * Math.max(maxX - minX, maxY - minY) + 1;
+        return new Rectangle(
+                minX - margin,
+                minY - margin,
+                maxX - minX + 2 * margin,
+                maxY - minY + 2 * margin
+        );
+    }
+
+    /**
+     * Private helper method to build the constrained Delaunay triangulation.
+     */
+    private void triangulate() {
+        double minX = bounds.x;
+        double minY = bounds.y;
+        double maxX = bounds.x + bounds.width;
+        double maxY = bounds.y + bounds.height;
+
+        // Enclosing triangle, far enough away that it does not disturb the
+        // Delaunay triangulation of the map
+        double cx = (minX + maxX) / 2;
+        double cy = (minY + maxY) / 2;
+        double size = Math.max(maxX - minX, maxY - minY) * 100 + 1;
+        addPoint(cx - 2 * size, cy - size);
+        addPoint(cx + 2 * size, cy - size);
+        addPoint(cx, cy + 2 * size);
+        addTriangle(0, 1, 2);
+        pointTriangles[0] = pointTriangles[1] = pointTriangles[2] = 0;
+
+        // Map corners and obstacle vertices
+        int[] corners = {
+                insertPoint(minX, minY),
+                insertPoint(maxX, minY),
+                insertPoint(maxX, maxY),
+                insertPoint(minX, maxY)
+        };
+
+        ArrayList<int[]> polygonPoints = new ArrayList<>();
+        for (double[] polygon : polygons) {
+            int[] points = new int[polygon.length / 2];
+            for (int j = 0; j < points.length; j++) {
+                points[j] = insertPoint(polygon[2 * j], polygon[2 * j + 1]);
+            }
+            polygonPoints.add(points);
+        }
+
+        // Recover map border and obstacle edges
+        for (int i = 0; i < 4; i++) {
+            insertConstraint(corners[i], corners[(i + 1) % 4]);
+        }
+        for (int[] points : polygonPoints) {
+            for (int j = 0; j < points.length; j++) {
+                insertConstraint(points[j], points[(j + 1) % points.length]);
+            }
+        }
+
+        restoreDelaunay();
+    }
+
+    /**
+     * Private helper method to insert a point with the Bowyer-Watson
+     * algorithm.
+     *
+     * @return index of the point (or of an existing point it was merged
+     *         with)
+     */
+    private int insertPoint(double x, double y) {
+        int t = walk(x, y, pointTriangles[numPoints - 1]);
+        if (t == NO_TRIANGLE) {
+            System.err.println("NavMesh: skipped point outside the mesh at ("
+                    + x + ", " + y + ")");
+            return NO_TRIANGLE;
+        }
+
+        for (int i = 0; i < 3; i++) {
+            int v = triVertices[3 * t + i];
+            double dx = xs[v] - x;
+            double dy = ys[v] - y;
+            if (dx * dx + dy * dy < MERGE_DISTANCE * MERGE_DISTANCE) return v;
+        }
+
+        int p = addPoint(x, y);
+
+        // Collect the cavity of triangles whose circumcircle contains the
+        // point, and its boundary edges
+        visitStamp++;
+        ensureScratch();
+        int[] cavity = new int[8];
+        int cavitySize = 0;
+        cavity[cavitySize++] = t;
+        visited[t] = visitStamp;
+
+        int[] boundary = new int[24]; // a, b, outer neighbor, constrained
+        int boundarySize = 0;
+
+        for (int c = 0; c < cavitySize; c++) {
+            int tri = cavity[c];
+            for (int i = 0; i < 3; i++) {
+                int a = triVertices[3 * tri + (i + 1) % 3];
+                int b = triVertices[3 * tri + (i + 2) % 3];
+                int n = triNeighbors[3 * tri + i];
+
+                if (n != NO_TRIANGLE && visited[n] == visitStamp) continue;
+
+                // Grow the cavity if the neighbor's circumcircle contains the
+                // point, or if the point does not lie strictly inside the
+                // edge (so the new triangle would be degenerate)
+                if (n != NO_TRIANGLE && (inCircle(n, x, y) > 0
+                        || orient(a, b, x, y) <= 0)) {
+                    visited[n] = visitStamp;
+                    if (cavitySize == cavity.length) {
+                        cavity = Arrays.copyOf(cavity, cavitySize * 2);
+                    }
+                    cavity[cavitySize++] = n;
+
+                    // Restart this triangle's edges so that none is missed
+                    // as a boundary edge (the neighbor is now inside)
+                    continue;
+                }
+
+                if (boundarySize + 4 > boundary.length) {
+                    boundary = Arrays.copyOf(boundary, boundary.length * 2);
+                }
+                boundary[boundarySize++] = a;
+                boundary[boundarySize++] = b;
+                boundary[boundarySize++] = n;
+                boundary[boundarySize++] = constrained[3 * tri + i] ? 1 : 0;
+            }
+        }
+
+        // Boundary edges found before a neighbor joined the cavity are now
+        // interior and must be dropped
+        int kept = 0;
+        for (int e = 0; e < boundarySize; e += 4) {
+            int n = boundary[e + 2];
+            if (n != NO_TRIANGLE && visited[n] == visitStamp) continue;
+            System.arraycopy(boundary, e, boundary, kept, 4);
+            kept += 4;
+        }
+        boundarySize = kept;
+
+        for (int c = 0; c < cavitySize; c++) {
+            removeTriangle(cavity[c]);
+        }
+
+        // Fill the cavity with a fan of triangles around the point. The
+        // triangle starting at vertex a is the neighbor across edge (p, a)
+        // of the triangle ending at a.
+        int[] startingAt = new int[boundarySize / 4];
+        int[] endingAt = new int[boundarySize / 4];
+        int[] created = new int[boundarySize / 4];
+        for (int e = 0, k = 0; e < boundarySize; e += 4, k++) {
+            int a = boundary[e];
+            int b = boundary[e + 1];
+            int n = boundary[e + 2];
+
+            int tri = addTriangle(a, b, p);
+            created[k] = tri;
+            startingAt[k] = a;
+            endingAt[k] = b;
+
+            triNeighbors[3 * tri + 2] = n;
+            constrained[3 * tri + 2] = boundary[e + 3] == 1;
+            if (n != NO_TRIANGLE) replaceNeighbor(n, a, b, tri);
+
+            pointTriangles[a] = tri;
+            pointTriangles[b] = tri;
+        }
+        pointTriangles[p] = created[0];
+
+        for (int k = 0; k < created.length; k++) {
+            int tri = created[k];
+            int a = startingAt[k];
+            int b = endingAt[k];
+            for (int m = 0; m < created.length; m++) {
+                if (startingAt[m] == b) triNeighbors[3 * tri] = created[m];
+                if (endingAt[m] == a) triNeighbors[3 * tri + 1] = created[m];
+            }
+        }
+
+        return p;
+    }
+
+    /**
+     * Private helper method to make an edge between two points part of the
+     * triangulation and mark it as constrained.
+     */
+    private void insertConstraint(int a, int b) {
+        if (a == NO_TRIANGLE || b == NO_TRIANGLE) return;
+
+        int guard = 0;
+        while (a != b) {
+            if (guard++ > numPoints) return;
+
+            int edge = findEdge(a, b);
+            if (edge != NO_TRIANGLE) {
+                markConstrained(edge / 3, edge % 3);
+                return;
+            }
+
+            // Collect the edges crossing the segment from a to b, stopping
+            // at a point lying on the segment
+            ArrayList<int[]> crossing = new ArrayList<>();
+            int stop = collectCrossingEdges(a, b, crossing);
+            if (stop == NO_TRIANGLE) return;
+
+            if (!flipCrossingEdges(a, stop, crossing)) {
+                System.err.println("NavMesh: skipped obstacle edge crossing "
+                        + "another obstacle at (" + xs[a] + ", " + ys[a] + ")");
+                return;
+            }
+
+            edge = findEdge(a, stop);
+            markConstrained(edge / 3, edge % 3);
+            a = stop;
+        }
+    }
+
+    /**
+     * Private helper method to collect the edges crossing the segment from
+     * point a towards point b.
+     *
+     * @return the point where the segment ends (b, or a point lying exactly
+     *         on the segment), or -1 if the segment could not be followed
+     */
+    private int collectCrossingEdges(int a, int b, ArrayList<int[]> crossing) {
+        // Find the triangle around a through which the segment leaves
+        int start = pointTriangles[a];
+        int t = start;
+        int c = -1;
+        int d = -1;
+        for (int guard = 0; guard < numTriangles; guard++) {
+            int k = indexOf(t, a);
+            int v1 = triVertices[3 * t + (k + 1) % 3];
+            int v2 = triVertices[3 * t + (k + 2) % 3];
+            double o1 = orient(a, b, xs[v1], ys[v1]);
+            double o2 = orient(a, b, xs[v2], ys[v2]);
+
+            if (o1 == 0 && isAhead(a, b, v1)) return v1;
+            if (o2 == 0 && isAhead(a, b, v2)) return v2;
+            if (o1 < 0 && o2 > 0) {
+                c = v1;
+                d = v2;
+                break;
+            }
+
+            t = triNeighbors[3 * t + (k + 2) % 3];
+            if (t == NO_TRIANGLE || t == start) return NO_TRIANGLE;
+        }
+        if (c == -1) return NO_TRIANGLE;
+
+        // Walk across crossed edges until reaching b or a point on the
+        // segment. c lies right of the segment, d left of it.
+        for (int guard = 0; guard < numTriangles; guard++) {
+            crossing.add(new int[] {c, d});
+
+            t = triNeighbors[3 * t + indexOfEdge(t, c, d)];
+            if (t == NO_TRIANGLE) return NO_TRIANGLE;
+            int w = triVertices[3 * t + indexOfEdge(t, c, d)];
+            if (w == b) return b;
+
+            double o = orient(a, b, xs[w], ys[w]);
+            if (o == 0) return w;
+            if (o < 0) {
+                c = w;
+            } else {
+                d = w;
+            }
+        }
+
+        return NO_TRIANGLE;
+    }
+
+    /**
+     * Private helper method to flip edges crossing the segment from a to b
+     * until none is left.
+     *
+     * @return whether the segment was recovered
+     */
+    private boolean flipCrossingEdges(int a, int b, ArrayList<int[]> crossing) {
+        for (int[] edge : crossing) {
+            int e = findEdge(edge[0], edge[1]);
+            if (e == NO_TRIANGLE || constrained[e]) return false;
+        }
+
+        ArrayDeque<int[]> queue = new ArrayDeque<>(crossing);
+        int limit = 100 * (crossing.size() + 10);
+        while (!queue.isEmpty()) {
+            if (limit-- == 0) return false;
+
+            int[] edge = queue.poll();
+            int e = findEdge(edge[0], edge[1]);
+            if (e == NO_TRIANGLE) return false;
+
+            int t = e / 3;
+            int i = e % 3;
+            int u = triNeighbors[e];
+            int p = triVertices[3 * t + (i + 1) % 3];
+            int q = triVertices[3 * t + (i + 2) % 3];
+            int r = triVertices[3 * t + i];
+            int s = triVertices[3 * u + indexOfNeighbor(u, t)];
+
+            // The quadrilateral is convex if the other diagonal crosses pq
+            double op = orient(r, s, xs[p], ys[p]);
+            double oq = orient(r, s, xs[q], ys[q]);
+            if (op * oq >= 0) {
+                queue.add(edge);
+                continue;
+            }
+
+            flip(t, i);
+
+            if (r != a && r != b && s != a && s != b) {
+                double or = orient(a, b, xs[r], ys[r]);
+                double os = orient(a, b, xs[s], ys[s]);
+                if (or * os < 0) queue.add(new int[] {r, s});
+            }
+        }
+
+        return findEdge(a, b) != NO_TRIANGLE;
+    }
+
+    /**
+     * Private helper method to restore the Delaunay property for all
+     * unconstrained edges with Lawson flips.
+     */
+    private void restoreDelaunay() {
+        ArrayDeque<int[]> stack = new ArrayDeque<>();
+        for (int t = 0; t < numTriangles; t++) {
+            if (dead[t]) continue;
+            for (int i = 0; i < 3; i++) {
+                int n = triNeighbors[3 * t + i];
+                if (n > t) {
+                    stack.push(new int[] {
+                            triVertices[3 * t + (i + 1) % 3],
+                            triVertices[3 * t + (i + 2) % 3]
+                    });
+                }
+            }
+        }
+
+        int limit = 50 * numTriangles + 100;
+        while (!stack.isEmpty() && limit-- > 0) {
+            int[] edge = stack.pop();
+            int e = findEdge(edge[0], edge[1]);
+            if (e == NO_TRIANGLE || constrained[e]) continue;
+
+            int t = e / 3;
+            int i = e % 3;
+            int u = triNeighbors[e];
+            if (u == NO_TRIANGLE) continue;
+
+            int s = triVertices[3 * u + indexOfNeighbor(u, t)];
+            if (inCircle(t, xs[s], ys[s]) <= 0) continue;
+
+            int r = triVertices[3 * t + i];
+            int p = triVertices[3 * t + (i + 1) % 3];
+            int q = triVertices[3 * t + (i + 2) % 3];
+
+            // Only flip convex quadrilaterals
+            if (orient(r, s, xs[p], ys[p]) * orient(r, s, xs[q], ys[q]) >= 0) {
+                continue;
+            }
+
+            flip(t, i);
+            stack.push(new int[] {r, p});
+            stack.push(new int[] {p, s});
+            stack.push(new int[] {s, q});
+            stack.push(new int[] {q, r});
+        }
+    }
+
+    /**
+     * Private helper method to flip the edge of triangle t opposite its
+     * vertex i. With t = (p0, p1, p2) and its neighbor u = (q0, p2, p1), the
+     * triangles become (p0, p1, q0) and (q0, p2, p0).
+     */
+    private void flip(int t, int i) {
+        int u = triNeighbors[3 * t + i];
+        int j = indexOfNeighbor(u, t);
+
+        int p0 = triVertices[3 * t + i];
+        int p1 = triVertices[3 * t + (i + 1) % 3];
+        int p2 = triVertices[3 * t + (i + 2) % 3];
+        int q0 = triVertices[3 * u + j];
+
+        int tA = triNeighbors[3 * t + (i + 2) % 3]; // across (p0, p1)
+        int tB = triNeighbors[3 * t + (i + 1) % 3]; // across (p2, p0)
+        int uA = triNeighbors[3 * u + (j + 1) % 3]; // across (p1, q0)
+        int uB = triNeighbors[3 * u + (j + 2) % 3]; // across (q0, p2)
+        boolean cA = constrained[3 * t + (i + 2) % 3];
+        boolean cB = constrained[3 * t + (i + 1) % 3];
+        boolean dA = constrained[3 * u + (j + 1) % 3];
+        boolean dB = constrained[3 * u + (j + 2) % 3];
+
+        setTriangle(t, p0, p1, q0, uA, u, tA, dA, false, cA);
+        setTriangle(u, q0, p2, p0, tB, t, uB, cB, false, dB);
+
+        if (uA != NO_TRIANGLE) replaceNeighbor(uA, p1, q0, t);
+        if (tB != NO_TRIANGLE) replaceNeighbor(tB, p2, p0, u);
+
+        pointTriangles[p0] = t;
+        pointTriangles[p1] = t;
+        pointTriangles[q0] = u;
+        pointTriangles[p2] = u;
+    }
+
+    /**
+     * Private helper method to walk from a triangle towards a point.
+     *
+     * @return index of the triangle containing the point (or -1)
+     */
+    private int walk(double x, double y, int t) {
+        int limit = 4 * numTriangles + 16;
+        while (limit-- > 0) {
+            // Vary the first edge tested so the walk cannot cycle
+            int r = (limit + t) % 3;
+
+            boolean moved = false;
+            for (int k = 0; k < 3; k++) {
+                int i = (r + k) % 3;
+                int a = triVertices[3 * t + (i + 1) % 3];
+                int b = triVertices[3 * t + (i + 2) % 3];
+                if (orient(a, b, x, y) < 0) {
+                    t = triNeighbors[3 * t + i];
+                    if (t == NO_TRIANGLE) return NO_TRIANGLE;
+                    moved = true;
+                    break;
+                }
+            }
+
+            if (!moved) return t;
+        }
+
+        return NO_TRIANGLE;
+    }
+
+    /**
+     * Private helper method to remove triangles which were removed during
+     * construction from the arrays.
+     */
+    private void compact() {
+        int[] remap = new int[numTriangles];
+        int count = 0;
+        for (int t = 0; t < numTriangles; t++) {
+            remap[t] = dead[t] ? NO_TRIANGLE : count++;
+        }
+
+        for (int t = 0; t < numTriangles; t++) {
+            if (dead[t]) continue;
+            int target = remap[t];
+            for (int i = 0; i < 3; i++) {
+                int n = triNeighbors[3 * t + i];
+                triVertices[3 * target + i] = triVertices[3 * t + i];
+                triNeighbors[3 * target + i] = n == NO_TRIANGLE ? n : remap[n];
+                constrained[3 * target + i] = constrained[3 * t + i];
+            }
+        }
+        for (int p = 0; p < numPoints; p++) {
+            int t = pointTriangles[p];
+            pointTriangles[p] = t == NO_TRIANGLE ? NO_TRIANGLE : remap[t];
+        }
+
+        numTriangles = count;
+        numFree = 0;
+        triVertices = Arrays.copyOf(triVertices, 3 * count);
+        triNeighbors = Arrays.copyOf(triNeighbors, 3 * count);
+        constrained = Arrays.copyOf(constrained, 3 * count);
+        xs = Arrays.copyOf(xs, numPoints);
+        ys = Arrays.copyOf(ys, numPoints);
+        pointTriangles = Arrays.copyOf(pointTriangles, numPoints);
+
+        // Scratch data is no longer needed
+        freeTriangles = null;
+        dead = null;
+        visited = null;
+    }
+
+    /**
+     * Private helper method to mark the triangles lying in free space as
+     * walkable. Obstacles are looked up through a uniform grid of their
+     * bounding boxes.
+     */
+    private void classify() {
+        walkable = new boolean[numTriangles];
+
+        int cells = Math.max(1, (int) Math.sqrt(polygons.size()));
+        float cellWidth = bounds.width / cells;
+        float cellHeight = bounds.height / cells;
+        ArrayList<ArrayList<double[]>> grid = new ArrayList<>();
+        for (int i = 0; i < cells * cells; i++) {
+            grid.add(new ArrayList<>());
+        }
+
+        for (double[] polygon : polygons) {
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < polygon.length; j += 2) {
+                minX = Math.min(minX, polygon[j]);
+                maxX = Math.max(maxX, polygon[j]);
+                minY = Math.min(minY, polygon[j + 1]);
+                maxY = Math.max(maxY, polygon[j + 1]);
+            }
+
+            int cx0 = cellOf(minX, bounds.x, cellWidth, cells);
+            int cx1 = cellOf(maxX, bounds.x, cellWidth, cells);
+            int cy0 = cellOf(minY, bounds.y, cellHeight, cells);
+            int cy1 = cellOf(maxY, bounds.y, cellHeight, cells);
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    grid.get(cy * cells + cx).add(polygon);
+                }
+            }
+        }
+
+        for (int t = 0; t < numTriangles; t++) {
+            double x = 0;
+            double y = 0;
+            for (int i = 0; i < 3; i++) {
+                x += xs[triVertices[3 * t + i]] / 3;
+                y += ys[triVertices[3 * t + i]] / 3;
+            }
+
+            if (x < bounds.x || y < bounds.y || x > bounds.x + bounds.width
+                    || y > bounds.y + bounds.height) {
+                continue;
+            }
+
+            boolean inside = false;
+            int cx = cellOf(x, bounds.x, cellWidth, cells);
+            int cy = cellOf(y, bounds.y, cellHeight, cells);
+            for (double[] polygon : grid.get(cy * cells + cx)) {
+                if (contains(polygon, x, y)) {
+                    inside = true;
+                    break;
+                }
+            }
+
+            walkable[t] = !inside;
+        }
+    }
+
+    private static int cellOf(double v, float origin, float cellSize, int cells) {
+        int cell = (int) ((v - origin) / cellSize);
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    /**
+     * Private helper method to test whether a polygon contains a point
+     * (crossing number test).
+     */
+    private static boolean contains(double[] polygon, double x, double y) {
+        boolean inside = false;
+        int n = polygon.length / 2;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            double xi = polygon[2 * i];
+            double yi = polygon[2 * i + 1];
+            double xj = polygon[2 * j];
+            double yj = polygon[2 * j + 1];
+            if ((yi > y) != (yj > y)
+                    && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+
+        return inside;
+    }
+
+    // Geometry
+
+    /**
+     * Orientation of a point relative to the line from point a to point b:
+     * positive if it lies to the left, negative if to the right.
+     */
+    private double orient(int a, int b, double x, double y) {
+        return (xs[b] - xs[a]) * (y - ys[a]) - (ys[b] - ys[a]) * (x - xs[a]);
+    }
+
+    /**
+     * Whether point v lies on the segment from a to b beyond a.
+     */
+    private boolean isAhead(int a, int b, int v) {
+        double dx = xs[b] - xs[a];
+        double dy = ys[b] - ys[a];
+        double vx = xs[v] - xs[a];
+        double vy = ys[v] - ys[a];
+        double dot = dx * vx + dy * vy;
+        return dot > 0 && dot <= dx * dx + dy * dy;
+    }
+
+    /**
+     * Positive if the point lies inside the circumcircle of the triangle.
+     */
+    private double inCircle(int t, double x, double y) {
+        int a = triVertices[3 * t];
+        int b = triVertices[3 * t + 1];
+        int c = triVertices[3 * t + 2];
+
+        double adx = xs[a] - x;
+        double ady = ys[a] - y;
+        double bdx = xs[b] - x;
+        double bdy = ys[b] - y;
+        double cdx = xs[c] - x;
+        double cdy = ys[c] - y;
+
+        double ad = adx * adx + ady * ady;
+        double bd = bdx * bdx + bdy * bdy;
+        double cd = cdx * cdx + cdy * cdy;
+
+        return adx * (bdy * cd - bd * cdy)
+                - ady * (bdx * cd - bd * cdx)
+                + ad * (bdx * cdy - bdy * cdx);
+    }
+
+    // Topology
+
+    private int addPoint(double x, double y) {
+        if (numPoints == xs.length) {
+            int capacity = numPoints * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            pointTriangles = Arrays.copyOf(pointTriangles, capacity);
+        }
+
+        xs[numPoints] = x;
+        ys[numPoints] = y;
+        pointTriangles[numPoints] = NO_TRIANGLE;
+        return numPoints++;
+    }
+
+    private int addTriangle(int a, int b, int c) {
+        int t;
+        if (numFree > 0) {
+            t = freeTriangles[--numFree];
+        } else {
+            t = numTriangles++;
+            if (3 * numTriangles > triVertices.length) {
+                int capacity = triVertices.length * 2;
+                triVertices = Arrays.copyOf(triVertices, capacity);
+                triNeighbors = Arrays.copyOf(triNeighbors, capacity);
+                constrained = Arrays.copyOf(constrained, capacity);
+            }
+            ensureScratch();
+        }
+
+        setTriangle(t, a, b, c, NO_TRIANGLE, NO_TRIANGLE, NO_TRIANGLE,
+                false, false, false);
+        dead[t] = false;
+        return t;
+    }
+
+    private void removeTriangle(int t) {
+        dead[t] = true;
+        if (numFree == freeTriangles.length) {
+            freeTriangles = Arrays.copyOf(freeTriangles, numFree * 2);
+        }
+        freeTriangles[numFree++] = t;
+    }
+
+    private void ensureScratch() {
+        if (dead.length < numTriangles) {
+            int capacity = Math.max(numTriangles, dead.length * 2);
+            dead = Arrays.copyOf(dead, capacity);
+            visited = Arrays.copyOf(visited, capacity);
+        }
+    }
+
+    private void setTriangle(
+            int t,
+            int a, int b, int c,
+            int na, int nb, int nc,
+            boolean ca, boolean cb, boolean cc)
+    {
+        triVertices[3 * t] = a;
+        triVertices[3 * t + 1] = b;
+        triVertices[3 * t + 2] = c;
+        triNeighbors[3 * t] = na;
+        triNeighbors[3 * t + 1] = nb;
+        triNeighbors[3 * t + 2] = nc;
+        constrained[3 * t] = ca;
+        constrained[3 * t + 1] = cb;
+        constrained[3 * t + 2] = cc;
+    }
+
+    /**
+     * Private helper method to point the neighbor of triangle t across the
+     * edge between points a and b to another triangle.
+     */
+    private void replaceNeighbor(int t, int a, int b, int neighbor) {
+        triNeighbors[3 * t + indexOfEdge(t, a, b)] = neighbor;
+    }
+
+    /**
+     * Private helper method to mark an edge as constrained on both sides.
+     */
+    private void markConstrained(int t, int i) {
+        constrained[3 * t + i] = true;
+        int u = triNeighbors[3 * t + i];
+        if (u != NO_TRIANGLE) {
+            constrained[3 * u + indexOfNeighbor(u, t)] = true;
+        }
+    }
+
+    /**
+     * Private helper method to find the edge between two points.
+     *
+     * @return 3 * triangle + index of the vertex opposite the edge, or -1
+     *         if the points are not connected
+     */
+    private int findEdge(int a, int b) {
+        int start = pointTriangles[a];
+
+        // Rotate around a in one direction, then in the other if the
+        // rotation hits the border of the triangulation
+        for (int direction = 0; direction < 2; direction++) {
+            int t = start;
+            for (int guard = 0; guard < numTriangles; guard++) {
+                int k = indexOf(t, a);
+                int v1 = triVertices[3 * t + (k + 1) % 3];
+                int v2 = triVertices[3 * t + (k + 2) % 3];
+                if (v1 == b) return 3 * t + (k + 2) % 3;
+                if (v2 == b) return 3 * t + (k + 1) % 3;
+
+                t = triNeighbors[3 * t + (direction == 0 ? (k + 2) : (k + 1)) % 3];
+                if (t == start) return NO_TRIANGLE;
+                if (t == NO_TRIANGLE) break;
+            }
+        }
+
+        return NO_TRIANGLE;
+    }
+
+    private int indexOf(int t, int point) {
+        if (triVertices[3 * t] == point) return 0;
+        if (triVertices[3 * t + 1] == point) return 1;
+        return 2;
+    }
+
+    /**
+     * Index of the vertex of triangle t opposite the edge between a and b.
+     */
+    private int indexOfEdge(int t, int a, int b) {
+        for (int i = 0; i < 3; i++) {
+            int v = triVertices[3 * t + i];
+            if (v != a && v != b) return i;
+        }
+        return 0;
+    }
+
+    private int indexOfNeighbor(int t, int neighbor) {
+        if (triNeighbors[3 * t] == neighbor) return 0;
+        if (triNeighbors[3 * t + 1] == neighbor) return 1;
+        return 2;
+    }
+}
@@ -0,0 +1,379 @@
+package com.mygdx.game.navmesh;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.game.visibilitygraph.PathPlanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link PathPlanner} backed by a {@link NavMesh}. A query runs A* over the
+ * walkable triangles and then pulls the path taut through the corridor of
+ * triangles with the funnel algorithm. A* enters each triangle at the point
+ * where the line from the previous entry point towards the end point crosses
+ * the shared edge (kept away from the edge's ends), which follows the taut
+ * path much more closely than edge midpoints do.
+ * <p>
+ * The mesh has far fewer edges than a visibility graph, so it is cheaper to
+ * build and to keep in memory, and queries expand fewer nodes. The path is
+ * the shortest path within the corridor, but the corridor chosen by A* is
+ * not always the one containing the globally shortest path, so paths can be
+ * slightly longer than those of a visibility graph.
+ * <p>
+ * A planner reuses its search data between queries, so it must not be used
+ * from several threads at once. The mesh itself can be shared between
+ * planners.
+ */
+public class NavMeshPlanner implements PathPlanner {
+
+    private final NavMesh mesh;
+
+    // Search data, indexed by triangle
+    private final float[] gCost;
+    private final float[] entryX;
+    private final float[] entryY;
+    private final int[] parent;
+    private final int[] closed;
+    private int searchStamp;
+    private int lastTriangle;
+
+    // Binary heap of (f cost, triangle) entries with lazy deletion
+    private float[] heapKeys = new float[64];
+    private int[] heapTriangles = new int[64];
+    private int heapSize;
+
+    // Portal points of the corridor, from start to end
+    private float[] portals = new float[64];
+
+    /**
+     * Construct a Navigation Mesh Planner with bounds enclosing all obstacles
+     * and a margin around them.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     */
+    public NavMeshPlanner(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        this(new NavMesh(obstacles, agentRadius));
+    }
+
+    /**
+     * Construct a Navigation Mesh Planner.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     * @param bounds the walkable area of the map
+     */
+    public NavMeshPlanner(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius,
+            Rectangle bounds)
+    {
+        this(new NavMesh(obstacles, agentRadius, bounds));
+    }
+
+    /**
+     * Construct a Navigation Mesh Planner for an existing mesh.
+     *
+     * @param mesh the {@link NavMesh}
+     */
+    public NavMeshPlanner(NavMesh mesh) {
+        this.mesh = mesh;
+
+        int n = mesh.getNumTriangles();
+        gCost = new float[n];
+        entryX = new float[n];
+        entryY = new float[n];
+        parent = new int[n];
+        closed = new int[n];
+    }
+
+    /**
+     * Get the navigation mesh of this planner.
+     *
+     * @return the {@link NavMesh}
+     */
+    public NavMesh getMesh() {
+        return mesh;
+    }
+
+    @Override
+    public ArrayList<Vector2> findPath(Vector2 startPoint, Vector2 endPoint) {
+        ArrayList<Vector2> path = new ArrayList<>();
+
+        int start = mesh.locate(startPoint.x, startPoint.y, lastTriangle);
+        if (start < 0 || !mesh.isWalkable(start)) return path;
+        int end = mesh.locate(endPoint.x, endPoint.y, start);
+        if (end < 0 || !mesh.isWalkable(end)) return path;
+        lastTriangle = end;
+
+        if (start == end) {
+            path.add(new Vector2(endPoint));
+            return path;
+        }
+
+        if (!search(start, end, startPoint, endPoint)) return path;
+
+        int numPortals = collectPortals(start, end, startPoint, endPoint);
+        pullString(numPortals, path);
+
+        return path;
+    }
+
+    /**
+     * Private helper method to run A* over the triangles.
+     *
+     * @return whether the end triangle was reached
+     */
+    private boolean search(int start, int end, Vector2 startPoint, Vector2 endPoint) {
+        if (++searchStamp == 0) {
+            Arrays.fill(closed, 0);
+            searchStamp = 1;
+        }
+        int open = -searchStamp; // marks triangles on the heap
+
+        heapSize = 0;
+        gCost[start] = 0;
+        entryX[start] = startPoint.x;
+        entryY[start] = startPoint.y;
+        parent[start] = -1;
+        closed[start] = open;
+        push(start, Vector2.dst(startPoint.x, startPoint.y, endPoint.x, endPoint.y));
+
+        while (heapSize > 0) {
+            int t = pop();
+            if (closed[t] == searchStamp) continue;
+            closed[t] = searchStamp;
+
+            if (t == end) return true;
+
+            for (int i = 0; i < 3; i++) {
+                int u = mesh.getNeighbor(t, i);
+                if (u < 0 || mesh.isConstrained(t, i) || !mesh.isWalkable(u)) {
+                    continue;
+                }
+                if (closed[u] == searchStamp) continue;
+
+                // Enter the neighbor on the shared edge, or at the end point
+                // if it is the end triangle
+                float x;
+                float y;
+                if (u == end) {
+                    x = endPoint.x;
+                    y = endPoint.y;
+                } else {
+                    int a = mesh.getVertex(t, (i + 1) % 3);
+                    int b = mesh.getVertex(t, (i + 2) % 3);
+                    float ax = mesh.getX(a);
+                    float ay = mesh.getY(a);
+                    float dx = mesh.getX(b) - ax;
+                    float dy = mesh.getY(b) - ay;
+                    float s = crossing(entryX[t], entryY[t], endPoint.x, endPoint.y,
+                            ax, ay, dx, dy);
+                    x = ax + s * dx;
+                    y = ay + s * dy;
+                }
+
+                float g = gCost[t] + Vector2.dst(entryX[t], entryY[t], x, y);
+                if (closed[u] == open && g >= gCost[u]) continue;
+
+                gCost[u] = g;
+                entryX[u] = x;
+                entryY[u] = y;
+                parent[u] = t;
+                closed[u] = open;
+                push(u, g + Vector2.dst(x, y, endPoint.x, endPoint.y));
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Private helper method to collect the portals of the corridor from the
+     * start to the end triangle, as left and right points seen when walking
+     * along the corridor.
+     *
+     * @return the number of portals (including the start and end point)
+     */
+    private int collectPortals(int start, int end, Vector2 startPoint, Vector2 endPoint) {
+        int length = 0;
+        for (int t = end; t != start; t = parent[t]) {
+            length++;
+        }
+
+        int numPortals = length + 2;
+        if (portals.length < 4 * numPortals) {
+            portals = new float[4 * numPortals * 2];
+        }
+
+        setPortal(0, startPoint.x, startPoint.y, startPoint.x, startPoint.y);
+        setPortal(numPortals - 1, endPoint.x, endPoint.y, endPoint.x, endPoint.y);
+
+        int k = length;
+        for (int u = end; u != start; u = parent[u]) {
+            int t = parent[u];
+            int i = 0;
+            while (mesh.getNeighbor(t, i) != u) {
+                i++;
+            }
+
+            // Triangles are counter-clockwise, so when leaving t through
+            // the edge opposite vertex i, vertex i + 2 is on the left
+            int left = mesh.getVertex(t, (i + 2) % 3);
+            int right = mesh.getVertex(t, (i + 1) % 3);
+            setPortal(k--, mesh.getX(left), mesh.getY(left),
+                    mesh.getX(right), mesh.getY(right));
+        }
+
+        return numPortals;
+    }
+
+    private void setPortal(int k, float leftX, float leftY, float rightX, float rightY) {
+        portals[4 * k] = leftX;
+        portals[4 * k + 1] = leftY;
+        portals[4 * k + 2] = rightX;
+        portals[4 * k + 3] = rightY;
+    }
+
+    /**
+     * Private helper method to find the shortest path through the portals
+     * with the funnel algorithm. The funnel is narrowed portal by portal, and
+     * when one side crosses over the other, the apex of the funnel is a
+     * corner of the path.
+     */
+    private void pullString(int numPortals, ArrayList<Vector2> path) {
+        float apexX = portals[0];
+        float apexY = portals[1];
+        float leftX = apexX;
+        float leftY = apexY;
+        float rightX = apexX;
+        float rightY = apexY;
+        int apexIndex = 0;
+        int leftIndex = 0;
+        int rightIndex = 0;
+
+        for (int i = 1; i < numPortals; i++) {
+            float pLeftX = portals[4 * i];
+            float pLeftY = portals[4 * i + 1];
+            float pRightX = portals[4 * i + 2];
+            float pRightY = portals[4 * i + 3];
+
+            // Narrow the right side
+            if (cross(apexX, apexY, rightX, rightY, pRightX, pRightY) >= 0) {
+                boolean atApex = apexX == rightX && apexY == rightY;
+                if (atApex || cross(apexX, apexY, leftX, leftY, pRightX, pRightY) < 0) {
+                    rightX = pRightX;
+                    rightY = pRightY;
+                    rightIndex = i;
+                } else {
+                    // Right side crosses the left side: the left point is a
+                    // corner
+                    path.add(new Vector2(leftX, leftY));
+                    apexX = rightX = leftX;
+                    apexY = rightY = leftY;
+                    apexIndex = rightIndex = leftIndex;
+                    i = apexIndex;
+                    continue;
+                }
+            }
+
+            // Narrow the left side
+            if (cross(apexX, apexY, leftX, leftY, pLeftX, pLeftY) <= 0) {
+                boolean atApex = apexX == leftX && apexY == leftY;
+                if (atApex || cross(apexX, apexY, rightX, rightY, pLeftX, pLeftY) > 0) {
+                    leftX = pLeftX;
+                    leftY = pLeftY;
+                    leftIndex = i;
+                } else {
+                    // Left side crosses the right side: the right point is
+                    // a corner
+                    path.add(new Vector2(rightX, rightY));
+                    apexX = leftX = rightX;
+                    apexY = leftY = rightY;
+                    apexIndex = leftIndex = rightIndex;
+                    i = apexIndex;
+                }
+            }
+        }
+
+        float endX = portals[4 * (numPortals - 1)];
+        float endY = portals[4 * (numPortals - 1) + 1];
+        path.add(new Vector2(endX, endY));
+    }
+
+    /**
+     * Parameter along the portal from (ax, ay) in direction (dx, dy) where
+     * the line from p to q crosses it, kept away from the portal's ends.
+     */
+    private static float crossing(float px, float py, float qx, float qy,
+                                  float ax, float ay, float dx, float dy) {
+        float rx = qx - px;
+        float ry = qy - py;
+        float denominator = rx * dy - ry * dx;
+        float s = 0.5f;
+        if (denominator != 0) {
+            s = ((ax - px) * ry - (ay - py) * rx) / denominator;
+        }
+        if (!(s > 0.1f)) return 0.1f;
+        return Math.min(s, 0.9f);
+    }
+
+    /**
+     * Cross product of (b - a) and (c - a): positive if c lies to the left of
+     * the line from a to b.
+     */
+    private static float cross(float ax, float ay, float bx, float by, float cx, float cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    // Heap
+
+    private void push(int triangle, float key) {
+        if (heapSize == heapKeys.length) {
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            heapTriangles = Arrays.copyOf(heapTriangles, heapSize * 2);
+        }
+
+        int i = heapSize++;
+        while (i > 0) {
+            int p = (i - 1) / 2;
+            if (heapKeys[p] <= key) break;
+            heapKeys[i] = heapKeys[p];
+            heapTriangles[i] = heapTriangles[p];
+            i = p;
+        }
+        heapKeys[i] = key;
+        heapTriangles[i] = triangle;
+    }
+
+    private int pop() {
+        int top = heapTriangles[0];
+        heapSize--;
+        float key = heapKeys[heapSize];
+        int triangle = heapTriangles[heapSize];
+
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= heapSize) break;
+            if (c + 1 < heapSize && heapKeys[c + 1] < heapKeys[c]) c++;
+            if (key <= heapKeys[c]) break;
+            heapKeys[i] = heapKeys[c];
+            heapTriangles[i] = heapTriangles[c];
+            i = c;
+        }
+        if (heapSize > 0) {
+            heapKeys[i] = key;
+            heapTriangles[i] = triangle;
+        }
+
+        return top;
+    }
+}
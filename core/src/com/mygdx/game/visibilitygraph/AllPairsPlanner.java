@@ -0,0 +1,387 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * {@link PathPlanner} for static maps with heavy query traffic, which
+ * precomputes the shortest paths between all pairs of obstacle vertices so
+ * that a query needs no graph search.
+ * <p>
+ * A visibility graph of the obstacles is built, and Dijkstra's algorithm is
+ * run from every obstacle vertex in parallel, one source per task. For every
+ * pair of vertices the distance and the first vertex after the source on a
+ * shortest path (the next hop) are stored in 16 bits each. Distances are
+ * quantized per source: each row of the table has its own scale, so that its
+ * largest distance maps to the largest code, and a stored distance is off by
+ * at most half a step of its row (about 1/130000 of that row's longest path).
+ * <p>
+ * A query finds the vertices visible from the start point and from the end
+ * point, and takes the pair (u, v) minimizing |start, u| + d(u, v) +
+ * |v, end|. The path then follows the next hops from u to v. A shortest
+ * path only bends around a vertex if the line to it from the query point is
+ * tangent to the obstacle there, i.e. both obstacle neighbors of the vertex
+ * lie on the same side of the line, so other vertices are skipped before
+ * their visibility is tested. Paths are
+ * shortest up to the quantization of distances, which may pick a pair whose
+ * path is longer by a fraction of a step.
+ * <p>
+ * The tables take about 4 n^2 bytes for n vertices, which is estimated
+ * before anything is computed (see {@link #estimateBytes(int)}). If the
+ * estimate exceeds the memory budget, or there are too many vertices to
+ * number in 16 bits, no tables are built and queries fall back to an A*
+ * search of the graph. A planner is not changed by queries, so it may be
+ * used from several threads at once.
+ */
+public class AllPairsPlanner implements PathPlanner {
+
+    /**
+     * Memory budget of the tables if none is specified, in bytes.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    // Largest number of vertices whose indices fit into a table entry
+    private static final int MAX_VERTICES = 0xFFFF;
+
+    // Distance code of vertices which cannot be reached
+    private static final char UNREACHABLE = 0xFFFF;
+
+    // Approximate size of an array header, for the memory estimate
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    // Offset of obstacle vertex IDs in the graph (after start and end point)
+    private static final int FIRST_VERTEX = 2;
+
+    private final VisibilityGraph graph;
+    private final VGEdgeBatch obstacleBatch;
+    private final ArrayList<VGVertex> vertices;
+    private final int numVertices;
+    private final int[] previous; // obstacle neighbors, by vertex index
+    private final int[] next;
+    private final long estimatedBytes;
+
+    private final char[][] distances; // distances[source][target], quantized
+    private final char[][] nextHops;  // nextHops[source][target]
+    private final float[] scales;     // distance per code step, per source
+    private final long precomputeNanos;
+
+    /**
+     * Construct an All Pairs Planner with the default memory budget.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     */
+    public AllPairsPlanner(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        this(obstacles, agentRadius, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Construct an All Pairs Planner. The tables are only computed if their
+     * estimated size fits into the memory budget.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     * @param memoryBudget maximum size of the tables in bytes
+     */
+    public AllPairsPlanner(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius,
+            long memoryBudget)
+    {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException(
+                    "memoryBudget must not be negative: " + memoryBudget);
+        }
+
+        graph = new VisibilityGraph(
+                new Vector2(),
+                new Vector2(),
+                obstacles,
+                agentRadius
+        );
+        obstacleBatch = new VGEdgeBatch();
+        obstacleBatch.set(graph.getObstacleEdges());
+        vertices = graph.getVertices();
+        numVertices = vertices.size() - FIRST_VERTEX;
+        estimatedBytes = estimateBytes(numVertices);
+
+        // Obstacle edges lead from each vertex to the next counter-clockwise
+        previous = new int[numVertices];
+        next = new int[numVertices];
+        ArrayList<VGEdge> obstacleEdges = graph.getObstacleEdges();
+        for (int i = 0; i < obstacleEdges.size(); i++) {
+            VGEdge edge = obstacleEdges.get(i);
+            int a = edge.a.ID - FIRST_VERTEX;
+            int b = edge.b.ID - FIRST_VERTEX;
+            next[a] = b;
+            previous[b] = a;
+        }
+
+        if (numVertices > MAX_VERTICES || estimatedBytes > memoryBudget) {
+            distances = null;
+            nextHops = null;
+            scales = null;
+            precomputeNanos = 0;
+            return;
+        }
+
+        long start = System.nanoTime();
+        distances = new char[numVertices][];
+        nextHops = new char[numVertices][];
+        scales = new float[numVertices];
+
+        // One set of search buffers per worker thread
+        ThreadLocal<SourceSearch> searches
+                = ThreadLocal.withInitial(() -> new SourceSearch(numVertices));
+        IntStream.range(0, numVertices).parallel().forEach(
+                source -> searches.get().run(source)
+        );
+        precomputeNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Estimate the memory the tables of a planner take, to decide before
+     * building a planner whether it is worth it.
+     *
+     * @param numVertices the number of obstacle vertices
+     *
+     * @return the approximate size of the tables in bytes
+     */
+    public static long estimateBytes(int numVertices) {
+        long n = numVertices;
+
+        // Two tables of 16 bit entries, plus a scale and two headers per row
+        return n * n * 2 * Character.BYTES
+                + n * (Float.BYTES + 2 * ARRAY_HEADER_BYTES);
+    }
+
+    /**
+     * Get whether the tables were computed, or queries fall back to a search.
+     *
+     * @return whether the tables are used
+     */
+    public boolean isPrecomputed() {
+        return distances != null;
+    }
+
+    /**
+     * Get the estimated size of the tables, whether or not they were built.
+     *
+     * @return the approximate size of the tables in bytes
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Get the number of obstacle vertices, i.e. the size of the tables.
+     *
+     * @return the number of obstacle vertices
+     */
+    public int getVertexCount() {
+        return numVertices;
+    }
+
+    /**
+     * Get the time taken to compute the tables, not including the graph
+     * build.
+     *
+     * @return the time in nanoseconds (0 if the tables were not built)
+     */
+    public long getPrecomputeNanos() {
+        return precomputeNanos;
+    }
+
+    @Override
+    public ArrayList<Vector2> findPath(Vector2 startPoint, Vector2 endPoint) {
+        if (distances == null) {
+            return graph.findPath(startPoint, endPoint, VGHeuristic.EUCLIDEAN, null);
+        }
+
+        VGVertex start = new VGVertex(new Vector2(startPoint), VGVertex.NO_GROUP);
+        VGVertex end = new VGVertex(new Vector2(endPoint), VGVertex.NO_GROUP);
+
+        // IDs of the graph's own start and end point, which no obstacle edge
+        // is incident to
+        start.ID = 0;
+        end.ID = 1;
+
+        ArrayList<Vector2> path = new ArrayList<>();
+        if (!obstacleBatch.intersectsAny(start, end)) {
+            path.add(end.pos);
+            return path;
+        }
+
+        int[] fromStart = new int[numVertices];
+        float[] startCosts = new float[numVertices];
+        int numFromStart = visibleVertices(start, fromStart, startCosts);
+        if (numFromStart == 0) return path;
+
+        int[] toEnd = new int[numVertices];
+        float[] endCosts = new float[numVertices];
+        int numToEnd = visibleVertices(end, toEnd, endCosts);
+        if (numToEnd == 0) return path;
+
+        int bestFirst = -1;
+        int bestLast = -1;
+        float bestCost = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < numFromStart; i++) {
+            int u = fromStart[i];
+            char[] row = distances[u];
+            float scale = scales[u];
+            float startCost = startCosts[i];
+
+            for (int j = 0; j < numToEnd; j++) {
+                char code = row[toEnd[j]];
+                if (code == UNREACHABLE) continue;
+
+                float cost = startCost + code * scale + endCosts[j];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestFirst = u;
+                    bestLast = toEnd[j];
+                }
+            }
+        }
+
+        if (bestFirst == -1) return path;
+
+        // Follow the next hops, which lead to the last vertex in at most
+        // n - 1 steps
+        int current = bestFirst;
+        path.add(new Vector2(vertices.get(current + FIRST_VERTEX).pos));
+        for (int step = 0; current != bestLast && step < numVertices; step++) {
+            current = nextHops[current][bestLast];
+            path.add(new Vector2(vertices.get(current + FIRST_VERTEX).pos));
+        }
+        path.add(end.pos);
+
+        return path;
+    }
+
+    /**
+     * Private helper method to collect the obstacle vertices a point can see
+     * which a shortest path from or to the point may bend around.
+     *
+     * @param point the query point
+     * @param visible array to store the indices of visible vertices in
+     * @param costs array to store the distances to the visible vertices in
+     *
+     * @return the number of visible vertices
+     */
+    private int visibleVertices(VGVertex point, int[] visible, float[] costs) {
+        int count = 0;
+        for (int i = 0; i < numVertices; i++) {
+            VGVertex vertex = vertices.get(i + FIRST_VERTEX);
+            if (!isTangent(point.pos, i)) continue;
+
+            if (!obstacleBatch.intersectsAny(point, vertex)) {
+                visible[count] = i;
+                costs[count] = point.pos.dst(vertex.pos);
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Private helper method to get whether the line from a point to a vertex
+     * does not pass between the obstacle neighbors of the vertex.
+     */
+    private boolean isTangent(Vector2 point, int vertex) {
+        Vector2 pos = vertices.get(vertex + FIRST_VERTEX).pos;
+        Vector2 a = vertices.get(previous[vertex] + FIRST_VERTEX).pos;
+        Vector2 b = vertices.get(next[vertex] + FIRST_VERTEX).pos;
+
+        float dx = pos.x - point.x;
+        float dy = pos.y - point.y;
+        float sideA = dx * (a.y - pos.y) - dy * (a.x - pos.x);
+        float sideB = dx * (b.y - pos.y) - dy * (b.x - pos.x);
+
+        return sideA * sideB >= 0;
+    }
+
+    /**
+     * Private helper inner class holding the buffers of Dijkstra searches
+     * from single sources, which fill one row of each table per search.
+     */
+    private class SourceSearch {
+
+        private final float[] dist;
+        private final int[] firstHop;
+        private final VGPathSearch.IndexedHeap heap;
+
+        SourceSearch(int numVertices) {
+            dist = new float[numVertices];
+            firstHop = new int[numVertices];
+            heap = new VGPathSearch.IndexedHeap();
+            heap.ensureCapacity(numVertices);
+        }
+
+        /**
+         * Run Dijkstra's algorithm from a source vertex over the obstacle
+         * vertices of the graph and store the row of the source.
+         *
+         * @param source index of the source vertex
+         */
+        void run(int source) {
+            Arrays.fill(dist, Float.POSITIVE_INFINITY);
+            dist[source] = 0f;
+            firstHop[source] = source;
+            heap.push(source, 0f);
+
+            float maxDist = 0f;
+            while (!heap.isEmpty()) {
+                int current = heap.pop();
+                float currentDist = dist[current];
+                maxDist = currentDist;
+
+                int id = current + FIRST_VERTEX;
+                int numNeighbors = graph.getNeighborCount(id);
+                for (int j = 0; j < numNeighbors; j++) {
+
+                    // Skip the graph's own start and end point
+                    int adj = graph.getNeighbor(id, j) - FIRST_VERTEX;
+                    if (adj < 0) continue;
+
+                    float d = currentDist + graph.getWeight(id, j);
+                    if (d < dist[adj]) {
+                        dist[adj] = d;
+                        firstHop[adj] = current == source ? adj : firstHop[current];
+                        heap.push(adj, d);
+                    }
+                }
+            }
+
+            // Vertices are settled in order of distance, so the last one is
+            // the farthest
+            float scale = maxDist > 0 ? maxDist / (UNREACHABLE - 1) : 1f;
+            char[] distRow = new char[numVertices];
+            char[] hopRow = new char[numVertices];
+            for (int i = 0; i < numVertices; i++) {
+                if (dist[i] == Float.POSITIVE_INFINITY) {
+                    distRow[i] = UNREACHABLE;
+                    hopRow[i] = (char) source;
+                } else {
+                    distRow[i] = (char) Math.min(
+                            Math.round(dist[i] / scale), UNREACHABLE - 1);
+                    hopRow[i] = (char) firstHop[i];
+                }
+            }
+
+            distances[source] = distRow;
+            nextHops[source] = hopRow;
+            scales[source] = scale;
+        }
+    }
+}
@@ -0,0 +1,589 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.Stack;
+
+/**
+ * Contraction hierarchy built over a {@link VisibilityGraph} whose obstacles
+ * never change.
+ * <p>
+ * Vertices are contracted one at a time in order of importance (least
+ * important first). Contracting a vertex removes it from the remaining graph
+ * and adds a shortcut edge between each pair of its neighbors whose shortest
+ * path led through it. Every edge is then stored in the upward graph of its
+ * lower ranked endpoint and in the downward graph of its higher ranked
+ * endpoint. A query runs Dijkstra's algorithm upwards from both the source
+ * and the target and only settles a fraction of the vertices a plain A*
+ * search would. Shortcuts are unpacked afterwards, so the returned waypoints
+ * match those returned by {@link VisibilityGraph#aStar()}.
+ * <p>
+ * Preprocessing is expensive on dense visibility graphs, so a hierarchy is
+ * meant to be built once per level and stored with {@link #writeTo} and
+ * {@link #readFrom}. Vertices are referred to by their index in
+ * {@link VisibilityGraph#getVertices()} at the time of construction.
+ */
+public class ContractionHierarchy implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int NO_MIDDLE = -1;
+
+    // Maximum number of vertices settled by a single witness search
+    private static final int WITNESS_SETTLE_LIMIT = 50;
+
+    private final int startIndex;
+    private final int endIndex;
+
+    private final float[] xs;
+    private final float[] ys;
+    private final int[] rank;
+
+    // Upward graph (edges to higher ranked vertices) in adjacency array form
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final float[] upWeights;
+    private final int[] upMiddles;
+
+    // Downward graph (edges to lower ranked vertices) in adjacency array form
+    private final int[] downOffsets;
+    private final int[] downTargets;
+    private final float[] downWeights;
+    private final int[] downMiddles;
+
+    /**
+     * Construct a Contraction Hierarchy for the specified graph.
+     *
+     * @param graph the visibility graph to preprocess
+     */
+    public ContractionHierarchy(VisibilityGraph graph) {
+        ArrayList<VGVertex> vertices = graph.getVertices();
+        int n = vertices.size();
+
+        xs = new float[n];
+        ys = new float[n];
+        for (int i = 0; i < n; i++) {
+            VGVertex vertex = vertices.get(i);
+            xs[i] = vertex.pos.x;
+            ys[i] = vertex.pos.y;
+        }
+
+        // The start and end point are always the first two graph vertices
+        startIndex = 0;
+        endIndex = 1;
+
+        // Setup remaining (uncontracted) graph
+        ArrayList<HashMap<Integer, Arc>> remaining = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            remaining.add(new HashMap<>());
+        }
+        for (VGEdge edge : graph.getAllEdges()) {
+            addArc(remaining, edge.a.ID, edge.b.ID, edge.weight, NO_MIDDLE);
+        }
+
+        // Contract vertices, recording the arcs to neighbors which are still
+        // uncontracted (and will therefore receive a higher rank)
+        rank = new int[n];
+        ArrayList<ArrayList<Arc>> upward = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            upward.add(new ArrayList<>());
+        }
+
+        WitnessSearch witness = new WitnessSearch(n);
+        int[] contractedNeighbors = new int[n];
+
+        PriorityQueue<QueueEntry> order = new PriorityQueue<>();
+        for (int i = 0; i < n; i++) {
+            order.add(new QueueEntry(i, priority(
+                    remaining, i, contractedNeighbors, witness, false
+            )));
+        }
+
+        int nextRank = 0;
+        while (!order.isEmpty()) {
+            QueueEntry entry = order.poll();
+            int v = entry.index;
+
+            // Lazily update the priority of the vertex, since contracting
+            // its neighbors may have made it more important
+            float p = priority(remaining, v, contractedNeighbors, witness,
+                    false);
+            if (!order.isEmpty() && p > order.peek().dist) {
+                order.add(new QueueEntry(v, p));
+                continue;
+            }
+
+            priority(remaining, v, contractedNeighbors, witness, true);
+
+            rank[v] = nextRank++;
+            for (Arc arc : remaining.get(v).values()) {
+                upward.get(v).add(arc);
+                remaining.get(arc.target).remove(v);
+                contractedNeighbors[arc.target]++;
+            }
+            remaining.get(v).clear();
+        }
+
+        // Flatten the upward and downward graphs into adjacency arrays
+        int numArcs = 0;
+        int[] downDegree = new int[n];
+        for (int i = 0; i < n; i++) {
+            numArcs += upward.get(i).size();
+            for (Arc arc : upward.get(i)) {
+                downDegree[arc.target]++;
+            }
+        }
+
+        upOffsets = new int[n + 1];
+        upTargets = new int[numArcs];
+        upWeights = new float[numArcs];
+        upMiddles = new int[numArcs];
+        downOffsets = new int[n + 1];
+        downTargets = new int[numArcs];
+        downWeights = new float[numArcs];
+        downMiddles = new int[numArcs];
+
+        for (int i = 0; i < n; i++) {
+            upOffsets[i + 1] = upOffsets[i] + upward.get(i).size();
+            downOffsets[i + 1] = downOffsets[i] + downDegree[i];
+        }
+
+        int[] downFill = Arrays.copyOf(downOffsets, n);
+        for (int i = 0; i < n; i++) {
+            int k = upOffsets[i];
+            for (Arc arc : upward.get(i)) {
+                upTargets[k] = arc.target;
+                upWeights[k] = arc.weight;
+                upMiddles[k] = arc.middle;
+                k++;
+
+                int d = downFill[arc.target]++;
+                downTargets[d] = i;
+                downWeights[d] = arc.weight;
+                downMiddles[d] = arc.middle;
+            }
+        }
+    }
+
+    /**
+     * Get the number of vertices in this hierarchy.
+     *
+     * @return the number of vertices
+     */
+    public int getNumVertices() {
+        return xs.length;
+    }
+
+    /**
+     * Get the number of edges in the hierarchy, including shortcuts.
+     *
+     * @return the number of edges
+     */
+    public int getNumEdges() {
+        return upTargets.length;
+    }
+
+    /**
+     * Find the shortest path between the start and end point of the graph
+     * this hierarchy was built from.
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects
+     */
+    public ArrayList<Vector2> query() {
+        return query(startIndex, endIndex);
+    }
+
+    /**
+     * Find the shortest path between two vertices using a bidirectional
+     * upward search. This returns a list of destination points to get to the
+     * target from the source, in the same form as
+     * {@link VisibilityGraph#aStar()}.
+     *
+     * @param source index of the source vertex
+     * @param target index of the target vertex
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects (empty if the
+     *         target cannot be reached)
+     */
+    public ArrayList<Vector2> query(int source, int target) {
+        int n = xs.length;
+
+        float[] forwardDist = new float[n];
+        float[] backwardDist = new float[n];
+        int[] forwardParent = new int[n];   // arc index used to reach vertex
+        int[] backwardParent = new int[n];
+        Arrays.fill(forwardDist, Float.POSITIVE_INFINITY);
+        Arrays.fill(backwardDist, Float.POSITIVE_INFINITY);
+        Arrays.fill(forwardParent, -1);
+        Arrays.fill(backwardParent, -1);
+
+        PriorityQueue<QueueEntry> forward = new PriorityQueue<>();
+        PriorityQueue<QueueEntry> backward = new PriorityQueue<>();
+
+        forwardDist[source] = 0f;
+        backwardDist[target] = 0f;
+        forward.add(new QueueEntry(source, 0f));
+        backward.add(new QueueEntry(target, 0f));
+
+        float best = Float.POSITIVE_INFINITY;
+        int meeting = -1;
+
+        // Alternate between directions until neither can improve the path
+        while (!forward.isEmpty() || !backward.isEmpty()) {
+            if (!forward.isEmpty() && forward.peek().dist >= best) {
+                forward.clear();
+            }
+            if (!backward.isEmpty() && backward.peek().dist >= best) {
+                backward.clear();
+            }
+
+            for (int dir = 0; dir < 2; dir++) {
+                PriorityQueue<QueueEntry> queue = dir == 0 ? forward : backward;
+                if (queue.isEmpty()) continue;
+
+                float[] dist = dir == 0 ? forwardDist : backwardDist;
+                float[] otherDist = dir == 0 ? backwardDist : forwardDist;
+                int[] parent = dir == 0 ? forwardParent : backwardParent;
+
+                QueueEntry entry = queue.poll();
+                int v = entry.index;
+                if (entry.dist > dist[v]) continue;
+
+                if (dist[v] + otherDist[v] < best) {
+                    best = dist[v] + otherDist[v];
+                    meeting = v;
+                }
+
+                for (int k = upOffsets[v]; k < upOffsets[v + 1]; k++) {
+                    int w = upTargets[k];
+                    float d = dist[v] + upWeights[k];
+                    if (d < dist[w]) {
+                        dist[w] = d;
+                        parent[w] = k;
+                        queue.add(new QueueEntry(w, d));
+                    }
+                }
+            }
+        }
+
+        if (meeting == -1) {
+            return new ArrayList<>();
+        }
+
+        // Collect arcs from the meeting vertex back to the source
+        Stack<Integer> forwardArcs = new Stack<>();
+        int current = meeting;
+        while (current != source) {
+            int arc = forwardParent[current];
+            forwardArcs.push(arc);
+            current = upSource(arc);
+        }
+
+        ArrayList<Integer> path = new ArrayList<>();
+        path.add(source);
+        while (!forwardArcs.isEmpty()) {
+            int arc = forwardArcs.pop();
+            unpack(upSource(arc), upTargets[arc], upMiddles[arc], path);
+        }
+
+        // Follow arcs from the meeting vertex down to the target
+        current = meeting;
+        while (current != target) {
+            int arc = backwardParent[current];
+            int next = upSource(arc);
+            unpack(current, next, upMiddles[arc], path);
+            current = next;
+        }
+
+        ArrayList<Vector2> destPoints = new ArrayList<>();
+        for (int i = 1; i < path.size(); i++) {
+            int v = path.get(i);
+            destPoints.add(new Vector2(xs[v], ys[v]));
+        }
+
+        return destPoints;
+    }
+
+    /**
+     * Write this hierarchy to a stream so that it can be reused without
+     * repeating the preprocessing.
+     *
+     * @param out the stream to write to
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        ObjectOutputStream objectOut = new ObjectOutputStream(out);
+        objectOut.writeObject(this);
+        objectOut.flush();
+    }
+
+    /**
+     * Read a hierarchy previously written with {@link #writeTo}.
+     *
+     * @param in the stream to read from
+     *
+     * @return the hierarchy
+     */
+    public static ContractionHierarchy readFrom(InputStream in)
+            throws IOException
+    {
+        ObjectInputStream objectIn = new ObjectInputStream(in);
+        try {
+            return (ContractionHierarchy) objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Private helper method to find the lower ranked endpoint (owner) of an
+     * arc in the upward graph.
+     *
+     * @param arc index of the arc
+     *
+     * @return index of the source vertex of the arc
+     */
+    private int upSource(int arc) {
+        int index = Arrays.binarySearch(upOffsets, arc);
+        if (index < 0) return -index - 2;
+
+        // Skip vertices without upward arcs sharing the same offset
+        while (upOffsets[index + 1] == arc) index++;
+        return index;
+    }
+
+    /**
+     * Private helper method to recursively replace an edge by the original
+     * edges it represents, appending every vertex after u to the path.
+     *
+     * @param u the vertex the edge starts at
+     * @param w the vertex the edge ends at
+     * @param middle the contracted vertex of a shortcut, or NO_MIDDLE
+     * @param path the list of vertex indices to append to
+     */
+    private void unpack(int u, int w, int middle, ArrayList<Integer> path) {
+        if (middle == NO_MIDDLE) {
+            path.add(w);
+            return;
+        }
+
+        unpack(u, middle, downMiddle(u, middle), path);
+        unpack(middle, w, downMiddle(w, middle), path);
+    }
+
+    /**
+     * Private helper method to find the middle vertex of the downward edge
+     * from u to the lower ranked vertex v.
+     *
+     * @param u the higher ranked vertex
+     * @param v the lower ranked vertex
+     *
+     * @return the middle vertex of the edge, or NO_MIDDLE
+     */
+    private int downMiddle(int u, int v) {
+        int best = -1;
+        for (int k = downOffsets[u]; k < downOffsets[u + 1]; k++) {
+            if (downTargets[k] == v
+                    && (best == -1 || downWeights[k] < downWeights[best])) {
+                best = k;
+            }
+        }
+
+        return downMiddles[best];
+    }
+
+    /**
+     * Private helper method to compute the contraction priority of a vertex
+     * (edge difference plus number of contracted neighbors), optionally
+     * adding the required shortcuts to the remaining graph.
+     *
+     * @param remaining the remaining graph
+     * @param v the vertex to consider
+     * @param contractedNeighbors number of contracted neighbors per vertex
+     * @param witness the witness search to use
+     * @param contract whether to add the shortcuts
+     *
+     * @return the priority (lower is contracted first)
+     */
+    private static float priority(
+            ArrayList<HashMap<Integer, Arc>> remaining,
+            int v,
+            int[] contractedNeighbors,
+            WitnessSearch witness,
+            boolean contract)
+    {
+        ArrayList<Arc> arcs = new ArrayList<>(remaining.get(v).values());
+        int shortcuts = 0;
+
+        for (int i = 0; i < arcs.size(); i++) {
+            Arc in = arcs.get(i);
+
+            float maxLength = 0f;
+            for (int j = i + 1; j < arcs.size(); j++) {
+                maxLength = Math.max(maxLength, in.weight + arcs.get(j).weight);
+            }
+            witness.run(remaining, in.target, v, maxLength);
+
+            for (int j = i + 1; j < arcs.size(); j++) {
+                Arc out = arcs.get(j);
+                float length = in.weight + out.weight;
+
+                if (witness.distanceTo(out.target) <= length) continue;
+
+                shortcuts++;
+                if (contract) {
+                    addArc(remaining, in.target, out.target, length, v);
+                }
+            }
+        }
+
+        return shortcuts - arcs.size() + contractedNeighbors[v];
+    }
+
+    /**
+     * Private helper method to add an undirected arc to the remaining graph,
+     * keeping only the shorter arc if one already exists.
+     */
+    private static void addArc(
+            ArrayList<HashMap<Integer, Arc>> remaining,
+            int a,
+            int b,
+            float weight,
+            int middle)
+    {
+        Arc existing = remaining.get(a).get(b);
+        if (existing != null && existing.weight <= weight) return;
+
+        remaining.get(a).put(b, new Arc(b, weight, middle));
+        remaining.get(b).put(a, new Arc(a, weight, middle));
+    }
+
+    /**
+     * Private helper inner class used to represent an arc of the remaining
+     * graph during preprocessing.
+     */
+    private static class Arc {
+
+        private final int target;
+        private final float weight;
+        private final int middle;
+
+        /**
+         * Construct an Arc.
+         *
+         * @param target the vertex the arc leads to
+         * @param weight the length of the arc
+         * @param middle the contracted vertex of a shortcut, or NO_MIDDLE
+         */
+        public Arc(int target, float weight, int middle) {
+            this.target = target;
+            this.weight = weight;
+            this.middle = middle;
+        }
+    }
+
+    /**
+     * Private helper inner class used to perform bounded Dijkstra searches
+     * looking for paths that make a shortcut unnecessary.
+     */
+    private static class WitnessSearch {
+
+        private final float[] dist;
+        private final ArrayList<Integer> touched;
+
+        /**
+         * Construct a Witness Search.
+         *
+         * @param n number of vertices in the graph
+         */
+        public WitnessSearch(int n) {
+            dist = new float[n];
+            Arrays.fill(dist, Float.POSITIVE_INFINITY);
+            touched = new ArrayList<>();
+        }
+
+        /**
+         * Run the search from the source, ignoring the excluded vertex and
+         * stopping once paths get longer than the maximum length.
+         */
+        public void run(
+                ArrayList<HashMap<Integer, Arc>> remaining,
+                int source,
+                int excluded,
+                float maxLength)
+        {
+            for (int i : touched) {
+                dist[i] = Float.POSITIVE_INFINITY;
+            }
+            touched.clear();
+
+            PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+            dist[source] = 0f;
+            touched.add(source);
+            queue.add(new QueueEntry(source, 0f));
+
+            int settled = 0;
+            while (!queue.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+                QueueEntry entry = queue.poll();
+                if (entry.dist > dist[entry.index]) continue;
+                if (entry.dist > maxLength) break;
+                settled++;
+
+                for (Arc arc : remaining.get(entry.index).values()) {
+                    if (arc.target == excluded) continue;
+
+                    float d = entry.dist + arc.weight;
+                    if (d < dist[arc.target]) {
+                        if (dist[arc.target] == Float.POSITIVE_INFINITY) {
+                            touched.add(arc.target);
+                        }
+                        dist[arc.target] = d;
+                        queue.add(new QueueEntry(arc.target, d));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Get the distance found to a vertex by the last search.
+         */
+        public float distanceTo(int index) {
+            return dist[index];
+        }
+    }
+
+    /**
+     * Private helper inner class used to represent an entry in a priority
+     * queue.
+     */
+    private static class QueueEntry implements Comparable<QueueEntry> {
+
+        private final int index;
+        private final float dist;
+
+        /**
+         * Construct a Queue Entry.
+         *
+         * @param index the queued vertex index
+         * @param dist the priority of the vertex
+         */
+        public QueueEntry(int index, float dist) {
+            this.index = index;
+            this.dist = dist;
+        }
+
+        @Override
+        public int compareTo(QueueEntry o) {
+            return Float.compare(dist, o.dist);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * A* search over a {@link VisibilityGraph} which can be spread over several
+ * calls with a time budget each, e.g. a few milliseconds of every frame. The
+ * search owns its cost tables, so other searches may run between its steps.
+ * <p>
+ * The graph must not change while the search runs; a step on a graph which
+ * is being rebuilt, or was rebuilt or had its endpoints moved since
+ * {@link #begin}, throws an {@link IllegalStateException}, as does reading
+ * the path of such a graph. A search cannot begin on a graph which is being
+ * rebuilt.
+ */
+public class IncrementalSearch {
+
+    // Number of expansions between reads of the clock
+    private static final int EXPANSIONS_PER_CLOCK_CHECK = 16;
+
+    private VisibilityGraph graph;
+    private long graphVersion;
+    private VGHeuristic heuristic;
+    private VGVertex startVertex;
+    private VGVertex endVertex;
+    private boolean running;
+
+    private float[] gCost = new float[0];
+    private float[] hCost = new float[0];
+    private int[] parent = new int[0];
+    private boolean[] closed = new boolean[0];
+    private final VGPathSearch.IndexedHeap heap = new VGPathSearch.IndexedHeap();
+
+    private float startEstimate;
+    private float bestEstimate;
+    private int expansions;
+
+    /**
+     * Start a search from the start point to the end point of a graph.
+     *
+     * @param graph the graph to search
+     * @param heuristic the heuristic used to estimate remaining costs
+     */
+    public void begin(VisibilityGraph graph, VGHeuristic heuristic) {
+        begin(graph, graph.getStartVertex(), graph.getEndVertex(), heuristic);
+    }
+
+    /**
+     * Start a search between two vertices of a graph.
+     *
+     * @param graph the graph to search
+     * @param from the vertex to start from
+     * @param to the vertex to find a path to
+     * @param heuristic the heuristic used to estimate remaining costs
+     */
+    public void begin(
+            VisibilityGraph graph,
+            VGVertex from,
+            VGVertex to,
+            VGHeuristic heuristic)
+    {
+        if (graph.isRebuilding()) {
+            throw new IllegalStateException("Graph is being rebuilt");
+        }
+
+        this.graph = graph;
+        this.graphVersion = graph.getVersion();
+        this.heuristic = heuristic;
+        this.startVertex = from;
+        this.endVertex = to;
+
+        int n = graph.getVertices().size();
+        if (gCost.length < n) {
+            int capacity = Math.max(n, gCost.length * 2);
+            gCost = new float[capacity];
+            hCost = new float[capacity];
+            parent = new int[capacity];
+            closed = new boolean[capacity];
+            heap.ensureCapacity(capacity);
+        }
+        Arrays.fill(gCost, 0, n, Float.POSITIVE_INFINITY);
+        Arrays.fill(hCost, 0, n, Float.NaN);
+        Arrays.fill(parent, 0, n, -1);
+        Arrays.fill(closed, 0, n, false);
+        heap.clear();
+
+        startEstimate = estimate(from);
+        bestEstimate = startEstimate;
+        expansions = 0;
+
+        gCost[from.ID] = 0f;
+        heap.push(from.ID, startEstimate);
+        running = true;
+    }
+
+    /**
+     * Continue the search for at most about the specified time. Each call
+     * expands at least one vertex, however small the budget.
+     *
+     * @param budgetNanos time to spend in nanoseconds
+     *
+     * @return whether the search is finished
+     */
+    public boolean step(long budgetNanos) {
+        if (!running) return true;
+        checkGraph();
+
+        long deadline = System.nanoTime()
+                + Math.min(Math.max(budgetNanos, 0), Long.MAX_VALUE / 4);
+        ArrayList<VGVertex> vertices = graph.getVertices();
+        int end = endVertex.ID;
+        int work = 0;
+
+        // Visit vertices in queue
+        while (!heap.isEmpty()) {
+            if (++work == EXPANSIONS_PER_CLOCK_CHECK) {
+                work = 0;
+                if (System.nanoTime() - deadline >= 0) return false;
+            }
+
+            int current = heap.pop();
+            closed[current] = true;
+
+            // The end point's cost is final once it leaves the queue
+            if (current == end) break;
+
+            expansions++;
+
+            VGVertex vertex = vertices.get(current);
+            bestEstimate = Math.min(bestEstimate, estimate(vertex));
+
+            ArrayList<VGVertex> adjacentVertices = vertex.getAdjacentVertices();
+            ArrayList<VGEdge> incidentEdges = vertex.getIncidentEdges();
+            for (int j = 0; j < adjacentVertices.size(); j++) {
+                VGVertex adjVertex = adjacentVertices.get(j);
+                int adj = adjVertex.ID;
+                if (closed[adj]) continue;
+
+                float cost = gCost[current] + incidentEdges.get(j).weight;
+                if (cost < gCost[adj]) {
+                    gCost[adj] = cost;
+                    parent[adj] = current;
+                    heap.push(adj, cost + estimate(adjVertex));
+                }
+            }
+        }
+
+        running = false;
+        return true;
+    }
+
+    /**
+     * Get whether a search has been started and is not finished yet.
+     *
+     * @return whether the search is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Get the progress of the search, estimated by how much closer to the
+     * goal the closest expanded vertex is than the start point.
+     *
+     * @return the progress between 0 and 1 (1 once finished)
+     */
+    public float getProgress() {
+        if (!running || startEstimate <= 0) return 1f;
+        return Math.max(0f, Math.min(1f, 1f - bestEstimate / startEstimate));
+    }
+
+    /**
+     * Get the number of vertices expanded so far.
+     *
+     * @return the number of expansions
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * Get the path found by a finished search, in the same form as
+     * {@link VisibilityGraph#aStar()}.
+     *
+     * @param destPoints list to fill with the destination points (cleared
+     *                   first; left empty if there is no path)
+     */
+    public void getPath(ArrayList<Vector2> destPoints) {
+        destPoints.clear();
+        if (running || graph == null) return;
+        checkGraph();
+
+        int start = startVertex.ID;
+        int end = endVertex.ID;
+        if (start == end || parent[end] == -1) return;
+
+        ArrayList<VGVertex> vertices = graph.getVertices();
+        for (int current = end; current != start; current = parent[current]) {
+            destPoints.add(vertices.get(current).pos);
+        }
+        Collections.reverse(destPoints);
+    }
+
+    /**
+     * Stop the search and release the graph.
+     */
+    public void cancel() {
+        running = false;
+        graph = null;
+        startVertex = null;
+        endVertex = null;
+    }
+
+    /**
+     * Private helper method to make sure the graph has not changed since the
+     * search began. A rebuild only gets a new version once it completes, so
+     * one in progress is checked separately.
+     */
+    private void checkGraph() {
+        if (graph.isRebuilding() || graph.getVersion() != graphVersion) {
+            throw new IllegalStateException("Graph changed during search");
+        }
+    }
+
+    /**
+     * Private helper method to get the heuristic estimate of a vertex,
+     * computing it only the first time it is needed.
+     */
+    private float estimate(VGVertex vertex) {
+        float h = hCost[vertex.ID];
+        if (Float.isNaN(h)) {
+            h = heuristic.estimate(vertex, endVertex);
+            hCost[vertex.ID] = h;
+        }
+
+        return h;
+    }
+}
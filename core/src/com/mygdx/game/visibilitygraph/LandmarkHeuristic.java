@@ -0,0 +1,213 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * ALT (A*, Landmarks, Triangle inequality) heuristic for a
+ * {@link VisibilityGraph}.
+ * <p>
+ * A set of landmark vertices is selected and the shortest path distance from
+ * every landmark to every vertex of the graph is precomputed. By the triangle
+ * inequality, for any landmark L the value |d(L, goal) - d(L, v)| is a lower
+ * bound on d(v, goal). The estimate is the maximum of these bounds and the
+ * Euclidean distance, which makes it much tighter than the Euclidean distance
+ * alone when the straight line to the goal is heavily obstructed.
+ * <p>
+ * The distance tables are only valid for the graph they were built from,
+ * including its start and end point (IDs 0 and 1). Once the graph changes,
+ * either by moving its endpoints or by a rebuild, its version no longer
+ * matches and every estimate falls back to the Euclidean distance, so the
+ * heuristic must be constructed again to regain its accuracy. Vertices
+ * without an entry in the tables (e.g. with ID -1) are likewise estimated by
+ * the Euclidean distance.
+ */
+public class LandmarkHeuristic implements VGHeuristic {
+
+    private final VisibilityGraph graph;
+    private final long version;
+    private final ArrayList<VGVertex> landmarks;
+    private final int numVertices;
+    private final float[][] distances; // distances[landmark][vertex ID]
+
+    /**
+     * Construct a Landmark Heuristic. Landmarks are selected and their
+     * distance tables are computed in parallel, one landmark per task.
+     *
+     * @param graph the graph to precompute distances for
+     * @param numLandmarks the number of landmarks (k) to select
+     */
+    public LandmarkHeuristic(VisibilityGraph graph, int numLandmarks) {
+        if (numLandmarks < 1) {
+            throw new IllegalArgumentException(
+                    "At least one landmark is required."
+            );
+        }
+
+        this.graph = graph;
+        version = graph.getVersion();
+
+        ArrayList<VGVertex> vertices = graph.getVertices();
+
+        numVertices = vertices.size();
+
+        landmarks = selectLandmarks(vertices, numLandmarks);
+
+        distances = new float[landmarks.size()][];
+        IntStream.range(0, landmarks.size()).parallel().forEach(
+                i -> distances[i] = shortestDistances(landmarks.get(i))
+        );
+    }
+
+    /**
+     * Get the selected landmarks.
+     *
+     * @return {@link ArrayList} of {@link VGVertex} objects
+     */
+    public ArrayList<VGVertex> getLandmarks() {
+        return landmarks;
+    }
+
+    @Override
+    public float estimate(VGVertex vertex, VGVertex goal) {
+        float estimate = vertex.pos.dst(goal.pos);
+
+        // Tables of an older graph may overestimate
+        if (graph.getVersion() != version) return estimate;
+
+        int v = vertex.ID;
+        int g = goal.ID;
+        if (v < 0 || v >= numVertices || g < 0 || g >= numVertices) {
+            return estimate;
+        }
+
+        for (float[] table : distances) {
+            float dv = table[v];
+            float dg = table[g];
+
+            // Skip landmarks that cannot reach both vertices
+            if (dv == Float.POSITIVE_INFINITY
+                    || dg == Float.POSITIVE_INFINITY) {
+                continue;
+            }
+
+            estimate = Math.max(estimate, Math.abs(dg - dv));
+        }
+
+        return estimate;
+    }
+
+    /**
+     * Private helper method to select landmarks spread around the border of
+     * the graph. The plane is split into equal angular sectors around the
+     * centroid of all vertices, and the vertex farthest from the centroid in
+     * each sector is chosen. Landmarks on the periphery give the best bounds
+     * since most shortest paths lead away from or towards them.
+     *
+     * @param vertices the vertices to select from
+     * @param numLandmarks the number of landmarks to select
+     *
+     * @return {@link ArrayList} of selected {@link VGVertex} objects
+     */
+    private static ArrayList<VGVertex> selectLandmarks(
+            ArrayList<VGVertex> vertices,
+            int numLandmarks)
+    {
+        Vector2 centroid = new Vector2();
+        for (VGVertex vertex : vertices) {
+            centroid.add(vertex.pos);
+        }
+        centroid.scl(1f / vertices.size());
+
+        VGVertex[] farthest = new VGVertex[numLandmarks];
+        float[] farthestDst = new float[numLandmarks];
+        for (VGVertex vertex : vertices) {
+            int sector = (int) (vertex.getAngleTo(centroid) / 360f
+                    * numLandmarks) % numLandmarks;
+            float dst = vertex.pos.dst(centroid);
+
+            if (farthest[sector] == null || dst > farthestDst[sector]) {
+                farthest[sector] = vertex;
+                farthestDst[sector] = dst;
+            }
+        }
+
+        ArrayList<VGVertex> selected = new ArrayList<>();
+        for (VGVertex vertex : farthest) {
+            if (vertex != null) selected.add(vertex);
+        }
+
+        return selected;
+    }
+
+    /**
+     * Private helper method running Dijkstra's algorithm from the source
+     * vertex over the whole graph.
+     *
+     * @param source the vertex to compute distances from
+     *
+     * @return array of distances indexed by vertex ID
+     */
+    private float[] shortestDistances(VGVertex source) {
+        float[] dist = new float[numVertices];
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+
+        PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+        dist[source.ID] = 0f;
+        queue.add(new QueueEntry(source, 0f));
+
+        while (!queue.isEmpty()) {
+            QueueEntry entry = queue.poll();
+            VGVertex current = entry.vertex;
+
+            // Skip stale entries
+            if (entry.dist > dist[current.ID]) continue;
+
+            ArrayList<VGVertex> adjacentVertices = current.getAdjacentVertices();
+            ArrayList<VGEdge> incidentEdges = current.getIncidentEdges();
+
+            for (int j = 0; j < adjacentVertices.size(); j++) {
+                VGVertex adjVertex = adjacentVertices.get(j);
+                int adjIndex = adjVertex.ID;
+
+                float d = entry.dist + incidentEdges.get(j).weight;
+                if (d < dist[adjIndex]) {
+                    dist[adjIndex] = d;
+                    queue.add(new QueueEntry(adjVertex, d));
+                }
+            }
+        }
+
+        return dist;
+    }
+
+    /**
+     * Private helper inner class used to represent an entry in the Dijkstra
+     * priority queue.
+     */
+    private static class QueueEntry implements Comparable<QueueEntry> {
+
+        private final VGVertex vertex;
+        private final float dist;
+
+        /**
+         * Construct a Queue Entry.
+         *
+         * @param vertex the queued vertex
+         * @param dist the tentative distance to the vertex
+         */
+        public QueueEntry(VGVertex vertex, float dist) {
+            this.vertex = vertex;
+            this.dist = dist;
+        }
+
+        @Override
+        public int compareTo(QueueEntry o) {
+            return Float.compare(dist, o.dist);
+        }
+    }
+}
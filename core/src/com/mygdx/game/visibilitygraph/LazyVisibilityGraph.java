@@ -0,0 +1,315 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Visibility graph which computes visibility edges on demand during the
+ * search. A {@link VisibilityGraph} tests all O(n^2) vertex pairs before the
+ * first query, but an A* search usually expands only a small fraction of the
+ * vertices. Here, the visible neighbors of a vertex are computed the first
+ * time a search expands it, so a query on a fresh map only pays for the
+ * region actually searched.
+ * <p>
+ * Visible neighbors of obstacle vertices do not depend on the query, so they
+ * are memoized in a bounded cache which evicts the least recently used
+ * vertices, and later queries reuse them. Edges to the start and end point
+ * are computed per query: all vertices are tested once when the start point
+ * is expanded, and each expanded vertex is tested against the end point.
+ * <p>
+ * Paths are the same shortest paths as those of a {@link VisibilityGraph}
+ * for the same obstacles. A graph reuses its search data and cache between
+ * queries, so it must not be used from several threads at once.
+ */
+public class LazyVisibilityGraph implements PathPlanner {
+
+    /** Default number of vertices whose visible neighbors are cached. */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private static final int STARTPOINT = 0;
+    private static final int ENDPOINT = 1;
+
+    private final ArrayList<VGVertex> vertices;
+    private final ArrayList<VGEdge> obstacleEdges;
+    private final VGEdgeBatch obstacleBatch;
+    private final LinkedHashMap<Integer, int[]> visibleCache;
+    private int cacheHits;
+    private int cacheMisses;
+
+    // Search data, indexed by vertex ID
+    private final float[] gCost;
+    private final int[] parent;
+    private final boolean[] closed;
+    private final VGPathSearch.IndexedHeap heap;
+    private int[] scratch;
+
+    /**
+     * Construct a Lazy Visibility Graph with the default cache size.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     */
+    public LazyVisibilityGraph(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        this(obstacles, agentRadius, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Construct a Lazy Visibility Graph. Only the obstacles are set up, which
+     * takes O(n) time for n vertices.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     * @param cacheSize maximum number of vertices whose visible neighbors are
+     *                  kept between queries
+     */
+    public LazyVisibilityGraph(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius,
+            final int cacheSize)
+    {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException(
+                    "cacheSize must be positive: " + cacheSize);
+        }
+
+        vertices = new ArrayList<>();
+        vertices.add(new VGVertex(new Vector2(), VGVertex.NO_GROUP)); // START
+        vertices.add(new VGVertex(new Vector2(), VGVertex.NO_GROUP)); // END
+
+        obstacleEdges = new ArrayList<>();
+        for (int i = 0; i < obstacles.size(); i++) {
+            VGObstacle obstacle = new VGObstacle(i, obstacles.get(i), agentRadius);
+            obstacleEdges.addAll(obstacle.getEdges());
+            vertices.addAll(obstacle.getVertices());
+        }
+
+        for (int i = 0; i < vertices.size(); i++) {
+            vertices.get(i).ID = i;
+        }
+        for (int i = 0; i < obstacleEdges.size(); i++) {
+            obstacleEdges.get(i).ID = i;
+        }
+
+        obstacleBatch = new VGEdgeBatch();
+        obstacleBatch.set(obstacleEdges);
+
+        // Access order makes the eldest entry the least recently used one
+        visibleCache = new LinkedHashMap<Integer, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+
+        int n = vertices.size();
+        gCost = new float[n];
+        parent = new int[n];
+        closed = new boolean[n];
+        heap = new VGPathSearch.IndexedHeap();
+        heap.ensureCapacity(n);
+        scratch = new int[16];
+    }
+
+    /**
+     * Get the vertices of this graph. The first two are the start and end
+     * point of the last query.
+     *
+     * @return {@link ArrayList} of {@link VGVertex} objects
+     */
+    public ArrayList<VGVertex> getVertices() {
+        return vertices;
+    }
+
+    /**
+     * Get the number of vertices whose visible neighbors are currently
+     * cached.
+     *
+     * @return the number of cached vertices
+     */
+    public int getCachedVertices() {
+        return visibleCache.size();
+    }
+
+    /**
+     * Get the number of expansions which found the visible neighbors of a
+     * vertex in the cache.
+     *
+     * @return the number of cache hits
+     */
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Get the number of expansions which had to compute the visible
+     * neighbors of a vertex.
+     *
+     * @return the number of cache misses
+     */
+    public int getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Remove all cached visible neighbors and reset the cache counters.
+     */
+    public void clearCache() {
+        visibleCache.clear();
+        cacheHits = 0;
+        cacheMisses = 0;
+    }
+
+    @Override
+    public ArrayList<Vector2> findPath(Vector2 startPoint, Vector2 endPoint) {
+        return findPath(startPoint, endPoint, null);
+    }
+
+    /**
+     * Find a path between two points with an A* search, computing visibility
+     * edges as vertices are expanded.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects (empty if there is
+     *         no path)
+     */
+    public ArrayList<Vector2> findPath(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            SearchStats stats)
+    {
+        VGVertex start = vertices.get(STARTPOINT);
+        VGVertex end = vertices.get(ENDPOINT);
+        start.pos.set(startPoint);
+        end.pos.set(endPoint);
+
+        int n = vertices.size();
+        Arrays.fill(gCost, Float.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+        Arrays.fill(closed, false);
+        heap.clear();
+
+        gCost[STARTPOINT] = 0f;
+        heap.push(STARTPOINT, start.pos.dst(end.pos));
+
+        // Visit vertices in queue
+        while (!heap.isEmpty()) {
+            int current = heap.pop();
+            closed[current] = true;
+
+            // The end point's cost is final once it leaves the queue
+            if (current == ENDPOINT) break;
+
+            if (stats != null) stats.addExpansion();
+
+            VGVertex vertex = vertices.get(current);
+            if (current == STARTPOINT) {
+                // Edges of the start point are only used by this query
+                for (int adj = ENDPOINT; adj < n; adj++) {
+                    relax(vertex, adj, end, stats);
+                }
+                continue;
+            }
+
+            int[] visible = visibleNeighbors(vertex);
+            for (int j = 0; j < visible.length; j++) {
+                relax(vertex, visible[j], end, stats);
+            }
+            relax(vertex, ENDPOINT, end, stats);
+        }
+
+        ArrayList<Vector2> path = new ArrayList<>();
+        if (parent[ENDPOINT] == -1) {
+            return path;
+        }
+
+        // Trace path from end point
+        for (int current = ENDPOINT; current != STARTPOINT; current = parent[current]) {
+            path.add(new Vector2(vertices.get(current).pos));
+        }
+        Collections.reverse(path);
+
+        return path;
+    }
+
+    /**
+     * Private helper method to relax the edge from a vertex to another vertex
+     * if they can see each other.
+     */
+    private void relax(VGVertex vertex, int adj, VGVertex end, SearchStats stats) {
+        if (closed[adj]) return;
+
+        VGVertex adjVertex = vertices.get(adj);
+
+        // Pairs with the start or end point are not cached, so test them
+        // here (and only if they could improve the path)
+        float cost = gCost[vertex.ID] + vertex.pos.dst(adjVertex.pos);
+        if (cost >= gCost[adj]) return;
+        if (vertex.ID == STARTPOINT || adj == ENDPOINT) {
+            if (obstacleBatch.intersectsAny(vertex, adjVertex)) return;
+        }
+
+        if (stats != null) stats.addRelaxation();
+
+        gCost[adj] = cost;
+        parent[adj] = vertex.ID;
+        heap.push(adj, cost + adjVertex.pos.dst(end.pos));
+    }
+
+    /**
+     * Private helper method to get the IDs of the obstacle vertices visible
+     * from an obstacle vertex, computing them on the first request.
+     */
+    private int[] visibleNeighbors(VGVertex vertex) {
+        int[] visible = visibleCache.get(vertex.ID);
+        if (visible != null) {
+            cacheHits++;
+            return visible;
+        }
+        cacheMisses++;
+
+        int count = 0;
+
+        // Neighbors along the obstacle's own edges
+        ArrayList<VGVertex> adjacentVertices = vertex.getAdjacentVertices();
+        for (int j = 0; j < adjacentVertices.size(); j++) {
+            count = add(count, adjacentVertices.get(j).ID);
+        }
+
+        // Vertices of other obstacles (or across a notch of its own) which
+        // can be seen
+        for (int i = ENDPOINT + 1; i < vertices.size(); i++) {
+            VGVertex other = vertices.get(i);
+            if (!VGObstacle.mayConnect(vertex, other)) continue;
+
+            if (!obstacleBatch.intersectsAny(vertex, other)) {
+                count = add(count, i);
+            }
+        }
+
+        visible = Arrays.copyOf(scratch, count);
+        visibleCache.put(vertex.ID, visible);
+        return visible;
+    }
+
+    private int add(int count, int id) {
+        if (count == scratch.length) {
+            scratch = Arrays.copyOf(scratch, count * 2);
+        }
+        scratch[count] = id;
+        return count + 1;
+    }
+}
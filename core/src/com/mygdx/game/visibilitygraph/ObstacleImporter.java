@@ -0,0 +1,464 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Imports obstacles from an occupancy image, such as a PNG level in the
+ * assets loaded with {@code new Pixmap(Gdx.files.internal("level.png"))}.
+ * Dark, opaque pixels are occupied. The outline of each connected region of
+ * occupied pixels is traced along the pixel borders, and then simplified
+ * with the Douglas-Peucker algorithm, which drops every vertex that lies
+ * within the tolerance of the simplified outline. The number of vertex pairs
+ * a {@link VisibilityGraph} tests grows with the square of the number of
+ * vertices, so a coarser tolerance pays off quadratically.
+ * <p>
+ * Obstacles are emitted as counter-clockwise vertex lists in world
+ * coordinates with y pointing up (the top row of the image is at the top),
+ * ready for {@link VGObstacle}. Outlines are usually concave; the graphs
+ * join corners of a concave obstacle across its notches where the segment
+ * between them stays outside. Regions touching only at a corner become
+ * separate obstacles. Free areas enclosed by an obstacle (holes) cannot be
+ * reached from outside it, so they are filled in and only counted.
+ */
+public class ObstacleImporter {
+
+    // Directions of pixel border steps, counter-clockwise from east
+    private static final int EAST = 0;
+    private static final int NORTH = 1;
+    private static final int WEST = 2;
+    private static final int SOUTH = 3;
+    private static final int[] DX = {1, 0, -1, 0};
+    private static final int[] DY = {0, 1, 0, -1};
+
+    private final float tolerance;
+    private float scale = 1;
+    private float originX;
+    private float originY;
+    private float minArea;
+
+    /**
+     * Outcome of an import: the obstacles and how much simplification
+     * reduced them.
+     */
+    public static class Result {
+
+        private final ArrayList<ArrayList<Vector2>> obstacles = new ArrayList<>();
+        private int tracedVertices;
+        private int vertices;
+        private int holes;
+        private int dropped;
+
+        /**
+         * Get the imported obstacles.
+         *
+         * @return {@link ArrayList} of counter-clockwise vertex arrays
+         */
+        public ArrayList<ArrayList<Vector2>> getObstacles() {
+            return obstacles;
+        }
+
+        /**
+         * Get the number of vertices of the traced outlines before
+         * simplification (corners of the pixel borders).
+         *
+         * @return the number of traced vertices
+         */
+        public int getTracedVertices() {
+            return tracedVertices;
+        }
+
+        /**
+         * Get the number of vertices of the imported obstacles.
+         *
+         * @return the number of vertices
+         */
+        public int getVertices() {
+            return vertices;
+        }
+
+        /**
+         * Get the number of holes which were filled in.
+         *
+         * @return the number of holes
+         */
+        public int getHoles() {
+            return holes;
+        }
+
+        /**
+         * Get the number of regions dropped for being smaller than the
+         * minimum area.
+         *
+         * @return the number of dropped regions
+         */
+        public int getDropped() {
+            return dropped;
+        }
+
+        /**
+         * Describe the vertex reduction, including the resulting reduction
+         * of the vertex pairs of a visibility graph.
+         *
+         * @return a one line summary
+         */
+        public String describe() {
+            float ratio = tracedVertices == 0 ? 1 : vertices / (float) tracedVertices;
+            return String.format(
+                    "%d obstacles, %d -> %d vertices (%.1f%%, %.1f%% of vertex pairs), %d holes filled, %d dropped",
+                    obstacles.size(),
+                    tracedVertices,
+                    vertices,
+                    100 * ratio,
+                    100 * ratio * ratio,
+                    holes,
+                    dropped
+            );
+        }
+    }
+
+    /**
+     * Construct an Obstacle Importer.
+     *
+     * @param tolerance the largest distance in world units between a traced
+     *                  outline and its simplification (e.g. 1 pixel's width)
+     */
+    public ObstacleImporter(float tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("Invalid tolerance: " + tolerance);
+        }
+
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Set the width of a pixel in world units. The default is 1.
+     *
+     * @param scale world units per pixel
+     */
+    public void setScale(float scale) {
+        if (!(scale > 0)) {
+            throw new IllegalArgumentException("Invalid scale: " + scale);
+        }
+
+        this.scale = scale;
+    }
+
+    /**
+     * Set the world position of the bottom left corner of the image. The
+     * default is the origin.
+     *
+     * @param x x coordinate of the corner
+     * @param y y coordinate of the corner
+     */
+    public void setOrigin(float x, float y) {
+        originX = x;
+        originY = y;
+    }
+
+    /**
+     * Set the smallest area in world units of a region to import, to ignore
+     * specks of noise. The default is 0.
+     *
+     * @param minArea the minimum area
+     */
+    public void setMinArea(float minArea) {
+        this.minArea = minArea;
+    }
+
+    /**
+     * Import the obstacles of an image. Pixels are occupied if their alpha
+     * and luminance are at least and below one half.
+     *
+     * @param pixmap the image
+     *
+     * @return the {@link Result}
+     */
+    public Result importPixmap(Pixmap pixmap) {
+        int width = pixmap.getWidth();
+        int height = pixmap.getHeight();
+        boolean[] occupied = new boolean[width * height];
+
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                int rgba = pixmap.getPixel(column, row); // RGBA8888
+                int r = (rgba >>> 24) & 0xff;
+                int g = (rgba >>> 16) & 0xff;
+                int b = (rgba >>> 8) & 0xff;
+                int a = rgba & 0xff;
+                int luminance = (299 * r + 587 * g + 114 * b) / 1000;
+                occupied[row * width + column] = a >= 128 && luminance < 128;
+            }
+        }
+
+        return importGrid(occupied, width, height);
+    }
+
+    /**
+     * Import the obstacles of an occupancy grid.
+     *
+     * @param occupied occupancy of each pixel, row by row from the top row
+     *                 of the image
+     * @param width number of pixels per row
+     * @param height number of rows
+     *
+     * @return the {@link Result}
+     */
+    public Result importGrid(boolean[] occupied, int width, int height) {
+        if (width < 0 || height < 0 || occupied.length < width * height) {
+            throw new IllegalArgumentException(
+                    "Invalid grid of " + width + "x" + height + " for "
+                    + occupied.length + " pixels");
+        }
+
+        // Outgoing border steps of each lattice point, with the occupied
+        // pixel on the left so that outlines run counter-clockwise
+        int columns = width + 1;
+        byte[] steps = new byte[columns * (height + 1)];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (!isOccupied(occupied, width, height, x, y)) continue;
+
+                if (!isOccupied(occupied, width, height, x, y - 1)) {
+                    steps[y * columns + x] |= 1 << EAST;
+                }
+                if (!isOccupied(occupied, width, height, x + 1, y)) {
+                    steps[y * columns + x + 1] |= 1 << NORTH;
+                }
+                if (!isOccupied(occupied, width, height, x, y + 1)) {
+                    steps[(y + 1) * columns + x + 1] |= 1 << WEST;
+                }
+                if (!isOccupied(occupied, width, height, x - 1, y)) {
+                    steps[(y + 1) * columns + x] |= 1 << SOUTH;
+                }
+            }
+        }
+
+        Result result = new Result();
+        Outline outline = new Outline();
+        for (int point = 0; point < steps.length; point++) {
+            while (steps[point] != 0) {
+                trace(steps, columns, point, outline);
+
+                float area = outline.area() * scale * scale;
+                if (area < 0) {
+                    result.holes++;
+                    continue;
+                }
+                if (area < minArea) {
+                    result.dropped++;
+                    continue;
+                }
+
+                ArrayList<Vector2> obstacle = simplify(outline);
+                result.obstacles.add(obstacle);
+                result.tracedVertices += outline.size;
+                result.vertices += obstacle.size();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Private helper method to follow an outline from a lattice point,
+     * removing its steps, and store its corners.
+     */
+    private static void trace(byte[] steps, int columns, int start, Outline outline) {
+        outline.size = 0;
+        int first = Integer.numberOfTrailingZeros(steps[start]);
+        int direction = first;
+        int point = start;
+
+        while (true) {
+            steps[point] &= ~(1 << direction);
+            point += DY[direction] * columns + DX[direction];
+
+            // The first step was removed, but still closes the outline
+            int available = steps[point];
+            if (point == start) available |= 1 << first;
+
+            // Where diagonal pixels share a corner, turning left stays with
+            // the same pixel, which keeps the regions apart
+            int left = (direction + 1) & 3;
+            int next;
+            if ((available & (1 << left)) != 0) {
+                next = left;
+            } else if ((available & (1 << direction)) != 0) {
+                next = direction;
+            } else {
+                next = (direction + 3) & 3;
+            }
+
+            if (next != direction) {
+                outline.add(point % columns, point / columns);
+            }
+            if (point == start && next == first) break;
+            direction = next;
+        }
+    }
+
+    /**
+     * Private helper method to simplify a closed outline with the
+     * Douglas-Peucker algorithm and convert it to world coordinates. The
+     * outline is split at its first corner and the corner farthest from it,
+     * and both halves are simplified separately. If simplification would
+     * leave less than a triangle or turn the outline over, the traced
+     * corners are kept.
+     */
+    private ArrayList<Vector2> simplify(Outline outline) {
+        int numCorners = outline.size;
+        float[] xs = new float[numCorners];
+        float[] ys = new float[numCorners];
+        for (int i = 0; i < numCorners; i++) {
+            xs[i] = originX + outline.points[2 * i] * scale;
+            ys[i] = originY + outline.points[2 * i + 1] * scale;
+        }
+
+        int farthest = 0;
+        float farthestDistance = -1;
+        for (int i = 1; i < numCorners; i++) {
+            float dx = xs[i] - xs[0];
+            float dy = ys[i] - ys[0];
+            float distance = dx * dx + dy * dy;
+            if (distance > farthestDistance) {
+                farthest = i;
+                farthestDistance = distance;
+            }
+        }
+
+        boolean[] keep = new boolean[numCorners];
+        keep[0] = true;
+        keep[farthest] = true;
+        simplifyChain(xs, ys, 0, farthest, keep);
+        simplifyChain(xs, ys, farthest, numCorners, keep);
+
+        ArrayList<Vector2> obstacle = new ArrayList<>();
+        float twice = 0;
+        int previous = -1;
+        int firstKept = -1;
+        for (int i = 0; i < numCorners; i++) {
+            if (!keep[i]) continue;
+
+            obstacle.add(new Vector2(xs[i], ys[i]));
+            if (previous >= 0) {
+                twice += xs[previous] * ys[i] - xs[i] * ys[previous];
+            } else {
+                firstKept = i;
+            }
+            previous = i;
+        }
+        twice += xs[previous] * ys[firstKept] - xs[firstKept] * ys[previous];
+
+        if (obstacle.size() < 3 || twice <= 0) {
+            obstacle.clear();
+            for (int i = 0; i < numCorners; i++) {
+                obstacle.add(new Vector2(xs[i], ys[i]));
+            }
+        }
+
+        return obstacle;
+    }
+
+    /**
+     * Private helper method to mark the corners of a chain of an outline
+     * which its Douglas-Peucker simplification keeps. The chain runs from
+     * corner first to corner last (which may be the number of corners,
+     * standing for corner 0). Ranges are kept on a stack rather than
+     * recursed into, since traced outlines can have thousands of corners.
+     */
+    private void simplifyChain(float[] xs, float[] ys, int first, int last, boolean[] keep) {
+        int numCorners = xs.length;
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = first;
+        stack[size++] = last;
+
+        while (size > 0) {
+            int end = stack[--size];
+            int begin = stack[--size];
+            if (end - begin < 2) continue;
+
+            float ax = xs[begin];
+            float ay = ys[begin];
+            float bx = xs[end % numCorners];
+            float by = ys[end % numCorners];
+            float dx = bx - ax;
+            float dy = by - ay;
+            float length = (float) Math.sqrt(dx * dx + dy * dy);
+
+            int farthest = -1;
+            float farthestDistance = tolerance;
+            for (int i = begin + 1; i < end; i++) {
+                float px = xs[i] - ax;
+                float py = ys[i] - ay;
+                float distance = length > 0
+                        ? Math.abs(dx * py - dy * px) / length
+                        : (float) Math.sqrt(px * px + py * py);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest < 0) continue;
+
+            keep[farthest] = true;
+            if (size + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+            stack[size++] = begin;
+            stack[size++] = farthest;
+            stack[size++] = farthest;
+            stack[size++] = end;
+        }
+    }
+
+    private static boolean isOccupied(
+            boolean[] occupied,
+            int width,
+            int height,
+            int x,
+            int y)
+    {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+
+        // Rows are stored from the top of the image, y counts from the bottom
+        return occupied[(height - 1 - y) * width + x];
+    }
+
+    /**
+     * Helper inner class used to collect the corners of a traced outline as
+     * lattice points, in an array which grows as needed.
+     */
+    private static final class Outline {
+
+        int[] points = new int[64]; // x and y of each corner
+        int size;
+
+        void add(int x, int y) {
+            if (2 * size + 2 > points.length) {
+                points = Arrays.copyOf(points, 2 * points.length);
+            }
+            points[2 * size] = x;
+            points[2 * size + 1] = y;
+            size++;
+        }
+
+        /**
+         * Get the signed area in pixels (positive if counter-clockwise).
+         */
+        float area() {
+            long twice = 0;
+            for (int i = 0; i < size; i++) {
+                int j = (i + 1) % size;
+                twice += (long) points[2 * i] * points[2 * j + 1]
+                        - (long) points[2 * j] * points[2 * i + 1];
+            }
+
+            return twice / 2f;
+        }
+    }
+}
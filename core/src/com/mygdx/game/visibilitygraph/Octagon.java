@@ -43,48 +43,31 @@ public class Octagon {
 
     /**
      * Set the Octagon vertices based on the octagons position and radius.
+     * The vertex list and its vectors are updated in place, so this does not
+     * allocate after construction.
      */
     public void set() {
 
-        vertices = new ArrayList<>();
-        ArrayList<Vector2> midpoints = new ArrayList<>();
-        ArrayList<VectorFormLine> edgeLines = new ArrayList<>();
-
-
-        // Find midpoints of octagon edges
-        for (int i = 0; i <= 315; i += 45) {
-            double theta = Math.toRadians(i);
-            midpoints.add(
-                    new Vector2(
-                            (float) (position.x + Math.cos(theta) * radius),
-                            (float) (position.y + Math.sin(theta) * radius)
-                    )
-            );
-        }
-
-
-        // Create edge lines
-        for (int i = 0; i < 8; i++) {
-            Vector2 a = new Vector2(midpoints.get(i));
-
-            Vector2 temp = new Vector2(a);
-            temp.sub(position);
-            Vector2 v = new Vector2(temp.y, -temp.x);
-
-            edgeLines.add(new VectorFormLine(a, v));
+        if (vertices == null) {
+            vertices = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                vertices.add(new Vector2());
+            }
         }
 
-        // Find intersections between adjacent edge lines (yielding obstacle
-        // vertices)
+        /*
+         * Each edge is tangent to the inner circle at the midpoint at angle
+         * 45 * i degrees. Adjacent edge lines intersect halfway between their
+         * midpoints, at angle 45 * i + 22.5 degrees and distance
+         * radius / cos(22.5 degrees) from the position.
+         */
+        double outerRadius = radius / Math.cos(Math.toRadians(22.5));
         for (int i = 0; i < 8; i++) {
-            VectorFormLine a = edgeLines.get(i);
-            VectorFormLine b = edgeLines.get((i + 1) % 8);
-
-            try {
-                vertices.add(a.intersect(b));
-            } catch (VectorFormLine.ParallelLineException e) {
-                System.err.println(e.getMessage());
-            }
+            double theta = Math.toRadians(45 * i + 22.5);
+            vertices.get(i).set(
+                    (float) (position.x + Math.cos(theta) * outerRadius),
+                    (float) (position.y + Math.sin(theta) * outerRadius)
+            );
         }
     }
 
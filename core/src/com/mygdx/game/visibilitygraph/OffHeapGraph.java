@@ -0,0 +1,358 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Visibility graph whose vertex coordinates, adjacency and edge weights are
+ * stored off the Java heap in direct {@link ByteBuffer}s, for maps with
+ * millions of edges. A {@link VisibilityGraph} keeps a {@link VGEdge} per
+ * edge and a {@link VGVertex} and {@link Vector2} per vertex, which fill the
+ * heap and make full garbage collections take seconds. Here, the edges are
+ * kept in compressed sparse row form: the neighbors of vertex v are the
+ * entries from offset[v] to offset[v + 1] of flat target and weight arrays,
+ * taking 8 bytes per direction of an edge. Only the packed obstacle edges,
+ * which grow linearly with the map, stay on the heap for testing the edges
+ * of query points.
+ * <p>
+ * The graph is built once and then only read, so several threads may search
+ * it at once. Searches use the {@link VGGraphView} contract, and find the
+ * same paths as {@link VisibilityGraph#findPath}. The off-heap memory is
+ * released by {@link #close()} (or otherwise only once the graph has been
+ * garbage collected), after which the graph must not be used; in
+ * particular, it must not be closed while a search is running.
+ */
+public class OffHeapGraph implements VGGraphView, PathPlanner, AutoCloseable {
+
+    private static final int STARTPOINT = 0;
+    private static final int ENDPOINT = 1;
+
+    private final int numVertices;
+    private final long numEdges;
+    private final VGEdgeBatch obstacleBatch;
+
+    private ByteBuffer coordinateBuffer;
+    private ByteBuffer offsetBuffer;
+    private ByteBuffer targetBuffer;
+    private ByteBuffer weightBuffer;
+    private FloatBuffer coordinates; // x and y of each vertex
+    private IntBuffer offsets;       // first neighbor entry of each vertex
+    private IntBuffer targets;       // neighbor IDs
+    private FloatBuffer weights;     // edge weights
+
+    /**
+     * Construct an Off Heap Graph. Vertex pairs are tested like those of a
+     * {@link VisibilityGraph}, in O(n^2 * e) time for n vertices and e
+     * obstacle edges, and the edges found are written off-heap as they are
+     * found.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     */
+    public OffHeapGraph(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        // Vertex objects are only needed while building
+        ArrayList<VGVertex> vertices = new ArrayList<>();
+        vertices.add(new VGVertex(new Vector2(), VGVertex.NO_GROUP)); // START
+        vertices.add(new VGVertex(new Vector2(), VGVertex.NO_GROUP)); // END
+
+        ArrayList<VGEdge> obstacleEdges = new ArrayList<>();
+        for (int i = 0; i < obstacles.size(); i++) {
+            VGObstacle obstacle = new VGObstacle(i, obstacles.get(i), agentRadius);
+            obstacleEdges.addAll(obstacle.getEdges());
+            vertices.addAll(obstacle.getVertices());
+        }
+
+        numVertices = vertices.size();
+        for (int i = 0; i < numVertices; i++) {
+            vertices.get(i).ID = i;
+        }
+        obstacleBatch = new VGEdgeBatch();
+        obstacleBatch.set(obstacleEdges);
+
+        // Collect edges as pairs of vertex IDs, counting the degrees
+        int[] degrees = new int[numVertices];
+        PairList pairs = new PairList();
+        try {
+            for (int k = 0; k < obstacleEdges.size(); k++) {
+                VGEdge edge = obstacleEdges.get(k);
+                pairs.add(edge.a.ID, edge.b.ID, degrees);
+            }
+
+            for (int i = ENDPOINT + 1; i < numVertices; i++) {
+                VGVertex center = vertices.get(i);
+                for (int j = i + 1; j < numVertices; j++) {
+                    VGVertex vertex = vertices.get(j);
+
+                    // Pairs of one obstacle are connected by its own edges,
+                    // or across a notch if it is concave
+                    if (!VGObstacle.mayConnect(center, vertex)) continue;
+
+                    if (!obstacleBatch.intersectsAny(center, vertex)) {
+                        pairs.add(i, j, degrees);
+                    }
+                }
+            }
+
+            numEdges = pairs.size();
+
+            coordinateBuffer = allocate(8L * numVertices);
+            offsetBuffer = allocate(4L * (numVertices + 1));
+            targetBuffer = allocate(8L * numEdges);
+            weightBuffer = allocate(8L * numEdges);
+            coordinates = coordinateBuffer.asFloatBuffer();
+            offsets = offsetBuffer.asIntBuffer();
+            targets = targetBuffer.asIntBuffer();
+            weights = weightBuffer.asFloatBuffer();
+
+            for (int i = 0; i < numVertices; i++) {
+                Vector2 pos = vertices.get(i).pos;
+                coordinates.put(2 * i, pos.x);
+                coordinates.put(2 * i + 1, pos.y);
+            }
+
+            // Degrees become the next free entry of each vertex
+            int offset = 0;
+            for (int i = 0; i < numVertices; i++) {
+                offsets.put(i, offset);
+                int degree = degrees[i];
+                degrees[i] = offset;
+                offset += degree;
+            }
+            offsets.put(numVertices, offset);
+
+            for (int k = 0; k < numEdges; k++) {
+                int a = pairs.getA(k);
+                int b = pairs.getB(k);
+                float weight = vertices.get(a).pos.dst(vertices.get(b).pos);
+
+                targets.put(degrees[a], b);
+                weights.put(degrees[a]++, weight);
+                targets.put(degrees[b], a);
+                weights.put(degrees[b]++, weight);
+            }
+        } catch (RuntimeException | Error e) {
+            close();
+            throw e;
+        } finally {
+            pairs.free();
+        }
+    }
+
+    @Override
+    public int getVertexCount() {
+        return numVertices;
+    }
+
+    /**
+     * Get the number of edges of this graph, counting each edge once.
+     *
+     * @return the number of edges
+     */
+    public long getEdgeCount() {
+        return numEdges;
+    }
+
+    /**
+     * Get the number of bytes of off-heap memory used by this graph.
+     *
+     * @return the number of bytes (0 once closed)
+     */
+    public long getOffHeapBytes() {
+        if (coordinates == null) return 0;
+        return coordinateBuffer.capacity() + (long) offsetBuffer.capacity()
+                + targetBuffer.capacity() + weightBuffer.capacity();
+    }
+
+    @Override
+    public float getX(int vertex) {
+        return coordinates.get(2 * vertex);
+    }
+
+    @Override
+    public float getY(int vertex) {
+        return coordinates.get(2 * vertex + 1);
+    }
+
+    @Override
+    public int getNeighborCount(int vertex) {
+        return offsets.get(vertex + 1) - offsets.get(vertex);
+    }
+
+    @Override
+    public int getNeighbor(int vertex, int index) {
+        return targets.get(offsets.get(vertex) + index);
+    }
+
+    @Override
+    public float getWeight(int vertex, int index) {
+        return weights.get(offsets.get(vertex) + index);
+    }
+
+    @Override
+    public ArrayList<Vector2> findPath(Vector2 startPoint, Vector2 endPoint) {
+        return findPath(startPoint, endPoint, null);
+    }
+
+    /**
+     * Find a path between two points with an A* search. Edges of the two
+     * points are tested as the search reaches them.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects (empty if there is
+     *         no path)
+     */
+    public ArrayList<Vector2> findPath(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            SearchStats stats)
+    {
+        if (coordinates == null) {
+            throw new IllegalStateException("Graph is closed");
+        }
+
+        VGVertex start = new VGVertex(new Vector2(startPoint), VGVertex.NO_GROUP);
+        VGVertex end = new VGVertex(new Vector2(endPoint), VGVertex.NO_GROUP);
+        start.ID = STARTPOINT;
+        end.ID = ENDPOINT;
+
+        ArrayList<Vector2> destPoints = new ArrayList<>();
+        VGPathSearch.get().aStarOnView(
+                this, start, end, obstacleBatch, stats, destPoints
+        );
+        return destPoints;
+    }
+
+    /**
+     * Release the off-heap memory of this graph. Calling this more than once
+     * has no effect.
+     */
+    @Override
+    public void close() {
+        coordinates = null;
+        offsets = null;
+        targets = null;
+        weights = null;
+
+        free(coordinateBuffer);
+        free(offsetBuffer);
+        free(targetBuffer);
+        free(weightBuffer);
+        coordinateBuffer = null;
+        offsetBuffer = null;
+        targetBuffer = null;
+        weightBuffer = null;
+    }
+
+    /**
+     * Private helper method to allocate a direct buffer in native byte order.
+     */
+    private static ByteBuffer allocate(long bytes) {
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Private helper method to release the memory of a direct buffer at once.
+     * The JDK only offers this through internal classes, so if they cannot
+     * be reached, the memory is released when the buffer is collected.
+     */
+    private static void free(ByteBuffer buffer) {
+        if (buffer == null) return;
+
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod(
+                    "invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not available, try the Java 8 way
+        }
+
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Left to the garbage collector
+        }
+    }
+
+    /**
+     * Helper inner class used to collect the edges of a graph being built as
+     * pairs of vertex IDs, in a direct buffer which grows as needed. The
+     * pairs take 8 bytes per edge, as many as the finished adjacency, so the
+     * buffer is limited to the same number of edges.
+     */
+    private static final class PairList {
+
+        private ByteBuffer buffer = allocate(8 * 1024);
+        private IntBuffer pairs = buffer.asIntBuffer();
+        private int size;
+
+        /**
+         * Append an edge, counting it in the degrees of both vertices.
+         */
+        void add(int a, int b, int[] degrees) {
+            if (2 * size == pairs.capacity()) {
+                long bytes = 2L * buffer.capacity();
+                if (bytes > Integer.MAX_VALUE) {
+                    throw new IllegalStateException(
+                            "Too many edges for one buffer: " + size);
+                }
+
+                ByteBuffer grown = allocate(bytes);
+                buffer.clear();
+                grown.put(buffer);
+                grown.clear();
+                OffHeapGraph.free(buffer);
+                buffer = grown;
+                pairs = grown.asIntBuffer();
+            }
+
+            pairs.put(2 * size, a);
+            pairs.put(2 * size + 1, b);
+            size++;
+            degrees[a]++;
+            degrees[b]++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int getA(int pair) {
+            return pairs.get(2 * pair);
+        }
+
+        int getB(int pair) {
+            return pairs.get(2 * pair + 1);
+        }
+
+        void free() {
+            OffHeapGraph.free(buffer);
+            buffer = null;
+            pairs = null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+
+/**
+ * Common interface of the path finding engines, so that callers can pick an
+ * engine per map. A planner is built once for a set of obstacles and then
+ * answers queries between arbitrary points.
+ */
+public interface PathPlanner {
+
+    /**
+     * Find a path between two points. This returns a list of destination
+     * points to get to the end point from the start point, in the same form
+     * as {@link VisibilityGraph#aStar()}.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects (empty if there is
+     *         no path)
+     */
+    ArrayList<Vector2> findPath(Vector2 startPoint, Vector2 endPoint);
+}
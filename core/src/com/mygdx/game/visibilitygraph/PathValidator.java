@@ -0,0 +1,352 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks whether a path found before some obstacles changed is still usable,
+ * so that a new search is only needed when it is. Only the changed obstacles
+ * are tested, each given by its shape before and after the change (an added
+ * or removed obstacle has only one of them).
+ * <p>
+ * The path is <i>valid</i> if it does not touch or enter any of the new
+ * shapes. Bounding boxes of the path, of its segments and of the shapes
+ * reject most pairs before segments are tested against obstacle edges.
+ * <p>
+ * The path may have become <i>suboptimal</i> only if an obstacle was removed
+ * from where it might have blocked a shorter path. A path of length L is
+ * shorter than the current path only if it lies within the ellipse of points
+ * whose distances to the start and end point add up to less than L, so a
+ * shorter path can only have been opened up by an old shape intersecting
+ * that ellipse. Adding obstacles never shortens paths, so new shapes need
+ * not be considered. Old shapes are rejected by bounding circles first and
+ * otherwise tested edge by edge. The answer errs on the safe side: if
+ * neither is reported, the path is still a shortest path.
+ * <p>
+ * Shapes are grown by the agent radius like those of a
+ * {@link VisibilityGraph}. A validator reuses its buffers and its
+ * {@link Result}, so it must not be used from several threads at once.
+ */
+public class PathValidator {
+
+    private static final float EPSILON = 0.0005f;
+    private static final double GOLDEN_RATIO = (Math.sqrt(5) - 1) / 2;
+    private static final int GOLDEN_SECTION_STEPS = 40;
+
+    private final float agentRadius;
+    private VGObstacle obstacle;
+    private final Result result = new Result();
+
+    /**
+     * Outcome of a validation. It is reused by the validator, so it must not
+     * be used after the next validation.
+     */
+    public static class Result {
+
+        private boolean valid;
+        private boolean possiblySuboptimal;
+        private int segmentTests;
+
+        /**
+         * Get whether the path avoids all new shapes.
+         *
+         * @return whether the path can still be followed
+         */
+        public boolean isValid() {
+            return valid;
+        }
+
+        /**
+         * Get whether a shorter path may exist now.
+         *
+         * @return whether an old shape was close enough to the path
+         */
+        public boolean isPossiblySuboptimal() {
+            return possiblySuboptimal;
+        }
+
+        /**
+         * Get whether the path must be searched again to be a shortest path.
+         *
+         * @return whether the path is invalid or possibly suboptimal
+         */
+        public boolean needsReplanning() {
+            return !valid || possiblySuboptimal;
+        }
+
+        /**
+         * Get the number of segment pairs tested exactly, after the bounding
+         * box tests.
+         *
+         * @return the number of exact segment tests
+         */
+        public int getSegmentTests() {
+            return segmentTests;
+        }
+    }
+
+    /**
+     * Construct a Path Validator.
+     *
+     * @param agentRadius radius of navigating agent
+     */
+    public PathValidator(float agentRadius) {
+        this.agentRadius = agentRadius;
+    }
+
+    /**
+     * Validate a path against changed obstacles.
+     *
+     * @param startPoint starting point of the path
+     * @param path the waypoints after the start point (empty if there was
+     *             no path, which may have become suboptimal but is valid)
+     * @param oldShapes shapes of the changed obstacles before the change
+     *                  (vertex arrays like those of a {@link VisibilityGraph})
+     * @param newShapes shapes of the changed obstacles after the change
+     *
+     * @return the {@link Result}
+     */
+    public Result validate(
+            Vector2 startPoint,
+            List<Vector2> path,
+            List<? extends List<Vector2>> oldShapes,
+            List<? extends List<Vector2>> newShapes)
+    {
+        result.valid = true;
+        result.possiblySuboptimal = false;
+        result.segmentTests = 0;
+
+        // No path is an infinitely long one, which any removal may shorten
+        if (path.isEmpty()) {
+            result.possiblySuboptimal = !oldShapes.isEmpty();
+            return result;
+        }
+
+        float length = 0;
+        float pathMinX = startPoint.x;
+        float pathMaxX = startPoint.x;
+        float pathMinY = startPoint.y;
+        float pathMaxY = startPoint.y;
+        Vector2 previous = startPoint;
+        for (int i = 0; i < path.size(); i++) {
+            Vector2 point = path.get(i);
+            length += previous.dst(point);
+            pathMinX = Math.min(pathMinX, point.x);
+            pathMaxX = Math.max(pathMaxX, point.x);
+            pathMinY = Math.min(pathMinY, point.y);
+            pathMaxY = Math.max(pathMaxY, point.y);
+            previous = point;
+        }
+        Vector2 endPoint = path.get(path.size() - 1);
+
+        for (int k = 0; k < oldShapes.size(); k++) {
+            List<Vector2> shape = oldShapes.get(k);
+            if (shape.size() < 3) continue;
+            load(shape);
+
+            if (mayIntersectEllipse(startPoint, endPoint, length)) {
+                result.possiblySuboptimal = true;
+                break;
+            }
+        }
+
+        for (int k = 0; k < newShapes.size(); k++) {
+            List<Vector2> shape = newShapes.get(k);
+            if (shape.size() < 3) continue;
+            load(shape);
+
+            if (blocks(startPoint, path, pathMinX, pathMaxX, pathMinY, pathMaxY)) {
+                result.valid = false;
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Private helper method to grow a shape into the reused obstacle.
+     */
+    private void load(List<Vector2> shape) {
+        if (obstacle == null) {
+            obstacle = new VGObstacle(0, shape, agentRadius);
+        } else {
+            obstacle.set(shape, agentRadius);
+        }
+    }
+
+    /**
+     * Private helper method to get whether the bounding circle of the current
+     * obstacle intersects the ellipse of points whose distances to the start
+     * and end point add up to less than the length.
+     */
+    private boolean mayIntersectEllipse(Vector2 startPoint, Vector2 endPoint, float length) {
+        ArrayList<VGVertex> vertices = obstacle.getVertices();
+        int n = vertices.size();
+
+        float centerX = 0;
+        float centerY = 0;
+        for (int i = 0; i < n; i++) {
+            centerX += vertices.get(i).pos.x;
+            centerY += vertices.get(i).pos.y;
+        }
+        centerX /= n;
+        centerY /= n;
+
+        float radius = 0;
+        for (int i = 0; i < n; i++) {
+            Vector2 pos = vertices.get(i).pos;
+            radius = Math.max(radius, Vector2.dst(centerX, centerY, pos.x, pos.y));
+        }
+
+        // No point of the circle is closer to both foci than this
+        float closest = Vector2.dst(centerX, centerY, startPoint.x, startPoint.y)
+                + Vector2.dst(centerX, centerY, endPoint.x, endPoint.y)
+                - 2 * radius;
+        if (closest >= length + EPSILON) return false;
+
+        // The circle may be much larger than the shape, so find the point of
+        // the shape closest to both foci. The segment between the foci is
+        // closest of all; otherwise, the closest point lies on an edge.
+        if (contains(vertices, startPoint.x, startPoint.y)) return true;
+        ArrayList<VGEdge> edges = obstacle.getEdges();
+        for (int k = 0; k < edges.size(); k++) {
+            VGEdge edge = edges.get(k);
+            if (VGEdge.segmentsIntersect(startPoint.x, startPoint.y, endPoint.x, endPoint.y,
+                    edge.a.pos.x, edge.a.pos.y, edge.b.pos.x, edge.b.pos.y)) {
+                return true;
+            }
+        }
+        for (int k = 0; k < edges.size(); k++) {
+            VGEdge edge = edges.get(k);
+            if (focalDistance(edge, startPoint, endPoint) < length + EPSILON) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Private helper method to get the smallest sum of the distances of a
+     * point of an edge to both foci. The sum is convex along the edge, so a
+     * golden section search finds its minimum.
+     */
+    private static float focalDistance(VGEdge edge, Vector2 startPoint, Vector2 endPoint) {
+        double ax = edge.a.pos.x;
+        double ay = edge.a.pos.y;
+        double dx = edge.b.pos.x - ax;
+        double dy = edge.b.pos.y - ay;
+
+        double low = 0;
+        double high = 1;
+        for (int i = 0; i < GOLDEN_SECTION_STEPS; i++) {
+            double t1 = high - GOLDEN_RATIO * (high - low);
+            double t2 = low + GOLDEN_RATIO * (high - low);
+            if (focalDistance(ax + t1 * dx, ay + t1 * dy, startPoint, endPoint)
+                    <= focalDistance(ax + t2 * dx, ay + t2 * dy, startPoint, endPoint)) {
+                high = t2;
+            } else {
+                low = t1;
+            }
+        }
+
+        // The search narrows down on the minimum from within, so allow for
+        // the remaining interval
+        double t = (low + high) / 2;
+        double slack = (high - low) * Math.sqrt(dx * dx + dy * dy) * 2;
+        return (float) (focalDistance(ax + t * dx, ay + t * dy, startPoint, endPoint) - slack);
+    }
+
+    private static double focalDistance(double x, double y, Vector2 startPoint, Vector2 endPoint) {
+        return Math.hypot(x - startPoint.x, y - startPoint.y)
+                + Math.hypot(x - endPoint.x, y - endPoint.y);
+    }
+
+    /**
+     * Private helper method to get whether the path touches or enters the
+     * current obstacle.
+     */
+    private boolean blocks(
+            Vector2 startPoint,
+            List<Vector2> path,
+            float pathMinX,
+            float pathMaxX,
+            float pathMinY,
+            float pathMaxY)
+    {
+        ArrayList<VGEdge> edges = obstacle.getEdges();
+        ArrayList<VGVertex> vertices = obstacle.getVertices();
+
+        float minX = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < vertices.size(); i++) {
+            Vector2 pos = vertices.get(i).pos;
+            minX = Math.min(minX, pos.x);
+            maxX = Math.max(maxX, pos.x);
+            minY = Math.min(minY, pos.y);
+            maxY = Math.max(maxY, pos.y);
+        }
+        minX -= EPSILON;
+        maxX += EPSILON;
+        minY -= EPSILON;
+        maxY += EPSILON;
+
+        if (maxX < pathMinX || minX > pathMaxX
+                || maxY < pathMinY || minY > pathMaxY) {
+            return false;
+        }
+
+        Vector2 previous = startPoint;
+        for (int i = 0; i < path.size(); i++) {
+            Vector2 point = path.get(i);
+            float ax = previous.x;
+            float ay = previous.y;
+            previous = point;
+
+            if (Math.max(ax, point.x) < minX || Math.min(ax, point.x) > maxX
+                    || Math.max(ay, point.y) < minY || Math.min(ay, point.y) > maxY) {
+                continue;
+            }
+
+            for (int k = 0; k < edges.size(); k++) {
+                VGEdge edge = edges.get(k);
+                result.segmentTests++;
+                if (VGEdge.segmentsIntersect(ax, ay, point.x, point.y,
+                        edge.a.pos.x, edge.a.pos.y, edge.b.pos.x, edge.b.pos.y)) {
+                    return true;
+                }
+            }
+
+            // A segment crossing no edge lies entirely inside or outside
+            if (contains(vertices, ax, ay)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Private helper method to get whether a point lies inside a polygon, by
+     * counting the edges crossed by a ray in positive x direction.
+     */
+    private static boolean contains(ArrayList<VGVertex> vertices, float x, float y) {
+        boolean inside = false;
+        int n = vertices.size();
+        Vector2 previous = vertices.get(n - 1).pos;
+        for (int i = 0; i < n; i++) {
+            Vector2 current = vertices.get(i).pos;
+            if ((current.y > y) != (previous.y > y)) {
+                float crossX = current.x + (y - current.y)
+                        * (previous.x - current.x) / (previous.y - current.y);
+                if (x < crossX) inside = !inside;
+            }
+            previous = current;
+        }
+
+        return inside;
+    }
+}
@@ -0,0 +1,237 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link PathPlanner} which builds a visibility graph per query from only
+ * the obstacles near the start and end point, so that a short query on a
+ * huge map only pays for its neighborhood.
+ * <p>
+ * A path of length at most L lies entirely within the ellipse of points
+ * whose distances to the start and end point add up to at most L. A query
+ * starts with a bound L somewhat longer than the straight line, builds a
+ * graph of the obstacles which may intersect that ellipse, and searches it.
+ * If the path found is no longer than L, it avoids all other obstacles too,
+ * since they lie outside the ellipse, and no path can be shorter, since
+ * adding obstacles never shortens paths. The path is then optimal for the
+ * whole map. If there is no path, there is none on the whole map either,
+ * since adding obstacles never creates paths. Otherwise, the bound grows to
+ * at least the length of the path found and the query is repeated, until
+ * the path fits or all obstacles are included.
+ * <p>
+ * Obstacles are tested with bounding circles around their grown shapes, so
+ * the selection is conservative, and are looked up in a uniform grid so
+ * that selection does not scan the whole map. A planner reuses its graph
+ * between queries, so it must not be used from several threads at once.
+ */
+public class QueryScopedPlanner implements PathPlanner {
+
+    // Initial bound relative to the straight line distance
+    private static final float INITIAL_SLACK = 1.25f;
+
+    private final List<? extends List<Vector2>> obstacles;
+    private final float agentRadius;
+    private final float[] radii;
+    private final ArrayList<VGVertex> centers;
+    private final VGVertexGrid grid;
+    private final float maxRadius;
+    private final float meanRadius;
+
+    private final VisibilityGraph graph;
+    private final ArrayList<List<Vector2>> selected;
+    private final ArrayList<Vector2> destPoints;
+    private int lastRounds;
+    private int lastObstacles;
+
+    /**
+     * Construct a Query Scoped Planner. Only bounding circles of the
+     * obstacles are computed, which takes O(n) time for n vertices.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order); the
+     *                  list is kept and must not change afterwards
+     * @param agentRadius radius of navigating agent
+     */
+    public QueryScopedPlanner(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        this.obstacles = obstacles;
+        this.agentRadius = agentRadius;
+
+        int numObstacles = obstacles.size();
+        radii = new float[numObstacles];
+        centers = new ArrayList<>(numObstacles);
+
+        float largest = 0;
+        float sum = 0;
+        for (int i = 0; i < numObstacles; i++) {
+            VGObstacle obstacle = new VGObstacle(i, obstacles.get(i), agentRadius);
+            ArrayList<VGVertex> vertices = obstacle.getVertices();
+
+            Vector2 center = new Vector2();
+            for (int j = 0; j < vertices.size(); j++) {
+                center.add(vertices.get(j).pos);
+            }
+            center.scl(1f / vertices.size());
+
+            float radius = 0;
+            for (int j = 0; j < vertices.size(); j++) {
+                radius = Math.max(radius, center.dst(vertices.get(j).pos));
+            }
+
+            VGVertex vertex = new VGVertex(center, i);
+            vertex.ID = i;
+            centers.add(vertex);
+            radii[i] = radius;
+            largest = Math.max(largest, radius);
+            sum += radius;
+        }
+        maxRadius = largest;
+        meanRadius = numObstacles == 0 ? 0 : sum / numObstacles;
+
+        grid = new VGVertexGrid();
+        grid.set(centers, 4 * maxRadius);
+
+        graph = new VisibilityGraph(
+                new Vector2(),
+                new Vector2(),
+                new ArrayList<ArrayList<Vector2>>(),
+                agentRadius
+        );
+        selected = new ArrayList<>();
+        destPoints = new ArrayList<>();
+    }
+
+    /**
+     * Get the number of graphs built by the last query.
+     *
+     * @return the number of rounds of the last query
+     */
+    public int getLastRounds() {
+        return lastRounds;
+    }
+
+    /**
+     * Get the number of obstacles in the last graph built by the last query.
+     *
+     * @return the number of obstacles included
+     */
+    public int getLastObstacles() {
+        return lastObstacles;
+    }
+
+    @Override
+    public ArrayList<Vector2> findPath(Vector2 startPoint, Vector2 endPoint) {
+        return findPath(startPoint, endPoint, null);
+    }
+
+    /**
+     * Find a path between two points, growing the region of obstacles
+     * considered until the path is provably optimal.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param stats statistics to record the searches in (may be null)
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects (empty if there is
+     *         no path)
+     */
+    public ArrayList<Vector2> findPath(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            SearchStats stats)
+    {
+        float distance = startPoint.dst(endPoint);
+        float bound = distance * INITIAL_SLACK + 2 * meanRadius;
+        lastRounds = 0;
+
+        while (true) {
+            boolean complete = select(startPoint, endPoint, bound);
+            lastRounds++;
+            lastObstacles = selected.size();
+
+            graph.rebuild(startPoint, endPoint, selected, agentRadius);
+            graph.aStar(VGHeuristic.EUCLIDEAN, stats, destPoints);
+
+            // More obstacles cannot open up a path
+            if (destPoints.isEmpty()) break;
+
+            float length = length(startPoint, destPoints);
+            if (length <= bound || complete) break;
+
+            // A longer path may pass obstacles outside the region
+            bound = Math.max(length, bound * INITIAL_SLACK);
+        }
+
+        // Copy the points, since the graph is rebuilt by the next query
+        ArrayList<Vector2> path = new ArrayList<>(destPoints.size());
+        for (int i = 0; i < destPoints.size(); i++) {
+            path.add(new Vector2(destPoints.get(i)));
+        }
+        selected.clear();
+
+        return path;
+    }
+
+    /**
+     * Private helper method to select the obstacles which may intersect the
+     * ellipse of points whose distances to the start and end point add up
+     * to at most the bound.
+     *
+     * @return whether all obstacles were selected
+     */
+    private boolean select(Vector2 startPoint, Vector2 endPoint, float bound) {
+        selected.clear();
+
+        // Bounding box of the ellipse, grown by the largest obstacle radius
+        float a = bound / 2;
+        float c = startPoint.dst(endPoint) / 2;
+        float b = (float) Math.sqrt(Math.max(a * a - c * c, 0));
+        float cos = c > 0 ? (endPoint.x - startPoint.x) / (2 * c) : 1;
+        float sin = c > 0 ? (endPoint.y - startPoint.y) / (2 * c) : 0;
+        float halfWidth = (float) Math.sqrt(a * a * cos * cos + b * b * sin * sin);
+        float halfHeight = (float) Math.sqrt(a * a * sin * sin + b * b * cos * cos);
+        float midX = (startPoint.x + endPoint.x) / 2;
+        float midY = (startPoint.y + endPoint.y) / 2;
+
+        int column0 = grid.column(midX - halfWidth - maxRadius);
+        int column1 = grid.column(midX + halfWidth + maxRadius);
+        int row0 = grid.row(midY - halfHeight - maxRadius);
+        int row1 = grid.row(midY + halfHeight + maxRadius);
+        int columns = grid.getColumns();
+
+        for (int row = row0; row <= row1; row++) {
+            for (int column = column0; column <= column1; column++) {
+                int cell = row * columns + column;
+                int end = grid.cellEnd(cell);
+                for (int k = grid.cellStart(cell); k < end; k++) {
+                    int i = grid.vertexAt(k);
+                    Vector2 center = centers.get(i).pos;
+
+                    // No point of the circle is closer to both foci
+                    if (center.dst(startPoint) + center.dst(endPoint)
+                            - 2 * radii[i] <= bound) {
+                        selected.add(obstacles.get(i));
+                    }
+                }
+            }
+        }
+
+        return selected.size() == obstacles.size();
+    }
+
+    private static float length(Vector2 startPoint, ArrayList<Vector2> path) {
+        float length = 0;
+        Vector2 previous = startPoint;
+        for (int i = 0; i < path.size(); i++) {
+            length += previous.dst(path.get(i));
+            previous = path.get(i);
+        }
+
+        return length;
+    }
+}
@@ -0,0 +1,52 @@
+package com.mygdx.game.visibilitygraph;
+
+/**
+ * Collects statistics about a path search, such as the number of vertices
+ * expanded. This is used to compare search strategies.
+ */
+public class SearchStats {
+
+    private int expansions;
+    private int relaxations;
+
+    /**
+     * Reset all statistics to zero.
+     */
+    public void reset() {
+        expansions = 0;
+        relaxations = 0;
+    }
+
+    /**
+     * Get the number of vertices expanded (removed from the open set and
+     * having their neighbors examined).
+     *
+     * @return the number of expansions
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * Get the number of edges relaxed (neighbors whose cost was evaluated).
+     *
+     * @return the number of relaxations
+     */
+    public int getRelaxations() {
+        return relaxations;
+    }
+
+    /**
+     * Record the expansion of a vertex.
+     */
+    void addExpansion() {
+        expansions++;
+    }
+
+    /**
+     * Record the relaxation of an edge.
+     */
+    void addRelaxation() {
+        relaxations++;
+    }
+}
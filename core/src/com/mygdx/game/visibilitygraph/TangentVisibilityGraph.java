@@ -0,0 +1,361 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Class defining a tangent visibility graph for path finding in a 2D plane
+ * full of circular obstacles, represented exactly as {@link VGCircle}s.
+ * <p>
+ * A shortest path around circles consists of straight segments tangent to
+ * the circles it touches, joined by arcs along their boundaries. The graph
+ * therefore has a vertex for each tangent point, an edge for each
+ * unobstructed tangent segment (at most 4 between a pair of circles and 2
+ * between a point and a circle) and an arc edge between consecutive tangent
+ * points on each circle. Overlapping circles are not supported (arcs are not
+ * checked against other circles).
+ */
+public class TangentVisibilityGraph {
+
+    private static final float EPSILON = 0.0005f;
+
+    // Maximum angle between points returned along arcs
+    private static final float ARC_STEP = (float) Math.toRadians(10);
+
+    private final VGVertex startVertex;
+    private final VGVertex endVertex;
+    private final ArrayList<VGCircle> circles;
+    private final ArrayList<VGVertex> vertices;
+    private final ArrayList<VGEdge> tangentEdges;
+    private final ArrayList<VGArcEdge> arcEdges;
+    private final ArrayList<ArrayList<VGVertex>> circleVertices;
+
+    /**
+     * Construct a Tangent Visibility Graph.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param circles the circular obstacles
+     * @param agentRadius radius of navigating agent
+     */
+    public TangentVisibilityGraph(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            Collection<VGCircle> circles,
+            float agentRadius)
+    {
+        this.circles = new ArrayList<>();
+        circleVertices = new ArrayList<>();
+        for (VGCircle circle : circles) {
+            this.circles.add(circle.grow(agentRadius));
+            circleVertices.add(new ArrayList<>());
+        }
+
+        vertices = new ArrayList<>();
+        tangentEdges = new ArrayList<>();
+        arcEdges = new ArrayList<>();
+
+        startVertex = new VGVertex(startPoint, VGVertex.NO_GROUP);
+        endVertex = new VGVertex(endPoint, VGVertex.NO_GROUP);
+        startVertex.ID = 0;
+        endVertex.ID = 1;
+        vertices.add(startVertex);
+        vertices.add(endVertex);
+
+        if (isVisible(startPoint, endPoint, -1, -1)) {
+            addTangentEdge(startVertex, endVertex);
+        }
+
+        int n = this.circles.size();
+        for (int i = 0; i < n; i++) {
+            addPointTangents(startVertex, i);
+            addPointTangents(endVertex, i);
+        }
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                float r2 = this.circles.get(j).getRadius();
+                addBitangents(i, j, r2);  // Outer tangents
+                addBitangents(i, j, -r2); // Inner tangents
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            addArcs(i);
+        }
+
+        // Number edges like VisibilityGraph does (straight edges first)
+        for (int i = 0; i < tangentEdges.size(); i++) {
+            tangentEdges.get(i).ID = i;
+        }
+        for (int i = 0; i < arcEdges.size(); i++) {
+            arcEdges.get(i).ID = tangentEdges.size() + i;
+        }
+    }
+
+    /**
+     * Get start point of navigating agent.
+     *
+     * @return {@link Vector2} representing the agent start point
+     */
+    public Vector2 getStartPoint() {
+        return startVertex.pos;
+    }
+
+    /**
+     * Get end point of navigating agent.
+     *
+     * @return {@link Vector2} representing the agent end point
+     */
+    public Vector2 getEndPoint() {
+        return endVertex.pos;
+    }
+
+    /**
+     * Get the (grown) circular obstacles of this graph.
+     *
+     * @return {@link ArrayList} of {@link VGCircle} objects
+     */
+    public ArrayList<VGCircle> getCircles() {
+        return circles;
+    }
+
+    /**
+     * Get vertices of this graph.
+     *
+     * @return {@link ArrayList} of {@link VGVertex} objects
+     */
+    public ArrayList<VGVertex> getVertices() {
+        return vertices;
+    }
+
+    /**
+     * Get list of straight tangent edges in this graph.
+     *
+     * @return {@link ArrayList} of {@link VGEdge} objects
+     */
+    public ArrayList<VGEdge> getTangentEdges() {
+        return tangentEdges;
+    }
+
+    /**
+     * Get list of arc edges along the circle boundaries in this graph.
+     *
+     * @return {@link ArrayList} of {@link VGArcEdge} objects
+     */
+    public ArrayList<VGArcEdge> getArcEdges() {
+        return arcEdges;
+    }
+
+    /**
+     * Perform an A* search algorithm to find the shortest path between the
+     * start and end point of this graph. This returns a list of destination
+     * points to get to the end goal from the start point. Arcs are returned
+     * as a sequence of points along the circle boundary.
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects
+     */
+    public ArrayList<Vector2> aStar() {
+        return aStar(VGHeuristic.EUCLIDEAN, null);
+    }
+
+    /**
+     * Perform an A* search algorithm guided by the specified heuristic to find
+     * the shortest path between the start and end point of this graph.
+     *
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects
+     */
+    public ArrayList<Vector2> aStar(VGHeuristic heuristic, SearchStats stats) {
+        ArrayList<VGVertex> path = VGPathSearch.get().aStar(
+                vertices,
+                startVertex,
+                endVertex,
+                heuristic,
+                stats
+        );
+
+        ArrayList<Vector2> destPoints = new ArrayList<>();
+        for (int i = 1; i < path.size(); i++) {
+            VGVertex prev = path.get(i - 1);
+            VGVertex curr = path.get(i);
+
+            VGEdge edge = shortestEdge(prev, curr);
+            if (edge instanceof VGArcEdge) {
+                destPoints.addAll(
+                        ((VGArcEdge) edge).getPointsFrom(prev, ARC_STEP)
+                );
+            }
+            destPoints.add(curr.pos);
+        }
+        path.clear();
+
+        return destPoints;
+    }
+
+    /**
+     * Private helper method to add the tangents from a point to a circle.
+     *
+     * @param point the vertex of the point
+     * @param index index of the circle
+     */
+    private void addPointTangents(VGVertex point, int index) {
+        VGCircle circle = circles.get(index);
+        Vector2 c = circle.getCenter();
+        float r = circle.getRadius();
+
+        float d = point.pos.dst(c);
+        if (d <= r) return; // Point lies inside circle
+
+        double base = Math.atan2(point.pos.y - c.y, point.pos.x - c.x);
+        double alpha = Math.acos(r / d);
+
+        for (int sign = -1; sign <= 1; sign += 2) {
+            double theta = base + sign * alpha;
+            Vector2 t = new Vector2(
+                    (float) (c.x + Math.cos(theta) * r),
+                    (float) (c.y + Math.sin(theta) * r)
+            );
+
+            if (isVisible(point.pos, t, index, -1)) {
+                addTangentEdge(point, addCircleVertex(index, t));
+            }
+        }
+    }
+
+    /**
+     * Private helper method to add the outer or inner bitangents between two
+     * circles. Using a signed radius for the second circle, the common
+     * unit normal n of a tangent satisfies n . (c2 - c1) = r1 - r2, which
+     * gives two solutions.
+     *
+     * @param i index of the first circle
+     * @param j index of the second circle
+     * @param r2 radius of the second circle (negated for inner tangents)
+     */
+    private void addBitangents(int i, int j, float r2) {
+        Vector2 c1 = circles.get(i).getCenter();
+        Vector2 c2 = circles.get(j).getCenter();
+        float r1 = circles.get(i).getRadius();
+
+        float dx = c2.x - c1.x;
+        float dy = c2.y - c1.y;
+        float d = (float) Math.sqrt(dx * dx + dy * dy);
+        if (d == 0f) return;
+
+        float vx = dx / d;
+        float vy = dy / d;
+        float c = (r1 - r2) / d;
+        if (c * c > 1f) return; // One circle contains or overlaps the other
+
+        float h = (float) Math.sqrt(Math.max(0f, 1f - c * c));
+        for (int sign = -1; sign <= 1; sign += 2) {
+            float nx = vx * c - sign * h * vy;
+            float ny = vy * c + sign * h * vx;
+
+            Vector2 p = new Vector2(c1.x + r1 * nx, c1.y + r1 * ny);
+            Vector2 q = new Vector2(c2.x + r2 * nx, c2.y + r2 * ny);
+
+            if (isVisible(p, q, i, j)) {
+                addTangentEdge(addCircleVertex(i, p), addCircleVertex(j, q));
+            }
+        }
+    }
+
+    /**
+     * Private helper method to connect consecutive tangent points on a
+     * circle with arc edges.
+     *
+     * @param index index of the circle
+     */
+    private void addArcs(int index) {
+        ArrayList<VGVertex> onCircle = circleVertices.get(index);
+        if (onCircle.size() < 2) return;
+
+        Vector2 c = circles.get(index).getCenter();
+        onCircle.sort(Comparator.comparingDouble(
+                v -> Math.atan2(v.pos.y - c.y, v.pos.x - c.x)
+        ));
+
+        for (int k = 0; k < onCircle.size(); k++) {
+            VGVertex a = onCircle.get(k);
+            VGVertex b = onCircle.get((k + 1) % onCircle.size());
+
+            VGArcEdge arc = new VGArcEdge(a, b, circles.get(index));
+            a.addNeighbor(b, arc);
+            b.addNeighbor(a, arc);
+            arcEdges.add(arc);
+        }
+    }
+
+    /**
+     * Private helper method to create a vertex for a tangent point.
+     *
+     * @param index index of the circle the point lies on
+     * @param pos position of the point
+     *
+     * @return the new {@link VGVertex}
+     */
+    private VGVertex addCircleVertex(int index, Vector2 pos) {
+        VGVertex vertex = new VGVertex(pos, index);
+        vertex.ID = vertices.size();
+        vertices.add(vertex);
+        circleVertices.get(index).add(vertex);
+        return vertex;
+    }
+
+    /**
+     * Private helper method to add a straight tangent edge.
+     */
+    private void addTangentEdge(VGVertex a, VGVertex b) {
+        VGEdge edge = new VGEdge(a, b, false);
+        a.addNeighbor(b, edge);
+        b.addNeighbor(a, edge);
+        tangentEdges.add(edge);
+    }
+
+    /**
+     * Private helper method to get whether the segment between two points is
+     * not blocked by any circle other than the ones it is tangent to.
+     *
+     * @param p start of the segment
+     * @param q end of the segment
+     * @param skipA index of a circle to skip (or -1)
+     * @param skipB index of another circle to skip (or -1)
+     *
+     * @return whether the segment is unobstructed
+     */
+    private boolean isVisible(Vector2 p, Vector2 q, int skipA, int skipB) {
+        for (int k = 0; k < circles.size(); k++) {
+            if (k == skipA || k == skipB) continue;
+            if (circles.get(k).blocks(p, q, EPSILON)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Private helper method to get the shortest edge between two adjacent
+     * vertices.
+     */
+    private static VGEdge shortestEdge(VGVertex a, VGVertex b) {
+        VGEdge best = null;
+        ArrayList<VGVertex> adjacentVertices = a.getAdjacentVertices();
+        ArrayList<VGEdge> incidentEdges = a.getIncidentEdges();
+
+        for (int j = 0; j < adjacentVertices.size(); j++) {
+            VGEdge edge = incidentEdges.get(j);
+            if (adjacentVertices.get(j) == b
+                    && (best == null || edge.weight < best.weight)) {
+                best = edge;
+            }
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,75 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+
+/**
+ * Defines a Visibility Graph Edge following the boundary of a
+ * {@link VGCircle} counter-clockwise from vertex A to vertex B. Its weight is
+ * the length of the arc rather than the straight line distance.
+ */
+public class VGArcEdge extends VGEdge {
+
+    public final Vector2 center;
+    public final float radius;
+    public final float startAngle; // angle of vertex A (in radians)
+    public final float sweep;      // counter-clockwise angle to vertex B
+
+    /**
+     * Construct a VGArcEdge.
+     *
+     * @param a vertex A of Edge
+     * @param b vertex B of Edge
+     * @param circle the circle whose boundary the edge follows
+     */
+    public VGArcEdge(VGVertex a, VGVertex b, VGCircle circle) {
+        super(a, b, true);
+        center = circle.getCenter();
+        radius = circle.getRadius();
+
+        startAngle = angleOf(a.pos);
+        float s = angleOf(b.pos) - startAngle;
+        if (s <= 0) s += (float) (2 * Math.PI);
+        sweep = s;
+
+        weight = radius * sweep;
+    }
+
+    /**
+     * Get points along this arc, spaced at most the specified angle apart,
+     * in the direction of travel starting at the specified vertex. The end
+     * points themselves are not included.
+     *
+     * @param from the vertex the arc is traversed from (A or B)
+     * @param maxAngle the maximum angle between points (in radians)
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects
+     */
+    public ArrayList<Vector2> getPointsFrom(VGVertex from, float maxAngle) {
+        int steps = (int) Math.ceil(sweep / maxAngle);
+        ArrayList<Vector2> points = new ArrayList<>();
+
+        for (int i = 1; i < steps; i++) {
+            float t = from == a ? i / (float) steps : 1f - i / (float) steps;
+            double theta = startAngle + sweep * t;
+            points.add(new Vector2(
+                    (float) (center.x + Math.cos(theta) * radius),
+                    (float) (center.y + Math.sin(theta) * radius)
+            ));
+        }
+
+        return points;
+    }
+
+    /**
+     * Private helper method to get the angle of a point on the circle.
+     *
+     * @param point the point to consider
+     *
+     * @return the angle (in radians)
+     */
+    private float angleOf(Vector2 point) {
+        return (float) Math.atan2(point.y - center.y, point.x - center.x);
+    }
+}
@@ -0,0 +1,87 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Defines a circular Visibility Graph Obstacle. Unlike a {@link VGObstacle}
+ * built from an {@link Octagon}, a circle is represented exactly, so paths
+ * around it are true shortest paths rather than approximations.
+ */
+public class VGCircle {
+
+    private final Vector2 center;
+    private final float radius;
+
+    /**
+     * Construct a Visibility Graph Circle.
+     *
+     * @param center the center of the circle
+     * @param radius the radius of the circle
+     */
+    public VGCircle(Vector2 center, float radius) {
+        this.center = center;
+        this.radius = radius;
+    }
+
+    /**
+     * Get the center of this circle.
+     *
+     * @return {@link Vector2} the center
+     */
+    public Vector2 getCenter() {
+        return center;
+    }
+
+    /**
+     * Get the radius of this circle.
+     *
+     * @return the radius
+     */
+    public float getRadius() {
+        return radius;
+    }
+
+    /**
+     * Get a copy of this circle grown by the specified value. This is used
+     * when the visibility graph needs to account for an agent with
+     * non-negligible area.
+     *
+     * @param value amount by which the circle should grow
+     *
+     * @return the grown {@link VGCircle}
+     */
+    public VGCircle grow(float value) {
+        if (value <= 0) return this;
+        return new VGCircle(new Vector2(center), radius + value);
+    }
+
+    /**
+     * Get whether the segment between the two points passes through the
+     * interior of this circle. Segments which only touch the circle are not
+     * considered to pass through it.
+     *
+     * @param p start of the segment
+     * @param q end of the segment
+     * @param epsilon tolerance for floating point error
+     *
+     * @return whether the segment is blocked by this circle
+     */
+    public boolean blocks(Vector2 p, Vector2 q, float epsilon) {
+        float dx = q.x - p.x;
+        float dy = q.y - p.y;
+        float len2 = dx * dx + dy * dy;
+
+        // Find closest point on segment to center
+        float t = 0f;
+        if (len2 > 0f) {
+            t = ((center.x - p.x) * dx + (center.y - p.y) * dy) / len2;
+            t = Math.max(0f, Math.min(1f, t));
+        }
+
+        float cx = p.x + t * dx - center.x;
+        float cy = p.y + t * dy - center.y;
+        float r = radius - epsilon;
+
+        return cx * cx + cy * cy < r * r;
+    }
+}
@@ -1,16 +1,19 @@
 package com.mygdx.game.visibilitygraph;
 
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.math.Vector4;
 
 /**
  * Defines a Visibility Graph Edge.
  */
 public class VGEdge {
 
-    // FIXME: DEBUG
-    private static int numInstances = 0;
-    public int ID;
+    private static final float EPSILON = 0.0005f;
+
+    /**
+     * Index of this edge within its graph. IDs are assigned by the graph
+     * owning the edge, so they are dense and start at zero for each graph.
+     */
+    public int ID = -1;
 
     public VGVertex a, b;
     public boolean isSolid;
@@ -28,10 +31,21 @@ public class VGEdge {
         this.b = b;
         this.isSolid = isSolid;
         weight = a.pos.dst(b.pos);
+    }
 
-        // FIXME: DEBUG
-        ID = numInstances;
-        numInstances++;
+    /**
+     * Reassign the vertices of this edge. This is used when a graph is
+     * rebuilt in place, so that edges can be reused instead of reallocated.
+     *
+     * @param a vertex A of Edge
+     * @param b vertex B of Edge
+     * @param isSolid whether this edge is solid
+     */
+    void set(VGVertex a, VGVertex b, boolean isSolid) {
+        this.a = a;
+        this.b = b;
+        this.isSolid = isSolid;
+        weight = a.pos.dst(b.pos);
     }
 
     /**
@@ -54,65 +68,74 @@ public class VGEdge {
      * @return whether the edges intersect
      */
     public boolean intersects(VGEdge edge) {
-        VectorFormLine line1 = getLine();
-        VectorFormLine line2 = edge.getLine();
-
-        // Get edge boundary lists
-        Bounds b1 = getBoundaries();
-        Bounds b2 = edge.getBoundaries();
-
-        if (line1.isEquivalentTo(line2)) {
-            // Check to see if edge segments overlap
-            return (
-                b1.includes(edge.a.pos)
-                || b1.includes(edge.b.pos)
-                || b2.includes(a.pos)
-                || b2.includes(b.pos)
-            );
-        }
-
-        try {
-            // Get point of intersection
-            Vector2 poi = line1.intersect(line2);
-
-            // Check to see if intersection is within boundaries of each edge
-            return b1.includes(poi) && b2.includes(poi);
-
-        } catch (VectorFormLine.ParallelLineException e) {
-            // Lines are non-equivalent parallel. No intersection.
-            return false;
-        }
+        return segmentsIntersect(
+                a.pos.x, a.pos.y, b.pos.x, b.pos.y,
+                edge.a.pos.x, edge.a.pos.y, edge.b.pos.x, edge.b.pos.y
+        );
     }
 
     /**
-     * Private helper method to get the boundaries in the bounding box of
-     * this edge.
+     * Get whether the segment from (ax, ay) to (bx, by) intersects the
+     * segment from (cx, cy) to (dx, dy). This works on plain coordinates and
+     * does not allocate, so it can be used in tight construction loops.
      *
-     * @return {@link Vector4} containing {x=X_MIN, y=X_MAX, z=Y_MIN, w=Y_MAX}
+     * @return whether the segments intersect
      */
-    private Bounds getBoundaries() {
-        return new Bounds(
-                Math.min(a.pos.x, b.pos.x),
-                Math.max(a.pos.x, b.pos.x),
-                Math.min(a.pos.y, b.pos.y),
-                Math.max(a.pos.y, b.pos.y)
-        );
+    static boolean segmentsIntersect(
+            float ax, float ay, float bx, float by,
+            float cx, float cy, float dx, float dy)
+    {
+        /*
+         * Writing each segment in vector form (see VectorFormLine), the
+         * segments a + s * r and c + t * u intersect at
+         *
+         *   s = [u.y (c.x - a.x) - u.x (c.y - a.y)] / (r.x * u.y - r.y * u.x)
+         *
+         * The point of intersection must then lie within the bounding boxes
+         * of both segments.
+         */
+        float rx = bx - ax;
+        float ry = by - ay;
+        float ux = dx - cx;
+        float uy = dy - cy;
+
+        float denom = rx * uy - ry * ux;
+
+        if (denom == 0f) {
+            // Parallel segments only intersect if they lie on the same line
+            // and overlap
+            float offset = (cx - ax) * ry - (cy - ay) * rx;
+            float length = (float) Math.sqrt(rx * rx + ry * ry);
+            if (Math.abs(offset) > EPSILON * length) return false;
+
+            return withinBounds(cx, cy, ax, ay, bx, by)
+                    || withinBounds(dx, dy, ax, ay, bx, by)
+                    || withinBounds(ax, ay, cx, cy, dx, dy)
+                    || withinBounds(bx, by, cx, cy, dx, dy);
+        }
+
+        float s = (uy * (cx - ax) - ux * (cy - ay)) / denom;
+        float px = ax + rx * s;
+        float py = ay + ry * s;
+
+        return withinBounds(px, py, ax, ay, bx, by)
+                && withinBounds(px, py, cx, cy, dx, dy);
     }
 
     /**
-     * Private helper method to get the line on which this edge exists.
+     * Private helper method to get whether a point lies within the bounding
+     * box of a segment, with tolerance for floating point error.
      *
-     * @return {@link VectorFormLine} the corresponding line
+     * @return whether the point lies within the bounds
      */
-    private VectorFormLine getLine() {
-        Vector2 startPoint = a.pos;
-        Vector2 direction =
-                new Vector2(
-                        b.pos.x - a.pos.x,
-                        b.pos.y - a.pos.y
-                );
-
-        return new VectorFormLine(startPoint, direction);
+    private static boolean withinBounds(
+            float px, float py,
+            float x0, float y0, float x1, float y1)
+    {
+        return px >= Math.min(x0, x1) - EPSILON
+                && px <= Math.max(x0, x1) + EPSILON
+                && py >= Math.min(y0, y1) - EPSILON
+                && py <= Math.max(y0, y1) + EPSILON;
     }
 
     /**
@@ -129,53 +152,4 @@ public class VGEdge {
         return p.add(r);
     }
 
-    /**
-     * Private helper inner class used to represent the boundaries of this edge.
-     */
-    private static class Bounds {
-
-        private static final float EPSILON = 0.0005f;
-
-        private final float xMin;
-        private final float xMax;
-        private final float yMin;
-        private final float yMax;
-
-        /**
-         * Construct a Bounds object.
-         *
-         * @param xMin minimum x value
-         * @param xMax maximum x value
-         * @param yMin minimum y value
-         * @param yMax maximum y value
-         */
-        public Bounds(float xMin, float xMax, float yMin, float yMax) {
-
-            // Add tolerance for floating point error
-            xMin -= EPSILON;
-            xMax += EPSILON;
-            yMin -= EPSILON;
-            yMax += EPSILON;
-
-            this.xMin = xMin;
-            this.xMax = xMax;
-            this.yMin = yMin;
-            this.yMax = yMax;
-        }
-
-        /**
-         * Get whether the point passed in can be found within these bounds.
-         *
-         * @param point the point to consider
-         *
-         * @return whether the point is present within these bounds.
-         */
-        public boolean includes(Vector2 point) {
-            return (
-                point.x >= xMin && point.x <= xMax    // Satisfies x bounds
-                && point.y >= yMin && point.y <= yMax // Satisfies y bounds
-            );
-        }
-    }
-
 }
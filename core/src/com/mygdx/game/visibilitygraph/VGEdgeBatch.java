@@ -0,0 +1,168 @@
+package com.mygdx.game.visibilitygraph;
+
+import java.util.ArrayList;
+
+/**
+ * Packed batch of edges for testing one segment against many edges at once.
+ * <p>
+ * The coordinates, direction vectors and padded bounding boxes of the edges
+ * are stored in parallel primitive arrays (structure of arrays) instead of
+ * being read through {@link VGEdge} and {@link VGVertex} objects. The test
+ * walks these arrays in fixed size blocks. A branch-free first pass over a
+ * block builds a bit mask of the edges whose bounding boxes overlap the
+ * segment's, and only those are tested exactly in a second pass. Most edges
+ * are rejected by the cheap first pass without a division or a mispredicted
+ * branch, and the test still returns early once an intersection is found.
+ * <p>
+ * The results are exactly those of {@link VGEdge#segmentsIntersect}, which
+ * is used for the rare parallel edges.
+ */
+public class VGEdgeBatch {
+
+    private static final float EPSILON = 0.0005f;
+
+    // Number of edges per block (at most the bits of an int mask)
+    private static final int BLOCK_SIZE = 16;
+
+    private int size;
+    private float[] startX = new float[0];
+    private float[] startY = new float[0];
+    private float[] endX = new float[0];
+    private float[] endY = new float[0];
+    private float[] dirX = new float[0];
+    private float[] dirY = new float[0];
+    private float[] minX = new float[0];
+    private float[] maxX = new float[0];
+    private float[] minY = new float[0];
+    private float[] maxY = new float[0];
+    private int[] vertexA = new int[0];
+    private int[] vertexB = new int[0];
+
+    /**
+     * Pack the specified edges into this batch, reusing its arrays where
+     * possible. The vertices of the edges must have their IDs assigned.
+     *
+     * @param edges the edges to pack
+     */
+    public void set(ArrayList<VGEdge> edges) {
+        size = edges.size();
+        if (startX.length < size) {
+            int capacity = Math.max(size, startX.length * 2);
+            startX = new float[capacity];
+            startY = new float[capacity];
+            endX = new float[capacity];
+            endY = new float[capacity];
+            dirX = new float[capacity];
+            dirY = new float[capacity];
+            minX = new float[capacity];
+            maxX = new float[capacity];
+            minY = new float[capacity];
+            maxY = new float[capacity];
+            vertexA = new int[capacity];
+            vertexB = new int[capacity];
+        }
+
+        for (int k = 0; k < size; k++) {
+            VGEdge edge = edges.get(k);
+            float ax = edge.a.pos.x;
+            float ay = edge.a.pos.y;
+            float bx = edge.b.pos.x;
+            float by = edge.b.pos.y;
+
+            startX[k] = ax;
+            startY[k] = ay;
+            endX[k] = bx;
+            endY[k] = by;
+            dirX[k] = bx - ax;
+            dirY[k] = by - ay;
+            minX[k] = Math.min(ax, bx) - EPSILON;
+            maxX[k] = Math.max(ax, bx) + EPSILON;
+            minY[k] = Math.min(ay, by) - EPSILON;
+            maxY[k] = Math.max(ay, by) + EPSILON;
+            vertexA[k] = edge.a.ID;
+            vertexB[k] = edge.b.ID;
+        }
+    }
+
+    /**
+     * Get the number of edges in this batch.
+     *
+     * @return the number of edges
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get whether the segment between two vertices intersects any edge of
+     * this batch. Edges incident to either vertex are skipped.
+     *
+     * @param p vertex at the start of the segment
+     * @param q vertex at the end of the segment
+     *
+     * @return whether the segment intersects an edge
+     */
+    public boolean intersectsAny(VGVertex p, VGVertex q) {
+        float px = p.pos.x;
+        float py = p.pos.y;
+        float qx = q.pos.x;
+        float qy = q.pos.y;
+        int pID = p.ID;
+        int qID = q.ID;
+
+        float rx = qx - px;
+        float ry = qy - py;
+        float segMinX = Math.min(px, qx) - EPSILON;
+        float segMaxX = Math.max(px, qx) + EPSILON;
+        float segMinY = Math.min(py, qy) - EPSILON;
+        float segMaxY = Math.max(py, qy) + EPSILON;
+
+        for (int block = 0; block < size; block += BLOCK_SIZE) {
+            int end = Math.min(block + BLOCK_SIZE, size);
+
+            // First pass: find the non-incident edges whose padded bounding
+            // boxes overlap the segment's, without branching
+            int candidates = 0;
+            for (int k = block; k < end; k++) {
+                boolean overlaps = minX[k] <= segMaxX & maxX[k] >= segMinX
+                        & minY[k] <= segMaxY & maxY[k] >= segMinY;
+                boolean incident = vertexA[k] == pID | vertexB[k] == pID
+                        | vertexA[k] == qID | vertexB[k] == qID;
+                candidates |= (overlaps & !incident ? 1 : 0) << (k - block);
+            }
+
+            // Second pass: exact test of the remaining candidates
+            while (candidates != 0) {
+                int k = block + Integer.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+
+                float ux = dirX[k];
+                float uy = dirY[k];
+                float denom = rx * uy - ry * ux;
+
+                if (denom == 0f) {
+                    if (VGEdge.segmentsIntersect(px, py, qx, qy,
+                            startX[k], startY[k], endX[k], endY[k])) {
+                        return true;
+                    }
+                    continue;
+                }
+
+                // Same formula as VGEdge.segmentsIntersect
+                float s = (uy * (startX[k] - px) - ux * (startY[k] - py))
+                        / denom;
+                float ix = px + rx * s;
+                float iy = py + ry * s;
+
+                if (ix >= segMinX && ix <= segMaxX
+                        && iy >= segMinY && iy <= segMaxY
+                        && ix >= minX[k] && ix <= maxX[k]
+                        && iy >= minY[k] && iy <= maxY[k]) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package com.mygdx.game.visibilitygraph;
+
+/**
+ * Read access to the vertices and adjacency of a graph by vertex ID. This is
+ * the contract the searches need, so that graphs can be searched whether
+ * they are stored as {@link VGVertex} and {@link VGEdge} objects (like a
+ * {@link VisibilityGraph}) or in flat off-heap buffers (like an
+ * {@link OffHeapGraph}).
+ * <p>
+ * Vertex IDs are dense and start at zero. IDs 0 and 1 are the start and end
+ * point of the graph, and are not used by searches between arbitrary
+ * points. IDs which are not in use (e.g. those of removed obstacles) have
+ * NaN coordinates and no neighbors.
+ */
+public interface VGGraphView {
+
+    /**
+     * Get the number of vertices of the graph.
+     *
+     * @return the number of vertices
+     */
+    int getVertexCount();
+
+    /**
+     * Get the x coordinate of a vertex.
+     *
+     * @param vertex ID of the vertex
+     *
+     * @return the x coordinate
+     */
+    float getX(int vertex);
+
+    /**
+     * Get the y coordinate of a vertex.
+     *
+     * @param vertex ID of the vertex
+     *
+     * @return the y coordinate
+     */
+    float getY(int vertex);
+
+    /**
+     * Get the number of neighbors of a vertex.
+     *
+     * @param vertex ID of the vertex
+     *
+     * @return the number of neighbors
+     */
+    int getNeighborCount(int vertex);
+
+    /**
+     * Get a neighbor of a vertex.
+     *
+     * @param vertex ID of the vertex
+     * @param index index of the neighbor, below
+     *              {@link #getNeighborCount(int)}
+     *
+     * @return ID of the neighboring vertex
+     */
+    int getNeighbor(int vertex, int index);
+
+    /**
+     * Get the weight of the edge to a neighbor of a vertex.
+     *
+     * @param vertex ID of the vertex
+     * @param index index of the neighbor, below
+     *              {@link #getNeighborCount(int)}
+     *
+     * @return the weight of the edge
+     */
+    float getWeight(int vertex, int index);
+}
@@ -0,0 +1,25 @@
+package com.mygdx.game.visibilitygraph;
+
+/**
+ * Defines a heuristic used by the A* search to estimate the remaining cost
+ * from a vertex to the goal. Implementations must never overestimate the
+ * length of the shortest path, otherwise the search may return suboptimal
+ * paths.
+ */
+public interface VGHeuristic {
+
+    /**
+     * Straight line distance between a vertex and the goal.
+     */
+    VGHeuristic EUCLIDEAN = (vertex, goal) -> vertex.pos.dst(goal.pos);
+
+    /**
+     * Estimate the cost of the shortest path from a vertex to the goal.
+     *
+     * @param vertex the vertex to estimate from
+     * @param goal the goal vertex
+     *
+     * @return a lower bound on the shortest path length
+     */
+    float estimate(VGVertex vertex, VGVertex goal);
+}
@@ -3,6 +3,7 @@ package com.mygdx.game.visibilitygraph;
 import com.badlogic.gdx.math.Vector2;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Defines a Visibility Graph Obstacle. A visibility graph is constructed
@@ -10,49 +11,76 @@ import java.util.ArrayList;
  */
 public class VGObstacle {
 
-
-    private static int numInstances = 0;
-
-    private int id;
+    private final int id;
     private ArrayList<VGVertex> vertices;
     private ArrayList<VGEdge> edges;
+    private boolean convex;
 
     /**
      * Construct a Visibility Graph Obstacle
      *
+     * @param id ID of the obstacle within its graph, which is also used as
+     *           the group ID of its vertices
      * @param vertices list of vectors defining the shape and position
      *                 of the obstacle
      * @param growthValue amount by which to expand obstacle shape
      *                    (this is used to account for agents which have
      *                    area)
      */
-    public VGObstacle(ArrayList<Vector2> vertices, float growthValue) {
-        numInstances++;
-        id = numInstances;
+    public VGObstacle(int id, List<Vector2> vertices, float growthValue) {
+        this.id = id;
         this.vertices = new ArrayList<>();
-        for (Vector2 curVec : vertices) {
-            VGVertex vertex = new VGVertex(curVec, id);
+        this.edges = new ArrayList<>();
+
+        set(vertices, growthValue);
+    }
+
+    /**
+     * Reshape this obstacle in place, reusing its vertex and edge objects
+     * where possible. This is used when a graph is rebuilt in place so that
+     * steady-state rebuilds do not allocate.
+     *
+     * @param vertices list of vectors defining the shape and position
+     *                 of the obstacle
+     * @param growthValue amount by which to expand obstacle shape
+     */
+    void set(List<Vector2> vertices, float growthValue) {
+        int n = vertices.size();
+
+        // Match the number of vertices and edges to the new shape
+        while (this.vertices.size() > n) {
+            this.vertices.remove(this.vertices.size() - 1);
+            edges.remove(edges.size() - 1);
+        }
+        while (this.vertices.size() < n) {
+            VGVertex vertex = new VGVertex(new Vector2(), id);
+            vertex.obstacle = this;
             this.vertices.add(vertex);
+            edges.add(new VGEdge(vertex, vertex, true));
         }
 
-        this.edges = new ArrayList<>();
-        VGVertex prevVertex = this.vertices.get(vertices.size() - 1);
-        for (VGVertex curVertex : this.vertices) {
+        for (int i = 0; i < n; i++) {
+            VGVertex vertex = this.vertices.get(i);
+            vertex.clearNeighbors();
+            grow(vertices, i, growthValue, vertex.pos);
+        }
 
-            // Create new edge
-            VGEdge newEdge = new VGEdge(prevVertex, curVertex, true);
+        VGVertex prevVertex = this.vertices.get(n - 1);
+        for (int i = 0; i < n; i++) {
+            VGVertex curVertex = this.vertices.get(i);
 
-            // Add edge to incident vertices
-            prevVertex.addNeighbor(curVertex, newEdge);
-            curVertex.addNeighbor(prevVertex, newEdge);
+            // Reuse edge
+            VGEdge edge = edges.get(i);
+            edge.set(prevVertex, curVertex, true);
 
-            // Add edge to list of edges
-            edges.add(newEdge);
+            // Add edge to incident vertices
+            prevVertex.addNeighbor(curVertex, edge);
+            curVertex.addNeighbor(prevVertex, edge);
 
             prevVertex = curVertex;
         }
 
-        grow(growthValue);
+        convex = computeConvex();
     }
 
     /**
@@ -83,107 +111,170 @@ public class VGObstacle {
     }
 
     /**
-     * Grow obstacle by specified value. This is used when the visibility
-     * graph needs to account for an agent with non-negligible area.
+     * Get whether this obstacle is convex. The segment between two vertices
+     * of a convex obstacle never passes outside it.
      *
-     * @param value amount by which the object should grow
+     * @return whether all corners turn the same way
      */
-    private void grow(float value) {
-        if (value <= 0) return;
-
-        int n = edges.size();
-
-        ArrayList<Vector2> normals = new ArrayList<>();
-        ArrayList<Vector2> unitNormals = new ArrayList<>();
-        ArrayList<Vector2> directions = new ArrayList<>();
-        for (VGEdge e : edges) {
-            // Calculate a normal vector for edge e
-            Vector2 normal = new Vector2();
-            Vector2 a = new Vector2(e.a.pos);
-            Vector2 b = new Vector2(e.b.pos);
-            normal.x = b.y - a.y;
-            normal.y = -(b.x - a.x);
-
-            Vector2 uNorm = new Vector2(normal);
-            unitNormals.add(uNorm.nor());
-
-            // Calculate orthogonal projection of point vector u onto normal
-            // vector (the resulting projection will be a normal vector
-            // pointing to the line parallel to the edge)
-            Vector2 u = new Vector2(a); // starting point of edge
-            normal = normal.scl(
-                    (u.dot(normal)) / (normal.dot(normal))
-            );
-
-            normals.add(normal);
-
-            // Calculate direction vector of edge
-            Vector2 direction = b.sub(a);
-//            Vector2 direction = e.a.position.sub(e.b.position);
-
-            directions.add(direction);
-        }
+    public boolean isConvex() {
+        return convex;
+    }
 
-        // Calculate new vertices
+    /**
+     * Get whether a point lies inside this obstacle, by counting the edges
+     * crossed by a ray in positive x direction.
+     *
+     * @param x x coordinate of the point
+     * @param y y coordinate of the point
+     *
+     * @return whether the point is inside
+     */
+    public boolean contains(float x, float y) {
+        boolean inside = false;
+        int n = vertices.size();
+        Vector2 previous = vertices.get(n - 1).pos;
         for (int i = 0; i < n; i++) {
-
-            /*
-             * Each line corresponding to an edge can be represented in
-             *   vector form by adding a multiple of the edges direction
-             *   vector to its normal vector.
-             * We can therefore extend each edge out by the growth value
-             *   by finding the intersection of each pair of lines created
-             *   by adding a multiple of the direction vector to the normal
-             *   plus the growth value times the normalized normal.
-             * */
-
-            int i0 = i;
-            int i1 = (i + 1) % n;
-
-            Vector2 sp0, sp1; // Starting points
-            Vector2 n0, n1; // Normal vectors
-            Vector2 u0, u1; // Unit normals
-            Vector2 d0, d1; // Direction vectors
-
-            n0 = new Vector2(normals.get(i0));
-            n1 = new Vector2(normals.get(i1));
-            u0 = new Vector2(unitNormals.get(i0));
-            u1 = new Vector2(unitNormals.get(i1));
-            sp0 = n0.add(u0.scl(value));
-            sp1 = n1.add(u1.scl(value));
-
-            d0 = new Vector2(directions.get(i0));
-            d1 = new Vector2(directions.get(i1));
-
-            VectorFormLine l0 = new VectorFormLine(sp0, d0);
-            VectorFormLine l1 = new VectorFormLine(sp1, d1);
-
-            try {
-                Vector2 vertex = l0.intersect(l1);
-                vertices.set(i, new VGVertex(vertex, id));
-            } catch (VectorFormLine.ParallelLineException e) {
-                System.err.println("Parallel Line Exception occurred during " +
-                        "Obstacle Growth");
+            Vector2 current = vertices.get(i).pos;
+            if ((current.y > y) != (previous.y > y)) {
+                float crossX = current.x + (y - current.y)
+                        * (previous.x - current.x) / (previous.y - current.y);
+                if (x < crossX) inside = !inside;
             }
+            previous = current;
         }
 
-        // Setup new edges
+        return inside;
+    }
+
+    /**
+     * Get whether two vertices are neighbors along the outline of an
+     * obstacle, i.e. joined by one of its own edges.
+     *
+     * @param a the first vertex
+     * @param b the second vertex
+     *
+     * @return whether both belong to the same obstacle and are adjacent
+     */
+    static boolean areOutlineNeighbors(VGVertex a, VGVertex b) {
+        VGObstacle obstacle = a.obstacle;
+        if (obstacle == null || obstacle != b.obstacle) return false;
+
+        ArrayList<VGVertex> corners = obstacle.vertices;
+        int n = corners.size();
+        int i = corners.indexOf(a);
+        return corners.get((i + 1) % n) == b || corners.get((i + n - 1) % n) == b;
+    }
+
+    /**
+     * Get whether a visibility edge may join two vertices as far as their
+     * own obstacle is concerned, before the segment between them is tested
+     * against the obstacle edges. Vertices of different obstacles always
+     * may be joined. Vertices of one obstacle may only be joined if it is
+     * concave, they are not neighbors along its outline and the segment
+     * between them runs outside it (e.g. across a notch). A segment which
+     * crosses none of the obstacle's edges lies entirely inside or entirely
+     * outside of it, so its midpoint decides.
+     *
+     * @param a the first vertex
+     * @param b the second vertex
+     *
+     * @return whether the segment must be tested against the obstacle edges
+     */
+    static boolean mayConnect(VGVertex a, VGVertex b) {
+        VGObstacle obstacle = a.obstacle;
+        if (obstacle == null || obstacle != b.obstacle) return true;
+        if (obstacle.convex || areOutlineNeighbors(a, b)) return false;
+
+        // Corners of a degenerate outline may coincide
+        if (a.pos.equals(b.pos)) return false;
+
+        return !obstacle.contains(
+                (a.pos.x + b.pos.x) / 2,
+                (a.pos.y + b.pos.y) / 2
+        );
+    }
+
+    /**
+     * Private helper method to get whether the grown outline is convex.
+     * Collinear corners count as convex.
+     */
+    private boolean computeConvex() {
+        int n = vertices.size();
+        boolean left = false;
+        boolean right = false;
         for (int i = 0; i < n; i++) {
+            Vector2 prev = vertices.get((i + n - 1) % n).pos;
+            Vector2 cur = vertices.get(i).pos;
+            Vector2 next = vertices.get((i + 1) % n).pos;
+            float turn = (cur.x - prev.x) * (next.y - cur.y)
+                    - (cur.y - prev.y) * (next.x - cur.x);
+            if (turn > 0) left = true;
+            if (turn < 0) right = true;
+        }
 
-            VGVertex curVertex = vertices.get(i);
-            VGVertex nextVertex = vertices.get((i + 1) % n);
+        return !(left && right);
+    }
 
-            VGEdge edge = new VGEdge(
-                    curVertex,
-                    nextVertex,
-                    true
-            );
+    /**
+     * Grow a vertex of the obstacle by specified value. This is used when the
+     * visibility graph needs to account for an agent with non-negligible
+     * area.
+     *
+     * @param shape the vertices of the original shape
+     * @param i index of the vertex to grow
+     * @param value amount by which the object should grow
+     * @param out {@link Vector2} in which the grown vertex is stored
+     */
+    private static void grow(
+            List<Vector2> shape,
+            int i,
+            float value,
+            Vector2 out)
+    {
+        int n = shape.size();
+        Vector2 cur = shape.get(i);
+        out.set(cur);
 
-            curVertex.addNeighbor(nextVertex, edge);
-            nextVertex.addNeighbor(curVertex, edge);
+        if (value <= 0) return;
 
-            edges.set(i, edge);
+        Vector2 prev = shape.get((i + n - 1) % n);
+        Vector2 next = shape.get((i + 1) % n);
+
+        /*
+         * Each edge adjacent to the vertex is moved outwards along its unit
+         * normal by the growth value. The grown vertex is the intersection
+         * of the two moved edge lines:
+         *
+         *   cur + value * n0 + s * d0 = cur + value * n1 + t * d1
+         *
+         * Taking the cross product of both sides with d1 gives
+         *
+         *   s = (value * (n1 - n0)) x d1 / (d0 x d1)
+         */
+        float d0x = cur.x - prev.x;
+        float d0y = cur.y - prev.y;
+        float d1x = next.x - cur.x;
+        float d1y = next.y - cur.y;
+
+        // Outward unit normals (for counter-clockwise vertex order)
+        float len0 = (float) Math.sqrt(d0x * d0x + d0y * d0y);
+        float len1 = (float) Math.sqrt(d1x * d1x + d1y * d1y);
+        float n0x = d0y / len0;
+        float n0y = -d0x / len0;
+        float n1x = d1y / len1;
+        float n1y = -d1x / len1;
+
+        float denom = d0x * d1y - d0y * d1x;
+        if (denom == 0f) {
+            // Adjacent edges are parallel, so move the vertex along the normal
+            out.add(n0x * value, n0y * value);
+            return;
         }
 
+        float wx = value * (n1x - n0x);
+        float wy = value * (n1y - n0y);
+        float s = (wx * d1y - wy * d1x) / denom;
+
+        out.add(n0x * value + s * d0x, n0y * value + s * d0y);
     }
-}
\ No newline at end of file
+}
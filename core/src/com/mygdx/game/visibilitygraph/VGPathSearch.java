@@ -0,0 +1,769 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Shortest path searches over a graph of {@link VGVertex} objects, or over
+ * any graph through a {@link VGGraphView}. These are shared by the different
+ * graph types of this package.
+ * <p>
+ * The searches index their cost tables directly by vertex ID, so the IDs of
+ * the graph's vertices must be their indices in its vertex list. The tables
+ * and the returned path list are reused between searches; each thread gets
+ * its own instance through {@link #get()}, so that independent graphs can be
+ * searched in parallel without allocating per search.
+ */
+final class VGPathSearch {
+
+    // Squared sine of the largest turn still considered straight on
+    private static final float STRAIGHT_TOLERANCE = 1e-8f;
+
+    private static final ThreadLocal<VGPathSearch> INSTANCES
+            = ThreadLocal.withInitial(VGPathSearch::new);
+
+    // Index 0 holds the forward search, index 1 the backward search
+    private final float[][] gCost = new float[2][0];
+    private final int[][] parent = new int[2][0];
+    private final boolean[][] closed = new boolean[2][0];
+    private final IndexedHeap[] heaps = {new IndexedHeap(), new IndexedHeap()};
+    private float[] hCost = new float[0];
+
+    private final ArrayList<VGVertex> path = new ArrayList<>();
+
+    // Stands in for vertices of graphs without vertex objects in edge tests
+    private final VGVertex probe = new VGVertex(new Vector2(), VGVertex.NO_GROUP);
+
+    private VGPathSearch() {}
+
+    /**
+     * Get the search instance of the current thread.
+     *
+     * @return the {@link VGPathSearch} of the current thread
+     */
+    static VGPathSearch get() {
+        return INSTANCES.get();
+    }
+
+    /**
+     * Perform an A* search algorithm to find the shortest path between two
+     * vertices.
+     *
+     * @param vertices all vertices of the graph
+     * @param startPoint the vertex to start from
+     * @param endPoint the vertex to find a path to
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of the {@link VGVertex} objects on the path,
+     *         including start and end point (empty if there is no path). The
+     *         list is reused by the next search on this thread, and
+     *         should be cleared once read so that it does not keep the
+     *         graph reachable.
+     */
+    ArrayList<VGVertex> aStar(
+            ArrayList<VGVertex> vertices,
+            VGVertex startPoint,
+            VGVertex endPoint,
+            VGHeuristic heuristic,
+            SearchStats stats)
+    {
+        return aStar(vertices, startPoint, endPoint, null, heuristic, stats);
+    }
+
+    /**
+     * Perform an A* search algorithm to find the shortest path between two
+     * vertices, relaxing only the edges which continue a path tautly.
+     * <p>
+     * A shortest path only bends at an obstacle vertex if it wraps around
+     * the obstacle there: the two rays from the vertex back along the path
+     * and on along the next edge span an angle of less than 180 degrees,
+     * which must contain the obstacle's corner, or the path could be
+     * shortened by cutting the corner. Since the path does not enter the
+     * obstacle, the corner lies entirely on one side of the two rays, so it
+     * suffices to test a direction into the corner (the wedge of the
+     * vertex). Paths never bend at reflex vertices, so these only continue
+     * straight on. Only the first vertex, which has no incoming edge, and
+     * vertices without corner relax all their edges. Pruning removes no
+     * shortest path through free space, so the path length is unchanged.
+     *
+     * @param vertices all vertices of the graph
+     * @param startPoint the vertex to start from
+     * @param endPoint the vertex to find a path to
+     * @param wedges directions into the corners of the vertices, as x and y
+     *               per vertex ID ((0, 0) for vertices which no path bends
+     *               at, NaN for vertices without corner), or null to relax
+     *               all edges
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of the {@link VGVertex} objects on the path,
+     *         as for {@link #aStar(ArrayList, VGVertex, VGVertex, VGHeuristic,
+     *         SearchStats)}
+     */
+    ArrayList<VGVertex> aStar(
+            ArrayList<VGVertex> vertices,
+            VGVertex startPoint,
+            VGVertex endPoint,
+            float[] wedges,
+            VGHeuristic heuristic,
+            SearchStats stats)
+    {
+        reset(vertices.size(), 1);
+
+        float[] g = gCost[0];
+        int[] p = parent[0];
+        boolean[] done = closed[0];
+        IndexedHeap heap = heaps[0];
+
+        int start = startPoint.ID;
+        int end = endPoint.ID;
+
+        g[start] = 0f;
+        heap.push(start, estimate(startPoint, endPoint, heuristic));
+
+        // Visit vertices in queue
+        while (!heap.isEmpty()) {
+            int current = heap.pop();
+            done[current] = true;
+
+            // The end point's cost is final once it leaves the queue
+            if (current == end) break;
+
+            if (stats != null) stats.addExpansion();
+
+            VGVertex vertex = vertices.get(current);
+            ArrayList<VGVertex> adjacentVertices = vertex.getAdjacentVertices();
+            ArrayList<VGEdge> incidentEdges = vertex.getIncidentEdges();
+
+            // Incoming direction of the path and direction into the corner
+            boolean taut = wedges != null && p[current] != -1
+                    && !Float.isNaN(wedges[2 * current]);
+            float inX = 0;
+            float inY = 0;
+            float wedgeX = 0;
+            float wedgeY = 0;
+            if (taut) {
+                Vector2 from = vertices.get(p[current]).pos;
+                inX = vertex.pos.x - from.x;
+                inY = vertex.pos.y - from.y;
+                wedgeX = wedges[2 * current];
+                wedgeY = wedges[2 * current + 1];
+            }
+
+            for (int j = 0; j < adjacentVertices.size(); j++) {
+                VGVertex adjVertex = adjacentVertices.get(j);
+                int adj = adjVertex.ID;
+
+                if (done[adj]) continue;
+                if (taut && !isTautTurn(inX, inY,
+                        adjVertex.pos.x - vertex.pos.x,
+                        adjVertex.pos.y - vertex.pos.y,
+                        wedgeX, wedgeY)) {
+                    continue;
+                }
+                if (stats != null) stats.addRelaxation();
+
+                // Calculate new neighbor g and f cost
+                float cost = g[current] + incidentEdges.get(j).weight;
+
+                if (cost < g[adj]) {
+                    g[adj] = cost;
+                    p[adj] = current;
+                    heap.push(adj, cost + estimate(adjVertex, endPoint,
+                            heuristic));
+                }
+            }
+        }
+
+        path.clear();
+        if (p[end] == -1) {
+            return path;
+        }
+
+        // Trace path from end point
+        for (int current = end; current != start; current = p[current]) {
+            path.add(vertices.get(current));
+        }
+        path.add(startPoint);
+        Collections.reverse(path);
+
+        return path;
+    }
+
+    /**
+     * Perform an A* search between two points which are not part of the
+     * graph. Edges from the start point and to the end point are tested
+     * against the obstacle edges when the search reaches them, just as
+     * {@link VisibilityGraph#setEndpoints} would add them, and the graph's
+     * own start and end point are skipped. The graph is only read, so
+     * several threads can search the same graph at once.
+     *
+     * @param vertices all vertices of the graph (the first two being its own
+     *                 start and end point)
+     * @param startPoint vertex of the query start point, with ID 0
+     * @param endPoint vertex of the query end point, with ID 1
+     * @param obstacleBatch the obstacle edges of the graph
+     * @param maxEdgeLength maximum length of the edges of the two points
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of the {@link VGVertex} objects on the path,
+     *         including start and end point (empty if there is no path). The
+     *         list is reused by the next search on this thread, and
+     *         should be cleared once read so that it does not keep the
+     *         graph reachable.
+     */
+    ArrayList<VGVertex> aStarBetweenPoints(
+            ArrayList<VGVertex> vertices,
+            VGVertex startPoint,
+            VGVertex endPoint,
+            VGEdgeBatch obstacleBatch,
+            float maxEdgeLength,
+            VGHeuristic heuristic,
+            SearchStats stats)
+    {
+        reset(vertices.size(), 1);
+
+        int[] p = parent[0];
+        boolean[] done = closed[0];
+        IndexedHeap heap = heaps[0];
+
+        int start = startPoint.ID;
+        int end = endPoint.ID;
+        float range2 = maxEdgeLength * maxEdgeLength;
+
+        gCost[0][start] = 0f;
+        heap.push(start, estimate(startPoint, endPoint, heuristic));
+
+        // Visit vertices in queue
+        while (!heap.isEmpty()) {
+            int current = heap.pop();
+            done[current] = true;
+
+            // The end point's cost is final once it leaves the queue
+            if (current == end) break;
+
+            if (stats != null) stats.addExpansion();
+
+            if (current == start) {
+                relaxTested(startPoint, endPoint, endPoint, obstacleBatch,
+                        range2, heuristic, stats);
+                for (int adj = end + 1; adj < vertices.size(); adj++) {
+                    relaxTested(startPoint, vertices.get(adj), endPoint,
+                            obstacleBatch, range2, heuristic, stats);
+                }
+                continue;
+            }
+
+            VGVertex vertex = vertices.get(current);
+            ArrayList<VGVertex> adjacentVertices = vertex.getAdjacentVertices();
+            ArrayList<VGEdge> incidentEdges = vertex.getIncidentEdges();
+
+            for (int j = 0; j < adjacentVertices.size(); j++) {
+                VGVertex adjVertex = adjacentVertices.get(j);
+                int adj = adjVertex.ID;
+
+                // Skip the graph's own start and end point
+                if (adj <= end || done[adj]) continue;
+                if (stats != null) stats.addRelaxation();
+
+                float cost = gCost[0][current] + incidentEdges.get(j).weight;
+
+                if (cost < gCost[0][adj]) {
+                    gCost[0][adj] = cost;
+                    p[adj] = current;
+                    heap.push(adj, cost + estimate(adjVertex, endPoint,
+                            heuristic));
+                }
+            }
+
+            relaxTested(vertex, endPoint, endPoint, obstacleBatch, range2,
+                    heuristic, stats);
+        }
+
+        path.clear();
+        if (p[end] == -1) {
+            return path;
+        }
+
+        // Trace path from end point
+        path.add(endPoint);
+        for (int current = p[end]; current != start; current = p[current]) {
+            path.add(vertices.get(current));
+        }
+        path.add(startPoint);
+        Collections.reverse(path);
+
+        return path;
+    }
+
+    /**
+     * Private helper method to relax the edge between two vertices of a
+     * search between points, testing whether they can see each other only
+     * if the edge would improve the path.
+     */
+    private void relaxTested(
+            VGVertex vertex,
+            VGVertex adjVertex,
+            VGVertex endPoint,
+            VGEdgeBatch obstacleBatch,
+            float range2,
+            VGHeuristic heuristic,
+            SearchStats stats)
+    {
+        int adj = adjVertex.ID;
+        if (closed[0][adj]) return;
+
+        // Unused vertex IDs of a graph view have NaN coordinates
+        float dst2 = vertex.pos.dst2(adjVertex.pos);
+        if (!(dst2 <= range2)) return;
+
+        float cost = gCost[0][vertex.ID] + (float) Math.sqrt(dst2);
+        if (cost >= gCost[0][adj]) return;
+        if (obstacleBatch.intersectsAny(vertex, adjVertex)) return;
+
+        if (stats != null) stats.addRelaxation();
+
+        gCost[0][adj] = cost;
+        parent[0][adj] = vertex.ID;
+        heaps[0].push(adj, cost + estimate(adjVertex, endPoint, heuristic));
+    }
+
+    /**
+     * Perform an A* search between two points which are not part of a graph
+     * accessed through a {@link VGGraphView}, like
+     * {@link #aStarBetweenPoints} does for graphs of {@link VGVertex}
+     * objects. Remaining costs are estimated with the straight line
+     * distance.
+     *
+     * @param graph the graph to search
+     * @param startPoint vertex of the query start point, with ID 0
+     * @param endPoint vertex of the query end point, with ID 1
+     * @param obstacleBatch the obstacle edges of the graph
+     * @param stats statistics to record the search in (may be null)
+     * @param destPoints list to store new destination points in (any
+     *                   previous contents are removed; left empty if there
+     *                   is no path)
+     */
+    void aStarOnView(
+            VGGraphView graph,
+            VGVertex startPoint,
+            VGVertex endPoint,
+            VGEdgeBatch obstacleBatch,
+            SearchStats stats,
+            ArrayList<Vector2> destPoints)
+    {
+        int n = graph.getVertexCount();
+        reset(n, 1);
+
+        float[] g = gCost[0];
+        int[] p = parent[0];
+        boolean[] done = closed[0];
+        IndexedHeap heap = heaps[0];
+
+        int start = startPoint.ID;
+        int end = endPoint.ID;
+        float endX = endPoint.pos.x;
+        float endY = endPoint.pos.y;
+
+        g[start] = 0f;
+        heap.push(start, startPoint.pos.dst(endPoint.pos));
+
+        // Visit vertices in queue
+        while (!heap.isEmpty()) {
+            int current = heap.pop();
+            done[current] = true;
+
+            // The end point's cost is final once it leaves the queue
+            if (current == end) break;
+
+            if (stats != null) stats.addExpansion();
+
+            if (current == start) {
+                relaxTested(startPoint, endPoint, endPoint, obstacleBatch,
+                        Float.POSITIVE_INFINITY, VGHeuristic.EUCLIDEAN, stats);
+                for (int adj = end + 1; adj < n; adj++) {
+                    probe.ID = adj;
+                    probe.pos.set(graph.getX(adj), graph.getY(adj));
+                    relaxTested(startPoint, probe, endPoint, obstacleBatch,
+                            Float.POSITIVE_INFINITY, VGHeuristic.EUCLIDEAN,
+                            stats);
+                }
+                continue;
+            }
+
+            int neighbors = graph.getNeighborCount(current);
+            for (int j = 0; j < neighbors; j++) {
+                int adj = graph.getNeighbor(current, j);
+
+                // Skip the graph's own start and end point
+                if (adj <= end || done[adj]) continue;
+                if (stats != null) stats.addRelaxation();
+
+                float cost = g[current] + graph.getWeight(current, j);
+
+                if (cost < g[adj]) {
+                    g[adj] = cost;
+                    p[adj] = current;
+                    heap.push(adj, cost + Vector2.dst(
+                            graph.getX(adj), graph.getY(adj), endX, endY));
+                }
+            }
+
+            probe.ID = current;
+            probe.pos.set(graph.getX(current), graph.getY(current));
+            relaxTested(probe, endPoint, endPoint, obstacleBatch,
+                    Float.POSITIVE_INFINITY, VGHeuristic.EUCLIDEAN, stats);
+        }
+
+        destPoints.clear();
+        if (p[end] == -1) {
+            return;
+        }
+
+        // Trace path from end point
+        destPoints.add(new Vector2(endPoint.pos));
+        for (int current = p[end]; current != start; current = p[current]) {
+            destPoints.add(new Vector2(graph.getX(current), graph.getY(current)));
+        }
+        Collections.reverse(destPoints);
+    }
+
+    /**
+     * Perform a bidirectional A* search to find the shortest path between two
+     * vertices. A forward search from the start point and a backward search
+     * from the end point are run alternately until they meet.
+     * <p>
+     * Both searches use the average potential p(v) = (h(v, end) -
+     * h(v, start)) / 2 (negated for the backward search), so that they work
+     * on the same non-negative reduced edge costs. The search can then stop
+     * as soon as the smallest keys of both queues add up to the length of the
+     * best path found so far. The heuristic must be consistent in both
+     * directions.
+     *
+     * @param vertices all vertices of the graph
+     * @param startPoint the vertex to start from
+     * @param endPoint the vertex to find a path to
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of the {@link VGVertex} objects on the path,
+     *         including start and end point (empty if there is no path). The
+     *         list is reused by the next search on this thread, and
+     *         should be cleared once read so that it does not keep the
+     *         graph reachable.
+     */
+    ArrayList<VGVertex> bidirectionalAStar(
+            ArrayList<VGVertex> vertices,
+            VGVertex startPoint,
+            VGVertex endPoint,
+            VGHeuristic heuristic,
+            SearchStats stats)
+    {
+        int start = startPoint.ID;
+        int end = endPoint.ID;
+
+        // The searches would only meet after leaving the start point, so
+        // return the empty path of aStar() right away
+        path.clear();
+        if (start == end) {
+            path.add(startPoint);
+            return path;
+        }
+
+        reset(vertices.size(), 2);
+
+        gCost[0][start] = 0f;
+        gCost[1][end] = 0f;
+        heaps[0].push(start, potential(startPoint, startPoint, endPoint,
+                heuristic));
+        heaps[1].push(end, -potential(endPoint, startPoint, endPoint,
+                heuristic));
+
+        float best = Float.POSITIVE_INFINITY;
+        int meeting = -1;
+
+        int dir = 0;
+        while (!heaps[0].isEmpty() && !heaps[1].isEmpty()) {
+
+            // Stop once no path through unsettled vertices can be shorter
+            if (heaps[0].peekKey() + heaps[1].peekKey() >= best) {
+                break;
+            }
+
+            IndexedHeap heap = heaps[dir];
+            float[] g = gCost[dir];
+            float[] otherG = gCost[1 - dir];
+            int[] p = parent[dir];
+            boolean[] done = closed[dir];
+            float sign = dir == 0 ? 1f : -1f;
+
+            int current = heap.pop();
+            done[current] = true;
+            if (stats != null) stats.addExpansion();
+
+            VGVertex vertex = vertices.get(current);
+            ArrayList<VGVertex> adjacentVertices = vertex.getAdjacentVertices();
+            ArrayList<VGEdge> incidentEdges = vertex.getIncidentEdges();
+
+            for (int j = 0; j < adjacentVertices.size(); j++) {
+                VGVertex adjVertex = adjacentVertices.get(j);
+                int adj = adjVertex.ID;
+
+                if (done[adj]) continue;
+                if (stats != null) stats.addRelaxation();
+
+                float cost = g[current] + incidentEdges.get(j).weight;
+
+                if (cost < g[adj]) {
+                    g[adj] = cost;
+                    p[adj] = current;
+                    heap.push(adj, cost + sign * potential(
+                            adjVertex, startPoint, endPoint, heuristic
+                    ));
+
+                    // Check whether this connects to the other search
+                    if (cost + otherG[adj] < best) {
+                        best = cost + otherG[adj];
+                        meeting = adj;
+                    }
+                }
+            }
+
+            dir = 1 - dir;
+        }
+
+        path.clear();
+        if (meeting == -1) {
+            return path;
+        }
+
+        // Trace path from meeting vertex back to the start point
+        for (int current = meeting; current != start;
+                current = parent[0][current]) {
+            path.add(vertices.get(current));
+        }
+        path.add(startPoint);
+        Collections.reverse(path);
+
+        // Trace path from meeting vertex forward to the end point
+        for (int current = meeting; current != end; ) {
+            current = parent[1][current];
+            path.add(vertices.get(current));
+        }
+
+        return path;
+    }
+
+    /**
+     * Get whether a path turning from the incoming to the outgoing direction
+     * at a vertex wraps the vertex's corner, or goes (nearly) straight on. A
+     * zero wedge marks a reflex or flat corner, which paths only pass
+     * straight on.
+     *
+     * @return whether the turn may be part of a shortest path
+     */
+    static boolean isTautTurn(
+            float inX,
+            float inY,
+            float outX,
+            float outY,
+            float wedgeX,
+            float wedgeY)
+    {
+        float turn = inX * outY - inY * outX;
+        float length2 = (inX * inX + inY * inY) * (outX * outX + outY * outY);
+        boolean straight = turn * turn <= STRAIGHT_TOLERANCE * length2
+                && inX * outX + inY * outY > 0;
+        if (straight || (wedgeX == 0 && wedgeY == 0)) return straight;
+
+        // The corner must lie within the angle between both rays
+        float inSide = inX * wedgeY - inY * wedgeX;
+        float outSide = outX * wedgeY - outY * wedgeX;
+        if (turn > 0) {
+            return inSide >= 0 && outSide >= 0;
+        } else {
+            return inSide <= 0 && outSide <= 0;
+        }
+    }
+
+    /**
+     * Private helper method to reset the cost tables for a graph with the
+     * specified number of vertices, growing them if necessary.
+     *
+     * @param n number of vertices in the graph
+     * @param directions number of search directions to reset
+     */
+    private void reset(int n, int directions) {
+        if (hCost.length < n) {
+            int capacity = Math.max(n, hCost.length * 2);
+            hCost = new float[capacity];
+            for (int dir = 0; dir < 2; dir++) {
+                gCost[dir] = new float[capacity];
+                parent[dir] = new int[capacity];
+                closed[dir] = new boolean[capacity];
+                heaps[dir].ensureCapacity(capacity);
+            }
+        }
+
+        Arrays.fill(hCost, 0, n, Float.NaN);
+        for (int dir = 0; dir < directions; dir++) {
+            Arrays.fill(gCost[dir], 0, n, Float.POSITIVE_INFINITY);
+            Arrays.fill(parent[dir], 0, n, -1);
+            Arrays.fill(closed[dir], 0, n, false);
+            heaps[dir].clear();
+        }
+    }
+
+    /**
+     * Private helper method to get the heuristic estimate of a vertex,
+     * computing it only the first time it is needed.
+     */
+    private float estimate(
+            VGVertex vertex,
+            VGVertex endPoint,
+            VGHeuristic heuristic)
+    {
+        float h = hCost[vertex.ID];
+        if (Float.isNaN(h)) {
+            h = heuristic.estimate(vertex, endPoint);
+            hCost[vertex.ID] = h;
+        }
+
+        return h;
+    }
+
+    /**
+     * Private helper method to get the forward average potential of a
+     * vertex, computing it only the first time it is needed.
+     */
+    private float potential(
+            VGVertex vertex,
+            VGVertex startPoint,
+            VGVertex endPoint,
+            VGHeuristic heuristic)
+    {
+        float h = hCost[vertex.ID];
+        if (Float.isNaN(h)) {
+            h = (heuristic.estimate(vertex, endPoint)
+                    - heuristic.estimate(vertex, startPoint)) / 2f;
+            hCost[vertex.ID] = h;
+        }
+
+        return h;
+    }
+
+    /**
+     * Helper inner class used to represent a binary min-heap of vertex IDs
+     * which supports lowering the key of a queued vertex. This is also used
+     * by {@link LazyVisibilityGraph}, which runs its own search.
+     */
+    static class IndexedHeap {
+
+        private int[] heap = new int[0];      // vertex IDs in heap order
+        private float[] keys = new float[0];  // keys indexed by vertex ID
+        private int[] positions = new int[0]; // heap index by vertex ID
+        private int size;
+
+        /**
+         * Grow the heap to hold vertex IDs below the specified capacity.
+         */
+        public void ensureCapacity(int capacity) {
+            heap = new int[capacity];
+            keys = new float[capacity];
+            positions = new int[capacity];
+            Arrays.fill(positions, -1);
+            size = 0;
+        }
+
+        /**
+         * Remove all vertices from the heap.
+         */
+        public void clear() {
+            for (int i = 0; i < size; i++) {
+                positions[heap[i]] = -1;
+            }
+            size = 0;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public float peekKey() {
+            return keys[heap[0]];
+        }
+
+        /**
+         * Add a vertex to the heap, or lower its key if it is already
+         * queued.
+         */
+        public void push(int vertex, float key) {
+            int i = positions[vertex];
+            if (i == -1) {
+                i = size++;
+                heap[i] = vertex;
+                positions[vertex] = i;
+            } else if (key >= keys[vertex]) {
+                return;
+            }
+
+            keys[vertex] = key;
+            siftUp(i);
+        }
+
+        /**
+         * Remove and return the vertex with the smallest key.
+         */
+        public int pop() {
+            int top = heap[0];
+            positions[top] = -1;
+
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                positions[heap[0]] = 0;
+                siftDown(0);
+            }
+
+            return top;
+        }
+
+        private void siftUp(int i) {
+            int vertex = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (keys[heap[parent]] <= keys[vertex]) break;
+
+                heap[i] = heap[parent];
+                positions[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = vertex;
+            positions[vertex] = i;
+        }
+
+        private void siftDown(int i) {
+            int vertex = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size
+                        && keys[heap[child + 1]] < keys[heap[child]]) {
+                    child++;
+                }
+                if (keys[vertex] <= keys[heap[child]]) break;
+
+                heap[i] = heap[child];
+                positions[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = vertex;
+            positions[vertex] = i;
+        }
+    }
+}
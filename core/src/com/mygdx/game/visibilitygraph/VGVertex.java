@@ -9,14 +9,25 @@ import java.util.ArrayList;
  */
 public class VGVertex {
 
-    // FIXME: DEBUG ID
-    private static int numInstances = 0;
-    public int ID;
+    /**
+     * Group ID of vertices which do not belong to an obstacle (e.g. the start
+     * and end point).
+     */
+    public static final int NO_GROUP = -1;
+
+    /**
+     * Index of this vertex within its graph. IDs are assigned by the graph
+     * owning the vertex, so they are dense and start at zero for each graph.
+     */
+    public int ID = -1;
 
     public Vector2 pos;      // Vertex Position
 
     public final int groupID;
 
+    // Obstacle this vertex belongs to (null for the start and end point)
+    VGObstacle obstacle;
+
     private ArrayList<VGVertex> adjacentVertices;
     private ArrayList<VGEdge> incidentEdges;
 
@@ -24,17 +35,14 @@ public class VGVertex {
      * Construct a VGVertex.
      *
      * @param pos the positional info of this vertex
-     * @param groupID the group ID of this vertex
+     * @param groupID the group ID of this vertex (the ID of its obstacle, or
+     *                {@link #NO_GROUP})
      */
     public VGVertex(Vector2 pos, int groupID) {
         adjacentVertices = new ArrayList<>();
         incidentEdges = new ArrayList<>();
         this.pos = pos;
         this.groupID = groupID;
-
-        // FIXME: DEBUG ID
-        ID = numInstances;
-        numInstances++;
     }
 
     /**
@@ -48,6 +56,29 @@ public class VGVertex {
         incidentEdges.add(edge);
     }
 
+    /**
+     * Remove a neighbor (and all edges to it) from this vertex.
+     *
+     * @param vertex the neighboring vertex
+     */
+    void removeNeighbor(VGVertex vertex) {
+        for (int i = adjacentVertices.size() - 1; i >= 0; i--) {
+            if (adjacentVertices.get(i) == vertex) {
+                adjacentVertices.remove(i);
+                incidentEdges.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Remove all neighbors from this vertex. This is used when a graph is
+     * rebuilt in place.
+     */
+    void clearNeighbors() {
+        adjacentVertices.clear();
+        incidentEdges.clear();
+    }
+
     /**
      * Get list of vertices adjacent to this vertex.
      *
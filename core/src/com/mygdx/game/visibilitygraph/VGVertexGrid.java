@@ -0,0 +1,172 @@
+package com.mygdx.game.visibilitygraph;
+
+import java.util.ArrayList;
+
+/**
+ * Uniform grid of vertex IDs used to find the vertices within a range of a
+ * point without testing all vertices. Vertices are sorted into cells by a
+ * counting sort, so each cell is a contiguous slice of one array. The arrays
+ * are reused between builds and only grow.
+ * <p>
+ * Cells are at least as large as the range, so a range query covers at most
+ * a few cells around the point. The number of cells is limited to a small
+ * multiple of the number of vertices, so a tiny range does not create a
+ * huge empty grid.
+ */
+final class VGVertexGrid {
+
+    private static final int MAX_CELLS_PER_VERTEX = 4;
+
+    private float originX;
+    private float originY;
+    private float cellSize;
+    private int columns;
+    private int rows;
+
+    private int[] cellStart = new int[1]; // cell c spans [start[c], start[c + 1])
+    private int[] cellVertices = new int[0];
+    private int[] vertexCells = new int[0];
+
+    /**
+     * Sort vertices into the grid. Vertex IDs must equal their indices.
+     *
+     * @param vertices the vertices
+     * @param range the largest range which will be queried
+     */
+    void set(ArrayList<VGVertex> vertices, float range) {
+        int numVertices = vertices.size();
+
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < numVertices; i++) {
+            VGVertex vertex = vertices.get(i);
+            minX = Math.min(minX, vertex.pos.x);
+            minY = Math.min(minY, vertex.pos.y);
+            maxX = Math.max(maxX, vertex.pos.x);
+            maxY = Math.max(maxY, vertex.pos.y);
+        }
+        if (numVertices == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+
+        // Grow the cells until the grid is small enough
+        float width = maxX - minX;
+        float height = maxY - minY;
+        long maxCells = (long) MAX_CELLS_PER_VERTEX * numVertices + 1;
+        cellSize = Math.max(range, Float.MIN_NORMAL);
+        while ((long) columnsFor(width) * columnsFor(height) > maxCells) {
+            cellSize *= 2;
+        }
+
+        originX = minX;
+        originY = minY;
+        columns = columnsFor(width);
+        rows = columnsFor(height);
+        int numCells = columns * rows;
+
+        if (cellStart.length < numCells + 1) {
+            cellStart = new int[numCells + 1];
+        }
+        if (cellVertices.length < numVertices) {
+            cellVertices = new int[numVertices];
+            vertexCells = new int[numVertices];
+        }
+
+        // Counting sort of the vertices by cell
+        for (int c = 0; c <= numCells; c++) {
+            cellStart[c] = 0;
+        }
+        for (int i = 0; i < numVertices; i++) {
+            VGVertex vertex = vertices.get(i);
+            int cell = row(vertex.pos.y) * columns + column(vertex.pos.x);
+            vertexCells[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int c = 0; c < numCells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        for (int i = 0; i < numVertices; i++) {
+            int cell = vertexCells[i];
+            cellVertices[cellStart[cell]++] = i;
+        }
+
+        // Filling advanced each start to the next cell's start
+        for (int c = numCells; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    /**
+     * Get the number of columns of the grid.
+     *
+     * @return the number of columns
+     */
+    int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the column of the cell containing an X coordinate, clamped to the
+     * grid.
+     *
+     * @param x the X coordinate
+     *
+     * @return the column index
+     */
+    int column(float x) {
+        int column = (int) ((x - originX) / cellSize);
+        return Math.max(0, Math.min(columns - 1, column));
+    }
+
+    /**
+     * Get the row of the cell containing a Y coordinate, clamped to the grid.
+     *
+     * @param y the Y coordinate
+     *
+     * @return the row index
+     */
+    int row(float y) {
+        int row = (int) ((y - originY) / cellSize);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    /**
+     * Get the index of the first vertex of a cell in {@link #vertexAt}.
+     *
+     * @param cell the cell index (row * columns + column)
+     *
+     * @return the start index
+     */
+    int cellStart(int cell) {
+        return cellStart[cell];
+    }
+
+    /**
+     * Get the index after the last vertex of a cell in {@link #vertexAt}.
+     *
+     * @param cell the cell index (row * columns + column)
+     *
+     * @return the end index
+     */
+    int cellEnd(int cell) {
+        return cellStart[cell + 1];
+    }
+
+    /**
+     * Get a vertex ID of the sorted vertices.
+     *
+     * @param index index between the start and end of a cell
+     *
+     * @return the vertex ID
+     */
+    int vertexAt(int index) {
+        return cellVertices[index];
+    }
+
+    private int columnsFor(float extent) {
+        return (int) Math.min(Integer.MAX_VALUE / 2, (long) (extent / cellSize) + 1);
+    }
+}
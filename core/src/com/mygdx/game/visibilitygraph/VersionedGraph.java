@@ -0,0 +1,662 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Visibility graph which keeps answering path queries while its obstacles
+ * are being changed. Every change produces a new immutable
+ * {@link Snapshot}, and readers search a snapshot they have pinned, so a
+ * search never sees a half-updated graph.
+ * <p>
+ * Obstacles are identified by integer keys. Writers collect changes in an
+ * {@link Edit} and commit them as one new version. A version shares all
+ * unchanged structure with the previous one: the obstacles themselves, and
+ * the neighbor and weight arrays of every vertex which neither gained nor
+ * lost an edge. These arrays are held in chunks of 64 vertices, and only the
+ * chunks containing changed vertices are copied (a copy of a chunk still
+ * shares the arrays of its unchanged vertices). Vertices keep their IDs
+ * across versions (IDs of removed obstacles are reused later), and only the
+ * vertex pairs affected by the change are tested again:
+ * <ul>
+ *     <li>all pairs with a vertex of an added or reshaped obstacle,</li>
+ *     <li>existing edges crossing an added or reshaped obstacle, and</li>
+ *     <li>missing edges crossing a removed or reshaped obstacle, which may
+ *     have become visible.</li>
+ * </ul>
+ * A change of one obstacle among n vertices thus takes O(n * e) instead of
+ * the O(n^2 * e) of a full rebuild, plus a cheap O(n^2) bounding box pass.
+ * <p>
+ * Readers pin the current version with {@link #acquire()}, which is
+ * lock-free, and release it when done. Each version is reference counted
+ * (the graph holds one reference to the current version), and a version is
+ * reclaimed as soon as it has been replaced and no reader holds it. Commits
+ * are serialized, so several threads may edit the graph.
+ */
+public class VersionedGraph {
+
+    // Number of vertices per adjacency chunk (a power of two)
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final int STARTPOINT = 0;
+    private static final int ENDPOINT = 1;
+
+    // Padding of the bounding boxes of changed obstacles, at least that of
+    // the edges in a VGEdgeBatch
+    private static final float BOX_PADDING = 0.001f;
+
+    private final float agentRadius;
+    private final AtomicReference<Snapshot> current;
+    private final AtomicInteger liveVersions = new AtomicInteger();
+
+    // Guarded by this
+    private int[] freeSlots = new int[16];
+    private int numFreeSlots;
+    private int nextSlot = ENDPOINT + 1;
+    private int nextGroup;
+
+    /**
+     * Construct a Versioned Graph. The obstacles get the keys 0 to n - 1 in
+     * list order.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     */
+    public VersionedGraph(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        this.agentRadius = agentRadius;
+        current = new AtomicReference<>(new Snapshot(
+                0,
+                new HashMap<Integer, VGObstacle>(),
+                new VGVertex[ENDPOINT + 1],
+                new Chunk[0],
+                new VGEdgeBatch()
+        ));
+
+        Edit edit = edit();
+        for (int i = 0; i < obstacles.size(); i++) {
+            edit.put(i, obstacles.get(i));
+        }
+        edit.commit();
+    }
+
+    /**
+     * Start collecting changes for a new version.
+     *
+     * @return a new {@link Edit}
+     */
+    public Edit edit() {
+        return new Edit();
+    }
+
+    /**
+     * Pin the current version. This never blocks, and the returned snapshot
+     * stays valid until it is released, however many versions are committed
+     * meanwhile. Each call must be followed by exactly one call to
+     * {@link Snapshot#release()} (e.g. with try-with-resources).
+     *
+     * @return the current {@link Snapshot}
+     */
+    public Snapshot acquire() {
+        while (true) {
+            Snapshot snapshot = current.get();
+
+            // The snapshot may have been replaced and reclaimed since it
+            // was read, in which case the new one is read
+            if (snapshot.retain()) return snapshot;
+        }
+    }
+
+    /**
+     * Get the number of the current version.
+     *
+     * @return the current version
+     */
+    public long getVersion() {
+        return current.get().version;
+    }
+
+    /**
+     * Get the number of versions which have not been reclaimed yet,
+     * including the current one.
+     *
+     * @return the number of live versions
+     */
+    public int getLiveVersions() {
+        return liveVersions.get();
+    }
+
+    /**
+     * Private helper method to build and publish a new version with the
+     * specified changes.
+     */
+    private synchronized long commit(Map<Integer, ArrayList<Vector2>> changes) {
+        Snapshot previous = current.get();
+        Snapshot next = apply(previous, changes);
+
+        current.set(next);
+        previous.release();
+        return next.version;
+    }
+
+    /**
+     * Private helper method to create the version following a snapshot.
+     *
+     * @param old the current version
+     * @param changes new shapes by obstacle key (null for removed obstacles)
+     *
+     * @return the new version
+     */
+    private Snapshot apply(Snapshot old, Map<Integer, ArrayList<Vector2>> changes) {
+        HashMap<Integer, VGObstacle> obstacles = new HashMap<>(old.obstacles);
+        ArrayList<VGObstacle> removed = new ArrayList<>();
+        ArrayList<VGObstacle> added = new ArrayList<>();
+
+        // Free the vertices of replaced obstacles before assigning new ones
+        for (Map.Entry<Integer, ArrayList<Vector2>> change : changes.entrySet()) {
+            VGObstacle previous = obstacles.remove(change.getKey());
+            if (previous != null) {
+                removed.add(previous);
+                ArrayList<VGVertex> vertices = previous.getVertices();
+                for (int i = 0; i < vertices.size(); i++) {
+                    freeSlot(vertices.get(i).ID);
+                }
+            }
+        }
+        for (Map.Entry<Integer, ArrayList<Vector2>> change : changes.entrySet()) {
+            if (change.getValue() == null) continue;
+
+            VGObstacle obstacle = new VGObstacle(
+                    nextGroup++, change.getValue(), agentRadius
+            );
+            ArrayList<VGVertex> vertices = obstacle.getVertices();
+            for (int i = 0; i < vertices.size(); i++) {
+                vertices.get(i).ID = allocateSlot();
+            }
+            obstacles.put(change.getKey(), obstacle);
+            added.add(obstacle);
+        }
+
+        int numVertices = Math.max(old.vertices.length, nextSlot);
+        VGVertex[] vertices = Arrays.copyOf(old.vertices, numVertices);
+        boolean[] changed = new boolean[numVertices];
+        for (int i = 0; i < removed.size(); i++) {
+            ArrayList<VGVertex> obstacleVertices = removed.get(i).getVertices();
+            for (int j = 0; j < obstacleVertices.size(); j++) {
+                int id = obstacleVertices.get(j).ID;
+                vertices[id] = null;
+                changed[id] = true;
+            }
+        }
+        for (int i = 0; i < added.size(); i++) {
+            ArrayList<VGVertex> obstacleVertices = added.get(i).getVertices();
+            for (int j = 0; j < obstacleVertices.size(); j++) {
+                VGVertex vertex = obstacleVertices.get(j);
+                vertices[vertex.ID] = vertex;
+                changed[vertex.ID] = true;
+            }
+        }
+
+        ArrayList<VGEdge> obstacleEdges = new ArrayList<>();
+        for (VGObstacle obstacle : obstacles.values()) {
+            obstacleEdges.addAll(obstacle.getEdges());
+        }
+        VGEdgeBatch obstacleBatch = new VGEdgeBatch();
+        obstacleBatch.set(obstacleEdges);
+
+        EdgeSet removedEdges = new EdgeSet(removed);
+        EdgeSet addedEdges = new EdgeSet(added);
+        Additions additions = new Additions(numVertices);
+
+        // Missing edges between unchanged vertices which crossed a removed
+        // obstacle may have become visible
+        if (removedEdges.size() > 0) {
+            int[] stamps = new int[numVertices];
+            for (int u = ENDPOINT + 1; u < numVertices; u++) {
+                VGVertex center = vertices[u];
+                if (center == null || changed[u]) continue;
+
+                for (int j = 0; j < old.getNeighborCount(u); j++) {
+                    stamps[old.getNeighbor(u, j)] = u;
+                }
+
+                for (int w = u + 1; w < numVertices; w++) {
+                    VGVertex vertex = vertices[w];
+                    if (vertex == null || changed[w] || stamps[w] == u) continue;
+                    if (!VGObstacle.mayConnect(center, vertex)) continue;
+
+                    if (removedEdges.crosses(center, vertex)
+                            && !obstacleBatch.intersectsAny(center, vertex)) {
+                        additions.add(u, w);
+                        additions.add(w, u);
+                    }
+                }
+            }
+        }
+
+        // All edges of added vertices
+        for (int i = 0; i < added.size(); i++) {
+            ArrayList<VGVertex> obstacleVertices = added.get(i).getVertices();
+            for (int j = 0; j < obstacleVertices.size(); j++) {
+                VGVertex center = obstacleVertices.get(j);
+                int u = center.ID;
+
+                // Edges along the obstacle itself
+                ArrayList<VGVertex> sides = center.getAdjacentVertices();
+                for (int k = 0; k < sides.size(); k++) {
+                    additions.add(u, sides.get(k).ID);
+                }
+
+                for (int w = ENDPOINT + 1; w < numVertices; w++) {
+                    VGVertex vertex = vertices[w];
+                    if (vertex == null || !VGObstacle.mayConnect(center, vertex)) continue;
+
+                    // Pairs of two added vertices are tested once
+                    if (changed[w] && w < u) continue;
+
+                    if (!obstacleBatch.intersectsAny(center, vertex)) {
+                        additions.add(u, w);
+                        additions.add(w, u);
+                    }
+                }
+            }
+        }
+
+        // Copy the chunks of vertices whose adjacency changes
+        int numChunks = (numVertices + CHUNK_MASK) >> CHUNK_SHIFT;
+        Chunk[] chunks = Arrays.copyOf(old.chunks, numChunks);
+        boolean[] copied = new boolean[numChunks];
+        int[] kept = new int[16];
+        float[] keptWeights = new float[16];
+
+        for (int u = ENDPOINT + 1; u < numVertices; u++) {
+            VGVertex center = vertices[u];
+            int numKept = 0;
+            boolean modified = changed[u] || additions.count(u) > 0;
+
+            if (center != null && !changed[u]) {
+                int degree = old.getNeighborCount(u);
+                if (kept.length < degree) {
+                    kept = new int[degree];
+                    keptWeights = new float[degree];
+                }
+
+                // Drop edges to changed vertices and edges crossing added
+                // obstacles (edges along the obstacle itself always stay)
+                for (int j = 0; j < degree; j++) {
+                    int w = old.getNeighbor(u, j);
+                    VGVertex vertex = vertices[w];
+                    boolean keep = !changed[w]
+                            && (VGObstacle.areOutlineNeighbors(center, vertex)
+                            || !addedEdges.crosses(center, vertex));
+                    if (keep) {
+                        kept[numKept] = w;
+                        keptWeights[numKept] = old.getWeight(u, j);
+                        numKept++;
+                    } else {
+                        modified = true;
+                    }
+                }
+            }
+
+            if (!modified) continue;
+
+            int chunk = u >> CHUNK_SHIFT;
+            if (!copied[chunk]) {
+                chunks[chunk] = chunks[chunk] == null
+                        ? new Chunk() : chunks[chunk].copy();
+                copied[chunk] = true;
+            }
+
+            int numAdded = additions.count(u);
+            int[] neighbors = Arrays.copyOf(kept, numKept + numAdded);
+            float[] weights = Arrays.copyOf(keptWeights, numKept + numAdded);
+            for (int k = 0; k < numAdded; k++) {
+                int w = additions.get(u, k);
+                neighbors[numKept + k] = w;
+                weights[numKept + k] = center.pos.dst(vertices[w].pos);
+            }
+
+            chunks[chunk].neighbors[u & CHUNK_MASK] = neighbors;
+            chunks[chunk].weights[u & CHUNK_MASK] = weights;
+        }
+
+        return new Snapshot(old.version + 1, obstacles, vertices, chunks, obstacleBatch);
+    }
+
+    private void freeSlot(int id) {
+        if (numFreeSlots == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, 2 * numFreeSlots);
+        }
+        freeSlots[numFreeSlots++] = id;
+    }
+
+    private int allocateSlot() {
+        return numFreeSlots > 0 ? freeSlots[--numFreeSlots] : nextSlot++;
+    }
+
+    /**
+     * A version of a {@link VersionedGraph}. A snapshot is immutable, so any
+     * number of threads may search it at once while they hold it.
+     */
+    public final class Snapshot implements VGGraphView, PathPlanner, AutoCloseable {
+
+        private final long version;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        // Cleared when the version is reclaimed
+        private HashMap<Integer, VGObstacle> obstacles;
+        private VGVertex[] vertices;
+        private Chunk[] chunks;
+        private VGEdgeBatch obstacleBatch;
+
+        private Snapshot(
+                long version,
+                HashMap<Integer, VGObstacle> obstacles,
+                VGVertex[] vertices,
+                Chunk[] chunks,
+                VGEdgeBatch obstacleBatch)
+        {
+            this.version = version;
+            this.obstacles = obstacles;
+            this.vertices = vertices;
+            this.chunks = chunks;
+            this.obstacleBatch = obstacleBatch;
+            liveVersions.incrementAndGet();
+        }
+
+        /**
+         * Get the number of this version. Versions are numbered from zero
+         * in commit order.
+         *
+         * @return the version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Get the number of obstacles in this version.
+         *
+         * @return the number of obstacles
+         */
+        public int getObstacleCount() {
+            return obstacles.size();
+        }
+
+        @Override
+        public int getVertexCount() {
+            return vertices.length;
+        }
+
+        @Override
+        public float getX(int vertex) {
+            VGVertex v = vertices[vertex];
+            return v == null ? Float.NaN : v.pos.x;
+        }
+
+        @Override
+        public float getY(int vertex) {
+            VGVertex v = vertices[vertex];
+            return v == null ? Float.NaN : v.pos.y;
+        }
+
+        @Override
+        public int getNeighborCount(int vertex) {
+            Chunk chunk = chunks[vertex >> CHUNK_SHIFT];
+            int[] neighbors = chunk == null ? null : chunk.neighbors[vertex & CHUNK_MASK];
+            return neighbors == null ? 0 : neighbors.length;
+        }
+
+        @Override
+        public int getNeighbor(int vertex, int index) {
+            return chunks[vertex >> CHUNK_SHIFT].neighbors[vertex & CHUNK_MASK][index];
+        }
+
+        @Override
+        public float getWeight(int vertex, int index) {
+            return chunks[vertex >> CHUNK_SHIFT].weights[vertex & CHUNK_MASK][index];
+        }
+
+        @Override
+        public ArrayList<Vector2> findPath(Vector2 startPoint, Vector2 endPoint) {
+            return findPath(startPoint, endPoint, null);
+        }
+
+        /**
+         * Find a path between two points in this version with an A* search.
+         * Edges of the two points are tested as the search reaches them.
+         *
+         * @param startPoint starting point of navigating agent
+         * @param endPoint destination point of navigating agent
+         * @param stats statistics to record the search in (may be null)
+         *
+         * @return {@link ArrayList} of {@link Vector2} objects (empty if
+         *         there is no path)
+         */
+        public ArrayList<Vector2> findPath(
+                Vector2 startPoint,
+                Vector2 endPoint,
+                SearchStats stats)
+        {
+            if (references.get() <= 0) {
+                throw new IllegalStateException("Snapshot is released");
+            }
+
+            VGVertex start = new VGVertex(new Vector2(startPoint), VGVertex.NO_GROUP);
+            VGVertex end = new VGVertex(new Vector2(endPoint), VGVertex.NO_GROUP);
+            start.ID = STARTPOINT;
+            end.ID = ENDPOINT;
+
+            ArrayList<Vector2> destPoints = new ArrayList<>();
+            VGPathSearch.get().aStarOnView(
+                    this, start, end, obstacleBatch, stats, destPoints
+            );
+            return destPoints;
+        }
+
+        /**
+         * Release a reference obtained with {@link VersionedGraph#acquire()}.
+         * The snapshot must not be used afterwards.
+         */
+        public void release() {
+            int remaining = references.decrementAndGet();
+            if (remaining < 0) {
+                throw new IllegalStateException("Snapshot released too often");
+            }
+
+            if (remaining == 0) {
+                // Only the structure no newer version shares becomes garbage
+                obstacles = null;
+                vertices = null;
+                chunks = null;
+                obstacleBatch = null;
+                liveVersions.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+
+        /**
+         * Private helper method to take a reference unless the snapshot has
+         * already been reclaimed.
+         */
+        private boolean retain() {
+            while (true) {
+                int count = references.get();
+                if (count == 0) return false;
+                if (references.compareAndSet(count, count + 1)) return true;
+            }
+        }
+    }
+
+    /**
+     * Changes to the obstacles of a {@link VersionedGraph}, which become
+     * visible to readers all at once when committed. An edit is not
+     * thread-safe, but separate edits may be committed concurrently.
+     */
+    public final class Edit {
+
+        // New shapes by key, null for removed obstacles
+        private final LinkedHashMap<Integer, ArrayList<Vector2>> changes
+                = new LinkedHashMap<>();
+
+        private Edit() {}
+
+        /**
+         * Add an obstacle, or replace the obstacle with the same key. The
+         * vertices are copied.
+         *
+         * @param key key of the obstacle
+         * @param vertices vertices of the obstacle (in counter-clockwise
+         *                 order)
+         *
+         * @return this edit
+         */
+        public Edit put(int key, List<Vector2> vertices) {
+            ArrayList<Vector2> copy = new ArrayList<>(vertices.size());
+            for (int i = 0; i < vertices.size(); i++) {
+                copy.add(new Vector2(vertices.get(i)));
+            }
+            changes.put(key, copy);
+            return this;
+        }
+
+        /**
+         * Remove an obstacle. Keys without an obstacle are ignored.
+         *
+         * @param key key of the obstacle
+         *
+         * @return this edit
+         */
+        public Edit remove(int key) {
+            changes.put(key, null);
+            return this;
+        }
+
+        /**
+         * Publish the changes as a new version. Readers which acquire the
+         * graph afterwards see the new version, while readers holding an
+         * older version are not affected.
+         *
+         * @return the number of the new version
+         */
+        public long commit() {
+            long version = VersionedGraph.this.commit(changes);
+            changes.clear();
+            return version;
+        }
+    }
+
+    /**
+     * Helper inner class used to hold the adjacency of a block of vertices.
+     * Chunks are shared between versions until one of their vertices
+     * changes.
+     */
+    private static final class Chunk {
+
+        final int[][] neighbors = new int[CHUNK_SIZE][];
+        final float[][] weights = new float[CHUNK_SIZE][];
+
+        Chunk copy() {
+            Chunk copy = new Chunk();
+            System.arraycopy(neighbors, 0, copy.neighbors, 0, CHUNK_SIZE);
+            System.arraycopy(weights, 0, copy.weights, 0, CHUNK_SIZE);
+            return copy;
+        }
+    }
+
+    /**
+     * Helper inner class used to test segments against the edges of the
+     * obstacles changed by a commit, rejecting segments outside their
+     * bounding box first.
+     */
+    private static final class EdgeSet {
+
+        private final VGEdgeBatch batch = new VGEdgeBatch();
+        private float minX = Float.POSITIVE_INFINITY;
+        private float minY = Float.POSITIVE_INFINITY;
+        private float maxX = Float.NEGATIVE_INFINITY;
+        private float maxY = Float.NEGATIVE_INFINITY;
+
+        EdgeSet(ArrayList<VGObstacle> obstacles) {
+            ArrayList<VGEdge> edges = new ArrayList<>();
+            for (int i = 0; i < obstacles.size(); i++) {
+                edges.addAll(obstacles.get(i).getEdges());
+                ArrayList<VGVertex> vertices = obstacles.get(i).getVertices();
+                for (int j = 0; j < vertices.size(); j++) {
+                    Vector2 pos = vertices.get(j).pos;
+                    minX = Math.min(minX, pos.x - BOX_PADDING);
+                    minY = Math.min(minY, pos.y - BOX_PADDING);
+                    maxX = Math.max(maxX, pos.x + BOX_PADDING);
+                    maxY = Math.max(maxY, pos.y + BOX_PADDING);
+                }
+            }
+            batch.set(edges);
+        }
+
+        int size() {
+            return batch.size();
+        }
+
+        boolean crosses(VGVertex p, VGVertex q) {
+            if (Math.max(p.pos.x, q.pos.x) < minX || Math.min(p.pos.x, q.pos.x) > maxX
+                    || Math.max(p.pos.y, q.pos.y) < minY
+                    || Math.min(p.pos.y, q.pos.y) > maxY) {
+                return false;
+            }
+            return batch.intersectsAny(p, q);
+        }
+    }
+
+    /**
+     * Helper inner class used to collect the new edges of each vertex during
+     * a commit.
+     */
+    private static final class Additions {
+
+        private final int[][] neighbors;
+        private final int[] counts;
+
+        Additions(int numVertices) {
+            neighbors = new int[numVertices][];
+            counts = new int[numVertices];
+        }
+
+        void add(int vertex, int neighbor) {
+            int[] list = neighbors[vertex];
+            if (list == null) {
+                list = new int[4];
+                neighbors[vertex] = list;
+            } else if (counts[vertex] == list.length) {
+                list = Arrays.copyOf(list, 2 * list.length);
+                neighbors[vertex] = list;
+            }
+            list[counts[vertex]++] = neighbor;
+        }
+
+        int count(int vertex) {
+            return counts[vertex];
+        }
+
+        int get(int vertex, int index) {
+            return neighbors[vertex][index];
+        }
+    }
+}
@@ -3,20 +3,65 @@ package com.mygdx.game.visibilitygraph;
 import com.badlogic.gdx.math.Vector2;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
  * Class defining a visibility graph to be used for path finding in a 2D plane
  * full of circular obstacles.
+ * <p>
+ * Each graph numbers its own obstacles, vertices and edges with dense IDs
+ * starting at zero, which are reassigned on every rebuild. No IDs are shared
+ * between graphs, so independent graphs can be built on different threads,
+ * and searches can use the IDs directly as array indices.
+ * <p>
+ * For local navigation, the length of visibility edges can be limited with
+ * a maximum edge length. Only vertex pairs within that range are tested,
+ * using a uniform grid, so a graph has O(n * k) edges for n vertices with k
+ * vertices in range of each, instead of O(n^2). The obstacle edges are kept
+ * whatever their length. Paths found in such a graph are still collision
+ * free, but they are only optimal if every segment of the optimal path is
+ * within range:
+ * <ul>
+ *     <li>A longer segment has to be replaced by a chain of shorter edges
+ *     between obstacle vertices near the straight line. Each intermediate
+ *     vertex adds a small detour, so paths get longer as the range shrinks
+ *     towards the spacing of obstacle vertices.</li>
+ *     <li>Open areas wider than the range cannot be crossed at all, and the
+ *     start and end point must be within range of a vertex they can see.
+ *     Searches then find no path even though one exists.</li>
+ * </ul>
+ * A range of a few times the typical obstacle spacing keeps paths close to
+ * optimal (see the PlannerBenchmark for measurements).
  */
-public class VisibilityGraph {
+public class VisibilityGraph implements VGGraphView {
+
+    private static final AtomicLong nextVersion = new AtomicLong();
+
+    // Number of vertex pairs tested between reads of the clock while
+    // building with a time budget
+    private static final int PAIRS_PER_CLOCK_CHECK = 64;
 
     private final int STARTPOINT = 0;
     private final int ENDPOINT = 1;
     private ArrayList<VGEdge> obstacleEdges;
     private ArrayList<VGEdge> visibilityEdges;
     private ArrayList<VGVertex> vertices;
-    private HashMap<Integer, VGObstacle> obstacles;
+    private ArrayList<VGObstacle> obstacles;
+    private ArrayList<VGEdge> spareEdges;
+    private VGEdgeBatch obstacleBatch;
+    private VGVertexGrid vertexGrid;
+    private float[] wedges = new float[0]; // x, y per vertex ID
+    private float maxEdgeLength;
+    private long version;
+
+    // Cursor of a time-sliced build
+    private boolean building;
+    private int buildRow;
+    private int buildColumn;
+    private long workDone;
+    private long totalWork;
+    private long intersectionTests;
 
     /**
      * Construct a Visibility Graph.
@@ -33,65 +78,510 @@ public class VisibilityGraph {
             Set<ArrayList<Vector2>> obstacles,
             float agentRadius)
     {
+        this(startPoint, endPoint, new ArrayList<>(obstacles), agentRadius);
+    }
+
+    /**
+     * Construct a Visibility Graph.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     */
+    public VisibilityGraph(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        this(startPoint, endPoint, obstacles, agentRadius, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Construct a Visibility Graph with a maximum length of visibility edges.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     * @param maxEdgeLength maximum length of visibility edges (or
+     *                      {@link Float#POSITIVE_INFINITY} for no limit)
+     */
+    public VisibilityGraph(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius,
+            float maxEdgeLength)
+    {
+        if (!(maxEdgeLength > 0)) {
+            throw new IllegalArgumentException(
+                    "maxEdgeLength must be positive: " + maxEdgeLength);
+        }
+        this.maxEdgeLength = maxEdgeLength;
 
         vertices = new ArrayList<>();
-        vertices.add(new VGVertex(startPoint, 0)); // Index POINT.START
-        vertices.add(new VGVertex(endPoint, 0));   // Index POINT.END
+        vertices.add(new VGVertex(new Vector2(), VGVertex.NO_GROUP)); // START
+        vertices.add(new VGVertex(new Vector2(), VGVertex.NO_GROUP)); // END
 
-        // Setup Obstacles
-        this.obstacles = new HashMap<>();
+        this.obstacles = new ArrayList<>();
         obstacleEdges = new ArrayList<>();
-        for (ArrayList<Vector2> vertices : obstacles) {
-            VGObstacle obstacle = new VGObstacle(vertices, agentRadius);
-            this.obstacles.put(obstacle.getId(), obstacle);
+        visibilityEdges = new ArrayList<>();
+        spareEdges = new ArrayList<>();
+        obstacleBatch = new VGEdgeBatch();
+        vertexGrid = new VGVertexGrid();
+
+        rebuild(startPoint, endPoint, obstacles, agentRadius);
+    }
+
+    /**
+     * Rebuild this Visibility Graph in place for a new set of obstacles. The
+     * vertices, edges and lists of the previous graph are cleared and reused,
+     * so once the graph has reached its working size, continuous rebuilds
+     * (e.g. while an obstacle is being dragged) do not allocate.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     */
+    public void rebuild(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        beginRebuild(startPoint, endPoint, obstacles, agentRadius);
+        stepRebuild(Long.MAX_VALUE);
+    }
+
+    /**
+     * Start a time-sliced rebuild of this Visibility Graph for a new set of
+     * obstacles. The obstacles are set up immediately (so the input lists may
+     * change afterwards), and visibility edges are then computed over calls
+     * to {@link #stepRebuild}. Until the rebuild is complete, the graph must
+     * not be searched or rendered; keep a second graph to use meanwhile.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     */
+    public void beginRebuild(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        VGVertex start = vertices.get(STARTPOINT);
+        VGVertex end = vertices.get(ENDPOINT);
+        start.pos.set(startPoint);
+        end.pos.set(endPoint);
+        start.clearNeighbors();
+        end.clearNeighbors();
+
+        vertices.clear();
+        vertices.add(start);
+        vertices.add(end);
+
+        // Setup Obstacles, reshaping existing ones where possible
+        while (this.obstacles.size() > obstacles.size()) {
+            this.obstacles.remove(this.obstacles.size() - 1);
+        }
+
+        obstacleEdges.clear();
+        for (int i = 0; i < obstacles.size(); i++) {
+            VGObstacle obstacle;
+            if (i < this.obstacles.size()) {
+                obstacle = this.obstacles.get(i);
+                obstacle.set(obstacles.get(i), agentRadius);
+            } else {
+                obstacle = new VGObstacle(i, obstacles.get(i), agentRadius);
+                this.obstacles.add(obstacle);
+            }
+
+            ArrayList<VGEdge> edges = obstacle.getEdges();
+            for (int j = 0; j < edges.size(); j++) {
+                obstacleEdges.add(edges.get(j));
+            }
 
-            obstacleEdges.addAll(obstacle.getEdges());
-            this.vertices.addAll(obstacle.getVertices());
+            ArrayList<VGVertex> obstacleVertices = obstacle.getVertices();
+            for (int j = 0; j < obstacleVertices.size(); j++) {
+                vertices.add(obstacleVertices.get(j));
+            }
         }
 
-        visibilityEdges = new ArrayList<>();
-        constructWithNaive();
+        // Vertex IDs are needed by the packed obstacle edges
+        for (int i = 0; i < vertices.size(); i++) {
+            vertices.get(i).ID = i;
+        }
+        obstacleBatch.set(obstacleEdges);
+        computeWedges();
+
+        // Keep the visibility edges of the previous build for reuse
+        for (int i = 0; i < visibilityEdges.size(); i++) {
+            spareEdges.add(visibilityEdges.get(i));
+        }
+        visibilityEdges.clear();
+
+        long n = vertices.size();
+        if (maxEdgeLength == Float.POSITIVE_INFINITY) {
+            totalWork = n * (n - 1) / 2;
+        } else {
+            vertexGrid.set(vertices, maxEdgeLength);
+            totalWork = n;
+        }
+        workDone = 0;
+        intersectionTests = 0;
+        buildRow = 0;
+        buildColumn = 1;
+        building = true;
+    }
+
+    /**
+     * Continue a rebuild started with {@link #beginRebuild} for at most about
+     * the specified time. Each call makes some progress, however small the
+     * budget, so a rebuild always completes eventually.
+     *
+     * @param budgetNanos time to spend in nanoseconds (e.g. 2000000 for
+     *                    2 ms of each frame)
+     *
+     * @return whether the rebuild is complete
+     */
+    public boolean stepRebuild(long budgetNanos) {
+        if (!building) return true;
+
+        long deadline = System.nanoTime()
+                + Math.min(Math.max(budgetNanos, 0), Long.MAX_VALUE / 4);
+
+        boolean complete = maxEdgeLength == Float.POSITIVE_INFINITY
+                ? constructWithNaive(deadline)
+                : constructWithRange(deadline);
+        if (!complete) return false;
+
+        assignEdgeIDs();
+        version = nextVersion.incrementAndGet();
+        building = false;
+        return true;
+    }
+
+    /**
+     * Get whether a rebuild started with {@link #beginRebuild} is still in
+     * progress.
+     *
+     * @return whether the graph is being rebuilt
+     */
+    public boolean isRebuilding() {
+        return building;
+    }
+
+    /**
+     * Get the progress of a rebuild started with {@link #beginRebuild}.
+     *
+     * @return fraction of the vertex pairs (or, with a maximum edge length,
+     *         of the vertices) processed, between 0 and 1
+     */
+    public float getRebuildProgress() {
+        if (!building || totalWork == 0) return 1f;
+        return workDone / (float) totalWork;
+    }
+
+    /**
+     * Get the number of vertex pairs tested against the obstacle edges by
+     * the last rebuild or {@link #setEndpoints} (including those of a
+     * rebuild in progress). Pairs of one obstacle and pairs out of range are
+     * not tested.
+     *
+     * @return the number of visibility tests
+     */
+    public long getIntersectionTests() {
+        return intersectionTests;
+    }
+
+    /**
+     * Get the start point vertex of this graph.
+     *
+     * @return the {@link VGVertex} of the start point
+     */
+    VGVertex getStartVertex() {
+        return vertices.get(STARTPOINT);
+    }
+
+    /**
+     * Get the end point vertex of this graph.
+     *
+     * @return the {@link VGVertex} of the end point
+     */
+    VGVertex getEndVertex() {
+        return vertices.get(ENDPOINT);
+    }
+
+    /**
+     * Get the maximum length of visibility edges.
+     *
+     * @return the maximum edge length ({@link Float#POSITIVE_INFINITY} if
+     *         edge length is not limited)
+     */
+    public float getMaxEdgeLength() {
+        return maxEdgeLength;
+    }
+
+    /**
+     * Move the start and end point of this Visibility Graph, keeping its
+     * obstacles. Only the edges of the two points are recomputed, which
+     * takes O(n * e) time for n vertices and e obstacle edges instead of the
+     * O(n^2 * e) of a full rebuild. This lets one graph answer many queries
+     * on the same map.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     */
+    public void setEndpoints(Vector2 startPoint, Vector2 endPoint) {
+        VGVertex start = vertices.get(STARTPOINT);
+        VGVertex end = vertices.get(ENDPOINT);
+
+        // Remove the edges of both points, keeping them for reuse
+        int kept = 0;
+        for (int i = 0; i < visibilityEdges.size(); i++) {
+            VGEdge edge = visibilityEdges.get(i);
+            if (edge.a == start || edge.b == start
+                    || edge.a == end || edge.b == end) {
+                spareEdges.add(edge);
+            } else {
+                visibilityEdges.set(kept++, edge);
+            }
+        }
+        while (visibilityEdges.size() > kept) {
+            visibilityEdges.remove(visibilityEdges.size() - 1);
+        }
+
+        ArrayList<VGVertex> startNeighbors = start.getAdjacentVertices();
+        for (int i = 0; i < startNeighbors.size(); i++) {
+            startNeighbors.get(i).removeNeighbor(start);
+        }
+        ArrayList<VGVertex> endNeighbors = end.getAdjacentVertices();
+        for (int i = 0; i < endNeighbors.size(); i++) {
+            endNeighbors.get(i).removeNeighbor(end);
+        }
+        start.clearNeighbors();
+        end.clearNeighbors();
+
+        start.pos.set(startPoint);
+        end.pos.set(endPoint);
+
+        intersectionTests = 0;
+        for (int i = 0; i < vertices.size(); i++) {
+            if (i != STARTPOINT) connect(start, vertices.get(i));
+        }
+        for (int i = 0; i < vertices.size(); i++) {
+            if (i != STARTPOINT && i != ENDPOINT) connect(end, vertices.get(i));
+        }
+
+        assignEdgeIDs();
+        version = nextVersion.incrementAndGet();
     }
 
     /**
      * Construction algorithm for visibility graph using the naive
-     * solution O(n^3).
+     * solution O(n^3). This continues from the build cursor until all pairs
+     * are tested or the deadline has passed.
+     *
+     * @param deadline value of {@link System#nanoTime()} to stop at
+     *
+     * @return whether all pairs are tested
      */
-    private void constructWithNaive() {
+    private boolean constructWithNaive(long deadline) {
 
         int numVertices = vertices.size();
+        int pairs = 0;
+
+        for (; buildRow < numVertices; buildRow++) {
+            VGVertex center = vertices.get(buildRow);
+            for (; buildColumn < numVertices; buildColumn++) {
+                if (++pairs == PAIRS_PER_CLOCK_CHECK) {
+                    pairs = 0;
+                    if (System.nanoTime() - deadline >= 0) return false;
+                }
 
-        for (int i = 0; i < numVertices; i++) {
-            VGVertex center = vertices.get(i);
-            for (int j = i; j < numVertices; j++) {
-                if (i == j) continue;
-                VGVertex vertex = vertices.get(j);
+                connect(center, vertices.get(buildColumn));
+                workDone++;
+            }
+            buildColumn = buildRow + 2;
+        }
 
-                // Skip pairs belonging to same non-zero group id
-                if (vertex.groupID == center.groupID && vertex.groupID != 0) {
-                    continue;
-                }
+        return true;
+    }
+
+    /**
+     * Construction algorithm for visibility graph with a maximum edge length.
+     * Vertices are sorted into a grid with cells at least as large as the
+     * range, so only pairs in neighboring cells are tested. This continues
+     * from the build cursor one vertex at a time until all vertices are
+     * processed or the deadline has passed.
+     *
+     * @param deadline value of {@link System#nanoTime()} to stop at
+     *
+     * @return whether all vertices are processed
+     */
+    private boolean constructWithRange(long deadline) {
+        int columns = vertexGrid.getColumns();
+
+        int numVertices = vertices.size();
+        for (int first = buildRow; buildRow < numVertices; buildRow++) {
+            if (buildRow > first && System.nanoTime() - deadline >= 0) {
+                return false;
+            }
 
-                boolean intersects = false;
-                VGEdge visEdge = new VGEdge(center, vertex, false);
-                for (VGEdge obstacleEdge : obstacleEdges) {
-                    if (visEdge.incidentTo(obstacleEdge)) continue;
-                    if (visEdge.intersects(obstacleEdge)) {
-                        intersects = true;
-                        break;
+            int i = buildRow;
+            VGVertex center = vertices.get(i);
+            int column0 = vertexGrid.column(center.pos.x - maxEdgeLength);
+            int column1 = vertexGrid.column(center.pos.x + maxEdgeLength);
+            int row0 = vertexGrid.row(center.pos.y - maxEdgeLength);
+            int row1 = vertexGrid.row(center.pos.y + maxEdgeLength);
+
+            for (int row = row0; row <= row1; row++) {
+                for (int column = column0; column <= column1; column++) {
+                    int cell = row * columns + column;
+                    int end = vertexGrid.cellEnd(cell);
+                    for (int k = vertexGrid.cellStart(cell); k < end; k++) {
+                        int j = vertexGrid.vertexAt(k);
+                        if (j > i) connect(center, vertices.get(j));
                     }
                 }
+            }
+            workDone++;
+        }
+
+        return true;
+    }
+
+    /**
+     * Private helper method to add a visibility edge between two vertices if
+     * they are within range and can see each other.
+     *
+     * @param center the first vertex
+     * @param vertex the second vertex
+     */
+    private void connect(VGVertex center, VGVertex vertex) {
+
+        // Skip pairs of one obstacle unless they may see each other across
+        // a notch of a concave obstacle
+        if (!VGObstacle.mayConnect(center, vertex)) {
+            return;
+        }
+
+        if (center.pos.dst2(vertex.pos) > maxEdgeLength * maxEdgeLength) {
+            return;
+        }
+
+        // Test against all obstacle edges not incident to the pair
+        intersectionTests++;
+        if (!obstacleBatch.intersectsAny(center, vertex)) {
+            VGEdge visEdge = obtainEdge(center, vertex);
+            visibilityEdges.add(visEdge);
+            visEdge.a.addNeighbor(visEdge.b, visEdge);
+            visEdge.b.addNeighbor(visEdge.a, visEdge);
+        }
+    }
+
+    /**
+     * Private helper method to compute the wedge of every vertex for
+     * {@link #tautAStar}: the bisector of its obstacle's corner if the
+     * corner is convex, (0, 0) if it is reflex or flat, since no shortest
+     * path bends there, and NaN for the start and end point and for
+     * degenerate obstacles without area. Obstacles given in clockwise order
+     * are recognized by their signed area.
+     */
+    private void computeWedges() {
+        int n = vertices.size();
+        if (wedges.length < 2 * n) {
+            wedges = new float[Math.max(2 * n, wedges.length * 2)];
+        }
+        wedges[2 * STARTPOINT] = Float.NaN;
+        wedges[2 * ENDPOINT] = Float.NaN;
+
+        for (int k = 0; k < obstacles.size(); k++) {
+            ArrayList<VGVertex> corners = obstacles.get(k).getVertices();
+            int size = corners.size();
+
+            float area = 0;
+            for (int i = 0; i < size; i++) {
+                Vector2 a = corners.get(i).pos;
+                Vector2 b = corners.get((i + 1) % size).pos;
+                area += a.x * b.y - a.y * b.x;
+            }
 
-                if (!intersects) {
-                    visibilityEdges.add(visEdge);
-                    visEdge.a.addNeighbor(visEdge.b, visEdge);
-                    visEdge.b.addNeighbor(visEdge.a, visEdge);
+            for (int i = 0; i < size; i++) {
+                VGVertex vertex = corners.get(i);
+                int index = 2 * vertex.ID;
+                if (area == 0) {
+                    wedges[index] = Float.NaN;
+                    wedges[index + 1] = Float.NaN;
+                    continue;
                 }
 
+                Vector2 pos = vertex.pos;
+                Vector2 prev = corners.get((i + size - 1) % size).pos;
+                Vector2 next = corners.get((i + 1) % size).pos;
+                float prevX = prev.x - pos.x;
+                float prevY = prev.y - pos.y;
+                float nextX = next.x - pos.x;
+                float nextY = next.y - pos.y;
+                float prevLength = (float) Math.sqrt(prevX * prevX + prevY * prevY);
+                float nextLength = (float) Math.sqrt(nextX * nextX + nextY * nextY);
+
+                // Convex corners turn the same way as the whole outline
+                float turn = nextX * prevY - nextY * prevX;
+                if (turn * area > 0 && prevLength > 0 && nextLength > 0) {
+                    wedges[index] = prevX / prevLength + nextX / nextLength;
+                    wedges[index + 1] = prevY / prevLength + nextY / nextLength;
+                } else {
+                    wedges[index] = 0;
+                    wedges[index + 1] = 0;
+                }
             }
         }
     }
 
+    /**
+     * Private helper method to number the edges of this graph. Edge IDs are
+     * their indices in the list of all edges (obstacle edges first), just as
+     * vertex IDs are their indices in the vertex list.
+     */
+    private void assignEdgeIDs() {
+        int numObstacleEdges = obstacleEdges.size();
+        for (int i = 0; i < numObstacleEdges; i++) {
+            obstacleEdges.get(i).ID = i;
+        }
+        for (int i = 0; i < visibilityEdges.size(); i++) {
+            visibilityEdges.get(i).ID = numObstacleEdges + i;
+        }
+    }
+
+    /**
+     * Private helper method to get a visibility edge between two vertices,
+     * reusing a spare edge of a previous build if one is available.
+     *
+     * @param a vertex A of Edge
+     * @param b vertex B of Edge
+     *
+     * @return the {@link VGEdge}
+     */
+    private VGEdge obtainEdge(VGVertex a, VGVertex b) {
+        if (spareEdges.isEmpty()) {
+            return new VGEdge(a, b, false);
+        }
+
+        VGEdge edge = spareEdges.remove(spareEdges.size() - 1);
+        edge.set(a, b, false);
+        return edge;
+    }
+
 //    /**
 //     * Private construction algorithm for visibility graph using Lee's
 //     * solution O(n^2 log n). TO BE IMPLEMENTED!!!
@@ -114,6 +604,17 @@ public class VisibilityGraph {
 //        }
 //    }
 
+    /**
+     * Get the version of this Visibility Graph. Every constructed graph gets
+     * a distinct version, so this can be used to detect changes (e.g. to
+     * decide whether cached render data must be rebuilt).
+     *
+     * @return the version of this graph
+     */
+    public long getVersion() {
+        return version;
+    }
+
     /**
      * Get start point of navigating agent.
      *
@@ -170,6 +671,36 @@ public class VisibilityGraph {
         return visibilityEdges;
     }
 
+    @Override
+    public int getVertexCount() {
+        return vertices.size();
+    }
+
+    @Override
+    public float getX(int vertex) {
+        return vertices.get(vertex).pos.x;
+    }
+
+    @Override
+    public float getY(int vertex) {
+        return vertices.get(vertex).pos.y;
+    }
+
+    @Override
+    public int getNeighborCount(int vertex) {
+        return vertices.get(vertex).getAdjacentVertices().size();
+    }
+
+    @Override
+    public int getNeighbor(int vertex, int index) {
+        return vertices.get(vertex).getAdjacentVertices().get(index).ID;
+    }
+
+    @Override
+    public float getWeight(int vertex, int index) {
+        return vertices.get(vertex).getIncidentEdges().get(index).weight;
+    }
+
     /**
      * Perform an A* search algorithm to find the shortest path between the
      * start and end point of this visibility graph. This returns a list of
@@ -178,84 +709,308 @@ public class VisibilityGraph {
      * @return {@link ArrayList} of {@link Vector2} objects
      */
     public ArrayList<Vector2> aStar() {
+        return aStar(VGHeuristic.EUCLIDEAN);
+    }
 
-        VGVertex startPoint = vertices.get(STARTPOINT);
-        VGVertex endPoint = vertices.get(ENDPOINT);
+    /**
+     * Perform an A* search algorithm guided by the specified heuristic to find
+     * the shortest path between the start and end point of this visibility
+     * graph. This returns a list of destination points to get to the end goal
+     * from the start point.
+     *
+     * @param heuristic the heuristic used to estimate remaining costs (e.g. a
+     *                  {@link LandmarkHeuristic} built for this graph)
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects
+     */
+    public ArrayList<Vector2> aStar(VGHeuristic heuristic) {
+        return aStar(heuristic, null);
+    }
 
-        HashMap<VGVertex, Float> hCost = new HashMap<>();
-        HashMap<VGVertex, Float> gCost = new HashMap<>();
-        HashMap<VGVertex, Float> fCost = new HashMap<>();
-        HashMap<VGVertex, VGVertex> parent = new HashMap<>();
-        HashSet<VGVertex> closed = new HashSet<>();
+    /**
+     * Perform an A* search algorithm guided by the specified heuristic to find
+     * the shortest path between the start and end point of this visibility
+     * graph, recording search statistics. This returns a list of destination
+     * points to get to the end goal from the start point.
+     *
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects
+     */
+    public ArrayList<Vector2> aStar(VGHeuristic heuristic, SearchStats stats) {
+        ArrayList<Vector2> destPoints = new ArrayList<>();
+        aStar(heuristic, stats, destPoints);
+        return destPoints;
+    }
 
-        Comparator<VGVertex> costComparator
-                = (o1, o2) -> Float.compare(fCost.get(o1), fCost.get(o2));
+    /**
+     * Perform an A* search algorithm guided by the specified heuristic to find
+     * the shortest path between the start and end point of this visibility
+     * graph, storing the destination points in the specified list. Apart from
+     * growing the list, this does not allocate, so it can be used for
+     * continuous replanning.
+     *
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     * @param destPoints list to store the destination points in (any previous
+     *                   contents are removed)
+     */
+    public void aStar(
+            VGHeuristic heuristic,
+            SearchStats stats,
+            ArrayList<Vector2> destPoints)
+    {
+        toDestinations(VGPathSearch.get().aStar(
+                vertices,
+                vertices.get(STARTPOINT),
+                vertices.get(ENDPOINT),
+                heuristic,
+                stats
+        ), destPoints);
+    }
 
-        PriorityQueue<VGVertex> priorityQueue
-                = new PriorityQueue<>(costComparator);
+    /**
+     * Perform an A* search algorithm which prunes edges that cannot continue
+     * a shortest path, to find the shortest path between the start and end
+     * point of this visibility graph. A shortest path only bends around a
+     * convex obstacle corner, in the direction that wraps the obstacle; each
+     * expanded vertex tests the turn from the edge it was reached by to
+     * each of its edges against its corner and skips edges which would not
+     * form a taut turn. This finds paths of the same length as
+     * {@link #aStar()} while relaxing far fewer edges.
+     * <p>
+     * This relies on the graph containing the shortest paths through free
+     * space, so the obstacles must not overlap or touch and the start and
+     * end point must lie outside them. Otherwise the graph has edges through
+     * obstacles or lacks edges past a contact point, and the pruned search
+     * may return a longer path or none where {@link #aStar()} finds one.
+     *
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects
+     */
+    public ArrayList<Vector2> tautAStar(VGHeuristic heuristic, SearchStats stats) {
+        ArrayList<Vector2> destPoints = new ArrayList<>();
+        tautAStar(heuristic, stats, destPoints);
+        return destPoints;
+    }
 
+    /**
+     * Perform an A* search algorithm which prunes edges that cannot continue
+     * a shortest path, as {@link #tautAStar(VGHeuristic, SearchStats)} does,
+     * storing the destination points in the specified list. Apart from
+     * growing the list, this does not allocate.
+     *
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     * @param destPoints list to store the destination points in (any previous
+     *                   contents are removed)
+     */
+    public void tautAStar(
+            VGHeuristic heuristic,
+            SearchStats stats,
+            ArrayList<Vector2> destPoints)
+    {
+        toDestinations(VGPathSearch.get().aStar(
+                vertices,
+                vertices.get(STARTPOINT),
+                vertices.get(ENDPOINT),
+                wedges,
+                heuristic,
+                stats
+        ), destPoints);
+    }
 
-        // Initialize Start Point Costs
-        hCost.put(startPoint, startPoint.pos.dst(endPoint.pos));
-        gCost.put(startPoint, 0f);
-        fCost.put(startPoint, hCost.get(startPoint) + gCost.get(startPoint));
-        priorityQueue.add(startPoint);
+    /**
+     * Perform an A* search algorithm guided by the specified heuristic to find
+     * the shortest path between two vertices of this visibility graph. This
+     * allows one graph to answer queries between any of its vertices, and
+     * returns a list of destination points to get from the first vertex to
+     * the second.
+     *
+     * @param from the vertex to start from
+     * @param to the vertex to find a path to
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects (empty if there is
+     *         no path)
+     */
+    public ArrayList<Vector2> aStar(
+            VGVertex from,
+            VGVertex to,
+            VGHeuristic heuristic,
+            SearchStats stats)
+    {
+        ArrayList<Vector2> destPoints = new ArrayList<>();
+        toDestinations(VGPathSearch.get().aStar(
+                vertices, from, to, heuristic, stats
+        ), destPoints);
+        return destPoints;
+    }
 
-        // Initialize Costs of all other vertices
-        for (int i = 1; i < vertices.size(); i++) {
-            VGVertex vertex = vertices.get(i);
-            hCost.put(vertex, vertex.pos.dst(endPoint.pos));
-            gCost.put(vertex, Float.POSITIVE_INFINITY);
-            fCost.put(vertex, hCost.get(vertex) + gCost.get(vertex));
-            priorityQueue.add(vertex);
+    /**
+     * Perform an A* search algorithm guided by the specified heuristic to find
+     * the shortest path between two arbitrary points, without moving the
+     * start and end point of this visibility graph. The edges of the two
+     * points are tested as the search reaches them instead of being added to
+     * the graph, so the graph is only read and several threads may search it
+     * at once, as long as it is not rebuilt and its endpoints are not moved
+     * meanwhile.
+     * <p>
+     * The two points are not vertices of the graph, so the heuristic is
+     * given them as vertices with ID -1. Heuristics which look up tables by
+     * vertex ID, like {@link LandmarkHeuristic}, must fall back to the
+     * straight line distance for such vertices; otherwise they would use
+     * the entries of the graph's own start and end point and may
+     * overestimate.
+     *
+     * @param startPoint starting point of navigating agent
+     * @param endPoint destination point of navigating agent
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of new {@link Vector2} objects (empty if
+     *         there is no path)
+     */
+    public ArrayList<Vector2> findPath(
+            Vector2 startPoint,
+            Vector2 endPoint,
+            VGHeuristic heuristic,
+            SearchStats stats)
+    {
+        if (building) {
+            throw new IllegalStateException("Graph is being rebuilt");
         }
 
-        // Visit vertices in queue
-        while (!priorityQueue.isEmpty()) {
-            VGVertex current = priorityQueue.poll();
-            closed.add(current);
-            ArrayList<VGVertex> adjacentVertices = current.getAdjacentVertices();
-            ArrayList<VGEdge> incidentEdges = current.getIncidentEdges();
-
-            for (int j = 0; j < adjacentVertices.size(); j++) {
-                VGVertex adjVertex = adjacentVertices.get(j);
-
-                if (closed.contains(adjVertex)) continue;
-
-                VGEdge incEdge = incidentEdges.get(j);
-
-                // Calculate new neighbor g and f cost
-                float g = gCost.get(current) + incEdge.weight;
-                float f = g + hCost.get(adjVertex);
-
-                if (f < fCost.get(adjVertex)) {
-                    gCost.put(adjVertex, g);
-                    fCost.put(adjVertex, f);
-                    parent.put(adjVertex, current);
-                    priorityQueue.remove(adjVertex);
-                    priorityQueue.add(adjVertex);
-                }
-            }
+        VGVertex start = new VGVertex(new Vector2(startPoint), VGVertex.NO_GROUP);
+        VGVertex end = new VGVertex(new Vector2(endPoint), VGVertex.NO_GROUP);
+        start.ID = STARTPOINT;
+        end.ID = ENDPOINT;
+
+        // The search indexes its tables by the IDs 0 and 1, but the
+        // heuristic must not mistake the points for the graph's own
+        // endpoints, so it is given copies without an ID
+        VGVertex startQuery = new VGVertex(start.pos, VGVertex.NO_GROUP);
+        VGVertex endQuery = new VGVertex(end.pos, VGVertex.NO_GROUP);
+        VGHeuristic queryHeuristic = (vertex, goal) -> heuristic.estimate(
+                vertex == start ? startQuery : vertex == end ? endQuery : vertex,
+                goal == start ? startQuery : endQuery
+        );
+
+        ArrayList<VGVertex> path = VGPathSearch.get().aStarBetweenPoints(
+                vertices,
+                start,
+                end,
+                obstacleBatch,
+                maxEdgeLength,
+                queryHeuristic,
+                stats
+        );
+
+        // Copy the points, since those of the graph move with a rebuild
+        ArrayList<Vector2> destPoints = new ArrayList<>(path.size());
+        for (int i = 1; i < path.size(); i++) {
+            destPoints.add(new Vector2(path.get(i).pos));
         }
+        path.clear();
 
-        if (parent.get(endPoint) == null) {
-            return new ArrayList<>();
-        }
+        return destPoints;
+    }
 
-        // Trace path from end point and return list of destinations
-        Stack<Vector2> stack = new Stack<>();
-        VGVertex current = endPoint;
-        while (current != startPoint) {
-            stack.push(current.pos);
-            current = parent.get(current);
-        }
+    /**
+     * Perform a bidirectional A* search to find the shortest path between the
+     * start and end point of this visibility graph. This returns the same
+     * list of destination points as {@link #aStar()}.
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects
+     */
+    public ArrayList<Vector2> bidirectionalAStar() {
+        return bidirectionalAStar(VGHeuristic.EUCLIDEAN, null);
+    }
 
+    /**
+     * Perform a bidirectional A* search guided by the specified heuristic to
+     * find the shortest path between the start and end point of this
+     * visibility graph. A forward search from the start point and a backward
+     * search from the end point are run alternately until they meet.
+     * <p>
+     * Both searches use the average potential p(v) = (h(v, end) -
+     * h(v, start)) / 2 (negated for the backward search), so that they work
+     * on the same non-negative reduced edge costs. The search can then stop
+     * as soon as the smallest keys of both queues add up to the length of the
+     * best path found so far. The heuristic must be consistent in both
+     * directions (both {@link VGHeuristic#EUCLIDEAN} and
+     * {@link LandmarkHeuristic} are).
+     *
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects
+     */
+    public ArrayList<Vector2> bidirectionalAStar(
+            VGHeuristic heuristic,
+            SearchStats stats)
+    {
         ArrayList<Vector2> destPoints = new ArrayList<>();
-        while (!stack.isEmpty()) {
-            destPoints.add(stack.pop());
-        }
+        toDestinations(VGPathSearch.get().bidirectionalAStar(
+                vertices,
+                vertices.get(STARTPOINT),
+                vertices.get(ENDPOINT),
+                heuristic,
+                stats
+        ), destPoints);
+        return destPoints;
+    }
 
+    /**
+     * Perform a bidirectional A* search guided by the specified heuristic to
+     * find the shortest path between two vertices of this visibility graph.
+     * This returns the same list of destination points as
+     * {@link #aStar(VGVertex, VGVertex, VGHeuristic, SearchStats)}.
+     *
+     * @param from the vertex to start from
+     * @param to the vertex to find a path to
+     * @param heuristic the heuristic used to estimate remaining costs
+     * @param stats statistics to record the search in (may be null)
+     *
+     * @return {@link ArrayList} of {@link Vector2} objects (empty if there is
+     *         no path)
+     */
+    public ArrayList<Vector2> bidirectionalAStar(
+            VGVertex from,
+            VGVertex to,
+            VGHeuristic heuristic,
+            SearchStats stats)
+    {
+        ArrayList<Vector2> destPoints = new ArrayList<>();
+        toDestinations(VGPathSearch.get().bidirectionalAStar(
+                vertices, from, to, heuristic, stats
+        ), destPoints);
         return destPoints;
     }
 
-}
\ No newline at end of file
+    /**
+     * Private helper method to convert a path of vertices into the list of
+     * destination points following the start point.
+     *
+     * @param path the vertices of the path, including the start point
+     * @param destPoints list to store the destination points in
+     */
+    private static void toDestinations(
+            ArrayList<VGVertex> path,
+            ArrayList<Vector2> destPoints)
+    {
+        destPoints.clear();
+        for (int i = 1; i < path.size(); i++) {
+            destPoints.add(path.get(i).pos);
+        }
+
+        // The search reuses the list; clearing it keeps the thread's search
+        // from holding on to this graph
+        path.clear();
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link PathPlanner} backed by a {@link VisibilityGraph}. The graph is built
+ * once, and each query only moves its start and end point with
+ * {@link VisibilityGraph#setEndpoints}. Paths are optimal, but the graph has
+ * O(n^2) edges for n obstacle vertices.
+ * <p>
+ * A planner reuses its graph between queries, so it must not be used from
+ * several threads at once.
+ */
+public class VisibilityGraphPlanner implements PathPlanner {
+
+    private final VisibilityGraph graph;
+    private final ArrayList<Vector2> destPoints;
+
+    /**
+     * Construct a Visibility Graph Planner.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     */
+    public VisibilityGraphPlanner(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius)
+    {
+        this(obstacles, agentRadius, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Construct a Visibility Graph Planner with a maximum length of
+     * visibility edges, for agents which only plan locally. See
+     * {@link VisibilityGraph} for how this affects paths.
+     *
+     * @param obstacles a list of obstacles defined as vertex arrays (vertices
+     *                  should be inserted in counter-clockwise order)
+     * @param agentRadius radius of navigating agent
+     * @param maxEdgeLength maximum length of visibility edges
+     */
+    public VisibilityGraphPlanner(
+            List<? extends List<Vector2>> obstacles,
+            float agentRadius,
+            float maxEdgeLength)
+    {
+        graph = new VisibilityGraph(
+                new Vector2(),
+                new Vector2(),
+                obstacles,
+                agentRadius,
+                maxEdgeLength
+        );
+        destPoints = new ArrayList<>();
+    }
+
+    /**
+     * Get the visibility graph of this planner.
+     *
+     * @return the {@link VisibilityGraph}
+     */
+    public VisibilityGraph getGraph() {
+        return graph;
+    }
+
+    @Override
+    public ArrayList<Vector2> findPath(Vector2 startPoint, Vector2 endPoint) {
+        graph.setEndpoints(startPoint, endPoint);
+        graph.aStar(VGHeuristic.EUCLIDEAN, null, destPoints);
+
+        // Copy the points, since the end point moves with the next query
+        ArrayList<Vector2> path = new ArrayList<>(destPoints.size());
+        for (int i = 0; i < destPoints.size(); i++) {
+            path.add(new Vector2(destPoints.get(i)));
+        }
+
+        return path;
+    }
+}
@@ -0,0 +1,110 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ObstacleImporterTest {
+
+    private static final float EPSILON = 0.01f;
+
+    private static final Vector2 START = new Vector2(105, 10);
+    private static final Vector2 END = new Vector2(10, 105);
+
+    // Shortest path across the notch of the L via its two convex corners
+    private static final float ACROSS_NOTCH = START.dst(100, 40)
+            + Vector2.dst(100, 40, 40, 100) + END.dst(40, 100);
+
+    /**
+     * Import an L shape of 100 x 100 world units with 40 units wide arms
+     * along the bottom and left side.
+     */
+    private static ArrayList<ArrayList<Vector2>> importL() {
+        int size = 10;
+        boolean[] occupied = new boolean[size * size];
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                int y = size - 1 - row;
+                occupied[row * size + column] = y < 4 || column < 4;
+            }
+        }
+
+        ObstacleImporter importer = new ObstacleImporter(0);
+        importer.setScale(10);
+        return importer.importGrid(occupied, size, size).getObstacles();
+    }
+
+    private static float length(Vector2 start, ArrayList<Vector2> path) {
+        float length = 0;
+        Vector2 previous = start;
+        for (Vector2 point : path) {
+            length += previous.dst(point);
+            previous = point;
+        }
+        return length;
+    }
+
+    @Test
+    public void importsConcaveOutline() {
+        ArrayList<ArrayList<Vector2>> obstacles = importL();
+        assertEquals(1, obstacles.size());
+        assertEquals(6, obstacles.get(0).size());
+
+        VGObstacle obstacle = new VGObstacle(0, obstacles.get(0), 0);
+        assertFalse(obstacle.isConvex());
+        assertTrue(obstacle.contains(20, 20));
+        assertFalse(obstacle.contains(70, 70));
+    }
+
+    @Test
+    public void pathCutsAcrossNotch() {
+        ArrayList<ArrayList<Vector2>> obstacles = importL();
+        VisibilityGraph graph = new VisibilityGraph(START, END, obstacles, 0);
+
+        ArrayList<Vector2> path = graph.aStar();
+        assertEquals(ACROSS_NOTCH, length(START, path), EPSILON);
+    }
+
+    @Test
+    public void noEdgeEntersConcaveObstacle() {
+        ArrayList<ArrayList<Vector2>> obstacles = importL();
+        VisibilityGraph graph = new VisibilityGraph(START, END, obstacles, 0);
+        VGObstacle obstacle = new VGObstacle(0, obstacles.get(0), 0);
+
+        boolean acrossNotch = false;
+        for (VGEdge edge : graph.getVisibilityEdges()) {
+            float x = (edge.a.pos.x + edge.b.pos.x) / 2;
+            float y = (edge.a.pos.y + edge.b.pos.y) / 2;
+            assertFalse("Edge through the obstacle", obstacle.contains(x, y));
+            acrossNotch |= edge.a.groupID == edge.b.groupID;
+        }
+        assertTrue(acrossNotch);
+    }
+
+    @Test
+    public void graphsAgreeOnConcaveObstacle() {
+        ArrayList<ArrayList<Vector2>> obstacles = importL();
+
+        PathPlanner[] planners = {
+                new VisibilityGraphPlanner(obstacles, 0),
+                new LazyVisibilityGraph(obstacles, 0),
+                new OffHeapGraph(obstacles, 0),
+        };
+        for (PathPlanner planner : planners) {
+            ArrayList<Vector2> path = planner.findPath(START, END);
+            assertEquals(planner.getClass().getSimpleName(),
+                    ACROSS_NOTCH, length(START, path), EPSILON);
+        }
+
+        VersionedGraph versioned = new VersionedGraph(obstacles, 0);
+        try (VersionedGraph.Snapshot snapshot = versioned.acquire()) {
+            ArrayList<Vector2> path = snapshot.findPath(START, END);
+            assertEquals(ACROSS_NOTCH, length(START, path), EPSILON);
+        }
+    }
+}
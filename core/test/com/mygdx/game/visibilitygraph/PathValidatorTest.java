@@ -0,0 +1,157 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PathValidatorTest {
+
+    private static final float EPSILON = 0.01f;
+    private static final float AGENT_RADIUS = 1f;
+
+    private static ArrayList<Vector2> box(float x, float y, float width, float height) {
+        ArrayList<Vector2> shape = new ArrayList<>();
+        shape.add(new Vector2(x, y));
+        shape.add(new Vector2(x + width, y));
+        shape.add(new Vector2(x + width, y + height));
+        shape.add(new Vector2(x, y + height));
+        return shape;
+    }
+
+    private static float length(Vector2 start, List<Vector2> path) {
+        if (path.isEmpty()) return -1;
+
+        float length = 0;
+        Vector2 previous = start;
+        for (Vector2 point : path) {
+            length += previous.dst(point);
+            previous = point;
+        }
+        return length;
+    }
+
+    private static ArrayList<Vector2> findPath(
+            TreeMap<Integer, ArrayList<Vector2>> obstacles,
+            Vector2 start,
+            Vector2 end)
+    {
+        VisibilityGraph graph = new VisibilityGraph(
+                new Vector2(), new Vector2(),
+                new ArrayList<>(obstacles.values()), AGENT_RADIUS);
+        return graph.findPath(start, end, VGHeuristic.EUCLIDEAN, null);
+    }
+
+    @Test
+    public void keptPathsMatchFreshSearch() {
+        Random random = new Random(1);
+        TreeMap<Integer, ArrayList<Vector2>> obstacles = new TreeMap<>();
+        for (int i = 0; i < 30; i++) {
+            obstacles.put(i, box(20 + (i % 6) * 90, 20 + (i / 6) * 90, 40, 30));
+        }
+        int nextKey = obstacles.size();
+
+        PathValidator validator = new PathValidator(AGENT_RADIUS);
+        int kept = 0;
+        int replanned = 0;
+        for (int trial = 0; trial < 200; trial++) {
+            Vector2 start = new Vector2(random.nextFloat() * 550, random.nextFloat() * 450);
+            Vector2 end = new Vector2(random.nextFloat() * 550, random.nextFloat() * 450);
+            ArrayList<Vector2> path = findPath(obstacles, start, end);
+
+            ArrayList<ArrayList<Vector2>> oldShapes = new ArrayList<>();
+            ArrayList<ArrayList<Vector2>> newShapes = new ArrayList<>();
+            int numChanges = 1 + random.nextInt(2);
+            for (int k = 0; k < numChanges; k++) {
+                ArrayList<Integer> keys = new ArrayList<>(obstacles.keySet());
+                int kind = random.nextInt(3);
+                if (kind == 0) {
+                    ArrayList<Vector2> shape = box(random.nextFloat() * 500, random.nextFloat() * 400,
+                            5 + random.nextFloat() * 40, 5 + random.nextFloat() * 40);
+                    newShapes.add(shape);
+                    obstacles.put(nextKey++, shape);
+                } else if (kind == 1) {
+                    int key = keys.get(random.nextInt(keys.size()));
+                    ArrayList<Vector2> shape = new ArrayList<>();
+                    for (Vector2 point : obstacles.get(key)) {
+                        shape.add(new Vector2(point).add(
+                                random.nextFloat() * 30 - 15, random.nextFloat() * 30 - 15));
+                    }
+                    oldShapes.add(obstacles.get(key));
+                    newShapes.add(shape);
+                    obstacles.put(key, shape);
+                } else {
+                    int key = keys.get(random.nextInt(keys.size()));
+                    oldShapes.add(obstacles.remove(key));
+                }
+            }
+
+            PathValidator.Result result = validator.validate(start, path, oldShapes, newShapes);
+            if (result.needsReplanning()) {
+                replanned++;
+                continue;
+            }
+
+            kept++;
+            assertEquals(
+                    length(start, findPath(obstacles, start, end)),
+                    length(start, path),
+                    EPSILON);
+        }
+
+        assertTrue("Kept " + kept + " paths", kept > 20);
+        assertTrue("Replanned " + replanned + " paths", replanned > 20);
+    }
+
+    @Test
+    public void emptyPathIsValid() {
+        PathValidator validator = new PathValidator(AGENT_RADIUS);
+        Vector2 start = new Vector2(10, 10);
+        List<Vector2> path = Collections.emptyList();
+        List<ArrayList<Vector2>> none = Collections.emptyList();
+        List<ArrayList<Vector2>> shapes = Collections.singletonList(box(0, 0, 50, 50));
+
+        PathValidator.Result result = validator.validate(start, path, none, shapes);
+        assertTrue(result.isValid());
+        assertFalse(result.needsReplanning());
+
+        // Removing an obstacle may open up a path
+        result = validator.validate(start, path, shapes, none);
+        assertTrue(result.isValid());
+        assertTrue(result.isPossiblySuboptimal());
+    }
+
+    @Test
+    public void removedObstacleMayShortenPath() {
+        TreeMap<Integer, ArrayList<Vector2>> obstacles = new TreeMap<>();
+        obstacles.put(0, box(90, 0, 20, 150));
+        obstacles.put(1, box(300, 300, 20, 20));
+        Vector2 start = new Vector2(50, 50);
+        Vector2 end = new Vector2(150, 50);
+        ArrayList<Vector2> path = findPath(obstacles, start, end);
+
+        PathValidator validator = new PathValidator(AGENT_RADIUS);
+        List<ArrayList<Vector2>> none = Collections.emptyList();
+
+        // An obstacle far from the path cannot have blocked a shorter one
+        PathValidator.Result result = validator.validate(
+                start, path, Collections.singletonList(obstacles.get(1)), none);
+        assertFalse(result.needsReplanning());
+
+        // The wall the path goes around can
+        result = validator.validate(
+                start, path, Collections.singletonList(obstacles.remove(0)), none);
+        assertTrue(result.isValid());
+        assertTrue(result.isPossiblySuboptimal());
+        assertTrue(length(start, findPath(obstacles, start, end)) + EPSILON
+                < length(start, path));
+    }
+}
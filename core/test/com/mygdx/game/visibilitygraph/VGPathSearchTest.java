@@ -0,0 +1,113 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VGPathSearchTest {
+
+    private static final float EPSILON = 0.01f;
+
+    /**
+     * Create a plus shaped obstacle, which has 8 convex and 4 reflex
+     * corners, in counter-clockwise order.
+     */
+    private static ArrayList<Vector2> plus(float x, float y, float width, float length) {
+        float[][] corners = {
+                {width, -length}, {width, -width}, {length, -width},
+                {length, width}, {width, width}, {width, length},
+                {-width, length}, {-width, width}, {-length, width},
+                {-length, -width}, {-width, -width}, {-width, -length},
+        };
+
+        ArrayList<Vector2> shape = new ArrayList<>();
+        for (float[] corner : corners) {
+            shape.add(new Vector2(x + corner[0], y + corner[1]));
+        }
+        return shape;
+    }
+
+    /**
+     * Create a grid of separate plus shaped obstacles, every other row
+     * shifted to the side.
+     */
+    private static ArrayList<ArrayList<Vector2>> concaveField() {
+        ArrayList<ArrayList<Vector2>> obstacles = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            for (int j = 0; j < 6; j++) {
+                obstacles.add(plus(50 + i * 100 + (j % 2) * 30, 50 + j * 100, 8, 35));
+            }
+        }
+        return obstacles;
+    }
+
+    private static float length(Vector2 start, ArrayList<Vector2> path) {
+        float length = 0;
+        Vector2 previous = start;
+        for (Vector2 point : path) {
+            length += previous.dst(point);
+            previous = point;
+        }
+        return length;
+    }
+
+    @Test
+    public void reflexCornerOnlyContinuesStraight() {
+        assertTrue(VGPathSearch.isTautTurn(1, 0, 2, 0, 0, 0));
+        assertFalse(VGPathSearch.isTautTurn(1, 0, 0, 1, 0, 0));
+        assertFalse(VGPathSearch.isTautTurn(1, 0, 0, -1, 0, 0));
+        assertFalse(VGPathSearch.isTautTurn(1, 0, -1, 0, 0, 0));
+    }
+
+    @Test
+    public void convexCornerWrapsWedge() {
+        // Corner below the path, so only right turns wrap it
+        assertTrue(VGPathSearch.isTautTurn(1, 0, 1, -1, -1, -1));
+        assertFalse(VGPathSearch.isTautTurn(1, 0, 1, 1, -1, -1));
+    }
+
+    @Test
+    public void searchesAgreeOnSameVertex() {
+        VisibilityGraph graph = new VisibilityGraph(
+                new Vector2(0, 0), new Vector2(640, 600), concaveField(), 1f);
+        ContractionHierarchy hierarchy = new ContractionHierarchy(graph);
+
+        ArrayList<VGVertex> vertices = graph.getVertices();
+        for (int i = 0; i < vertices.size(); i += 7) {
+            VGVertex vertex = vertices.get(i);
+            assertTrue(graph.aStar(vertex, vertex, VGHeuristic.EUCLIDEAN, null).isEmpty());
+            assertTrue(graph.bidirectionalAStar(vertex, vertex, VGHeuristic.EUCLIDEAN, null).isEmpty());
+            assertTrue(hierarchy.query(i, i).isEmpty());
+        }
+    }
+
+    @Test
+    public void tautSearchOnConcaveField() {
+        ArrayList<ArrayList<Vector2>> obstacles = concaveField();
+        VisibilityGraph graph = new VisibilityGraph(
+                new Vector2(0, 0), new Vector2(640, 600), obstacles, 1f);
+
+        Vector2[][] queries = {
+                {new Vector2(0, 0), new Vector2(640, 600)},
+                {new Vector2(5, 590), new Vector2(630, 10)},
+                {new Vector2(0, 300), new Vector2(640, 300)},
+                {new Vector2(300, 0), new Vector2(330, 600)},
+        };
+        SearchStats plain = new SearchStats();
+        SearchStats taut = new SearchStats();
+        for (Vector2[] query : queries) {
+            graph.setEndpoints(query[0], query[1]);
+            float expected = length(query[0], graph.aStar(VGHeuristic.EUCLIDEAN, plain));
+            float actual = length(query[0], graph.tautAStar(VGHeuristic.EUCLIDEAN, taut));
+            assertEquals(expected, actual, EPSILON);
+        }
+
+        assertTrue("Relaxed " + taut.getRelaxations() + " of " + plain.getRelaxations(),
+                taut.getRelaxations() * 4 < plain.getRelaxations());
+    }
+}
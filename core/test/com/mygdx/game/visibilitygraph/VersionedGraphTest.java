@@ -0,0 +1,160 @@
+package com.mygdx.game.visibilitygraph;
+
+import com.badlogic.gdx.math.Vector2;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class VersionedGraphTest {
+
+    private static final float EPSILON = 0.01f;
+
+    private static ArrayList<Vector2> box(float x, float y, float width, float height) {
+        ArrayList<Vector2> shape = new ArrayList<>();
+        shape.add(new Vector2(x, y));
+        shape.add(new Vector2(x + width, y));
+        shape.add(new Vector2(x + width, y + height));
+        shape.add(new Vector2(x, y + height));
+        return shape;
+    }
+
+    private static float length(Vector2 start, List<Vector2> path) {
+        if (path.isEmpty()) return -1;
+
+        float length = 0;
+        Vector2 previous = start;
+        for (Vector2 point : path) {
+            length += previous.dst(point);
+            previous = point;
+        }
+        return length;
+    }
+
+    /**
+     * Describe an undirected edge by the positions of its end vertices, so
+     * that edges of graphs with different vertex IDs can be compared.
+     */
+    private static String edge(float ax, float ay, float bx, float by) {
+        String a = ax + "," + ay;
+        String b = bx + "," + by;
+        return a.compareTo(b) < 0 ? a + " " + b : b + " " + a;
+    }
+
+    /**
+     * Collect the edges between obstacle vertices of a freshly built graph.
+     */
+    private static Set<String> edges(VisibilityGraph graph) {
+        Set<String> edges = new HashSet<>();
+        for (VGEdge e : graph.getAllEdges()) {
+            if (e.a.ID > 1 && e.b.ID > 1) {
+                edges.add(edge(e.a.pos.x, e.a.pos.y, e.b.pos.x, e.b.pos.y));
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Collect the edges between obstacle vertices of a snapshot.
+     */
+    private static Set<String> edges(VersionedGraph.Snapshot snapshot) {
+        Set<String> edges = new HashSet<>();
+        for (int v = 2; v < snapshot.getVertexCount(); v++) {
+            for (int i = 0; i < snapshot.getNeighborCount(v); i++) {
+                int w = snapshot.getNeighbor(v, i);
+                edges.add(edge(snapshot.getX(v), snapshot.getY(v),
+                        snapshot.getX(w), snapshot.getY(w)));
+            }
+        }
+        return edges;
+    }
+
+    private static void assertSameGraph(
+            TreeMap<Integer, ArrayList<Vector2>> obstacles,
+            VersionedGraph.Snapshot snapshot,
+            Random random)
+    {
+        VisibilityGraph reference = new VisibilityGraph(
+                new Vector2(), new Vector2(),
+                new ArrayList<>(obstacles.values()), 1f);
+        assertEquals(edges(reference), edges(snapshot));
+
+        for (int q = 0; q < 50; q++) {
+            Vector2 start = new Vector2(random.nextFloat() * 550, random.nextFloat() * 450);
+            Vector2 end = new Vector2(random.nextFloat() * 550, random.nextFloat() * 450);
+            assertEquals(
+                    length(start, reference.findPath(start, end, VGHeuristic.EUCLIDEAN, null)),
+                    length(start, snapshot.findPath(start, end)),
+                    EPSILON);
+        }
+    }
+
+    @Test
+    public void randomEditsMatchFreshGraph() {
+        Random random = new Random(1);
+        TreeMap<Integer, ArrayList<Vector2>> obstacles = new TreeMap<>();
+        for (int i = 0; i < 30; i++) {
+            obstacles.put(i, box(20 + (i % 6) * 90, 20 + (i / 6) * 90, 40, 30));
+        }
+
+        VersionedGraph graph = new VersionedGraph(new ArrayList<>(obstacles.values()), 1f);
+        ArrayList<VersionedGraph.Snapshot> pinned = new ArrayList<>();
+        ArrayList<TreeMap<Integer, ArrayList<Vector2>>> pinnedObstacles = new ArrayList<>();
+        int nextKey = obstacles.size();
+
+        for (int step = 0; step < 30; step++) {
+            VersionedGraph.Edit edit = graph.edit();
+            int numChanges = 1 + random.nextInt(3);
+            for (int k = 0; k < numChanges; k++) {
+                ArrayList<Integer> keys = new ArrayList<>(obstacles.keySet());
+                int kind = keys.isEmpty() ? 0 : random.nextInt(3);
+                if (kind == 0) {
+                    ArrayList<Vector2> shape = box(random.nextFloat() * 500, random.nextFloat() * 400,
+                            5 + random.nextFloat() * 40, 5 + random.nextFloat() * 40);
+                    edit.put(nextKey, shape);
+                    obstacles.put(nextKey++, shape);
+                } else if (kind == 1) {
+                    int key = keys.get(random.nextInt(keys.size()));
+                    ArrayList<Vector2> shape = new ArrayList<>();
+                    for (Vector2 point : obstacles.get(key)) {
+                        shape.add(new Vector2(point).add(
+                                random.nextFloat() * 30 - 15, random.nextFloat() * 30 - 15));
+                    }
+                    edit.put(key, shape);
+                    obstacles.put(key, shape);
+                } else {
+                    int key = keys.get(random.nextInt(keys.size()));
+                    edit.remove(key);
+                    obstacles.remove(key);
+                }
+            }
+            edit.commit();
+
+            try (VersionedGraph.Snapshot snapshot = graph.acquire()) {
+                assertSameGraph(obstacles, snapshot, random);
+            }
+
+            // Keep some versions pinned while later ones are committed
+            if (step % 5 == 0) {
+                pinned.add(graph.acquire());
+                pinnedObstacles.add(new TreeMap<>(obstacles));
+            }
+        }
+
+        assertEquals(pinned.size() + 1, graph.getLiveVersions());
+
+        // Pinned versions are unaffected by later commits
+        for (int i = 0; i < pinned.size(); i++) {
+            assertSameGraph(pinnedObstacles.get(i), pinned.get(i), random);
+            pinned.get(i).release();
+        }
+
+        assertEquals(1, graph.getLiveVersions());
+    }
+}